@@ -0,0 +1,72 @@
+package in.bushansirgur.billingsoftware.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * PostgreSQL indexes behind the order search box that JPA annotations cannot express:
+ * pattern-ops B-trees for the order id / phone prefix matches and a trigram GIN index for
+ * customer name substrings. Also fills the search columns of orders created before they existed.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class OrderSearchIndexes implements InitializingBean {
+
+    private static final int BACKFILL_BATCH_SIZE = 5000;
+    // Normalizing a non-null name or phone never yields NULL, so a filled row no longer matches
+    private static final String MISSING_SEARCH_KEYS =
+            "(customer_name IS NOT NULL AND customer_name_search IS NULL) OR (phone_number IS NOT NULL AND phone_digits IS NULL)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        String database = jdbcTemplate.execute((java.sql.Connection connection) ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            return;
+        }
+
+        backfillSearchKeys();
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_orders_order_id_prefix ON tbl_orders (order_id varchar_pattern_ops)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_orders_phone_digits_prefix ON tbl_orders (phone_digits varchar_pattern_ops)");
+        // Superseded by the pattern-ops index above; ddl-auto=update does not drop indexes itself
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_orders_phone_digits");
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_orders_customer_name_trgm ON tbl_orders USING gin (customer_name_search gin_trgm_ops)");
+        } catch (DataAccessException ex) {
+            log.warn("pg_trgm is not available, customer name search will scan tbl_orders: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Fills the search keys in batches of {@value #BACKFILL_BATCH_SIZE}, each committed on its own.
+     * The rows still to fill are found through a partial index on exactly those rows. Orders are
+     * saved with their keys set, so once the backfill has run the index is empty and a restart only
+     * probes it.
+     */
+    private void backfillSearchKeys() {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_orders_search_keys_missing ON tbl_orders (id) WHERE " + MISSING_SEARCH_KEYS);
+        int backfilled = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update("UPDATE tbl_orders SET " +
+                    "customer_name_search = lower(regexp_replace(trim(customer_name), '\\s+', ' ', 'g')), " +
+                    "phone_digits = regexp_replace(phone_number, '\\D', '', 'g') " +
+                    "WHERE id IN (SELECT id FROM tbl_orders WHERE " + MISSING_SEARCH_KEYS + " LIMIT " + BACKFILL_BATCH_SIZE + ")");
+            backfilled += batch;
+        } while (batch > 0);
+        if (backfilled > 0) {
+            log.info("Filled order search keys for {} existing orders", backfilled);
+        }
+    }
+}
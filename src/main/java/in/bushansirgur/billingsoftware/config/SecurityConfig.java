@@ -97,6 +97,7 @@ public class SecurityConfig {
                             "/category",
                             "/items",
                             "/items/**",
+                            "/catalog/**",
                             "/loyalty/**",
                             "/dashboard",
                             "/dashboard/**"
@@ -152,7 +153,7 @@ public class SecurityConfig {
         
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         config.setAllowedHeaders(List.of("*"));
-        config.setExposedHeaders(List.of("Authorization"));
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor"));
         config.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,50 @@
+package in.bushansirgur.billingsoftware.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Migration path for tables created while their keys were IDENTITY columns.
+ * ddl-auto=update creates the new pooled sequences starting at 1, so on PostgreSQL each
+ * sequence is moved past the highest existing id at startup, before any request can insert.
+ * The existing IDENTITY defaults are left in place; they are simply no longer used.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class SequenceKeyMigration implements InitializingBean {
+
+    private static final Map<String, String> SEQUENCES_BY_TABLE = Map.of(
+            "tbl_orders", "tbl_orders_seq",
+            "tbl_order_items", "tbl_order_items_seq",
+            "tbl_inventory_transactions", "tbl_inventory_transactions_seq",
+            "tbl_loyalty_transactions", "tbl_loyalty_transactions_seq",
+            "tbl_fiscal_receipts", "tbl_fiscal_receipts_seq"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void afterPropertiesSet() {
+        String database = jdbcTemplate.execute((java.sql.Connection connection) ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            return;
+        }
+        SEQUENCES_BY_TABLE.forEach((table, sequence) -> {
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+            if (maxId != null && lastValue != null && maxId >= lastValue) {
+                jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', ?)", Long.class, maxId);
+                log.info("Moved sequence {} past existing ids of {} (max id {})", sequence, table, maxId);
+            }
+        });
+    }
+}
@@ -0,0 +1,85 @@
+package in.bushansirgur.billingsoftware.controller;
+
+import in.bushansirgur.billingsoftware.io.CatalogChangesResponse;
+import in.bushansirgur.billingsoftware.service.CatalogService;
+import in.bushansirgur.billingsoftware.service.CatalogSnapshots;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/catalog")
+@RequiredArgsConstructor
+public class CatalogController {
+
+    private final CatalogService catalogService;
+    private final CatalogSnapshots catalogSnapshots;
+
+    // Delta sync for registers: start from 0, then pass the returned version back as since
+    @GetMapping("/changes")
+    public CatalogChangesResponse getChanges(@RequestParam(defaultValue = "0") long since,
+                                             @RequestParam(required = false) Integer limit) {
+        return catalogService.getChanges(since, limit);
+    }
+
+    // Whole catalog for register login; If-None-Match with the last ETag answers 304 when unchanged
+    @GetMapping("/snapshot")
+    public ResponseEntity<byte[]> getSnapshot(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogSnapshots.Snapshot snapshot = catalogSnapshots.current();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.eTag(snapshot.etag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(snapshot.gzipped());
+        }
+        // Clients without gzip get the plain document, under its own validator
+        return response.eTag(snapshot.identityEtag())
+                .body(snapshot.identity());
+    }
+
+    // RFC 9110 Accept-Encoding: gzip (or x-gzip, or * when gzip is not named) with a q-value above 0
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException ex) {
+                        q = 0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = gzip == null ? q : Math.max(gzip, q);
+            } else if (coding.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+}
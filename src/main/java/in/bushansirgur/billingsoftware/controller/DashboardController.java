@@ -2,10 +2,15 @@ package in.bushansirgur.billingsoftware.controller;
 
 import in.bushansirgur.billingsoftware.io.DashboardResponse;
 import in.bushansirgur.billingsoftware.io.OrderResponse;
+import in.bushansirgur.billingsoftware.io.SalesReconciliation;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
 import in.bushansirgur.billingsoftware.service.OrderService;
+import in.bushansirgur.billingsoftware.service.SalesAggregator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDate;
@@ -17,17 +22,26 @@ import java.util.List;
 public class DashboardController {
 
     private final OrderService orderService;
+    private final SalesAggregator salesAggregator;
 
     @GetMapping
     public DashboardResponse getDashboardData() {
         LocalDate today = LocalDate.now();
-        Double todaySale = orderService.sumSalesByDate(today);
-        Long todayOrderCount = orderService.countByOrderDate(today);
+        SalesTotals todayTotals = salesAggregator.totalsForDay(today);
         List<OrderResponse> recentOrders = orderService.findRecentOrders();
-        return new DashboardResponse(
-                todaySale != null ? todaySale : 0.0,
-                todayOrderCount != null ? todayOrderCount : 0,
-                recentOrders
-        );
+        return DashboardResponse.builder()
+                .todaySales(todayTotals.getTotal())
+                .todayOrderCount(todayTotals.getOrderCount())
+                .recentOrders(recentOrders)
+                .salesByHour(salesAggregator.totalsByHour(today))
+                .salesByCashier(salesAggregator.totalsByCashier(today))
+                .salesByPaymentMethod(salesAggregator.totalsByPaymentMethod(today))
+                .build();
+    }
+
+    @GetMapping("/reconciliation")
+    public SalesReconciliation reconcile(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return salesAggregator.reconcile(date != null ? date : LocalDate.now());
     }
 }
@@ -1,13 +1,34 @@
 package in.bushansirgur.billingsoftware.controller;
 
+import in.bushansirgur.billingsoftware.entity.StockSnapshotEntity;
+import in.bushansirgur.billingsoftware.io.CursorPage;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentRequest;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentResponse;
 import in.bushansirgur.billingsoftware.io.InventoryRequest;
 import in.bushansirgur.billingsoftware.io.InventoryResponse;
 import in.bushansirgur.billingsoftware.io.InventorySummaryResponse;
+import in.bushansirgur.billingsoftware.io.ItemMovementHistoryResponse;
+import in.bushansirgur.billingsoftware.io.StockAtResponse;
+import in.bushansirgur.billingsoftware.service.InventoryDocumentService;
 import in.bushansirgur.billingsoftware.service.InventoryService;
+import in.bushansirgur.billingsoftware.service.StockMovementRollupService;
+import in.bushansirgur.billingsoftware.service.StockSnapshotService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -16,6 +37,9 @@ import java.util.List;
 public class InventoryController {
 
     private final InventoryService inventoryService;
+    private final StockSnapshotService stockSnapshotService;
+    private final InventoryDocumentService inventoryDocumentService;
+    private final StockMovementRollupService stockMovementRollupService;
 
     // Stock operations
     @PostMapping("/stock/add")
@@ -73,17 +97,104 @@ public class InventoryController {
         return ResponseEntity.ok(response);
     }
 
-    // Transaction history
+    @GetMapping("/summary/low-stock")
+    public ResponseEntity<Page<InventoryResponse>> getLowStockPage(@PageableDefault(size = 20, sort = "name") Pageable pageable) {
+        return ResponseEntity.ok(inventoryService.getLowStockItems(pageable));
+    }
+
+    @GetMapping("/summary/out-of-stock")
+    public ResponseEntity<Page<InventoryResponse>> getOutOfStockPage(@PageableDefault(size = 20, sort = "name") Pageable pageable) {
+        return ResponseEntity.ok(inventoryService.getOutOfStockItems(pageable));
+    }
+
+    @GetMapping("/summary/overstock")
+    public ResponseEntity<Page<InventoryResponse>> getOverstockPage(@PageableDefault(size = 20, sort = "name") Pageable pageable) {
+        return ResponseEntity.ok(inventoryService.getOverstockItems(pageable));
+    }
+
+    // Transaction history, newest first; the next page's cursor comes back in X-Next-Cursor
     @GetMapping("/transactions/{itemId}")
-    public ResponseEntity<List<InventoryResponse>> getItemTransactionHistory(@PathVariable String itemId) {
-        List<InventoryResponse> response = inventoryService.getItemTransactionHistory(itemId);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<List<InventoryResponse>> getItemTransactionHistory(
+            @PathVariable String itemId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        return withNextCursor(inventoryService.getItemTransactionHistory(itemId, cursor, size));
     }
 
     @GetMapping("/transactions/recent")
-    public ResponseEntity<List<InventoryResponse>> getRecentTransactions() {
-        List<InventoryResponse> response = inventoryService.getRecentTransactions();
-        return ResponseEntity.ok(response);
+    public ResponseEntity<List<InventoryResponse>> getRecentTransactions(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size) {
+        return withNextCursor(inventoryService.getRecentTransactions(cursor, size));
+    }
+
+    /**
+     * Stock movements between two dates (inclusive) as CSV, streamed while the ledger is read.
+     */
+    @GetMapping("/movements/export")
+    public ResponseEntity<StreamingResponseBody> exportMovements(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
+        StreamingResponseBody body = out -> {
+            // UTF-8 BOM so Excel reads Cyrillic item names correctly
+            out.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            inventoryService.exportMovements(dateFrom.atStartOfDay(), dateTo.plusDays(1).atStartOfDay(), writer);
+            writer.flush();
+        };
+        String filename = String.format("movements-%s_to_%s.csv", dateFrom, dateTo);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv; charset=utf-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    /**
+     * Movement history of an item for charts: ledger rows for short ranges, daily rollups for longer ones.
+     */
+    @GetMapping("/movements/{itemId}/history")
+    public ResponseEntity<ItemMovementHistoryResponse> getMovementHistory(
+            @PathVariable String itemId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
+        return ResponseEntity.ok(stockMovementRollupService.getItemHistory(itemId, dateFrom, dateTo));
+    }
+
+    @PostMapping("/movements/rollup/backfill")
+    public String backfillMovementRollup(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
+        int rows = stockMovementRollupService.backfill(dateFrom, dateTo);
+        return "Item daily movement rebuilt from " + rows + " ledger rows";
+    }
+
+    // Bulk documents: deliveries, count sheets and write-offs
+    @PostMapping("/documents")
+    public ResponseEntity<InventoryDocumentResponse> applyDocument(@RequestBody InventoryDocumentRequest request) {
+        return ResponseEntity.ok(inventoryDocumentService.apply(request));
+    }
+
+    @GetMapping("/documents/{documentId}")
+    public ResponseEntity<InventoryDocumentResponse> getDocumentProgress(@PathVariable String documentId) {
+        return ResponseEntity.ok(inventoryDocumentService.getProgress(documentId));
+    }
+
+    // Point-in-time stock
+    @GetMapping("/stock-at")
+    public ResponseEntity<StockAtResponse> getStockAt(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(stockSnapshotService.getStockAt(date));
+    }
+
+    @PostMapping("/snapshots")
+    public ResponseEntity<StockSnapshotEntity> takeSnapshot() {
+        return ResponseEntity.ok(stockSnapshotService.takeSnapshot());
+    }
+
+    private ResponseEntity<List<InventoryResponse>> withNextCursor(CursorPage<InventoryResponse> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getContent());
     }
 
     // Alerts
@@ -5,9 +5,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import in.bushansirgur.billingsoftware.io.ItemRequest;
 import in.bushansirgur.billingsoftware.io.ItemResponse;
 import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.service.BarcodeIndex;
 import in.bushansirgur.billingsoftware.service.ItemService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -23,6 +26,8 @@ import java.util.Map;
 public class ItemController {
 
     private final ItemService itemService;
+    private final BarcodeIndex barcodeIndex;
+    private final ObjectMapper objectMapper;
 
     @ResponseStatus(HttpStatus.CREATED)
     @PostMapping("/admin/items")
@@ -46,8 +51,12 @@ public class ItemController {
     }
 
     @GetMapping("/items/barcode/{barcode}")
-    public ItemResponse findItemByBarcode(@PathVariable String barcode) {
-        return itemService.findItemByBarcode(barcode);
+    public void findItemByBarcode(@PathVariable String barcode, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        // Scans are answered from the in-memory index; other barcodes go to the database
+        if (!barcodeIndex.write(barcode, response.getOutputStream())) {
+            objectMapper.writeValue(response.getOutputStream(), itemService.findItemByBarcode(barcode));
+        }
     }
 
     @GetMapping("/items/search")
@@ -1,16 +1,22 @@
 package in.bushansirgur.billingsoftware.controller;
 
+import in.bushansirgur.billingsoftware.io.CursorPage;
+import in.bushansirgur.billingsoftware.io.OrderBatchRequest;
+import in.bushansirgur.billingsoftware.io.OrderBatchResponse;
 import in.bushansirgur.billingsoftware.io.OrderRequest;
 import in.bushansirgur.billingsoftware.io.OrderResponse;
 import in.bushansirgur.billingsoftware.io.OrderRefundRequest;
+import in.bushansirgur.billingsoftware.io.OrderSearchRequest;
+import in.bushansirgur.billingsoftware.io.OrderSummary;
 import in.bushansirgur.billingsoftware.service.OrderService;
 import in.bushansirgur.billingsoftware.service.OrderArchiverService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -25,7 +31,8 @@ public class OrderController {
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public OrderResponse createOrder(@RequestBody OrderRequest request) {
+    public OrderResponse createOrder(@RequestBody OrderRequest request,
+                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             System.out.println("=== OrderController.createOrder ===");
             System.out.println("Customer: " + request.getCustomerName() + ", Phone: " + request.getPhoneNumber());
@@ -37,7 +44,15 @@ public class OrderController {
                 System.out.println("No authentication found in SecurityContext");
             }
         } catch (Exception ignore) {}
-        return orderService.createOrder(request);
+        return orderService.createOrder(request, idempotencyKey);
+    }
+
+    /**
+     * Register sync after an outage: many offline orders in one call, with a result per order.
+     */
+    @PostMapping("/batch")
+    public OrderBatchResponse createOrders(@RequestBody OrderBatchRequest request) {
+        return orderService.createOrders(request);
     }
 
     @ResponseStatus(HttpStatus.NO_CONTENT)
@@ -46,19 +61,56 @@ public class OrderController {
         orderService.deleteOrder(orderId);
     }
 
+    /**
+     * Newest orders, one keyset page per call. The cursor for the next page is returned
+     * in the {@code X-Next-Cursor} header so the body stays a plain list.
+     */
     @GetMapping("/latest")
-    public List<OrderResponse> getLatestOrders() {
-        return orderService.getLatestOrders();
+    public ResponseEntity<List<OrderResponse>> getLatestOrders(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size
+    ) {
+        CursorPage<OrderResponse> page = orderService.getLatestOrders(cursor, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header("X-Next-Cursor", page.getNextCursor());
+        }
+        return response.body(page.getContent());
     }
 
+    /**
+     * Offset-paged order list for the order history screen, which jumps to page numbers and sorts by
+     * any column. The total behind the page count costs a COUNT over the same filter, so callers that
+     * only step forward pass {@code withTotal=false}. New clients should use {@code /orders/summary}.
+     */
     @GetMapping
-    public Page<OrderResponse> getOrders(
+    public Slice<OrderResponse> getOrders(
             @PageableDefault(size = 20, sort = "createdAt", direction = org.springframework.data.domain.Sort.Direction.DESC) Pageable pageable,
             @RequestParam(value = "q", required = false) String q,
             @RequestParam(value = "dateFrom", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) java.time.LocalDate dateFrom,
-            @RequestParam(value = "dateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) java.time.LocalDate dateTo
+            @RequestParam(value = "dateTo", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) java.time.LocalDate dateTo,
+            @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal
     ) {
-        return orderService.getOrders(pageable, q, dateFrom, dateTo);
+        return orderService.getOrders(pageable, q, dateFrom, dateTo, withTotal);
+    }
+
+    /**
+     * Header-only order list with keyset pagination; also serves refund lookups via
+     * {@code status=REFUNDED} and {@code originalOrderId}.
+     */
+    @GetMapping("/summary")
+    public CursorPage<OrderSummary> getOrderSummaries(
+            OrderSearchRequest search,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal
+    ) {
+        return orderService.getOrderSummaries(search, cursor, size, withTotal);
+    }
+
+    @GetMapping("/{orderId}")
+    public OrderResponse getOrder(@PathVariable String orderId) {
+        return orderService.getOrder(orderId);
     }
 
     @PostMapping("/{orderId}/refund")
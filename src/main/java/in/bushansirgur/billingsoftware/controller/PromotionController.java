@@ -1,12 +1,12 @@
 package in.bushansirgur.billingsoftware.controller;
 
-import in.bushansirgur.billingsoftware.entity.ItemEntity;
 import in.bushansirgur.billingsoftware.entity.PromotionEntity;
-import in.bushansirgur.billingsoftware.repository.ItemRepository;
 import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import in.bushansirgur.billingsoftware.service.PromotionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
@@ -22,7 +22,7 @@ import java.util.Map;
 public class PromotionController {
 
     private final PromotionRepository promotionRepository;
-    private final ItemRepository itemRepository;
+    private final PromotionService promotionService;
 
     @PostMapping
     public ResponseEntity<?> createPromotion(@RequestBody Map<String, Object> body) {
@@ -46,33 +46,15 @@ public class PromotionController {
             Timestamp startAt = Timestamp.valueOf(startStr);
             Timestamp endAt = Timestamp.valueOf(endStr);
 
-            ItemEntity item = null;
-            if (itemDbId != null) {
-                item = itemRepository.findById(itemDbId).orElse(null);
-            }
-            if (item == null) {
-                // Fallback: try business itemId (UUID/string)
-                Object businessId = body.get("itemId");
-                if (businessId != null) {
-                    item = itemRepository.findByItemId(businessId.toString()).orElse(null);
-                }
-            }
-            if (item == null) {
-                return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid item reference (itemDbId/itemId)"));
-            }
-
-            PromotionEntity promo = PromotionEntity.builder()
-                    .item(item)
-                    .promoPrice(promoPrice)
-                    .startAt(startAt)
-                    .endAt(endAt)
-                    .active(true)
-                    .build();
-            promotionRepository.save(promo);
+            Object businessId = body.get("itemId");
+            PromotionEntity promo = promotionService.create(itemDbId,
+                    businessId != null ? businessId.toString() : null, promoPrice, startAt, endAt);
             Map<String, Object> resp = new HashMap<>();
             resp.put("success", true);
             resp.put("id", promo.getId());
             return ResponseEntity.ok(resp);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("success", false, "message", e.getReason()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
@@ -102,11 +84,10 @@ public class PromotionController {
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deletePromotion(@PathVariable Long id) {
         try {
-            if (!promotionRepository.existsById(id)) {
-                return ResponseEntity.status(404).body(Map.of("success", false, "message", "Promotion not found"));
-            }
-            promotionRepository.deleteById(id);
+            promotionService.delete(id);
             return ResponseEntity.ok(Map.of("success", true));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("success", false, "message", e.getReason()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
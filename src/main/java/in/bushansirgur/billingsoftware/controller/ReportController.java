@@ -1,6 +1,7 @@
 package in.bushansirgur.billingsoftware.controller;
 
 import in.bushansirgur.billingsoftware.service.ReportExportService;
+import in.bushansirgur.billingsoftware.service.SalesRollupService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -15,6 +16,7 @@ import java.util.List;
 public class ReportController {
 
     private final ReportExportService reportExportService;
+    private final SalesRollupService salesRollupService;
 
     @PostMapping("/export")
     @ResponseStatus(HttpStatus.ACCEPTED)
@@ -37,6 +39,11 @@ public class ReportController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
         return reportExportService.getCashierSummaries(dateFrom, dateTo);
     }
-}
-
 
+    @PostMapping("/sales-rollup/backfill")
+    public String backfillSalesRollup(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFrom,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateTo) {
+        int orders = salesRollupService.backfill(dateFrom, dateTo);
+        return "Sales rollup rebuilt from " + orders + " orders";
+    }
+}
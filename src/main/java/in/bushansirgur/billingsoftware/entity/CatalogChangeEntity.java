@@ -0,0 +1,51 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The catalog version at which an item, category or promotion last changed, one row per entity.
+ * A deleted entity keeps its row as a tombstone until tombstones are purged. Rows are only written
+ * through CatalogChangeRepository.
+ */
+@Entity
+@Table(name = "tbl_catalog_changes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_catalog_changes_entity", columnNames = {"entity_type", "entity_id"})
+}, indexes = {
+        @Index(name = "idx_catalog_changes_version", columnList = "version")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CatalogChangeEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "catalog_changes_seq")
+    @SequenceGenerator(name = "catalog_changes_seq", sequenceName = "tbl_catalog_changes_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EntityType entityType;
+
+    // itemId, categoryId or the promotion id
+    @Column(nullable = false)
+    private String entityId;
+
+    private long version;
+
+    private boolean deleted;
+
+    private LocalDateTime changedAt;
+
+    public enum EntityType {
+        ITEM,
+        CATEGORY,
+        PROMOTION
+    }
+}
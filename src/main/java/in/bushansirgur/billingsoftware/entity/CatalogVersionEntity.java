@@ -0,0 +1,27 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Single row holding the catalog version counter. Writers lock it while assigning versions, so
+ * versions become visible in the order they were handed out. {@code purgedThrough} is the highest
+ * version whose tombstones have been dropped.
+ */
+@Entity
+@Table(name = "tbl_catalog_version")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CatalogVersionEntity {
+    @Id
+    private Long id;
+
+    private long version;
+
+    private long purgedThrough;
+}
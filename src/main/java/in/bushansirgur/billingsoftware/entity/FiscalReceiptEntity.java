@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 @Builder
 public class FiscalReceiptEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fiscal_receipts_seq")
+    @SequenceGenerator(name = "fiscal_receipts_seq", sequenceName = "tbl_fiscal_receipts_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true)
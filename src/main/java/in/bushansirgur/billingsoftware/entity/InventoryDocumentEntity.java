@@ -0,0 +1,60 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import in.bushansirgur.billingsoftware.io.InventoryDocumentRequest;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentResponse;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An inventory document and how far it got. Written in the transaction of its first chunk and
+ * updated in the transaction of every later one, so {@code lastItemId} is the last item whose
+ * stock change is committed. A resubmitted document continues after it.
+ */
+@Entity
+@Table(name = "tbl_inventory_documents", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_inventory_documents_document_id", columnNames = "documentId")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class InventoryDocumentEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String documentId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InventoryDocumentRequest.DocumentType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private InventoryDocumentResponse.Status status;
+
+    private int totalItems;
+
+    private int processedItems;
+
+    private int changedItems;
+
+    private String lastItemId;
+
+    // Comma-separated, in item id order
+    @Column(columnDefinition = "TEXT")
+    private String unknownItemIds;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    @Column(length = 1000)
+    private String error;
+}
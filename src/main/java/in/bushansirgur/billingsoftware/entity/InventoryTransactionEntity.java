@@ -10,7 +10,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tbl_inventory_transactions")
+@Table(name = "tbl_inventory_transactions", indexes = {
+        @Index(name = "idx_inventory_transactions_stock_pending", columnList = "stockPending"),
+        @Index(name = "idx_inventory_transactions_created_at", columnList = "createdAt, id"),
+        @Index(name = "idx_inventory_transactions_item_created_at", columnList = "itemId, createdAt, id"),
+        @Index(name = "idx_inventory_transactions_stock_snapshot", columnList = "stockSnapshotId")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,7 +23,8 @@ import java.time.LocalDateTime;
 public class InventoryTransactionEntity {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_transactions_seq")
+    @SequenceGenerator(name = "inventory_transactions_seq", sequenceName = "tbl_inventory_transactions_seq", allocationSize = 50)
     private Long id;
     
     @Column(unique = true)
@@ -39,6 +45,10 @@ public class InventoryTransactionEntity {
     
     private BigDecimal totalValue;
     
+    // Cost per unit the movement was booked at: the purchase cost for costed receipts, otherwise the average cost
+    @Column(precision = 19, scale = 4)
+    private BigDecimal unitCost;
+    
     private String referenceNumber;
     
     private String referenceType;
@@ -49,6 +59,12 @@ public class InventoryTransactionEntity {
     
     private LocalDateTime createdAt;
     
+    // Set while the quantity is only counted in memory and not yet added to tbl_items
+    private Boolean stockPending;
+    
+    // Newest stock snapshot committed when the row was written; later snapshots include the row
+    private Long stockSnapshotId;
+    
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -0,0 +1,52 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Stock movements per item and day, compacted from {@code tbl_inventory_transactions}.
+ * Rows are only written through ItemDailyMovementRepository, as relative upserts by the rollup
+ * flusher once the ledger rows have committed.
+ */
+@Entity
+@Table(name = "tbl_item_daily_movement", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_item_daily_movement_key", columnNames = {"item_id", "movement_date"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ItemDailyMovementEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_daily_movement_seq")
+    @SequenceGenerator(name = "item_daily_movement_seq", sequenceName = "tbl_item_daily_movement_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String itemId;
+
+    @Column(nullable = false)
+    private LocalDate movementDate;
+
+    // Purchases, customer returns and transfers in
+    private int quantityIn;
+
+    // Sales and transfers out, as a positive number
+    private int quantityOut;
+
+    // Net of counts, write-offs and other corrections
+    private int adjustments;
+
+    private int movementCount;
+
+    // Stock after the day's last movement: the item's stock less the net movement of the later days
+    private int closingStock;
+
+    private LocalDateTime lastMovementAt;
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -16,6 +17,8 @@ import java.sql.Timestamp;
 
 @Entity
 @Table(name = "tbl_items")
+// Only changed columns are written, so an item edit never writes back a stale stock_quantity
+@DynamicUpdate
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -63,6 +66,9 @@ public class ItemEntity {
     private String supplierName;
     private String supplierCode;
     private BigDecimal costPrice;
+    // Moving weighted-average unit cost of the stock on hand, see AverageCost
+    @Column(precision = 19, scale = 4)
+    private BigDecimal averageCost;
     private Timestamp lastRestockDate;
     private Timestamp lastStockCheck;
 
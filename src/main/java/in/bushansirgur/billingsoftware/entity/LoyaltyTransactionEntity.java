@@ -19,7 +19,8 @@ import java.sql.Timestamp;
 public class LoyaltyTransactionEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loyalty_transactions_seq")
+    @SequenceGenerator(name = "loyalty_transactions_seq", sequenceName = "tbl_loyalty_transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
@@ -3,12 +3,14 @@ package in.bushansirgur.billingsoftware.entity;
 import in.bushansirgur.billingsoftware.io.PaymentDetails;
 import in.bushansirgur.billingsoftware.io.PaymentMethod;
 import in.bushansirgur.billingsoftware.io.OrderStatus;
+import in.bushansirgur.billingsoftware.util.OrderSearchTerms;
 import jakarta.persistence.*;
 import jakarta.persistence.Index;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -17,9 +19,11 @@ import java.util.List;
 @Entity
 @Table(name = "tbl_orders", indexes = {
         @Index(name = "idx_orders_created_at", columnList = "createdAt"),
+        @Index(name = "idx_orders_created_at_id", columnList = "createdAt, id"),
         @Index(name = "idx_orders_order_id", columnList = "orderId", unique = true),
         @Index(name = "idx_orders_payment_method", columnList = "paymentMethod"),
-        @Index(name = "idx_orders_cashier_username", columnList = "cashierUsername")
+        @Index(name = "idx_orders_cashier_username", columnList = "cashierUsername"),
+        @Index(name = "idx_orders_idempotency_key", columnList = "idempotencyKey", unique = true)
 })
 @Data
 @AllArgsConstructor
@@ -27,7 +31,8 @@ import java.util.List;
 @Builder
 public class OrderEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "tbl_orders_seq", allocationSize = 50)
     private Long id;
     private String orderId;
     private String customerName;
@@ -37,8 +42,10 @@ public class OrderEntity {
     private Double grandTotal;
     private LocalDateTime createdAt;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.EAGER)
-    @JoinColumn(name = "order_id")
+    // Lazy: list screens use OrderSummary projections, the detail call fetch-joins the lines
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
+    @JoinColumn(name = "order_id", nullable = false)
     @Builder.Default
     private List<OrderItemEntity> items = new ArrayList<>();
 
@@ -58,11 +65,26 @@ public class OrderEntity {
     // Username of the cashier who created the order
     private String cashierUsername;
 
+    // Client-supplied Idempotency-Key of the request that created the order, if any
+    @Column(length = 100)
+    private String idempotencyKey;
+
+    // Search keys derived from customerName / phoneNumber, see OrderSearchTerms
+    private String customerNameSearch;
+    private String phoneDigits;
+
     @PrePersist
     protected void onCreate() {
-        this.orderId = "ORD"+System.currentTimeMillis();
+        if (this.orderId == null) this.orderId = "ORD"+System.currentTimeMillis();
         this.createdAt = LocalDateTime.now();
         if (this.status == null) this.status = OrderStatus.COMPLETED;
+        updateSearchKeys();
+    }
+
+    @PreUpdate
+    protected void updateSearchKeys() {
+        this.customerNameSearch = OrderSearchTerms.normalizeName(this.customerName);
+        this.phoneDigits = OrderSearchTerms.digitsOnly(this.phoneNumber);
     }
 
 }
@@ -0,0 +1,24 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Per node, a timestamp (milliseconds since the id epoch) above every id the node may have issued.
+ * Written only through OrderIdClockRepository.
+ */
+@Entity
+@Table(name = "tbl_order_id_clock")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderIdClockEntity {
+    @Id
+    private Long nodeId;
+
+    private long leaseUntil;
+}
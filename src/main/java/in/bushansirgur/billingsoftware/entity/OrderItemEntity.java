@@ -16,7 +16,8 @@ import lombok.NoArgsConstructor;
 public class OrderItemEntity {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_items_seq")
+    @SequenceGenerator(name = "order_items_seq", sequenceName = "tbl_order_items_seq", allocationSize = 50)
     private Long id;
     private String itemId;
     private String name;
@@ -0,0 +1,79 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Side effects of a committed order, written in the order's transaction and drained by OutboxDispatcher.
+ * {@code itemIds} lists the sorted item ids the event touches so events sharing an item run one after another.
+ */
+@Entity
+@Table(name = "tbl_outbox_events", indexes = {
+        @Index(name = "idx_outbox_events_status", columnList = "status, id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OutboxEventEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "tbl_outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private EventType eventType;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(columnDefinition = "TEXT")
+    private String itemIds;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status;
+
+    private int attempts;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime lockedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+        if (this.status == null) {
+            this.status = Status.PENDING;
+        }
+    }
+
+    public enum EventType {
+        ORDER_PLACED
+    }
+
+    public enum Status {
+        PENDING,
+        PROCESSING,
+        DONE,
+        FAILED
+    }
+}
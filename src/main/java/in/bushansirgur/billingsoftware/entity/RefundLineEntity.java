@@ -0,0 +1,54 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import in.bushansirgur.billingsoftware.util.Money;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * What has been refunded from each line of an order. Summing the rows of one order gives the
+ * quantity still refundable per line without reading earlier refund orders.
+ */
+@Entity
+@Table(name = "tbl_refund_lines", indexes = {
+        @Index(name = "idx_refund_lines_original_order", columnList = "original_order_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class RefundLineEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refund_lines_seq")
+    @SequenceGenerator(name = "refund_lines_seq", sequenceName = "tbl_refund_lines_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "original_order_id", nullable = false)
+    private String originalOrderId;
+
+    @Column(nullable = false)
+    private Long orderLineId;
+
+    private String refundOrderId;
+
+    private String itemId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(precision = 19, scale = 2)
+    private Money amount;
+
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated sales per hour, cashier, payment method and VAT group.
+ * Rows are only written through SalesRollupRepository, as relative upserts in the order's transaction.
+ */
+@Entity
+@Table(name = "tbl_sales_rollup", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sales_rollup_key",
+                columnNames = {"sales_date", "sales_hour", "cashier_username", "payment_method", "vat_rate"})
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SalesRollupEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_rollup_seq")
+    @SequenceGenerator(name = "sales_rollup_seq", sequenceName = "tbl_sales_rollup_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate salesDate;
+
+    @Column(nullable = false)
+    private int salesHour;
+
+    // Empty string when the order has no cashier, so the unique key never contains NULLs
+    @Column(nullable = false)
+    private String cashierUsername;
+
+    @Column(nullable = false)
+    private String paymentMethod;
+
+    @Column(nullable = false, precision = 5, scale = 4)
+    private BigDecimal vatRate;
+
+    // An order is counted once, in the VAT group holding the largest share of it
+    private long orderCount;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal grossAmount;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal netAmount;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal vatAmount;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal cashAmount;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal cardAmount;
+}
@@ -0,0 +1,27 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Single row recording from which hour on {@code tbl_sales_rollup} holds every order. Set to the
+ * first whole hour after the rollup was first deployed, and moved back by backfills.
+ */
+@Entity
+@Table(name = "tbl_sales_rollup_state")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SalesRollupStateEntity {
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime coveredFrom;
+}
@@ -0,0 +1,38 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One run of the daily stock snapshot. Full runs store every item; the runs in between only store
+ * the items whose stock changed since the previous run, in {@code tbl_stock_snapshot_items}.
+ */
+@Entity
+@Table(name = "tbl_stock_snapshots", indexes = {
+        @Index(name = "idx_stock_snapshots_taken_at", columnList = "takenAt")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockSnapshotEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+
+    // Ledger rows stamped with this id or a higher one came later; runs without it fall back to createdAt
+    private Boolean ledgerStamped;
+
+    private boolean fullSnapshot;
+
+    private int itemCount;
+}
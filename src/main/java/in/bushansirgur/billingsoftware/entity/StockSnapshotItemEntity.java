@@ -0,0 +1,35 @@
+package in.bushansirgur.billingsoftware.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stock of one item at a snapshot. Rows are only written through StockSnapshotRepository.
+ */
+@Entity
+@Table(name = "tbl_stock_snapshot_items", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stock_snapshot_items_item_snapshot", columnNames = {"item_id", "snapshot_id"})
+}, indexes = {
+        @Index(name = "idx_stock_snapshot_items_snapshot", columnList = "snapshot_id")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockSnapshotItemEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "snapshot_id", nullable = false)
+    private Long snapshotId;
+
+    @Column(name = "item_id", nullable = false)
+    private String itemId;
+
+    private int stockQuantity;
+}
@@ -0,0 +1,44 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Catalog entities changed after {@code since}, each in its current state. Registers apply a page and
+ * ask again with {@code since = version}; while {@code hasMore} is set there are further pages.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class CatalogChangesResponse {
+
+    private long since;
+    private long version;
+    private boolean hasMore;
+    private List<CategoryResponse> categories;
+    private List<String> deletedCategoryIds;
+    private List<ItemResponse> items;
+    private List<String> deletedItemIds;
+    private List<Promotion> promotions;
+    private List<Long> deletedPromotionIds;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Promotion {
+        private Long id;
+        private String itemId;
+        private BigDecimal promoPrice;
+        private Timestamp startAt;
+        private Timestamp endAt;
+        private Boolean active;
+    }
+}
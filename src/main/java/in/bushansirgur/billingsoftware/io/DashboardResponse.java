@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -16,4 +17,9 @@ public class DashboardResponse {
     private Double todaySales;
     private Long todayOrderCount;
     private List<OrderResponse> recentOrders;
+
+    // Intraday breakdowns of today's sales
+    private Map<Integer, SalesTotals> salesByHour;
+    private Map<String, SalesTotals> salesByCashier;
+    private Map<PaymentMethod, SalesTotals> salesByPaymentMethod;
 }
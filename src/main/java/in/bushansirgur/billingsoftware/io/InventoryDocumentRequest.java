@@ -0,0 +1,51 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A multi-line stock document: a delivery note, a count sheet or a write-off list.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class InventoryDocumentRequest {
+
+    // Optional; lets the client poll GET /inventory/documents/{documentId} while the document is applied
+    private String documentId;
+    private DocumentType type;
+    private String referenceNumber;
+    // Write-offs only: an InventoryAdjustmentEntity.AdjustmentType name, OTHER when missing
+    private String adjustmentType;
+    private String reason;
+    private String notes;
+    private String createdBy;
+    private List<Line> lines;
+
+    /**
+     * Deliveries and write-offs carry the quantity received or removed, count sheets the quantity
+     * counted. Lines for the same item are added up.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Line {
+        private String itemId;
+        private Integer quantity;
+        // Deliveries: purchase price per unit, stored on the ledger row
+        private BigDecimal unitPrice;
+    }
+
+    public enum DocumentType {
+        DELIVERY,
+        COUNT,
+        WRITE_OFF
+    }
+}
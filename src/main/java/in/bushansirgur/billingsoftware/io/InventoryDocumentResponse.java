@@ -0,0 +1,39 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress and outcome of an inventory document. Lines are applied in item id order, one
+ * transaction per chunk; after a failure the first {@code processedItems} items are committed and
+ * submitting the document again applies the rest.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class InventoryDocumentResponse {
+
+    private String documentId;
+    private InventoryDocumentRequest.DocumentType type;
+    private Status status;
+    // Distinct items on the document
+    private int totalItems;
+    private int processedItems;
+    private int changedItems;
+    private List<String> unknownItemIds;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String error;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
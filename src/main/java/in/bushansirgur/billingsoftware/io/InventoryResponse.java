@@ -22,6 +22,7 @@ public class InventoryResponse {
     private Integer newStock;
     private BigDecimal unitPrice;
     private BigDecimal totalValue;
+    private BigDecimal unitCost;
     private String transactionType;
     private String transactionId;
     private String referenceNumber;
@@ -37,6 +38,7 @@ public class InventoryResponse {
     private String supplierName;
     private String supplierCode;
     private BigDecimal costPrice;
+    private BigDecimal averageCost;
     private LocalDateTime lastRestockDate;
     private LocalDateTime lastStockCheck;
     
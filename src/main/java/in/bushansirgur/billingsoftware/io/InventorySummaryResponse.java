@@ -23,10 +23,4 @@ public class InventorySummaryResponse {
     private Long activeAlerts;
     
     private List<InventoryResponse> recentTransactions;
-    
-    private List<InventoryResponse> itemsLowStock;
-    
-    private List<InventoryResponse> itemsOutOfStock;
-    
-    private List<InventoryResponse> itemsOverstock;
 }
@@ -0,0 +1,48 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stock movement history of one item for charts: one point per ledger row for short ranges, one
+ * point per day with movements for longer ones.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ItemMovementHistoryResponse {
+
+    private String itemId;
+    private LocalDate dateFrom;
+    private LocalDate dateTo;
+    private Granularity granularity;
+    private List<Point> points;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Point {
+        // Time of the movement, or the start of the day
+        private LocalDateTime periodStart;
+        // MOVEMENT points only
+        private String transactionType;
+        private int quantityIn;
+        private int quantityOut;
+        private int adjustments;
+        private int movementCount;
+        private int closingStock;
+    }
+
+    public enum Granularity {
+        MOVEMENT,
+        DAY
+    }
+}
@@ -16,6 +16,8 @@ public class ItemResponse {
     private String itemId;
     private String name;
     private BigDecimal price;
+    // Price with the cheapest running promotion applied; only filled in by barcode scans
+    private BigDecimal effectivePrice;
     private String categoryId;
     private String description;
     private String barcode;
@@ -0,0 +1,35 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderBatchRequest {
+
+    private List<OfflineOrder> orders;
+
+    /**
+     * A sale queued on a register while it was offline.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class OfflineOrder {
+        // Same meaning as the Idempotency-Key header of POST /orders; makes a replayed batch safe
+        private String idempotencyKey;
+        // Original sale time on the register; the sync time is used when missing
+        private LocalDateTime createdAt;
+        // Cashier who made the sale; the syncing user when missing. Only admins may name another cashier
+        private String cashierUsername;
+        private OrderRequest order;
+    }
+}
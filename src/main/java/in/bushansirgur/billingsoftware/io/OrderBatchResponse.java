@@ -0,0 +1,41 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderBatchResponse {
+
+    private int created;
+    private int duplicates;
+    private int rejected;
+    private List<Result> results;
+
+    /**
+     * Outcome of one order, in request order.
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class Result {
+        private int index;
+        private String idempotencyKey;
+        private Status status;
+        private String orderId;
+        private String message;
+    }
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        REJECTED
+    }
+}
@@ -0,0 +1,23 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Outbox payload for a new order: what has to happen after the order row is committed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderPlacedEvent {
+
+    private String orderId;
+    private Map<String, Integer> quantitiesByItemId;
+    private String customerId;
+    private Integer loyaltyPoints;
+}
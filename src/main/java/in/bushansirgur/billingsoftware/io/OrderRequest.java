@@ -22,6 +22,9 @@ public class OrderRequest {
     private String paymentMethod;
     private Double cashAmount;
     private Double cardAmount;
+    // Optional loyalty accrual, applied together with the other post-checkout side effects
+    private String customerId;
+    private Integer loyaltyPoints;
 
     @Data
     @AllArgsConstructor
@@ -0,0 +1,28 @@
+package in.bushansirgur.billingsoftware.io;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Header-only view of an order for list screens; line items come from the order detail call.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderSummary {
+    // Keyset position only, never exposed
+    @JsonIgnore
+    private Long id;
+    private String orderId;
+    private LocalDateTime createdAt;
+    private String cashierUsername;
+    private PaymentMethod paymentMethod;
+    private Double grandTotal;
+    private OrderStatus orderStatus;
+}
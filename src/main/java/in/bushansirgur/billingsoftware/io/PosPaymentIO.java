@@ -33,6 +33,8 @@ public class PosPaymentIO {
         private BigDecimal amount;
         private String currency;
         private String reason;
+        // Our refund order id; the provider answers a repeated reference with the first result
+        private String reference;
     }
 
     @Data
@@ -0,0 +1,24 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Stock sold by one order, recorded after the fact (e.g. a register sync): the ledger rows are dated
+ * {@code soldAt} and reference {@code orderId}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SaleMovement {
+
+    private String orderId;
+    private LocalDateTime soldAt;
+    private Map<String, Integer> quantitiesByItemId;
+}
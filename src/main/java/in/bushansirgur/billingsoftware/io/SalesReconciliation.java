@@ -0,0 +1,22 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesReconciliation {
+
+    private LocalDate date;
+    private long aggregatedOrderCount;
+    private double aggregatedTotal;
+    private long databaseOrderCount;
+    private double databaseTotal;
+    private boolean matches;
+}
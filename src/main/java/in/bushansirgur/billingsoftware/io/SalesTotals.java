@@ -0,0 +1,19 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class SalesTotals {
+
+    // Refund records count as orders with a negative total, same as the order list
+    private long orderCount;
+    private double total;
+    private double cashAmount;
+    private double cardAmount;
+}
@@ -0,0 +1,31 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockAtItem {
+    private String itemId;
+    private String name;
+    private String barcode;
+    private BigDecimal costPrice;
+    private BigDecimal averageCost;
+    private int stockQuantity;
+    private BigDecimal stockValue;
+
+    // Item details as loaded by ItemRepository.findStockAtItems; stock is filled in afterwards
+    public StockAtItem(String itemId, String name, String barcode, BigDecimal costPrice, BigDecimal averageCost) {
+        this.itemId = itemId;
+        this.name = name;
+        this.barcode = barcode;
+        this.costPrice = costPrice;
+        this.averageCost = averageCost;
+    }
+}
@@ -0,0 +1,28 @@
+package in.bushansirgur.billingsoftware.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stock of every item at the end of {@code date}, valued at the current average cost.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockAtResponse {
+    private LocalDate date;
+    // The snapshot the result was computed from; ledger rows between it and the date were applied
+    private LocalDateTime snapshotTakenAt;
+    private int ledgerItemsApplied;
+    private long totalQuantity;
+    private BigDecimal totalValue;
+    private List<StockAtItem> items;
+}
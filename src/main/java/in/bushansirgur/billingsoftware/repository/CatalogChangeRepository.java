@@ -0,0 +1,138 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.CatalogVersionEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The catalog change log in {@code tbl_catalog_changes} and its version counter in
+ * {@code tbl_catalog_version}. Runs inside the caller's transaction on the same connection as JPA.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CatalogChangeRepository {
+
+    private static final long VERSION_ROW = 1L;
+
+    private static final String POSTGRES_UPSERT = "INSERT INTO tbl_catalog_changes " +
+            "(id, entity_type, entity_id, version, deleted, changed_at) " +
+            "VALUES (nextval('tbl_catalog_changes_seq'), ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (entity_type, entity_id) DO UPDATE SET version = EXCLUDED.version, " +
+            "deleted = EXCLUDED.deleted, changed_at = EXCLUDED.changed_at";
+
+    // Other databases (H2 in tests): standard MERGE
+    private static final String MERGE_UPSERT = "MERGE INTO tbl_catalog_changes t USING (VALUES (" +
+            "CAST(? AS VARCHAR(20)), CAST(? AS VARCHAR(255)), CAST(? AS BIGINT), CAST(? AS BOOLEAN), " +
+            "CAST(? AS TIMESTAMP))) AS s(entity_type, entity_id, version, deleted, changed_at) " +
+            "ON (t.entity_type = s.entity_type AND t.entity_id = s.entity_id) " +
+            "WHEN MATCHED THEN UPDATE SET version = s.version, deleted = s.deleted, changed_at = s.changed_at " +
+            "WHEN NOT MATCHED THEN INSERT (id, entity_type, entity_id, version, deleted, changed_at) " +
+            "VALUES (nextval('tbl_catalog_changes_seq'), s.entity_type, s.entity_id, s.version, s.deleted, s.changed_at)";
+
+    private static final RowMapper<CatalogChangeEntity> CHANGE_MAPPER = (rs, rowNum) -> CatalogChangeEntity.builder()
+            .entityType(CatalogChangeEntity.EntityType.valueOf(rs.getString("entity_type")))
+            .entityId(rs.getString("entity_id"))
+            .version(rs.getLong("version"))
+            .deleted(rs.getBoolean("deleted"))
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile String upsertSql;
+
+    /**
+     * Creates the version counter at zero unless it exists. Returns whether it was created.
+     */
+    public boolean createVersionRow() {
+        return jdbcTemplate.update("INSERT INTO tbl_catalog_version (id, version, purged_through) " +
+                "SELECT ?, 0, 0 WHERE NOT EXISTS (SELECT 1 FROM tbl_catalog_version WHERE id = ?)",
+                VERSION_ROW, VERSION_ROW) > 0;
+    }
+
+    /**
+     * Advances the counter by {@code count} and returns the new value, so the caller owns the versions
+     * {@code result - count + 1} to {@code result}. The counter row stays locked until the caller's
+     * transaction ends.
+     */
+    public long reserveVersions(int count) {
+        jdbcTemplate.update("UPDATE tbl_catalog_version SET version = version + ? WHERE id = ?", count, VERSION_ROW);
+        return jdbcTemplate.queryForObject("SELECT version FROM tbl_catalog_version WHERE id = ?", Long.class, VERSION_ROW);
+    }
+
+    public CatalogVersionEntity findVersion() {
+        List<CatalogVersionEntity> rows = jdbcTemplate.query(
+                "SELECT id, version, purged_through FROM tbl_catalog_version WHERE id = ?",
+                (rs, rowNum) -> new CatalogVersionEntity(rs.getLong("id"), rs.getLong("version"), rs.getLong("purged_through")),
+                VERSION_ROW);
+        return rows.isEmpty() ? new CatalogVersionEntity(VERSION_ROW, 0, 0) : rows.get(0);
+    }
+
+    /**
+     * Records the latest version of each entity, replacing its previous row, in one JDBC batch.
+     * Callers pass changes sorted by entity so concurrent writers lock rows in the same order.
+     */
+    public void upsert(List<CatalogChangeEntity> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(upsertSql(), changes, changes.size(), (ps, row) -> {
+            ps.setString(1, row.getEntityType().name());
+            ps.setString(2, row.getEntityId());
+            ps.setLong(3, row.getVersion());
+            ps.setBoolean(4, row.isDeleted());
+            ps.setTimestamp(5, Timestamp.valueOf(row.getChangedAt()));
+        });
+    }
+
+    /**
+     * Up to {@code limit} entities changed after {@code since}, oldest version first.
+     */
+    public List<CatalogChangeEntity> findSince(long since, boolean includeDeleted, int limit) {
+        return jdbcTemplate.query("SELECT entity_type, entity_id, version, deleted FROM tbl_catalog_changes " +
+                        "WHERE version > ?" + (includeDeleted ? "" : " AND deleted = FALSE") + " ORDER BY version LIMIT ?",
+                CHANGE_MAPPER, since, limit);
+    }
+
+    /**
+     * Every entity currently in the catalog, for seeding an empty change log. Versions are not set.
+     */
+    public List<CatalogChangeEntity> findCatalogEntities() {
+        return jdbcTemplate.query("SELECT 'CATEGORY' AS entity_type, category_id AS entity_id, 0 AS version, FALSE AS deleted " +
+                        "FROM tbl_category WHERE category_id IS NOT NULL " +
+                        "UNION ALL SELECT 'ITEM', item_id, 0, FALSE FROM tbl_items WHERE item_id IS NOT NULL " +
+                        "UNION ALL SELECT 'PROMOTION', CAST(id AS VARCHAR(255)), 0, FALSE FROM tbl_promotions",
+                CHANGE_MAPPER);
+    }
+
+    /**
+     * Drops tombstones written before {@code before} and raises {@code purgedThrough} to the newest
+     * dropped version. Returns the number of rows removed.
+     */
+    public int purgeTombstones(LocalDateTime before) {
+        Long newest = jdbcTemplate.queryForObject("SELECT MAX(version) FROM tbl_catalog_changes " +
+                "WHERE deleted = TRUE AND changed_at < ?", Long.class, Timestamp.valueOf(before));
+        if (newest == null) {
+            return 0;
+        }
+        jdbcTemplate.update("UPDATE tbl_catalog_version SET purged_through = GREATEST(purged_through, ?) WHERE id = ?",
+                newest, VERSION_ROW);
+        return jdbcTemplate.update("DELETE FROM tbl_catalog_changes WHERE deleted = TRUE AND version <= ?", newest);
+    }
+
+    private String upsertSql() {
+        if (upsertSql == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSql = "PostgreSQL".equalsIgnoreCase(database) ? POSTGRES_UPSERT : MERGE_UPSERT;
+        }
+        return upsertSql;
+    }
+}
@@ -3,10 +3,13 @@ package in.bushansirgur.billingsoftware.repository;
 import in.bushansirgur.billingsoftware.entity.CategoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<CategoryEntity, Long> {
 
     Optional<CategoryEntity> findByCategoryId(String categoryId);
     Optional<CategoryEntity> findByName(String name);
+    List<CategoryEntity> findByCategoryIdIn(Collection<String> categoryIds);
 }
@@ -2,11 +2,14 @@ package in.bushansirgur.billingsoftware.repository;
 
 import in.bushansirgur.billingsoftware.entity.InventoryAlertEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -28,6 +31,20 @@ public interface InventoryAlertRepository extends JpaRepository<InventoryAlertEn
     @Query("SELECT a FROM InventoryAlertEntity a WHERE a.itemId = :itemId AND a.isResolved = false")
     List<InventoryAlertEntity> findActiveAlertsByItemId(@Param("itemId") String itemId);
     
+    @Query("SELECT a FROM InventoryAlertEntity a WHERE a.itemId IN :itemIds AND a.isResolved = false")
+    List<InventoryAlertEntity> findActiveAlertsByItemIds(@Param("itemIds") Collection<String> itemIds);
+    
+    List<InventoryAlertEntity> findByIsResolvedFalseAndAlertTypeInOrderByCreatedAtAsc(Collection<InventoryAlertEntity.AlertType> alertTypes);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE InventoryAlertEntity a SET a.isResolved = true, a.resolvedAt = :resolvedAt, a.resolvedBy = :resolvedBy " +
+           "WHERE a.isResolved = false AND a.itemId IN :itemIds AND a.alertType IN :alertTypes")
+    int resolveActiveAlerts(@Param("itemIds") Collection<String> itemIds,
+                            @Param("alertTypes") Collection<InventoryAlertEntity.AlertType> alertTypes,
+                            @Param("resolvedAt") LocalDateTime resolvedAt,
+                            @Param("resolvedBy") String resolvedBy);
+    
     @Query("SELECT COUNT(a) FROM InventoryAlertEntity a WHERE a.isResolved = false")
     Long countActiveAlerts();
     
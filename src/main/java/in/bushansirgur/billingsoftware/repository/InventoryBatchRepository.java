@@ -0,0 +1,321 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.InventoryAdjustmentEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryAlertEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Set-based stock and alert writes for multi-line documents (carts, refunds, deliveries, counts,
+ * write-offs) and for the write-behind stock counters. Runs inside the caller's transaction on the
+ * same connection as JPA.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryBatchRepository {
+
+    // Must match allocationSize of the pooled sequence generators on the entities
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+    private static final int IN_LIST_CHUNK = 1000;
+
+    private static final String STOCK_LEVEL_COLUMNS = "SELECT item_id, name, COALESCE(stock_quantity, 0) AS stock_quantity, " +
+            "COALESCE(reorder_point, 0) AS reorder_point, COALESCE(max_stock_level, 0) AS max_stock_level, " +
+            "COALESCE(average_cost, cost_price) AS average_cost FROM tbl_items WHERE item_id IN (:itemIds) ORDER BY item_id";
+
+    private static final String PENDING_STOCK_COLUMNS = "SELECT id, item_id, quantity, transaction_type " +
+            "FROM tbl_inventory_transactions WHERE stock_pending = TRUE ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final LedgerWriteLock ledgerWriteLock;
+    // Rest of the last block reserved per sequence, handed out to later calls
+    private final Map<String, IdBlock> idBlocks = new HashMap<>();
+
+    /**
+     * Locks the given item rows in item id order and returns their current stock levels.
+     * Locking in a fixed order keeps concurrent registers from deadlocking on shared items.
+     */
+    public List<StockLevel> lockStockLevels(Collection<String> itemIds) {
+        return queryStockLevels(STOCK_LEVEL_COLUMNS + " FOR UPDATE", itemIds);
+    }
+
+    /**
+     * Current stock levels without taking row locks.
+     */
+    public List<StockLevel> findStockLevels(Collection<String> itemIds) {
+        if (itemIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return queryStockLevels(STOCK_LEVEL_COLUMNS, itemIds);
+    }
+
+    private List<StockLevel> queryStockLevels(String sql, Collection<String> itemIds) {
+        return namedParameterJdbcTemplate.query(sql, new MapSqlParameterSource("itemIds", itemIds),
+                (rs, rowNum) -> new StockLevel(
+                        rs.getString("item_id"),
+                        rs.getString("name"),
+                        rs.getInt("stock_quantity"),
+                        rs.getInt("reorder_point"),
+                        rs.getInt("max_stock_level"),
+                        rs.getBigDecimal("average_cost")));
+    }
+
+    /**
+     * Applies relative stock deltas for all ledger rows in one JDBC batch.
+     * Purchases touch {@code last_restock_date}, everything else {@code last_stock_check}.
+     */
+    public void applyStockDeltas(List<InventoryTransactionEntity> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        boolean restock = transactions.get(0).getTransactionType() == InventoryTransactionEntity.TransactionType.PURCHASE;
+        String sql = restock
+                ? "UPDATE tbl_items SET stock_quantity = COALESCE(stock_quantity, 0) + ?, last_restock_date = ? WHERE item_id = ?"
+                : "UPDATE tbl_items SET stock_quantity = COALESCE(stock_quantity, 0) + ?, last_stock_check = ? WHERE item_id = ?";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(sql, transactions, transactions.size(), (ps, tx) -> {
+            ps.setInt(1, tx.getQuantity());
+            ps.setTimestamp(2, now);
+            ps.setString(3, tx.getItemId());
+        });
+    }
+
+    /**
+     * Adds aggregated per-item deltas in item id order, so the rows are always locked in the same
+     * order. Items in {@code restockedItemIds} also get {@code last_restock_date}.
+     */
+    public void addStockDeltas(SortedMap<String, Integer> deltasByItemId, Set<String> restockedItemIds) {
+        if (deltasByItemId.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<String, Integer>> rows = new ArrayList<>(deltasByItemId.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE tbl_items SET stock_quantity = COALESCE(stock_quantity, 0) + ?, " +
+                        "last_stock_check = ?, last_restock_date = CASE WHEN ? THEN ? ELSE last_restock_date END " +
+                        "WHERE item_id = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setInt(1, row.getValue());
+                    ps.setTimestamp(2, now);
+                    ps.setBoolean(3, restockedItemIds.contains(row.getKey()));
+                    ps.setTimestamp(4, now);
+                    ps.setString(5, row.getKey());
+                });
+    }
+
+    /**
+     * Stores new average unit costs, in item id order like the stock updates.
+     */
+    public void updateAverageCosts(SortedMap<String, BigDecimal> averageCostByItemId) {
+        if (averageCostByItemId.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, BigDecimal>> rows = new ArrayList<>(averageCostByItemId.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE tbl_items SET average_cost = ? WHERE item_id = ?",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setBigDecimal(1, row.getValue());
+                    ps.setString(2, row.getKey());
+                });
+    }
+
+    /**
+     * Locks those of the given ledger rows still flagged {@code stock_pending}, clears their flags and
+     * returns them. Rows already applied are left out, so their quantity is never added twice.
+     */
+    public List<PendingStock> claimPendingStock(List<Long> transactionIds) {
+        List<PendingStock> claimed = new ArrayList<>();
+        for (int from = 0; from < transactionIds.size(); from += IN_LIST_CHUNK) {
+            List<Long> chunk = transactionIds.subList(from, Math.min(transactionIds.size(), from + IN_LIST_CHUNK));
+            claimed.addAll(namedParameterJdbcTemplate.query(PENDING_STOCK_COLUMNS + "AND id IN (:ids) ORDER BY id FOR UPDATE",
+                    new MapSqlParameterSource("ids", chunk), this::mapPendingStock));
+        }
+        clearPendingStock(claimed);
+        return claimed;
+    }
+
+    /**
+     * Like {@link #claimPendingStock(List)} for every flagged ledger row, e.g. those left by a crash.
+     */
+    public List<PendingStock> claimAllPendingStock() {
+        List<PendingStock> claimed = jdbcTemplate.query(PENDING_STOCK_COLUMNS + "ORDER BY id FOR UPDATE", this::mapPendingStock);
+        clearPendingStock(claimed);
+        return claimed;
+    }
+
+    private void clearPendingStock(List<PendingStock> claimed) {
+        List<Long> ids = claimed.stream().map(PendingStock::getTransactionId).toList();
+        for (int from = 0; from < ids.size(); from += IN_LIST_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + IN_LIST_CHUNK));
+            namedParameterJdbcTemplate.update("UPDATE tbl_inventory_transactions SET stock_pending = FALSE WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk));
+        }
+    }
+
+    /**
+     * Those of the given ledger row ids visible to the current transaction.
+     */
+    public Set<Long> findTransactionIds(List<Long> transactionIds) {
+        Set<Long> found = new HashSet<>();
+        for (int from = 0; from < transactionIds.size(); from += IN_LIST_CHUNK) {
+            List<Long> chunk = transactionIds.subList(from, Math.min(transactionIds.size(), from + IN_LIST_CHUNK));
+            found.addAll(namedParameterJdbcTemplate.queryForList("SELECT id FROM tbl_inventory_transactions WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", chunk), Long.class));
+        }
+        return found;
+    }
+
+    private PendingStock mapPendingStock(ResultSet rs, int rowNum) throws SQLException {
+        return new PendingStock(
+                rs.getLong("id"),
+                rs.getString("item_id"),
+                rs.getInt("quantity"),
+                InventoryTransactionEntity.TransactionType.PURCHASE.name().equals(rs.getString("transaction_type")));
+    }
+
+    /**
+     * Appends ledger rows to {@code tbl_inventory_transactions} in one JDBC batch. Each row is stamped
+     * with the newest stock snapshot committed at the time; ids come from reused blocks and do not
+     * follow commit order.
+     */
+    public void insertTransactions(List<InventoryTransactionEntity> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Iterator<Long> ids = allocateIds("tbl_inventory_transactions_seq", transactions.size()).iterator();
+        transactions.forEach(tx -> tx.setId(ids.next()));
+        String sql = "INSERT INTO tbl_inventory_transactions (id, transaction_id, item_id, transaction_type, quantity, " +
+                "previous_quantity, new_quantity, unit_price, total_value, unit_cost, reference_number, reference_type, notes, " +
+                "created_by, created_at, stock_pending, stock_snapshot_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+                "(SELECT COALESCE(MAX(id), 0) FROM tbl_stock_snapshots))";
+        ledgerWriteLock.write(() -> jdbcTemplate.batchUpdate(sql, transactions, transactions.size(), (ps, tx) -> {
+            ps.setLong(1, tx.getId());
+            ps.setString(2, tx.getTransactionId());
+            ps.setString(3, tx.getItemId());
+            ps.setString(4, tx.getTransactionType().name());
+            ps.setInt(5, tx.getQuantity());
+            ps.setInt(6, tx.getPreviousQuantity());
+            ps.setInt(7, tx.getNewQuantity());
+            ps.setObject(8, tx.getUnitPrice(), Types.NUMERIC);
+            ps.setObject(9, tx.getTotalValue(), Types.NUMERIC);
+            ps.setObject(10, tx.getUnitCost(), Types.NUMERIC);
+            ps.setString(11, tx.getReferenceNumber());
+            ps.setString(12, tx.getReferenceType());
+            ps.setString(13, tx.getNotes());
+            ps.setString(14, tx.getCreatedBy());
+            ps.setTimestamp(15, Timestamp.valueOf(tx.getCreatedAt()));
+            ps.setObject(16, tx.getStockPending(), Types.BOOLEAN);
+        }));
+    }
+
+    /**
+     * Inserts new alerts in one JDBC batch; ids come from the identity column.
+     */
+    public void insertAlerts(List<InventoryAlertEntity> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO tbl_inventory_alerts (alert_id, item_id, alert_type, alert_message, current_quantity, " +
+                "threshold_quantity, is_resolved, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, alerts, alerts.size(), (ps, alert) -> {
+            ps.setString(1, alert.getAlertId());
+            ps.setString(2, alert.getItemId());
+            ps.setString(3, alert.getAlertType().name());
+            ps.setString(4, alert.getAlertMessage());
+            ps.setObject(5, alert.getCurrentQuantity(), Types.INTEGER);
+            ps.setObject(6, alert.getThresholdQuantity(), Types.INTEGER);
+            ps.setBoolean(7, Boolean.TRUE.equals(alert.getIsResolved()));
+            ps.setTimestamp(8, Timestamp.valueOf(alert.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Inserts adjustment records in one JDBC batch; ids come from the identity column.
+     */
+    public void insertAdjustments(List<InventoryAdjustmentEntity> adjustments) {
+        if (adjustments.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO tbl_inventory_adjustments (adjustment_id, item_id, adjustment_type, quantity, reason, " +
+                "notes, created_by, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(sql, adjustments, adjustments.size(), (ps, adjustment) -> {
+            ps.setString(1, adjustment.getAdjustmentId());
+            ps.setString(2, adjustment.getItemId());
+            ps.setString(3, adjustment.getAdjustmentType().name());
+            ps.setInt(4, adjustment.getQuantity());
+            ps.setString(5, adjustment.getReason());
+            ps.setString(6, adjustment.getNotes());
+            ps.setString(7, adjustment.getCreatedBy());
+            ps.setTimestamp(8, Timestamp.valueOf(adjustment.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Reserves primary keys from a pooled sequence the same way Hibernate's pooled optimizer does:
+     * every sequence value {@code v} owns the block {@code (v - allocationSize, v]}. A block is used
+     * up across calls, so single-row inserts take one sequence call per {@code allocationSize} rows.
+     */
+    public synchronized List<Long> allocateIds(String sequenceName, int count) {
+        IdBlock block = idBlocks.computeIfAbsent(sequenceName, name -> new IdBlock());
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            if (block.next > block.hi) {
+                Long hi = jdbcTemplate.queryForObject("SELECT nextval('" + sequenceName + "')", Long.class);
+                block.next = Math.max(1, hi - SEQUENCE_ALLOCATION_SIZE + 1);
+                block.hi = hi;
+            }
+            ids.add(block.next++);
+        }
+        return ids;
+    }
+
+    private static class IdBlock {
+        long next = 1;
+        long hi = 0;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class StockLevel {
+        private String itemId;
+        private String name;
+        private int stockQuantity;
+        private int reorderPoint;
+        private int maxStockLevel;
+        // Average cost, or the cost price before the first costed receipt
+        private BigDecimal averageCost;
+    }
+
+    /**
+     * A ledger row whose quantity has not been added to {@code tbl_items} yet.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class PendingStock {
+        private long transactionId;
+        private String itemId;
+        private int quantity;
+        private boolean restock;
+    }
+}
@@ -0,0 +1,17 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.InventoryDocumentEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface InventoryDocumentRepository extends JpaRepository<InventoryDocumentEntity, Long> {
+
+    Optional<InventoryDocumentEntity> findByDocumentId(String documentId);
+
+    // Serializes the chunks of one document, also across resubmissions; plain FOR UPDATE so it also runs on H2
+    @Query(value = "SELECT * FROM tbl_inventory_documents WHERE document_id = :documentId FOR UPDATE", nativeQuery = true)
+    Optional<InventoryDocumentEntity> findByDocumentIdForUpdate(@Param("documentId") String documentId);
+}
@@ -35,6 +35,42 @@ public interface InventoryTransactionRepository extends JpaRepository<InventoryT
     
     Page<InventoryTransactionEntity> findAllByOrderByCreatedAtDesc(Pageable pageable);
     
+    // Keyset pages ordered by (createdAt, id) descending: the first page, then the rows after a cursor
+    @Query("SELECT t FROM InventoryTransactionEntity t WHERE t.itemId = :itemId ORDER BY t.createdAt DESC, t.id DESC")
+    List<InventoryTransactionEntity> findItemHistory(@Param("itemId") String itemId, Pageable pageable);
+    
+    @Query("SELECT t FROM InventoryTransactionEntity t WHERE t.itemId = :itemId AND (t.createdAt, t.id) < (:cursorCreatedAt, :cursorId) ORDER BY t.createdAt DESC, t.id DESC")
+    List<InventoryTransactionEntity> findItemHistoryAfter(@Param("itemId") String itemId,
+                                                          @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                          @Param("cursorId") Long cursorId,
+                                                          Pageable pageable);
+    
+    @Query("SELECT t FROM InventoryTransactionEntity t ORDER BY t.createdAt DESC, t.id DESC")
+    List<InventoryTransactionEntity> findLatestMovements(Pageable pageable);
+    
+    @Query("SELECT t FROM InventoryTransactionEntity t WHERE (t.createdAt, t.id) < (:cursorCreatedAt, :cursorId) ORDER BY t.createdAt DESC, t.id DESC")
+    List<InventoryTransactionEntity> findLatestMovementsAfter(@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                              @Param("cursorId") Long cursorId,
+                                                              Pageable pageable);
+    
+    // Oldest first within [from, to), then continuing after (cursorCreatedAt, cursorId); drives the movements export
+    @Query("SELECT t FROM InventoryTransactionEntity t WHERE t.createdAt >= :from AND t.createdAt < :to ORDER BY t.createdAt ASC, t.id ASC")
+    List<InventoryTransactionEntity> findMovementsBetween(@Param("from") LocalDateTime from,
+                                                          @Param("to") LocalDateTime to,
+                                                          Pageable pageable);
+    
+    @Query("SELECT t FROM InventoryTransactionEntity t WHERE (t.createdAt, t.id) > (:cursorCreatedAt, :cursorId) AND t.createdAt < :to ORDER BY t.createdAt ASC, t.id ASC")
+    List<InventoryTransactionEntity> findMovementsBetweenAfter(@Param("to") LocalDateTime to,
+                                                               @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                               @Param("cursorId") Long cursorId,
+                                                               Pageable pageable);
+    
+    // One item's movements within [from, to), oldest first; only used for ranges short enough to read raw
+    @Query("SELECT t FROM InventoryTransactionEntity t WHERE t.itemId = :itemId AND t.createdAt >= :from AND t.createdAt < :to ORDER BY t.createdAt ASC, t.id ASC")
+    List<InventoryTransactionEntity> findItemMovementsBetween(@Param("itemId") String itemId,
+                                                              @Param("from") LocalDateTime from,
+                                                              @Param("to") LocalDateTime to);
+
     @Query("SELECT SUM(t.quantity) FROM InventoryTransactionEntity t WHERE t.itemId = :itemId AND t.transactionType = :transactionType")
     Integer sumQuantityByItemIdAndType(@Param("itemId") String itemId, 
                                       @Param("transactionType") InventoryTransactionEntity.TransactionType transactionType);
@@ -0,0 +1,191 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemDailyMovementEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Relative writes to {@code tbl_item_daily_movement} and the ledger scan that rebuilds it. Runs inside
+ * the caller's transaction on the same connection as JPA; the rollup flusher and the backfill are its
+ * only writers.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemDailyMovementRepository {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String COLUMNS = "item_id, movement_date, quantity_in, quantity_out, adjustments, " +
+            "movement_count, closing_stock, last_movement_at";
+
+    // PostgreSQL: concurrent first inserts of the same key are resolved by ON CONFLICT.
+    // The closing stock is only set on insert; closeDays derives it afterwards.
+    private static final String POSTGRES_UPSERT = "INSERT INTO tbl_item_daily_movement (id, " + COLUMNS + ") " +
+            "VALUES (nextval('tbl_item_daily_movement_seq'), ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (item_id, movement_date) DO UPDATE SET " +
+            "quantity_in = tbl_item_daily_movement.quantity_in + EXCLUDED.quantity_in, " +
+            "quantity_out = tbl_item_daily_movement.quantity_out + EXCLUDED.quantity_out, " +
+            "adjustments = tbl_item_daily_movement.adjustments + EXCLUDED.adjustments, " +
+            "movement_count = tbl_item_daily_movement.movement_count + EXCLUDED.movement_count, " +
+            "last_movement_at = GREATEST(tbl_item_daily_movement.last_movement_at, EXCLUDED.last_movement_at)";
+
+    // Other databases (H2 in tests): standard MERGE
+    private static final String MERGE_UPSERT = "MERGE INTO tbl_item_daily_movement t USING (VALUES (" +
+            "CAST(? AS VARCHAR(255)), CAST(? AS DATE), CAST(? AS INT), CAST(? AS INT), CAST(? AS INT), " +
+            "CAST(? AS INT), CAST(? AS INT), CAST(? AS TIMESTAMP))) AS s(" + COLUMNS + ") " +
+            "ON (t.item_id = s.item_id AND t.movement_date = s.movement_date) " +
+            "WHEN MATCHED THEN UPDATE SET quantity_in = t.quantity_in + s.quantity_in, " +
+            "quantity_out = t.quantity_out + s.quantity_out, adjustments = t.adjustments + s.adjustments, " +
+            "movement_count = t.movement_count + s.movement_count, " +
+            "last_movement_at = GREATEST(t.last_movement_at, s.last_movement_at) " +
+            "WHEN NOT MATCHED THEN INSERT (id, " + COLUMNS + ") VALUES (nextval('tbl_item_daily_movement_seq'), " +
+            "s.item_id, s.movement_date, s.quantity_in, s.quantity_out, s.adjustments, s.movement_count, " +
+            "s.closing_stock, s.last_movement_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private volatile String upsertSql;
+
+    /**
+     * Adds the given deltas to their rows, creating missing rows, in one JDBC batch.
+     * Callers pass deltas sorted by key so concurrent writers lock rows in the same order.
+     */
+    public void upsert(List<ItemDailyMovementEntity> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(upsertSql(), deltas, deltas.size(), (ps, row) -> {
+            ps.setString(1, row.getItemId());
+            ps.setDate(2, Date.valueOf(row.getMovementDate()));
+            ps.setInt(3, row.getQuantityIn());
+            ps.setInt(4, row.getQuantityOut());
+            ps.setInt(5, row.getAdjustments());
+            ps.setInt(6, row.getMovementCount());
+            ps.setInt(7, row.getClosingStock());
+            ps.setTimestamp(8, Timestamp.valueOf(row.getLastMovementAt()));
+        });
+    }
+
+    /**
+     * Stores the closing stock of the given rows, in the order passed.
+     */
+    public void updateClosingStock(List<ItemDailyMovementEntity> days) {
+        if (days.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE tbl_item_daily_movement SET closing_stock = ? WHERE item_id = ? AND movement_date = ?",
+                days, days.size(), (ps, row) -> {
+                    ps.setInt(1, row.getClosingStock());
+                    ps.setString(2, row.getItemId());
+                    ps.setDate(3, Date.valueOf(row.getMovementDate()));
+                });
+    }
+
+    /**
+     * Committed stock per item, including quantities still pending on the write-behind counters.
+     * Unknown items are left out.
+     */
+    public Map<String, Integer> currentStock(Collection<String> itemIds) {
+        Map<String, Integer> stock = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return stock;
+        }
+        namedParameterJdbcTemplate.query("SELECT i.item_id, COALESCE(i.stock_quantity, 0) + COALESCE((SELECT SUM(t.quantity) " +
+                        "FROM tbl_inventory_transactions t WHERE t.item_id = i.item_id AND t.stock_pending = TRUE), 0) AS stock_quantity " +
+                        "FROM tbl_items i WHERE i.item_id IN (:itemIds)",
+                new MapSqlParameterSource("itemIds", itemIds),
+                rs -> {
+                    stock.put(rs.getString("item_id"), rs.getInt("stock_quantity"));
+                });
+        return stock;
+    }
+
+    public int deleteDays(LocalDate from, LocalDate to) {
+        return jdbcTemplate.update("DELETE FROM tbl_item_daily_movement WHERE movement_date >= ? AND movement_date <= ?",
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * The days of {@code [from, to]} on which the item moved, oldest first.
+     */
+    public List<ItemDailyMovementEntity> findDays(String itemId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM tbl_item_daily_movement " +
+                        "WHERE item_id = ? AND movement_date >= ? AND movement_date <= ? ORDER BY movement_date",
+                this::mapDay, itemId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * The item's days from {@code from} on plus the last one before it, newest first.
+     */
+    public List<ItemDailyMovementEntity> findDaysSinceBefore(String itemId, LocalDate from) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM tbl_item_daily_movement WHERE item_id = ? AND movement_date >= " +
+                        "COALESCE((SELECT MAX(movement_date) FROM tbl_item_daily_movement WHERE item_id = ? AND movement_date < ?), ?) " +
+                        "ORDER BY movement_date DESC",
+                this::mapDay, itemId, itemId, Date.valueOf(from), Date.valueOf(from));
+    }
+
+    private ItemDailyMovementEntity mapDay(ResultSet rs, int rowNum) throws SQLException {
+        return ItemDailyMovementEntity.builder()
+                .itemId(rs.getString("item_id"))
+                .movementDate(rs.getDate("movement_date").toLocalDate())
+                .quantityIn(rs.getInt("quantity_in"))
+                .quantityOut(rs.getInt("quantity_out"))
+                .adjustments(rs.getInt("adjustments"))
+                .movementCount(rs.getInt("movement_count"))
+                .closingStock(rs.getInt("closing_stock"))
+                .lastMovementAt(rs.getTimestamp("last_movement_at").toLocalDateTime())
+                .build();
+    }
+
+    /**
+     * Streams the ledger rows with {@code from <= createdAt < to} ordered by item and time, so a
+     * caller can aggregate one item at a time. Only the columns the rollup needs are set.
+     */
+    public void streamLedger(LocalDateTime from, LocalDateTime to, Consumer<InventoryTransactionEntity> consumer) {
+        jdbcTemplate.query(connection -> {
+                    PreparedStatement ps = connection.prepareStatement("SELECT item_id, transaction_type, quantity, " +
+                            "created_at FROM tbl_inventory_transactions WHERE created_at >= ? AND created_at < ? " +
+                            "ORDER BY item_id, created_at, id");
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setTimestamp(1, Timestamp.valueOf(from));
+                    ps.setTimestamp(2, Timestamp.valueOf(to));
+                    return ps;
+                },
+                rs -> {
+                    consumer.accept(InventoryTransactionEntity.builder()
+                            .itemId(rs.getString("item_id"))
+                            .transactionType(InventoryTransactionEntity.TransactionType.valueOf(rs.getString("transaction_type")))
+                            .quantity(rs.getInt("quantity"))
+                            .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                            .build());
+                });
+    }
+
+    private String upsertSql() {
+        if (upsertSql == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSql = "PostgreSQL".equalsIgnoreCase(database) ? POSTGRES_UPSERT : MERGE_UPSERT;
+        }
+        return upsertSql;
+    }
+}
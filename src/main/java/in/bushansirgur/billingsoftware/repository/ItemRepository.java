@@ -1,10 +1,14 @@
 package in.bushansirgur.billingsoftware.repository;
 
 import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.io.StockAtItem;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,8 +16,26 @@ public interface ItemRepository extends JpaRepository<ItemEntity, Long> {
 
     Optional<ItemEntity> findByItemId(String id);
     
+    List<ItemEntity> findByItemIdIn(Collection<String> itemIds);
+    
+    @Query("SELECT new in.bushansirgur.billingsoftware.io.StockAtItem(i.itemId, i.name, i.barcode, i.costPrice, COALESCE(i.averageCost, i.costPrice)) FROM ItemEntity i WHERE i.itemId IS NOT NULL ORDER BY i.name")
+    List<StockAtItem> findStockAtItems();
+    
     Optional<ItemEntity> findByBarcode(String barcode);
 
+    // Items with their category in one query, for the in-memory barcode index
+    @Query("SELECT i FROM ItemEntity i JOIN FETCH i.category WHERE i.itemId IS NOT NULL")
+    List<ItemEntity> findAllWithCategory();
+
+    @Query("SELECT i FROM ItemEntity i JOIN FETCH i.category WHERE i.itemId IN :itemIds")
+    List<ItemEntity> findWithCategoryByItemIdIn(@Param("itemIds") Collection<String> itemIds);
+
+    @Query("SELECT i.itemId FROM ItemEntity i WHERE i.itemId IN :itemIds")
+    List<String> findExistingItemIds(@Param("itemIds") Collection<String> itemIds);
+
+    @Query("SELECT i.itemId FROM ItemEntity i WHERE i.category.categoryId IN :categoryIds AND i.itemId IS NOT NULL")
+    List<String> findItemIdsByCategoryIdIn(@Param("categoryIds") Collection<String> categoryIds);
+
     Integer countByCategoryId(Long id);
     
     @Query("SELECT i FROM ItemEntity i WHERE i.name LIKE %:searchTerm% OR i.barcode LIKE %:searchTerm%")
@@ -27,7 +49,7 @@ public interface ItemRepository extends JpaRepository<ItemEntity, Long> {
     @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity <= i.reorderPoint")
     List<ItemEntity> findLowStockItems();
     
-    @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity = 0")
+    @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity <= 0")
     List<ItemEntity> findOutOfStockItems();
     
     @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity > i.maxStockLevel")
@@ -36,9 +58,19 @@ public interface ItemRepository extends JpaRepository<ItemEntity, Long> {
     @Query("SELECT COUNT(i) FROM ItemEntity i WHERE i.stockQuantity <= i.reorderPoint")
     Long countLowStockItems();
     
-    @Query("SELECT COUNT(i) FROM ItemEntity i WHERE i.stockQuantity = 0")
+    @Query("SELECT COUNT(i) FROM ItemEntity i WHERE i.stockQuantity <= 0")
     Long countOutOfStockItems();
     
+    // Paged lists behind the inventory summary; same conditions as InventorySummaryState
+    @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity <= i.reorderPoint")
+    Page<ItemEntity> findLowStockItems(Pageable pageable);
+    
+    @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity <= 0")
+    Page<ItemEntity> findOutOfStockItems(Pageable pageable);
+    
+    @Query("SELECT i FROM ItemEntity i WHERE i.stockQuantity > i.maxStockLevel")
+    Page<ItemEntity> findOverstockItems(Pageable pageable);
+    
     @Query("SELECT SUM(i.stockQuantity * COALESCE(i.costPrice, 0)) FROM ItemEntity i WHERE i.stockQuantity > 0")
     Double getTotalInventoryValue();
 }
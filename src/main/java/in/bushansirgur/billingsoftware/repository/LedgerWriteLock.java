@@ -0,0 +1,101 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lets a stock snapshot wait until no transaction is still writing ledger rows, so every row it does
+ * not see is stamped as written after it. On PostgreSQL the snapshot takes a table lock that waits
+ * for writers on all instances; elsewhere (tests run on H2) writers of this instance share an
+ * in-memory lock from their first ledger insert until their transaction completes.
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerWriteLock {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Boolean postgres;
+
+    /**
+     * Runs a ledger insert as a writer the snapshot waits for.
+     */
+    public void write(Runnable insert) {
+        if (postgres()) {
+            insert.run();
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            lock.readLock().lock();
+            try {
+                insert.run();
+            } finally {
+                lock.readLock().unlock();
+            }
+            return;
+        }
+        joinWriters();
+        insert.run();
+    }
+
+    /**
+     * Runs {@code callback} in {@code transaction} once no other transaction is writing ledger rows,
+     * keeping new writers out until it completes.
+     */
+    public <T> T exclusive(TransactionTemplate transaction, TransactionCallback<T> callback) {
+        if (postgres()) {
+            return transaction.execute(status -> {
+                // Must come first: a repeatable read transaction sees the database as of its first query
+                jdbcTemplate.execute("LOCK TABLE tbl_inventory_transactions IN SHARE MODE");
+                return callback.doInTransaction(status);
+            });
+        }
+        lock.writeLock().lock();
+        try {
+            return transaction.execute(callback);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Looked up among the synchronizations rather than bound as a resource, so a nested
+    // REQUIRES_NEW transaction holds the lock for itself
+    private void joinWriters() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Writer writer && writer.owner() == this) {
+                return;
+            }
+        }
+        lock.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new Writer());
+    }
+
+    private boolean postgres() {
+        if (postgres == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(database);
+        }
+        return postgres;
+    }
+
+    private class Writer implements TransactionSynchronization {
+
+        LedgerWriteLock owner() {
+            return LedgerWriteLock.this;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.entity.OrderItemEntity;
+import in.bushansirgur.billingsoftware.io.PaymentDetails;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Multi-order inserts for register syncs. Runs inside the caller's transaction on the same
+ * connection as JPA; the entities are plain carriers and are not attached to the persistence context.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBatchRepository {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryBatchRepository inventoryBatchRepository;
+
+    /**
+     * Inserts the orders and all their lines as JDBC batches. Ids are taken from the same pooled
+     * sequences JPA uses and written back to the entities.
+     */
+    public void insertOrders(List<OrderEntity> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Iterator<Long> orderIds = inventoryBatchRepository.allocateIds("tbl_orders_seq", orders.size()).iterator();
+        orders.forEach(order -> order.setId(orderIds.next()));
+        String orderSql = "INSERT INTO tbl_orders (id, order_id, customer_name, phone_number, subtotal, tax, grand_total, " +
+                "created_at, payment_method, order_status, original_order_id, cashier_username, customer_name_search, " +
+                "phone_digits, idempotency_key, cash_amount, card_amount, status) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(orderSql, orders, BATCH_SIZE, (ps, order) -> {
+            PaymentDetails payment = order.getPaymentDetails() != null ? order.getPaymentDetails() : new PaymentDetails();
+            ps.setLong(1, order.getId());
+            ps.setString(2, order.getOrderId());
+            ps.setString(3, order.getCustomerName());
+            ps.setString(4, order.getPhoneNumber());
+            ps.setObject(5, order.getSubtotal(), Types.DOUBLE);
+            ps.setObject(6, order.getTax(), Types.DOUBLE);
+            ps.setObject(7, order.getGrandTotal(), Types.DOUBLE);
+            ps.setTimestamp(8, Timestamp.valueOf(order.getCreatedAt()));
+            ps.setString(9, order.getPaymentMethod() != null ? order.getPaymentMethod().name() : null);
+            ps.setString(10, order.getStatus() != null ? order.getStatus().name() : null);
+            ps.setString(11, order.getOriginalOrderId());
+            ps.setString(12, order.getCashierUsername());
+            ps.setString(13, order.getCustomerNameSearch());
+            ps.setString(14, order.getPhoneDigits());
+            ps.setString(15, order.getIdempotencyKey());
+            ps.setObject(16, payment.getCashAmount(), Types.DOUBLE);
+            ps.setObject(17, payment.getCardAmount(), Types.DOUBLE);
+            // PaymentDetails.status has no @Enumerated, so JPA stores the ordinal
+            ps.setObject(18, payment.getStatus() != null ? payment.getStatus().ordinal() : null, Types.SMALLINT);
+        });
+
+        List<OrderItemEntity> lines = orders.stream().flatMap(order -> order.getItems().stream()).toList();
+        if (lines.isEmpty()) {
+            return;
+        }
+        Iterator<Long> lineIds = inventoryBatchRepository.allocateIds("tbl_order_items_seq", lines.size()).iterator();
+        lines.forEach(line -> line.setId(lineIds.next()));
+        List<Object[]> lineRows = orders.stream()
+                .flatMap(order -> order.getItems().stream().map(line -> new Object[]{order.getId(), line}))
+                .toList();
+        String lineSql = "INSERT INTO tbl_order_items (id, order_id, item_id, name, barcode, price, quantity) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        jdbcTemplate.batchUpdate(lineSql, lineRows, BATCH_SIZE, (ps, row) -> {
+            OrderItemEntity line = (OrderItemEntity) row[1];
+            ps.setLong(1, line.getId());
+            ps.setLong(2, (Long) row[0]);
+            ps.setString(3, line.getItemId());
+            ps.setString(4, line.getName());
+            ps.setString(5, line.getBarcode());
+            ps.setObject(6, line.getPrice(), Types.DOUBLE);
+            ps.setObject(7, line.getQuantity(), Types.INTEGER);
+        });
+    }
+}
@@ -1,8 +1,13 @@
 package in.bushansirgur.billingsoftware.repository;
 
 import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.io.OrderStatus;
+import in.bushansirgur.billingsoftware.io.OrderSummary;
+import in.bushansirgur.billingsoftware.io.PaymentDetails;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,6 +15,7 @@ import java.time.LocalDateTime;
 
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,13 +23,44 @@ public interface OrderEntityRepository extends JpaRepository<OrderEntity, Long>
 
     Optional<OrderEntity> findByOrderId(String orderId);
 
-    List<OrderEntity> findAllByOrderByCreatedAtDesc();
+    // Serializes refunds of the same order; plain FOR UPDATE so it also runs on H2
+    @Query(value = "SELECT * FROM tbl_orders WHERE order_id = :orderId FOR UPDATE", nativeQuery = true)
+    Optional<OrderEntity> findByOrderIdForUpdate(@Param("orderId") String orderId);
 
-    @Query("SELECT SUM(o.grandTotal) FROM OrderEntity o WHERE DATE(o.createdAt) = :date")
-    Double sumSalesByDate(@Param("date") LocalDate date);
+    // Subtotal, tax and grand total summed over the refunds of an order (negative)
+    @Query("SELECT COALESCE(SUM(o.subtotal), 0), COALESCE(SUM(o.tax), 0), COALESCE(SUM(o.grandTotal), 0) FROM OrderEntity o WHERE o.originalOrderId = :orderId")
+    List<Object[]> sumRefundTotals(@Param("orderId") String orderId);
 
-    @Query("SELECT COUNT(o) FROM OrderEntity o WHERE DATE(o.createdAt) = :date")
-    Long countByOrderDate(@Param("date") LocalDate date);
+    @Query("SELECT o.orderId FROM OrderEntity o WHERE o.originalOrderId IS NOT NULL AND o.paymentDetails.status = :status AND o.createdAt < :before ORDER BY o.id")
+    List<String> findRefundIdsByPaymentStatus(@Param("status") PaymentDetails.PaymentStatus status,
+                                              @Param("before") LocalDateTime before,
+                                              Pageable pageable);
+
+    @EntityGraph(attributePaths = "items")
+    Optional<OrderEntity> findWithItemsByIdempotencyKey(String idempotencyKey);
+
+    @Query("SELECT o.idempotencyKey, o.orderId FROM OrderEntity o WHERE o.idempotencyKey IN :keys")
+    List<Object[]> findOrderIdsByIdempotencyKeys(@Param("keys") Collection<String> keys);
+
+    @EntityGraph(attributePaths = "items")
+    Optional<OrderEntity> findWithItemsByOrderId(String orderId);
+
+    @EntityGraph(attributePaths = "items")
+    List<OrderEntity> findWithItemsByIdIn(Collection<Long> ids);
+
+    // Keyset pages ordered by (createdAt, id) descending: the first page, then the rows after a cursor.
+    // Separate queries with a row-value predicate so both are a plain scan of idx_orders_created_at_id
+    @Query("SELECT o FROM OrderEntity o ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderEntity> findLatestOrders(Pageable pageable);
+
+    @Query("SELECT o FROM OrderEntity o WHERE (o.createdAt, o.id) < (:cursorCreatedAt, :cursorId) ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderEntity> findLatestOrdersAfter(@Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                            @Param("cursorId") Long cursorId,
+                                            Pageable pageable);
+
+    // Raw facts for rebuilding SalesAggregator; range predicate so idx_orders_created_at is used
+    @Query("SELECT o.id, o.createdAt, o.cashierUsername, o.paymentMethod, o.grandTotal, o.paymentDetails.cashAmount, o.paymentDetails.cardAmount FROM OrderEntity o WHERE o.createdAt >= :from")
+    List<Object[]> findSalesFactsSince(@Param("from") LocalDateTime from);
 
     @Query("SELECT o FROM OrderEntity o ORDER BY o.createdAt DESC")
     List<OrderEntity> findRecentOrders(Pageable pageable);
@@ -32,15 +69,63 @@ public interface OrderEntityRepository extends JpaRepository<OrderEntity, Long>
     
     List<OrderEntity> findAllByCreatedAtBeforeOrderByCreatedAtAsc(LocalDateTime cutoff);
 
-    @Query("SELECT o FROM OrderEntity o WHERE (:q IS NULL OR LOWER(o.orderId) LIKE LOWER(CONCAT('%', :q, '%')) OR LOWER(o.customerName) LIKE LOWER(CONCAT('%', :q, '%')) OR LOWER(o.phoneNumber) LIKE LOWER(CONCAT('%', :q, '%'))) AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt <= :to)")
-    Page<OrderEntity> searchOrders(@Param("q") String q,
+    // Order id and phone are prefix matches (B-tree), the customer name a substring match
+    // served by a trigram index on PostgreSQL; see OrderSearchTerms and OrderSearchIndexes
+    @Query("SELECT o FROM OrderEntity o WHERE (:namePattern IS NULL OR o.orderId LIKE :orderIdPrefix OR o.customerNameSearch LIKE :namePattern OR (:phonePrefix IS NOT NULL AND o.phoneDigits LIKE :phonePrefix)) AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt <= :to)")
+    Page<OrderEntity> searchOrders(@Param("orderIdPrefix") String orderIdPrefix,
+                                   @Param("namePattern") String namePattern,
+                                   @Param("phonePrefix") String phonePrefix,
                                    @Param("from") LocalDateTime from,
                                    @Param("to") LocalDateTime to,
                                    Pageable pageable);
 
-    @Query("SELECT o.cashierUsername as cashier, COUNT(o) as cnt, COALESCE(SUM(o.grandTotal),0) as total FROM OrderEntity o WHERE o.createdAt >= :from AND o.createdAt <= :to GROUP BY o.cashierUsername")
-    List<Object[]> summarizeByCashier(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
-    
+    // Slice variants of the two queries above: one extra row tells whether a next page exists, without a COUNT
+    @Query("SELECT o FROM OrderEntity o")
+    Slice<OrderEntity> findOrderSlice(Pageable pageable);
+
+    @Query("SELECT o FROM OrderEntity o WHERE (:namePattern IS NULL OR o.orderId LIKE :orderIdPrefix OR o.customerNameSearch LIKE :namePattern OR (:phonePrefix IS NOT NULL AND o.phoneDigits LIKE :phonePrefix)) AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt <= :to)")
+    Slice<OrderEntity> searchOrderSlice(@Param("orderIdPrefix") String orderIdPrefix,
+                                        @Param("namePattern") String namePattern,
+                                        @Param("phonePrefix") String phonePrefix,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to,
+                                        Pageable pageable);
+
+    @Query("SELECT new in.bushansirgur.billingsoftware.io.OrderSummary(o.id, o.orderId, o.createdAt, o.cashierUsername, o.paymentMethod, o.grandTotal, o.status) FROM OrderEntity o WHERE (:namePattern IS NULL OR o.orderId LIKE :orderIdPrefix OR o.customerNameSearch LIKE :namePattern OR (:phonePrefix IS NOT NULL AND o.phoneDigits LIKE :phonePrefix)) AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt <= :to) AND (:status IS NULL OR o.status = :status) AND (:originalOrderId IS NULL OR o.originalOrderId = :originalOrderId) ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> searchOrderSummaries(@Param("orderIdPrefix") String orderIdPrefix,
+                                            @Param("namePattern") String namePattern,
+                                            @Param("phonePrefix") String phonePrefix,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to,
+                                            @Param("status") OrderStatus status,
+                                            @Param("originalOrderId") String originalOrderId,
+                                            Pageable pageable);
+
+    @Query("SELECT new in.bushansirgur.billingsoftware.io.OrderSummary(o.id, o.orderId, o.createdAt, o.cashierUsername, o.paymentMethod, o.grandTotal, o.status) FROM OrderEntity o WHERE (:namePattern IS NULL OR o.orderId LIKE :orderIdPrefix OR o.customerNameSearch LIKE :namePattern OR (:phonePrefix IS NOT NULL AND o.phoneDigits LIKE :phonePrefix)) AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt <= :to) AND (:status IS NULL OR o.status = :status) AND (:originalOrderId IS NULL OR o.originalOrderId = :originalOrderId) AND (o.createdAt, o.id) < (:cursorCreatedAt, :cursorId) ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummary> searchOrderSummariesAfter(@Param("orderIdPrefix") String orderIdPrefix,
+                                                 @Param("namePattern") String namePattern,
+                                                 @Param("phonePrefix") String phonePrefix,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to,
+                                                 @Param("status") OrderStatus status,
+                                                 @Param("originalOrderId") String originalOrderId,
+                                                 @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                                 @Param("cursorId") Long cursorId,
+                                                 Pageable pageable);
+
+    @Query("SELECT COUNT(o) FROM OrderEntity o WHERE (:namePattern IS NULL OR o.orderId LIKE :orderIdPrefix OR o.customerNameSearch LIKE :namePattern OR (:phonePrefix IS NOT NULL AND o.phoneDigits LIKE :phonePrefix)) AND (:from IS NULL OR o.createdAt >= :from) AND (:to IS NULL OR o.createdAt <= :to) AND (:status IS NULL OR o.status = :status) AND (:originalOrderId IS NULL OR o.originalOrderId = :originalOrderId)")
+    long countOrderSummaries(@Param("orderIdPrefix") String orderIdPrefix,
+                             @Param("namePattern") String namePattern,
+                             @Param("phonePrefix") String phonePrefix,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to,
+                             @Param("status") OrderStatus status,
+                             @Param("originalOrderId") String originalOrderId);
+
+    // Partial-hour edges of SalesRollupService.summarize; [from, to)
+    @Query("SELECT o.cashierUsername, o.paymentMethod, COUNT(o), COALESCE(SUM(o.grandTotal),0), COALESCE(SUM(o.paymentDetails.cashAmount),0), COALESCE(SUM(o.paymentDetails.cardAmount),0) FROM OrderEntity o WHERE o.createdAt >= :from AND o.createdAt < :to GROUP BY o.cashierUsername, o.paymentMethod")
+    List<Object[]> summarizeByCashierAndMethod(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
     @Query("SELECT o.cashierUsername as cashier, COUNT(o) as cnt, COALESCE(SUM(o.grandTotal),0) as total FROM OrderEntity o WHERE DATE(o.createdAt) = :date GROUP BY o.cashierUsername ORDER BY total DESC")
     List<Object[]> summarizeByCashierForDate(@Param("date") LocalDate date);
 
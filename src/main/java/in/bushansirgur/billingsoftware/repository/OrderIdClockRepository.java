@@ -0,0 +1,47 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.util.SnowflakeOrderIdGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Durable lease of the order id clock in {@code tbl_order_id_clock}. Writes commit in their own
+ * transaction, so a lease is persisted before any id under it is handed out, whatever happens to the
+ * caller's transaction.
+ */
+@Repository
+public class OrderIdClockRepository implements SnowflakeOrderIdGenerator.ClockLease {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    public OrderIdClockRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public long load(long nodeId) {
+        List<Long> rows = jdbcTemplate.queryForList(
+                "SELECT lease_until FROM tbl_order_id_clock WHERE node_id = ?", Long.class, nodeId);
+        return rows.isEmpty() ? 0 : rows.get(0);
+    }
+
+    @Override
+    public void extend(long nodeId, long leaseUntil) {
+        requiresNew.executeWithoutResult(status -> {
+            // Never moves back, e.g. when a late scheduled extension races a synchronous one
+            int updated = jdbcTemplate.update("UPDATE tbl_order_id_clock SET lease_until = GREATEST(lease_until, ?) " +
+                    "WHERE node_id = ?", leaseUntil, nodeId);
+            if (updated == 0) {
+                jdbcTemplate.update("INSERT INTO tbl_order_id_clock (node_id, lease_until) VALUES (?, ?)", nodeId, leaseUntil);
+            }
+        });
+    }
+}
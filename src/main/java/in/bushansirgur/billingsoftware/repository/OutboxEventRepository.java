@@ -0,0 +1,62 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.OutboxEventEntity;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, Long> {
+
+    List<OutboxEventEntity> findByStatusOrderByIdAsc(OutboxEventEntity.Status status, Pageable pageable);
+
+    @Query("SELECT e.itemIds FROM OutboxEventEntity e WHERE e.status = 'PROCESSING'")
+    List<String> findItemIdsInProgress();
+
+    long countByStatus(OutboxEventEntity.Status status);
+
+    @Query("SELECT COUNT(e) FROM OutboxEventEntity e WHERE e.status = 'PENDING' " +
+           "AND (e.nextAttemptAt IS NULL OR e.nextAttemptAt <= :now)")
+    long countDue(@Param("now") LocalDateTime now);
+
+    // Conditional update, so only one worker (or instance) wins an event
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEventEntity e SET e.status = 'PROCESSING', e.lockedAt = :now " +
+           "WHERE e.id = :id AND e.status = 'PENDING'")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEventEntity e SET e.status = 'DONE', e.processedAt = :now, e.lockedAt = null, " +
+           "e.lastError = null WHERE e.id = :id")
+    int markDone(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEventEntity e SET e.status = :status, e.attempts = :attempts, " +
+           "e.nextAttemptAt = :nextAttemptAt, e.lastError = :lastError, e.lockedAt = null WHERE e.id = :id")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("status") OutboxEventEntity.Status status,
+                          @Param("attempts") int attempts,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("lastError") String lastError);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEventEntity e SET e.status = 'PENDING', e.lockedAt = null " +
+           "WHERE e.status = 'PROCESSING' AND e.lockedAt < :lockedBefore")
+    int releaseStale(@Param("lockedBefore") LocalDateTime lockedBefore);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM OutboxEventEntity e WHERE e.status = 'DONE' AND e.processedAt < :processedBefore")
+    int deleteProcessedBefore(@Param("processedBefore") LocalDateTime processedBefore);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,16 @@ public interface PromotionRepository extends JpaRepository<PromotionEntity, Long
     @Query("select p from PromotionEntity p where p.item.id = :itemId and p.active = true and :now between p.startAt and p.endAt order by p.promoPrice asc, p.id desc")
     List<PromotionEntity> findActiveForItem(@Param("itemId") Long itemId, @Param("now") Timestamp now);
 
+    // Promotions running now or starting later, cheapest first like findActiveForItem
+    @Query("select p from PromotionEntity p join fetch p.item where p.active = true and p.endAt >= :now order by p.promoPrice asc, p.id desc")
+    List<PromotionEntity> findCurrentAndUpcoming(@Param("now") Timestamp now);
+
+    @Query("select p from PromotionEntity p join fetch p.item where p.item.itemId in :itemIds and p.active = true and p.endAt >= :now order by p.promoPrice asc, p.id desc")
+    List<PromotionEntity> findCurrentAndUpcomingForItems(@Param("itemIds") Collection<String> itemIds, @Param("now") Timestamp now);
+
+    @Query("select p from PromotionEntity p join fetch p.item where p.id in :ids")
+    List<PromotionEntity> findWithItemByIdIn(@Param("ids") Collection<Long> ids);
+
     default Optional<PromotionEntity> findBestActiveForItem(Long itemId, Timestamp now) {
         List<PromotionEntity> list = findActiveForItem(itemId, now);
         return list == null || list.isEmpty() ? Optional.empty() : Optional.of(list.get(0));
@@ -0,0 +1,20 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.RefundLineEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RefundLineRepository extends JpaRepository<RefundLineEntity, Long> {
+
+    // {orderLineId, refunded quantity} per line of the original order
+    @Query("SELECT r.orderLineId, SUM(r.quantity) FROM RefundLineEntity r " +
+           "WHERE r.originalOrderId = :orderId GROUP BY r.orderLineId")
+    List<Object[]> sumRefundedQuantities(@Param("orderId") String orderId);
+
+    List<RefundLineEntity> findByOriginalOrderIdOrderByIdAsc(String originalOrderId);
+}
@@ -0,0 +1,170 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.SalesRollupEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Relative writes to {@code tbl_sales_rollup}. Runs inside the caller's transaction on the same
+ * connection as JPA, so a rollup change commits or rolls back together with its order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupRepository {
+
+    private static final long STATE_ROW = 1L;
+
+    private static final String COLUMNS = "sales_date, sales_hour, cashier_username, payment_method, vat_rate, " +
+            "order_count, gross_amount, net_amount, vat_amount, cash_amount, card_amount";
+
+    // PostgreSQL: concurrent first inserts of the same key are resolved by ON CONFLICT
+    private static final String POSTGRES_UPSERT = "INSERT INTO tbl_sales_rollup (id, " + COLUMNS + ") " +
+            "VALUES (nextval('tbl_sales_rollup_seq'), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (sales_date, sales_hour, cashier_username, payment_method, vat_rate) DO UPDATE SET " +
+            "order_count = tbl_sales_rollup.order_count + EXCLUDED.order_count, " +
+            "gross_amount = tbl_sales_rollup.gross_amount + EXCLUDED.gross_amount, " +
+            "net_amount = tbl_sales_rollup.net_amount + EXCLUDED.net_amount, " +
+            "vat_amount = tbl_sales_rollup.vat_amount + EXCLUDED.vat_amount, " +
+            "cash_amount = tbl_sales_rollup.cash_amount + EXCLUDED.cash_amount, " +
+            "card_amount = tbl_sales_rollup.card_amount + EXCLUDED.card_amount";
+
+    // Other databases (H2 in tests): standard MERGE
+    private static final String MERGE_UPSERT = "MERGE INTO tbl_sales_rollup t USING (VALUES (" +
+            "CAST(? AS DATE), CAST(? AS INT), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS NUMERIC(5,4)), " +
+            "CAST(? AS BIGINT), CAST(? AS NUMERIC(19,2)), CAST(? AS NUMERIC(19,2)), CAST(? AS NUMERIC(19,2)), " +
+            "CAST(? AS NUMERIC(19,2)), CAST(? AS NUMERIC(19,2)))) AS s(" + COLUMNS + ") " +
+            "ON (t.sales_date = s.sales_date AND t.sales_hour = s.sales_hour AND t.cashier_username = s.cashier_username " +
+            "AND t.payment_method = s.payment_method AND t.vat_rate = s.vat_rate) " +
+            "WHEN MATCHED THEN UPDATE SET order_count = t.order_count + s.order_count, " +
+            "gross_amount = t.gross_amount + s.gross_amount, net_amount = t.net_amount + s.net_amount, " +
+            "vat_amount = t.vat_amount + s.vat_amount, cash_amount = t.cash_amount + s.cash_amount, " +
+            "card_amount = t.card_amount + s.card_amount " +
+            "WHEN NOT MATCHED THEN INSERT (id, " + COLUMNS + ") VALUES (nextval('tbl_sales_rollup_seq'), " +
+            "s.sales_date, s.sales_hour, s.cashier_username, s.payment_method, s.vat_rate, s.order_count, " +
+            "s.gross_amount, s.net_amount, s.vat_amount, s.cash_amount, s.card_amount)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    private volatile String upsertSql;
+
+    /**
+     * Adds the given deltas to their rollup rows, creating missing rows, in one JDBC batch.
+     * Callers pass deltas sorted by key so concurrent orders lock rows in the same order.
+     */
+    public void upsert(List<SalesRollupEntity> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(upsertSql(), deltas, deltas.size(), (ps, row) -> {
+            ps.setDate(1, Date.valueOf(row.getSalesDate()));
+            ps.setInt(2, row.getSalesHour());
+            ps.setString(3, row.getCashierUsername());
+            ps.setString(4, row.getPaymentMethod());
+            ps.setBigDecimal(5, row.getVatRate());
+            ps.setLong(6, row.getOrderCount());
+            ps.setBigDecimal(7, row.getGrossAmount());
+            ps.setBigDecimal(8, row.getNetAmount());
+            ps.setBigDecimal(9, row.getVatAmount());
+            ps.setBigDecimal(10, row.getCashAmount());
+            ps.setBigDecimal(11, row.getCardAmount());
+        });
+    }
+
+    /**
+     * Records that the rollup is complete from {@code coveredFrom} on, unless that is already recorded.
+     * Returns whether the row was created.
+     */
+    public boolean createState(LocalDateTime coveredFrom) {
+        return jdbcTemplate.update("INSERT INTO tbl_sales_rollup_state (id, covered_from) " +
+                "SELECT ?, ? WHERE NOT EXISTS (SELECT 1 FROM tbl_sales_rollup_state WHERE id = ?)",
+                STATE_ROW, Timestamp.valueOf(coveredFrom), STATE_ROW) > 0;
+    }
+
+    /**
+     * The first hour from which every order is in the rollup, or {@code null} before it was recorded.
+     */
+    public LocalDateTime findCoveredFrom() {
+        List<Timestamp> rows = jdbcTemplate.queryForList(
+                "SELECT covered_from FROM tbl_sales_rollup_state WHERE id = ?", Timestamp.class, STATE_ROW);
+        return rows.isEmpty() ? null : rows.get(0).toLocalDateTime();
+    }
+
+    /**
+     * Moves the coverage start back to {@code from} when {@code [from, to)} was rebuilt and reaches it.
+     */
+    public void extendCoverage(LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.update("UPDATE tbl_sales_rollup_state SET covered_from = ? " +
+                        "WHERE id = ? AND covered_from > ? AND covered_from <= ?",
+                Timestamp.valueOf(from), STATE_ROW, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public int deleteDays(LocalDate from, LocalDate to) {
+        return jdbcTemplate.update("DELETE FROM tbl_sales_rollup WHERE sales_date >= ? AND sales_date <= ?",
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Sums whole hours in {@code [fromHour, toHour)} per cashier and payment method.
+     * The VAT group and hour columns of the returned rows are not set.
+     */
+    public List<SalesRollupEntity> summarizeByCashierAndMethod(LocalDateTime fromHour, LocalDateTime toHour) {
+        String sql = "SELECT cashier_username, payment_method, SUM(order_count) AS order_count, " +
+                "SUM(gross_amount) AS gross_amount, SUM(net_amount) AS net_amount, SUM(vat_amount) AS vat_amount, " +
+                "SUM(cash_amount) AS cash_amount, SUM(card_amount) AS card_amount FROM tbl_sales_rollup " +
+                "WHERE (sales_date > :fromDate OR (sales_date = :fromDate AND sales_hour >= :fromHour)) " +
+                "AND (sales_date < :toDate OR (sales_date = :toDate AND sales_hour < :toHour)) " +
+                "GROUP BY cashier_username, payment_method";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("fromDate", Date.valueOf(fromHour.toLocalDate()))
+                .addValue("fromHour", fromHour.getHour())
+                .addValue("toDate", Date.valueOf(toHour.toLocalDate()))
+                .addValue("toHour", toHour.getHour());
+        return namedParameterJdbcTemplate.query(sql, params, (rs, rowNum) -> SalesRollupEntity.builder()
+                .cashierUsername(rs.getString("cashier_username"))
+                .paymentMethod(rs.getString("payment_method"))
+                .orderCount(rs.getLong("order_count"))
+                .grossAmount(rs.getBigDecimal("gross_amount"))
+                .netAmount(rs.getBigDecimal("net_amount"))
+                .vatAmount(rs.getBigDecimal("vat_amount"))
+                .cashAmount(rs.getBigDecimal("cash_amount"))
+                .cardAmount(rs.getBigDecimal("card_amount"))
+                .build());
+    }
+
+    public Map<String, BigDecimal> findVatRates(Collection<String> itemIds) {
+        Map<String, BigDecimal> rates = new HashMap<>();
+        if (itemIds.isEmpty()) {
+            return rates;
+        }
+        namedParameterJdbcTemplate.query("SELECT item_id, vat_rate FROM tbl_items WHERE item_id IN (:itemIds)",
+                new MapSqlParameterSource("itemIds", itemIds),
+                rs -> {
+                    rates.put(rs.getString("item_id"), rs.getBigDecimal("vat_rate"));
+                });
+        return rates;
+    }
+
+    private String upsertSql() {
+        if (upsertSql == null) {
+            String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            upsertSql = "PostgreSQL".equalsIgnoreCase(database) ? POSTGRES_UPSERT : MERGE_UPSERT;
+        }
+        return upsertSql;
+    }
+}
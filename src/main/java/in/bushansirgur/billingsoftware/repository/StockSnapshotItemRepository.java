@@ -0,0 +1,101 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes of {@code tbl_stock_snapshot_items} and the ledger sums that move a snapshot
+ * to another point in time. Runs inside the caller's transaction on the same connection as JPA.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockSnapshotItemRepository {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stock per item as of snapshot {@code snapshotId}: for every item the newest row between the
+     * full snapshot {@code fullSnapshotId} and {@code snapshotId}.
+     */
+    public Map<String, Integer> loadStock(long fullSnapshotId, long snapshotId) {
+        Map<String, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT s.item_id, s.stock_quantity FROM tbl_stock_snapshot_items s " +
+                        "JOIN (SELECT item_id, MAX(snapshot_id) AS snapshot_id FROM tbl_stock_snapshot_items " +
+                        "WHERE snapshot_id >= ? AND snapshot_id <= ? GROUP BY item_id) latest " +
+                        "ON s.item_id = latest.item_id AND s.snapshot_id = latest.snapshot_id",
+                rs -> {
+                    stock.put(rs.getString("item_id"), rs.getInt("stock_quantity"));
+                },
+                fullSnapshotId, snapshotId);
+        return stock;
+    }
+
+    /**
+     * Stock per item including quantities still pending on the write-behind counters.
+     */
+    public Map<String, Integer> currentStock() {
+        Map<String, Integer> stock = new HashMap<>();
+        jdbcTemplate.query("SELECT i.item_id, COALESCE(i.stock_quantity, 0) + COALESCE(p.quantity, 0) AS stock_quantity " +
+                        "FROM tbl_items i LEFT JOIN (SELECT item_id, SUM(quantity) AS quantity FROM tbl_inventory_transactions " +
+                        "WHERE stock_pending = TRUE GROUP BY item_id) p ON p.item_id = i.item_id WHERE i.item_id IS NOT NULL",
+                rs -> {
+                    stock.put(rs.getString("item_id"), rs.getInt("stock_quantity"));
+                });
+        return stock;
+    }
+
+    public void insert(long snapshotId, Map<String, Integer> stockByItemId) {
+        List<Map.Entry<String, Integer>> rows = new ArrayList<>(stockByItemId.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO tbl_stock_snapshot_items (snapshot_id, item_id, stock_quantity) VALUES (?, ?, ?)",
+                rows, BATCH_SIZE, (ps, row) -> {
+                    ps.setLong(1, snapshotId);
+                    ps.setString(2, row.getKey());
+                    ps.setInt(3, row.getValue());
+                });
+    }
+
+    /**
+     * Net stock movement per item of the ledger rows written after snapshot {@code snapshotId} with
+     * {@code createdAt < to}: what happened between the snapshot and {@code to}.
+     */
+    public Map<String, Integer> sumMovementsAfter(long snapshotId, LocalDateTime to) {
+        return sumMovements("stock_snapshot_id >= ? AND created_at < ?", snapshotId, Timestamp.valueOf(to));
+    }
+
+    /**
+     * Net stock movement per item of the ledger rows included in snapshot {@code snapshotId} with
+     * {@code createdAt >= from}: what the snapshot contains that happened after {@code from}.
+     */
+    public Map<String, Integer> sumMovementsThrough(long snapshotId, LocalDateTime from) {
+        return sumMovements("COALESCE(stock_snapshot_id, 0) < ? AND created_at >= ?", snapshotId, Timestamp.valueOf(from));
+    }
+
+    /**
+     * Net stock movement per item of the ledger rows with {@code from <= createdAt < to}, for
+     * snapshots taken before ledger rows were stamped.
+     */
+    public Map<String, Integer> sumMovements(LocalDateTime from, LocalDateTime to) {
+        return sumMovements("created_at >= ? AND created_at < ?", Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private Map<String, Integer> sumMovements(String condition, Object... args) {
+        Map<String, Integer> movements = new HashMap<>();
+        jdbcTemplate.query("SELECT item_id, SUM(quantity) AS quantity FROM tbl_inventory_transactions " +
+                        "WHERE " + condition + " GROUP BY item_id",
+                rs -> {
+                    movements.put(rs.getString("item_id"), rs.getInt("quantity"));
+                },
+                args);
+        return movements;
+    }
+}
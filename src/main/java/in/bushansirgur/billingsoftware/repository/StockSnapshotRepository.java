@@ -0,0 +1,21 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.StockSnapshotEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshotEntity, Long> {
+
+    Optional<StockSnapshotEntity> findFirstByOrderByIdDesc();
+
+    Optional<StockSnapshotEntity> findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(LocalDateTime at);
+
+    Optional<StockSnapshotEntity> findFirstByTakenAtGreaterThanOrderByTakenAtAsc(LocalDateTime at);
+
+    // The full run a delta run builds on
+    Optional<StockSnapshotEntity> findFirstByFullSnapshotTrueAndIdLessThanEqualOrderByIdDesc(Long id);
+}
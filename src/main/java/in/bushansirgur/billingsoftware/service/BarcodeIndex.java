@@ -0,0 +1,384 @@
+package in.bushansirgur.billingsoftware.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.CatalogVersionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.io.ItemResponse;
+import in.bushansirgur.billingsoftware.repository.CatalogChangeRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import in.bushansirgur.billingsoftware.util.BarcodeKeys;
+import in.bushansirgur.billingsoftware.util.LongObjectHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Barcode scans served from memory. Items with a numeric retail barcode are kept in an open-addressing
+ * map keyed by the barcode as a {@code long}, each pointing at an immutable snapshot whose JSON is
+ * serialized once. A scan writes those bytes straight to the response and appends the live stock
+ * from {@link InventorySummaryState} and the promotion price in force, so sales never invalidate a
+ * snapshot and a lookup neither locks nor touches the database.
+ * <p>
+ * Item and promotion writes refresh the affected snapshots in place once they commit; scans keep
+ * reading while one writer changes the map. Other instances pick the change up from the catalog change
+ * log, which every instance follows from the version its index was loaded at; imports and a nightly
+ * run rebuild it. Scan responses leave out {@code lastRestockDate} and {@code lastStockCheck}, which
+ * every stock movement changes.
+ */
+@Component
+@DependsOn({"entityManagerFactory", "catalogChangeLog"})
+@Slf4j
+public class BarcodeIndex implements InitializingBean {
+
+    // Written per scan after the serialized item fields
+    private static final Set<String> LIVE_FIELDS = Set.of("stockQuantity", "stockStatus", "needsReorder",
+            "reorderQuantity", "effectivePrice", "lastRestockDate", "lastStockCheck");
+    private static final byte[] STOCK_QUANTITY = bytes(",\"stockQuantity\":");
+    private static final byte[] STOCK_STATUS = bytes(",\"stockStatus\":");
+    private static final byte[] NEEDS_REORDER = bytes(",\"needsReorder\":");
+    private static final byte[] REORDER_QUANTITY = bytes(",\"reorderQuantity\":");
+    private static final byte[] EFFECTIVE_PRICE = bytes(",\"effectivePrice\":");
+    private static final byte[] OUT_OF_STOCK = bytes("\"OUT_OF_STOCK\"");
+    private static final byte[] LOW_STOCK = bytes("\"LOW_STOCK\"");
+    private static final byte[] OVERSTOCK = bytes("\"OVERSTOCK\"");
+    private static final byte[] NORMAL = bytes("\"NORMAL\"");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+
+    private static final int CHANGES_PAGE_SIZE = 1000;
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final ItemRepository itemRepository;
+    private final PromotionRepository promotionRepository;
+    private final InventorySummaryState inventorySummaryState;
+    private final ObjectMapper objectMapper;
+    private final Object writeLock = new Object();
+
+    private volatile Index index = new Index(new LongObjectHashMap<>(0), new HashMap<>(), new HashMap<>());
+
+    // Catalog version the index has caught up to; guarded by writeLock
+    private long version;
+
+    public BarcodeIndex(CatalogChangeRepository catalogChangeRepository,
+                        ItemRepository itemRepository,
+                        PromotionRepository promotionRepository,
+                        InventorySummaryState inventorySummaryState,
+                        ObjectMapper objectMapper) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.itemRepository = itemRepository;
+        this.promotionRepository = promotionRepository;
+        this.inventorySummaryState = inventorySummaryState;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+    }
+
+    /**
+     * Writes the item with this barcode as JSON. Returns {@code false}, having written nothing, for
+     * barcodes that are not numeric retail codes or not indexed.
+     */
+    public boolean write(String barcode, OutputStream out) throws IOException {
+        long key = BarcodeKeys.of(barcode);
+        if (key == BarcodeKeys.NONE) {
+            return false;
+        }
+        Snapshot snapshot = index.byBarcode().get(key);
+        if (snapshot == null) {
+            return false;
+        }
+        int stock = inventorySummaryState.stockOf(snapshot.itemId(), snapshot.storedStock());
+        boolean needsReorder = snapshot.reorderPoint() != null && stock <= snapshot.reorderPoint();
+        out.write(snapshot.json());
+        out.write(STOCK_QUANTITY);
+        writeInt(out, stock);
+        out.write(STOCK_STATUS);
+        out.write(stockStatus(snapshot, stock));
+        out.write(NEEDS_REORDER);
+        out.write(needsReorder ? TRUE : FALSE);
+        out.write(REORDER_QUANTITY);
+        writeInt(out, needsReorder && snapshot.maxStockLevel() != null ? snapshot.maxStockLevel() - stock : 0);
+        out.write(EFFECTIVE_PRICE);
+        out.write(snapshot.effectivePrice(System.currentTimeMillis()));
+        out.write('}');
+        return true;
+    }
+
+    /**
+     * Reloads all items and promotions, replacing the index.
+     */
+    @Scheduled(cron = "${catalog.barcode-index.rebuild.cron:0 35 2 * * *}")
+    public void rebuild() {
+        synchronized (writeLock) {
+            // Read first: the rows below are at least this new, and later changes are caught up from the log
+            long loadedVersion = catalogChangeRepository.findVersion().getVersion();
+            List<ItemEntity> items = itemRepository.findAllWithCategory();
+            Map<String, List<PromotionEntity>> promotions = byItem(
+                    promotionRepository.findCurrentAndUpcoming(new Timestamp(System.currentTimeMillis())));
+            Index fresh = new Index(new LongObjectHashMap<>(items.size()), new HashMap<>(), new HashMap<>());
+            for (ItemEntity item : items) {
+                put(fresh, item, promotions);
+            }
+            index = fresh;
+            version = loadedVersion;
+            log.info("Barcode index loaded for {} items at catalog version {}", fresh.byBarcode().size(), loadedVersion);
+        }
+    }
+
+    /**
+     * Refreshes the snapshots of items changed in the catalog change log since the index last caught
+     * up, including changes committed by other instances. Rebuilds when the log no longer reaches back
+     * that far.
+     */
+    @Scheduled(fixedDelayString = "${catalog.barcode-index.poll-interval-ms:5000}")
+    public void catchUp() {
+        synchronized (writeLock) {
+            CatalogVersionEntity current = catalogChangeRepository.findVersion();
+            if (current.getVersion() == version) {
+                return;
+            }
+            if (current.getVersion() < version || version < current.getPurgedThrough()) {
+                rebuild();
+                return;
+            }
+            long since = version;
+            List<CatalogChangeEntity> changes;
+            do {
+                changes = catalogChangeRepository.findSince(since, true, CHANGES_PAGE_SIZE);
+                Set<String> itemIds = new HashSet<>();
+                Set<String> categoryIds = new HashSet<>();
+                Set<Long> promotionIds = new HashSet<>();
+                for (CatalogChangeEntity change : changes) {
+                    switch (change.getEntityType()) {
+                        case ITEM -> itemIds.add(change.getEntityId());
+                        case CATEGORY -> categoryIds.add(change.getEntityId());
+                        case PROMOTION -> promotionIds.add(Long.valueOf(change.getEntityId()));
+                    }
+                    since = change.getVersion();
+                }
+                if (!categoryIds.isEmpty()) {
+                    itemIds.addAll(itemRepository.findItemIdsByCategoryIdIn(categoryIds));
+                }
+                if (!promotionIds.isEmpty()) {
+                    // A deleted promotion is only found through the snapshot that carried it
+                    Map<Long, String> itemIdByPromotion = index.itemIdByPromotion();
+                    promotionIds.stream().map(itemIdByPromotion::get).filter(Objects::nonNull).forEach(itemIds::add);
+                    promotionRepository.findWithItemByIdIn(promotionIds)
+                            .forEach(promotion -> itemIds.add(promotion.getItem().getItemId()));
+                }
+                if (!itemIds.isEmpty()) {
+                    refresh(itemIds);
+                }
+            } while (changes.size() == CHANGES_PAGE_SIZE);
+            version = Math.max(since, current.getVersion());
+        }
+    }
+
+    /**
+     * Refreshes the snapshot of a created, edited or deleted item, or of an item whose promotions
+     * changed, once the surrounding transaction commits.
+     */
+    public void refreshAfterCommit(String itemId) {
+        if (itemId != null) {
+            afterCommit(() -> refresh(List.of(itemId)));
+        }
+    }
+
+    /**
+     * Rebuilds the whole index once the surrounding transaction commits, e.g. after an import.
+     */
+    public void rebuildAfterCommit() {
+        afterCommit(this::rebuild);
+    }
+
+    private void refresh(Collection<String> itemIds) {
+        synchronized (writeLock) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            List<ItemEntity> items = itemRepository.findWithCategoryByItemIdIn(itemIds);
+            Map<String, List<PromotionEntity>> promotions = byItem(
+                    promotionRepository.findCurrentAndUpcomingForItems(itemIds, now));
+            // Changed in place, one entry per item: scans see each item's old or new snapshot
+            Index current = index;
+            for (String itemId : itemIds) {
+                Long key = current.keyByItemId().remove(itemId);
+                Snapshot previous = key != null ? current.byBarcode().get(key) : null;
+                // Another item may have taken the barcode over since
+                if (previous != null && previous.itemId().equals(itemId)) {
+                    current.byBarcode().remove(key);
+                    for (long promotionId : previous.promoIds()) {
+                        current.itemIdByPromotion().remove(promotionId);
+                    }
+                }
+            }
+            for (ItemEntity item : items) {
+                put(current, item, promotions);
+            }
+        }
+    }
+
+    private void put(Index target, ItemEntity item, Map<String, List<PromotionEntity>> promotions) {
+        long key = BarcodeKeys.of(item.getBarcode());
+        if (key == BarcodeKeys.NONE) {
+            return;
+        }
+        try {
+            Snapshot snapshot = snapshot(item, promotions.getOrDefault(item.getItemId(), List.of()));
+            target.byBarcode().put(key, snapshot);
+            target.keyByItemId().put(item.getItemId(), key);
+            for (long promotionId : snapshot.promoIds()) {
+                target.itemIdByPromotion().put(promotionId, item.getItemId());
+            }
+        } catch (JsonProcessingException ex) {
+            log.warn("Item {} left out of the barcode index: {}", item.getItemId(), ex.getMessage());
+        }
+    }
+
+    private Snapshot snapshot(ItemEntity item, List<PromotionEntity> promotions) throws JsonProcessingException {
+        ItemResponse response = ItemResponse.builder()
+                .itemId(item.getItemId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .price(item.getPrice())
+                .barcode(item.getBarcode())
+                .imgUrl(item.getImgUrl())
+                .categoryName(item.getCategory().getName())
+                .categoryId(item.getCategory().getCategoryId())
+                .createdAt(item.getCreatedAt())
+                .updatedAt(item.getUpdatedAt())
+                .minStockLevel(item.getMinStockLevel())
+                .maxStockLevel(item.getMaxStockLevel())
+                .reorderPoint(item.getReorderPoint())
+                .unitOfMeasure(item.getUnitOfMeasure())
+                .supplierName(item.getSupplierName())
+                .supplierCode(item.getSupplierCode())
+                .costPrice(item.getCostPrice())
+                .vatRate(item.getVatRate())
+                .build();
+        ObjectNode node = objectMapper.valueToTree(response);
+        node.remove(LIVE_FIELDS);
+        byte[] json = objectMapper.writeValueAsBytes(node);
+
+        // Promotions arrive cheapest first, so the first one running at scan time wins
+        long[] ids = new long[promotions.size()];
+        long[] starts = new long[promotions.size()];
+        long[] ends = new long[promotions.size()];
+        byte[][] promoPrices = new byte[promotions.size()][];
+        for (int i = 0; i < promotions.size(); i++) {
+            PromotionEntity promotion = promotions.get(i);
+            ids[i] = promotion.getId();
+            starts[i] = promotion.getStartAt().getTime();
+            ends[i] = promotion.getEndAt().getTime();
+            promoPrices[i] = objectMapper.writeValueAsBytes(promotion.getPromoPrice());
+        }
+        return new Snapshot(
+                item.getItemId(),
+                // Without the closing brace; the live fields follow
+                Arrays.copyOf(json, json.length - 1),
+                item.getStockQuantity() != null ? item.getStockQuantity() : 0,
+                item.getReorderPoint(),
+                item.getMaxStockLevel(),
+                objectMapper.writeValueAsBytes(item.getPrice() != null ? item.getPrice() : BigDecimal.ZERO),
+                ids,
+                starts,
+                ends,
+                promoPrices);
+    }
+
+    // Same rules as ItemServiceImpl.determineStockStatus
+    private static byte[] stockStatus(Snapshot snapshot, int stock) {
+        if (stock <= 0) {
+            return OUT_OF_STOCK;
+        }
+        if (snapshot.reorderPoint() != null && stock <= snapshot.reorderPoint()) {
+            return LOW_STOCK;
+        }
+        if (snapshot.maxStockLevel() != null && stock > snapshot.maxStockLevel()) {
+            return OVERSTOCK;
+        }
+        return NORMAL;
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        long remaining = value;
+        if (remaining < 0) {
+            out.write('-');
+            remaining = -remaining;
+        }
+        long divisor = 1;
+        while (remaining / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.write('0' + (int) (remaining / divisor % 10));
+        }
+    }
+
+    private static Map<String, List<PromotionEntity>> byItem(List<PromotionEntity> promotions) {
+        Map<String, List<PromotionEntity>> byItem = new HashMap<>();
+        for (PromotionEntity promotion : promotions) {
+            byItem.computeIfAbsent(promotion.getItem().getItemId(), k -> new ArrayList<>()).add(promotion);
+        }
+        return byItem;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // keyByItemId and itemIdByPromotion are only used under writeLock
+    private record Index(LongObjectHashMap<Snapshot> byBarcode, Map<String, Long> keyByItemId,
+                         Map<Long, String> itemIdByPromotion) {
+    }
+
+    private record Snapshot(String itemId, byte[] json, int storedStock, Integer reorderPoint, Integer maxStockLevel,
+                            byte[] price, long[] promoIds, long[] promoStarts, long[] promoEnds, byte[][] promoPrices) {
+
+        byte[] effectivePrice(long now) {
+            for (int i = 0; i < promoStarts.length; i++) {
+                if (promoStarts[i] <= now && now <= promoEnds[i]) {
+                    return promoPrices[i];
+                }
+            }
+            return price;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.repository.CatalogChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions catalog changes for the register delta feed. Changes made in a transaction are collected
+ * and written just before it commits: the version counter is locked, advanced by the number of
+ * changed entities and each entity's row is replaced with its new version. Because the counter stays
+ * locked until commit, versions become visible strictly in order and a reader that has seen version
+ * {@code v} has seen every change up to {@code v}. Stock movements are not catalog changes.
+ * <p>
+ * An empty log is seeded with the current catalog at startup; tombstones of deleted entities are
+ * purged after {@code catalog.changes.tombstone-retention-days}.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class CatalogChangeLog implements InitializingBean {
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::type).thenComparing(Key::entityId);
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int tombstoneRetentionDays;
+    private final AtomicLong committedVersion = new AtomicLong();
+
+    public CatalogChangeLog(CatalogChangeRepository catalogChangeRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${catalog.changes.tombstone-retention-days:30}") int tombstoneRetentionDays) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.tombstoneRetentionDays = tombstoneRetentionDays;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (catalogChangeRepository.createVersionRow()) {
+                    Map<Key, Boolean> changes = new TreeMap<>(KEY_ORDER);
+                    for (CatalogChangeEntity entity : catalogChangeRepository.findCatalogEntities()) {
+                        changes.put(new Key(entity.getEntityType(), entity.getEntityId()), false);
+                    }
+                    write(changes);
+                    log.info("Catalog change log seeded with {} entities", changes.size());
+                }
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // Another instance created and seeded it first
+            log.debug("Catalog version row already created: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * The newest version committed through this instance, or 0. Changes committed by other instances
+     * are only seen by reading the version row.
+     */
+    public long committedVersion() {
+        return committedVersion.get();
+    }
+
+    public void record(CatalogChangeEntity.EntityType type, String entityId) {
+        record(type, entityId, false);
+    }
+
+    public void recordDeleted(CatalogChangeEntity.EntityType type, String entityId) {
+        record(type, entityId, true);
+    }
+
+    /**
+     * Drops tombstones older than the retention period. Clients further behind than the newest
+     * dropped tombstone have to reload the catalog.
+     */
+    @Scheduled(cron = "${catalog.changes.purge.cron:0 40 2 * * *}")
+    public int purgeTombstones() {
+        Integer purged = transactionTemplate.execute(status ->
+                catalogChangeRepository.purgeTombstones(LocalDateTime.now().minusDays(tombstoneRetentionDays)));
+        int removed = purged != null ? purged : 0;
+        log.info("Purged {} catalog tombstones", removed);
+        return removed;
+    }
+
+    private void record(CatalogChangeEntity.EntityType type, String entityId, boolean deleted) {
+        if (entityId == null) {
+            return;
+        }
+        Key key = new Key(type, entityId);
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            Long written = transactionTemplate.execute(status -> write(Map.of(key, deleted)));
+            published(written != null ? written : 0);
+            return;
+        }
+        pending().changes.put(key, deleted);
+    }
+
+    // Looked up among the synchronizations rather than bound as a resource, so a nested
+    // REQUIRES_NEW transaction gets its own
+    private PendingChanges pending() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending && pending.owner() == this) {
+                return pending;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    // Returns the newest version written, or 0 when there was nothing to write
+    private long write(Map<Key, Boolean> changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        long version = catalogChangeRepository.reserveVersions(changes.size()) - changes.size();
+        LocalDateTime now = LocalDateTime.now();
+        List<CatalogChangeEntity> rows = new ArrayList<>(changes.size());
+        for (Map.Entry<Key, Boolean> change : changes.entrySet()) {
+            rows.add(CatalogChangeEntity.builder()
+                    .entityType(change.getKey().type())
+                    .entityId(change.getKey().entityId())
+                    .version(++version)
+                    .deleted(change.getValue())
+                    .changedAt(now)
+                    .build());
+        }
+        catalogChangeRepository.upsert(rows);
+        return version;
+    }
+
+    private void published(long version) {
+        committedVersion.accumulateAndGet(version, Math::max);
+    }
+
+    private record Key(CatalogChangeEntity.EntityType type, String entityId) {
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+
+        // Sorted so concurrent writers lock change rows in the same order
+        private final Map<Key, Boolean> changes = new TreeMap<>(KEY_ORDER);
+        private long written;
+
+        CatalogChangeLog owner() {
+            return CatalogChangeLog.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            written = write(changes);
+        }
+
+        @Override
+        public void afterCommit() {
+            published(written);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.io.CatalogChangesResponse;
+
+public interface CatalogService {
+
+    /**
+     * Catalog changes after version {@code since}; {@code since = 0} loads the whole catalog.
+     * Fails with 410 Gone when the client is too far behind to catch up from the log.
+     */
+    CatalogChangesResponse getChanges(long since, Integer limit);
+}
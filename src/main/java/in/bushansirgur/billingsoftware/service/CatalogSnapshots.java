@@ -0,0 +1,240 @@
+package in.bushansirgur.billingsoftware.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.repository.CatalogChangeRepository;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The POS catalog as one JSON document, built and gzipped once per catalog version and served as is. Fields
+ * are laid out in columns (one array per field, rows by index) and items refer to categories and
+ * promotions to items by index, so names and ids are not repeated. Only what a register needs is
+ * included: no stock levels, thresholds, supplier data or timestamps.
+ * <p>
+ * A request rebuilds the document when the catalog version has moved; while one request rebuilds,
+ * others keep getting the previous document. Changes committed on this instance are noticed at once
+ * through {@link CatalogChangeLog#committedVersion()}; the version row, which also shows other
+ * instances' changes, is read at most once per {@code catalog.snapshot.check-interval-ms}. Registers
+ * continue from {@code version} through {@code GET /catalog/changes}.
+ */
+@Component
+@Slf4j
+public class CatalogSnapshots {
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final CatalogChangeLog catalogChangeLog;
+    private final ItemRepository itemRepository;
+    private final CategoryRepository categoryRepository;
+    private final PromotionRepository promotionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final long checkIntervalNanos;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private volatile Snapshot current;
+    // System.nanoTime() of the last read of the version row
+    private volatile long checkedAt;
+
+    public CatalogSnapshots(CatalogChangeRepository catalogChangeRepository,
+                            CatalogChangeLog catalogChangeLog,
+                            ItemRepository itemRepository,
+                            CategoryRepository categoryRepository,
+                            PromotionRepository promotionRepository,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${catalog.snapshot.check-interval-ms:1000}") long checkIntervalMs) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.catalogChangeLog = catalogChangeLog;
+        this.itemRepository = itemRepository;
+        this.categoryRepository = categoryRepository;
+        this.promotionRepository = promotionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.checkIntervalNanos = checkIntervalMs * 1_000_000;
+    }
+
+    /**
+     * The snapshot of the current catalog version, built if needed.
+     */
+    public Snapshot current() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version() >= catalogChangeLog.committedVersion()
+                && System.nanoTime() - checkedAt < checkIntervalNanos) {
+            return snapshot;
+        }
+        if (!rebuildLock.tryLock()) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            rebuildLock.lock();
+        }
+        try {
+            long version = catalogChangeRepository.findVersion().getVersion();
+            if (current == null || current.version() != version) {
+                current = build();
+            }
+            checkedAt = System.nanoTime();
+            return current;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Snapshot build() {
+        long started = System.nanoTime();
+        Snapshot snapshot = transactionTemplate.execute(status -> {
+            // Read first: the entities below are at least this new, and newer changes are sent again as deltas
+            long version = catalogChangeRepository.findVersion().getVersion();
+            List<CategoryEntity> categories = categoryRepository.findAll();
+            List<ItemEntity> items = itemRepository.findAllWithCategory();
+            List<PromotionEntity> promotions = promotionRepository.findCurrentAndUpcoming(new Timestamp(System.currentTimeMillis()));
+            try {
+                return encode(version, categories, items, promotions);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        log.info("Catalog snapshot {} built: {} items, {} bytes gzipped in {} ms", snapshot.version(), snapshot.items(),
+                snapshot.gzipped().length, (System.nanoTime() - started) / 1_000_000);
+        return snapshot;
+    }
+
+    private Snapshot encode(long version, List<CategoryEntity> categories, List<ItemEntity> items,
+                            List<PromotionEntity> promotions) throws IOException {
+        Map<Long, Integer> categoryIndex = new HashMap<>();
+        for (int i = 0; i < categories.size(); i++) {
+            categoryIndex.put(categories.get(i).getId(), i);
+        }
+        Map<String, Integer> itemIndex = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            itemIndex.put(items.get(i).getItemId(), i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * 1024);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(bytes)) {
+            json.writeStartObject();
+            json.writeNumberField("version", version);
+
+            json.writeObjectFieldStart("categories");
+            writeStrings(json, "categoryId", categories, CategoryEntity::getCategoryId);
+            writeStrings(json, "name", categories, CategoryEntity::getName);
+            writeStrings(json, "bgColor", categories, CategoryEntity::getBgColor);
+            writeStrings(json, "imgUrl", categories, CategoryEntity::getImgUrl);
+            json.writeEndObject();
+
+            json.writeObjectFieldStart("items");
+            writeStrings(json, "itemId", items, ItemEntity::getItemId);
+            writeStrings(json, "name", items, ItemEntity::getName);
+            writeStrings(json, "barcode", items, ItemEntity::getBarcode);
+            writeNumbers(json, "price", items, ItemEntity::getPrice);
+            writeNumbers(json, "vatRate", items, ItemEntity::getVatRate);
+            json.writeArrayFieldStart("category");
+            for (ItemEntity item : items) {
+                json.writeNumber(categoryIndex.getOrDefault(item.getCategory().getId(), -1));
+            }
+            json.writeEndArray();
+            writeStrings(json, "unitOfMeasure", items, ItemEntity::getUnitOfMeasure);
+            writeStrings(json, "imgUrl", items, ItemEntity::getImgUrl);
+            json.writeEndObject();
+
+            // Cheapest first, as in the barcode index; registers take the first one running
+            List<PromotionEntity> indexed = promotions.stream()
+                    .filter(promotion -> itemIndex.containsKey(promotion.getItem().getItemId()))
+                    .toList();
+            json.writeObjectFieldStart("promotions");
+            json.writeArrayFieldStart("id");
+            for (PromotionEntity promotion : indexed) {
+                json.writeNumber(promotion.getId());
+            }
+            json.writeEndArray();
+            json.writeArrayFieldStart("item");
+            for (PromotionEntity promotion : indexed) {
+                json.writeNumber(itemIndex.get(promotion.getItem().getItemId()));
+            }
+            json.writeEndArray();
+            writeNumbers(json, "promoPrice", indexed, PromotionEntity::getPromoPrice);
+            json.writeArrayFieldStart("startAt");
+            for (PromotionEntity promotion : indexed) {
+                json.writeNumber(promotion.getStartAt().getTime());
+            }
+            json.writeEndArray();
+            json.writeArrayFieldStart("endAt");
+            for (PromotionEntity promotion : indexed) {
+                json.writeNumber(promotion.getEndAt().getTime());
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+
+            json.writeEndObject();
+        }
+        byte[] identity = bytes.toByteArray();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            gzip.write(identity);
+        }
+        byte[] gzipped = compressed.toByteArray();
+        String hash = Base64.getUrlEncoder().withoutPadding().encodeToString(sha256().digest(gzipped)).substring(0, 22);
+        return new Snapshot(version, "\"" + version + "-" + hash + "\"", gzipped, identity, items.size());
+    }
+
+    private static <T> void writeStrings(JsonGenerator json, String field, List<T> rows,
+                                         Function<T, String> value) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (T row : rows) {
+            json.writeString(value.apply(row));
+        }
+        json.writeEndArray();
+    }
+
+    private static <T> void writeNumbers(JsonGenerator json, String field, List<T> rows,
+                                         Function<T, BigDecimal> value) throws IOException {
+        json.writeArrayFieldStart(field);
+        for (T row : rows) {
+            json.writeNumber(value.apply(row));
+        }
+        json.writeEndArray();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A built snapshot, gzipped and as plain JSON. {@code etag} is a strong validator of the gzipped
+     * bytes, {@link #identityEtag()} of the plain ones.
+     */
+    public record Snapshot(long version, String etag, byte[] gzipped, byte[] identity, int items) {
+
+        public String identityEtag() {
+            return etag.substring(0, etag.length() - 1) + "-identity\"";
+        }
+    }
+}
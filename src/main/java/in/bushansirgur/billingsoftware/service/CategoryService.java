@@ -5,6 +5,7 @@ import in.bushansirgur.billingsoftware.io.CategoryResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 public interface CategoryService {
@@ -14,4 +15,6 @@ public interface CategoryService {
     List<CategoryResponse> read();
 
     void delete(String categoryId);
+
+    List<CategoryResponse> findByCategoryIds(Collection<String> categoryIds);
 }
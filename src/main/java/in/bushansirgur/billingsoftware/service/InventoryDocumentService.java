@@ -0,0 +1,21 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.io.InventoryDocumentRequest;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentResponse;
+
+public interface InventoryDocumentService {
+
+    /**
+     * Applies all lines of a document: diffs against current stock in memory, then writes stock,
+     * ledger rows and adjustments as JDBC batches, one transaction per chunk of items.
+     * Unknown items are reported and skipped. A document id is applied once: resubmitting a
+     * completed document is rejected with 409, resubmitting a failed one continues after the
+     * last committed chunk. A failure is thrown as a non-2xx {@code ResponseStatusException}.
+     */
+    InventoryDocumentResponse apply(InventoryDocumentRequest document);
+
+    /**
+     * Progress of a running or finished document.
+     */
+    InventoryDocumentResponse getProgress(String documentId);
+}
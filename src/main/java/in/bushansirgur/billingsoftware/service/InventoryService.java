@@ -1,10 +1,18 @@
 package in.bushansirgur.billingsoftware.service;
 
+import in.bushansirgur.billingsoftware.io.CursorPage;
 import in.bushansirgur.billingsoftware.io.InventoryRequest;
 import in.bushansirgur.billingsoftware.io.InventoryResponse;
 import in.bushansirgur.billingsoftware.io.InventorySummaryResponse;
+import in.bushansirgur.billingsoftware.io.SaleMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface InventoryService {
     
@@ -21,15 +29,37 @@ public interface InventoryService {
     List<InventoryResponse> getOverstockItems();
     InventorySummaryResponse getInventorySummary();
     
-    // Transaction history
-    List<InventoryResponse> getItemTransactionHistory(String itemId);
+    // Item lists behind the summary counters, one page per call
+    Page<InventoryResponse> getLowStockItems(Pageable pageable);
+    Page<InventoryResponse> getOutOfStockItems(Pageable pageable);
+    Page<InventoryResponse> getOverstockItems(Pageable pageable);
+    
+    // Transaction history, newest first, one keyset page per call
+    CursorPage<InventoryResponse> getItemTransactionHistory(String itemId, String cursor, int size);
+    CursorPage<InventoryResponse> getRecentTransactions(String cursor, int size);
     List<InventoryResponse> getRecentTransactions();
     
+    /**
+     * Writes all stock movements with {@code from <= createdAt < to} as CSV, oldest first,
+     * reading the ledger in keyset chunks so the export never holds more than one chunk in memory.
+     */
+    void exportMovements(LocalDateTime from, LocalDateTime to, Writer writer) throws IOException;
+    
     // Alerts
     void checkAndCreateAlerts(String itemId);
     List<InventoryResponse> getActiveAlerts();
     
     // Automatic operations
+    void recordOpeningStock(String itemId, int quantity, String referenceType);
     void processSaleTransaction(String itemId, Integer quantity, String orderId);
     void processPurchaseTransaction(String itemId, Integer quantity, String purchaseOrderId);
+    
+    // Cart-level operations: one locked read, one batched stock update and one batched ledger insert
+    void processSaleTransactions(Map<String, Integer> quantitiesByItemId, String orderId);
+
+    // Several past sales at once, each with its own ledger rows dated when it was sold; rows are locked once
+    void processSaleTransactions(List<SaleMovement> sales);
+
+    // Refund restock for a whole cart, same batching as processSaleTransactions
+    void processReturnTransactions(Map<String, Integer> quantitiesByItemId, String refundReference);
 }
@@ -0,0 +1,309 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.repository.InventoryBatchRepository;
+import in.bushansirgur.billingsoftware.util.AverageCost;
+import in.bushansirgur.billingsoftware.util.Money;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Item counts and stock valuation behind the inventory summary, kept up to date from stock
+ * changes and item writes once their transaction commits. Every change moves the counters by
+ * the difference between the item's old and new contribution, so reading the summary never scans
+ * {@code tbl_items}. Stock is valued twice: at the current cost price (replacement value) and at
+ * the moving average cost of what was received (book value). The state is loaded at startup and
+ * rebuilt nightly to pick up writes made outside the application.
+ * <p>
+ * Stock changes are applied as the signed quantities of their ledger rows, so transactions that
+ * commit in a different order than they changed stock still add up. Changes committed while
+ * {@link #rebuild()} reads the database are kept aside and replayed onto the new state unless the
+ * read already saw their ledger rows.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class InventorySummaryState implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final TransactionTemplate snapshotRead;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Written under this object's monitor; read without locking through published
+    private Map<String, Entry> items = new ConcurrentHashMap<>();
+    // The items map once fully loaded; a rebuild fills a new map before swapping it in
+    private volatile Map<String, Entry> published = items;
+    private long lowStockItems;
+    private long outOfStockItems;
+    private long overstockItems;
+    private long inventoryValueCents;
+    private long costValueCents;
+    // Changes committed while a rebuild reads the database; null otherwise
+    private List<Update> replay;
+
+    public InventorySummaryState(JdbcTemplate jdbcTemplate,
+                                 InventoryBatchRepository inventoryBatchRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        // One snapshot for the item read and the ledger lookups of the replay
+        this.snapshotRead = new TransactionTemplate(transactionManager);
+        this.snapshotRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotRead.setReadOnly(true);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+    }
+
+    /**
+     * Reloads all items from the database, replacing the current counters. Stock still pending on
+     * the write-behind counters is added from its flagged ledger rows.
+     */
+    @Scheduled(cron = "${inventory.summary.rebuild.cron:0 30 2 * * *}")
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            load();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void load() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        Map<String, Entry> fresh = new HashMap<>();
+        int replayed = snapshotRead.execute(status -> {
+            jdbcTemplate.query("SELECT i.item_id, COALESCE(i.stock_quantity, 0) + COALESCE(p.quantity, 0) AS stock_quantity, " +
+                            "i.reorder_point, i.max_stock_level, i.cost_price, " +
+                            "COALESCE(i.average_cost, i.cost_price) AS average_cost FROM tbl_items i " +
+                            "LEFT JOIN (SELECT item_id, SUM(quantity) AS quantity FROM tbl_inventory_transactions " +
+                            "WHERE stock_pending = TRUE GROUP BY item_id) p ON p.item_id = i.item_id " +
+                            "WHERE i.item_id IS NOT NULL",
+                    rs -> {
+                        fresh.put(rs.getString("item_id"), new Entry(
+                                rs.getInt("stock_quantity"),
+                                rs.getObject("reorder_point", Integer.class),
+                                rs.getObject("max_stock_level", Integer.class),
+                                Money.of(rs.getBigDecimal("cost_price")).getCents(),
+                                rs.getBigDecimal("average_cost")));
+                    });
+            return installAfterReplay(fresh);
+        });
+        log.info("Inventory summary loaded for {} items, replayed {} concurrent updates", fresh.size(), replayed);
+    }
+
+    /**
+     * Looks up which of the kept-aside changes the read saw until no new ones arrive, then swaps in
+     * the fresh state with the others replayed. Lookups run outside the lock so commits are not held up.
+     */
+    private int installAfterReplay(Map<String, Entry> fresh) {
+        Set<Long> seen = new HashSet<>();
+        int checked = 0;
+        while (true) {
+            List<Long> transactionIds = new ArrayList<>();
+            synchronized (this) {
+                if (checked == replay.size()) {
+                    List<Update> updates = replay;
+                    replay = null;
+                    items = new ConcurrentHashMap<>(fresh.size());
+                    lowStockItems = 0;
+                    outOfStockItems = 0;
+                    overstockItems = 0;
+                    inventoryValueCents = 0;
+                    costValueCents = 0;
+                    fresh.forEach(this::put);
+                    int replayed = 0;
+                    for (Update update : updates) {
+                        if (update.transactionId() == null || !seen.contains(update.transactionId())) {
+                            apply(update);
+                            replayed++;
+                        }
+                    }
+                    published = items;
+                    return replayed;
+                }
+                for (Update update : replay.subList(checked, replay.size())) {
+                    if (update.transactionId() != null) {
+                        transactionIds.add(update.transactionId());
+                    }
+                }
+                checked = replay.size();
+            }
+            seen.addAll(inventoryBatchRepository.findTransactionIds(transactionIds));
+        }
+    }
+
+    /**
+     * Adds the quantities of written ledger rows to their items' stock once the surrounding
+     * transaction commits.
+     */
+    public void recordStockAfterCommit(Collection<InventoryTransactionEntity> transactions) {
+        recordStockAfterCommit(transactions, Map.of());
+    }
+
+    /**
+     * Like {@link #recordStockAfterCommit(Collection)}, also storing the new average costs of the
+     * items that received costed goods. Those receipts hold the item row lock, so they commit in order.
+     */
+    public void recordStockAfterCommit(Collection<InventoryTransactionEntity> transactions,
+                                       Map<String, BigDecimal> averageCosts) {
+        List<Update> updates = transactions.stream()
+                .map(tx -> new Update(tx.getItemId(), tx.getId(), tx.getQuantity(),
+                        averageCosts.get(tx.getItemId()), null, false))
+                .toList();
+        afterCommit(updates);
+    }
+
+    /**
+     * Adds a created item, or takes over the thresholds and cost price of an edited one, once the
+     * surrounding transaction commits. An edit leaves stock and average cost alone: those follow
+     * the ledger, and the edited entity may have been read before a concurrent stock change.
+     */
+    public void recordItemAfterCommit(ItemEntity item) {
+        if (item.getItemId() == null) {
+            return;
+        }
+        Entry entry = new Entry(
+                item.getStockQuantity() != null ? item.getStockQuantity() : 0,
+                item.getReorderPoint(),
+                item.getMaxStockLevel(),
+                Money.of(item.getCostPrice()).getCents(),
+                AverageCost.orCostPrice(item.getAverageCost(), item.getCostPrice()));
+        afterCommit(List.of(new Update(item.getItemId(), null, 0, null, entry, false)));
+    }
+
+    public void removeItemAfterCommit(String itemId) {
+        afterCommit(List.of(new Update(itemId, null, 0, null, null, true)));
+    }
+
+    /**
+     * Stock of an item as last committed, or {@code fallback} for items not loaded. Does not lock,
+     * so scans never wait for a commit or a rebuild.
+     */
+    public int stockOf(String itemId, int fallback) {
+        Entry entry = published.get(itemId);
+        return entry != null ? entry.getStockQuantity() : fallback;
+    }
+
+    public synchronized Totals totals() {
+        return new Totals(items.size(), lowStockItems, outOfStockItems, overstockItems, inventoryValueCents, costValueCents);
+    }
+
+    private void put(String itemId, Entry entry) {
+        Entry previous = entry != null ? items.put(itemId, entry) : items.remove(itemId);
+        if (previous != null) {
+            count(previous, -1);
+        }
+        if (entry != null) {
+            count(entry, 1);
+        }
+    }
+
+    // Same conditions as the paged item queries in ItemRepository
+    private void count(Entry entry, int sign) {
+        int stock = entry.getStockQuantity();
+        if (entry.getReorderPoint() != null && stock <= entry.getReorderPoint()) {
+            lowStockItems += sign;
+        }
+        if (stock <= 0) {
+            outOfStockItems += sign;
+        }
+        if (entry.getMaxStockLevel() != null && stock > entry.getMaxStockLevel()) {
+            overstockItems += sign;
+        }
+        if (stock > 0) {
+            inventoryValueCents += sign * stock * entry.getCostCents();
+        }
+        costValueCents += sign * AverageCost.valueCents(stock, entry.getAverageCost());
+    }
+
+    private void afterCommit(List<Update> updates) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(updates);
+                }
+            });
+        } else {
+            record(updates);
+        }
+    }
+
+    private synchronized void record(List<Update> updates) {
+        updates.forEach(this::apply);
+        if (replay != null) {
+            replay.addAll(updates);
+        }
+    }
+
+    private void apply(Update update) {
+        if (update.removed()) {
+            put(update.itemId(), null);
+            return;
+        }
+        Entry current = items.get(update.itemId());
+        if (update.item() != null) {
+            Entry item = update.item();
+            put(update.itemId(), current == null ? item : new Entry(current.getStockQuantity(), item.getReorderPoint(),
+                    item.getMaxStockLevel(), item.getCostCents(), current.getAverageCost()));
+        } else if (current != null) {
+            put(update.itemId(), new Entry(current.getStockQuantity() + update.quantity(), current.getReorderPoint(),
+                    current.getMaxStockLevel(), current.getCostCents(),
+                    update.averageCost() != null ? update.averageCost() : current.getAverageCost()));
+        }
+    }
+
+    @Value
+    private static class Entry {
+        int stockQuantity;
+        Integer reorderPoint;
+        Integer maxStockLevel;
+        long costCents;
+        BigDecimal averageCost;
+    }
+
+    /**
+     * A committed change: a ledger row's stock quantity (and new average cost), an item write or a removal.
+     */
+    private record Update(String itemId, Long transactionId, int quantity, BigDecimal averageCost,
+                          Entry item, boolean removed) {
+    }
+
+    @Value
+    public static class Totals {
+        long totalItems;
+        long lowStockItems;
+        long outOfStockItems;
+        long overstockItems;
+        long inventoryValueCents;
+        long costValueCents;
+    }
+}
@@ -5,6 +5,7 @@ import in.bushansirgur.billingsoftware.io.ItemResponse;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 
 public interface ItemService {
@@ -21,6 +22,8 @@ public interface ItemService {
 
     List<ItemResponse> searchItems(String searchTerm);
 
+    List<ItemResponse> findItemsByItemIds(Collection<String> itemIds);
+
     void deleteItem(String itemId);
     
     void generateMissingItemIds();
@@ -1,9 +1,15 @@
 package in.bushansirgur.billingsoftware.service;
 
+import in.bushansirgur.billingsoftware.io.OrderBatchRequest;
+import in.bushansirgur.billingsoftware.io.OrderBatchResponse;
 import in.bushansirgur.billingsoftware.io.OrderRequest;
 import in.bushansirgur.billingsoftware.io.OrderResponse;
+import in.bushansirgur.billingsoftware.io.CursorPage;
 import in.bushansirgur.billingsoftware.io.OrderRefundRequest;
+import in.bushansirgur.billingsoftware.io.OrderSearchRequest;
+import in.bushansirgur.billingsoftware.io.OrderSummary;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
 import java.time.LocalDate;
 import in.bushansirgur.billingsoftware.io.PaymentVerificationRequest;
@@ -14,9 +20,24 @@ public interface OrderService {
 
     OrderResponse createOrder(OrderRequest request);
 
+    /**
+     * Creates an order once per {@code idempotencyKey}. A repeated key returns the order created
+     * by the first request instead of placing it again; a {@code null} key behaves like {@link #createOrder(OrderRequest)}.
+     */
+    OrderResponse createOrder(OrderRequest request, String idempotencyKey);
+
+    /**
+     * Stores orders queued by a register while it was offline, keeping their original time and cashier.
+     * Invalid orders are reported per order; all valid ones are stored in one transaction.
+     */
+    OrderBatchResponse createOrders(OrderBatchRequest request);
+
     void deleteOrder(String orderId);
 
-    List<OrderResponse> getLatestOrders();
+    /**
+     * Returns the newest orders one keyset page at a time, starting after {@code cursor}.
+     */
+    CursorPage<OrderResponse> getLatestOrders(String cursor, int size);
 
     OrderResponse verifyPayment(PaymentVerificationRequest request);
 
@@ -31,7 +52,22 @@ public interface OrderService {
      */
     Page<OrderResponse> getOrders(Pageable pageable);
 
-    Page<OrderResponse> getOrders(Pageable pageable, String q, LocalDate fromDate, LocalDate toDate);
+    /**
+     * Returns one offset page of filtered orders. The total is only counted when {@code withTotal} is
+     * set; otherwise the result is a {@link Slice} that only knows whether a next page exists.
+     */
+    Slice<OrderResponse> getOrders(Pageable pageable, String q, LocalDate fromDate, LocalDate toDate, boolean withTotal);
 
     OrderResponse refundOrder(OrderRefundRequest request);
+
+    /**
+     * Returns header-only order rows for list screens, without line items, one keyset page at a time.
+     * The total is only counted when {@code withTotal} is set.
+     */
+    CursorPage<OrderSummary> getOrderSummaries(OrderSearchRequest search, String cursor, int size, boolean withTotal);
+
+    /**
+     * Returns a single order with its line items loaded in one query.
+     */
+    OrderResponse getOrder(String orderId);
 }
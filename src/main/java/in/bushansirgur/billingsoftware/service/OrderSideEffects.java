@@ -0,0 +1,41 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.io.OrderPlacedEvent;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Everything a sale changes besides the order itself: stock and ledger rows (with alert checks),
+ * the sales rollup and loyalty points. Runs in the caller's transaction, either inline during
+ * checkout or from the outbox worker.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderSideEffects {
+
+    private final OrderEntityRepository orderEntityRepository;
+    private final InventoryService inventoryService;
+    private final SalesRollupService salesRollupService;
+    private final LoyaltyService loyaltyService;
+
+    public void apply(OrderPlacedEvent event) {
+        OrderEntity order = orderEntityRepository.findWithItemsByOrderId(event.getOrderId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Order not found: " + event.getOrderId()));
+        apply(event, order);
+    }
+
+    public void apply(OrderPlacedEvent event, OrderEntity order) {
+        if (event.getQuantitiesByItemId() != null && !event.getQuantitiesByItemId().isEmpty()) {
+            inventoryService.processSaleTransactions(event.getQuantitiesByItemId(), event.getOrderId());
+        }
+        salesRollupService.recordOrder(order);
+        if (event.getCustomerId() != null && event.getLoyaltyPoints() != null && event.getLoyaltyPoints() > 0) {
+            loyaltyService.addLoyaltyPoints(event.getCustomerId(), event.getLoyaltyPoints(), event.getOrderId());
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package in.bushansirgur.billingsoftware.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.bushansirgur.billingsoftware.entity.OutboxEventEntity;
+import in.bushansirgur.billingsoftware.io.OrderPlacedEvent;
+import in.bushansirgur.billingsoftware.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains {@code tbl_outbox_events} on a bounded worker pool. Each round takes the oldest pending
+ * events and splits them into lanes so that events sharing an item run one after another in id
+ * order, while unrelated lanes run in parallel. An event's side effects and its DONE mark commit in
+ * one transaction; failures are retried with exponential backoff and block later events for the
+ * same items until they succeed or are given up as FAILED. A 4xx rejection is not retried.
+ */
+@Component
+@Slf4j
+public class OutboxDispatcher implements DisposableBean {
+
+    private static final Duration STALE_LOCK = Duration.ofMinutes(5);
+    private static final long MAX_BACKOFF_SECONDS = 300;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderSideEffects orderSideEffects;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int retentionHours;
+    private final ExecutorService dispatcher;
+    private final ExecutorService workers;
+    private final AtomicInteger pollRequests = new AtomicInteger();
+
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository,
+                            OrderSideEffects orderSideEffects,
+                            TransactionTemplate transactionTemplate,
+                            ObjectMapper objectMapper,
+                            @Value("${orders.outbox.enabled:true}") boolean enabled,
+                            @Value("${orders.outbox.workers:4}") int workers,
+                            @Value("${orders.outbox.batch-size:200}") int batchSize,
+                            @Value("${orders.outbox.max-attempts:10}") int maxAttempts,
+                            @Value("${orders.outbox.retention-hours:24}") int retentionHours,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.orderSideEffects = orderSideEffects;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retentionHours = Math.max(1, retentionHours);
+        this.dispatcher = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("outbox-dispatcher-"));
+        // Still a bounded pool on virtual threads, so one busy round cannot take every connection
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workers), virtualThreads
+                ? Thread.ofVirtual().name("outbox-worker-", 1).factory()
+                : new CustomizableThreadFactory("outbox-worker-"));
+    }
+
+    /**
+     * False when checkout applies its side effects inline ({@code orders.outbox.enabled=false}).
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stores the event in the caller's transaction and starts a dispatch round once it commits.
+     */
+    public void enqueue(OrderPlacedEvent event) {
+        Set<String> itemIds = event.getQuantitiesByItemId() != null
+                ? new TreeSet<>(event.getQuantitiesByItemId().keySet()) : Set.of();
+        outboxEventRepository.save(OutboxEventEntity.builder()
+                .eventType(OutboxEventEntity.EventType.ORDER_PLACED)
+                .aggregateId(event.getOrderId())
+                .itemIds(String.join(",", itemIds))
+                .payload(toJson(event))
+                .status(OutboxEventEntity.Status.PENDING)
+                .build());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requestPoll();
+                }
+            });
+        } else {
+            requestPoll();
+        }
+    }
+
+    /**
+     * Safety net for wake-ups lost to a crash or a busy instance; also frees events whose worker died.
+     */
+    @Scheduled(fixedDelayString = "${orders.outbox.poll-interval-ms:1000}")
+    public void scheduledPoll() {
+        if (!enabled) {
+            return;
+        }
+        int released = outboxEventRepository.releaseStale(LocalDateTime.now().minus(STALE_LOCK));
+        if (released > 0) {
+            log.warn("Released {} outbox events left in PROCESSING", released);
+        }
+        requestPoll();
+    }
+
+    @Scheduled(cron = "${orders.outbox.cleanup.cron:0 15 * * * *}")
+    public void deleteProcessedEvents() {
+        if (!enabled) {
+            return;
+        }
+        outboxEventRepository.deleteProcessedBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    /**
+     * Runs dispatch rounds in the calling thread until nothing is due and no event is in progress,
+     * or the timeout passes. Events waiting behind a retry are not waited for.
+     */
+    public boolean drain(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (outboxEventRepository.countByStatus(OutboxEventEntity.Status.PROCESSING) == 0
+                    && dispatchRound() == 0
+                    && outboxEventRepository.countByStatus(OutboxEventEntity.Status.PROCESSING) == 0) {
+                return true;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        dispatcher.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+            workers.shutdownNow();
+        }
+    }
+
+    private void requestPoll() {
+        if (pollRequests.getAndIncrement() == 0) {
+            dispatcher.execute(this::runRounds);
+        }
+    }
+
+    // Requests that arrive while a round runs are folded into one more round
+    private void runRounds() {
+        do {
+            pollRequests.set(1);
+            try {
+                while (dispatchRound() > 0) {
+                    // keep going while rounds make progress
+                }
+            } catch (RuntimeException ex) {
+                log.error("Outbox dispatch round failed", ex);
+            }
+        } while (!pollRequests.compareAndSet(1, 0));
+    }
+
+    private int dispatchRound() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEventEntity> pending = outboxEventRepository.findByStatusOrderByIdAsc(
+                OutboxEventEntity.Status.PENDING, PageRequest.of(0, batchSize));
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        Set<String> blocked = new HashSet<>();
+        outboxEventRepository.findItemIdsInProgress().forEach(ids -> blocked.addAll(itemIds(ids)));
+
+        List<Lane> lanes = new ArrayList<>();
+        Map<String, Lane> laneByItem = new HashMap<>();
+        for (OutboxEventEntity event : pending) {
+            List<String> items = itemIds(event.getItemIds());
+            boolean due = event.getNextAttemptAt() == null || !event.getNextAttemptAt().isAfter(now);
+            if (!due || items.stream().anyMatch(blocked::contains)) {
+                // Later events for these items have to wait behind this one
+                blocked.addAll(items);
+                continue;
+            }
+            Lane lane = null;
+            for (String item : items) {
+                Lane other = laneByItem.get(item);
+                if (other == null || other == lane) {
+                    continue;
+                }
+                if (lane == null) {
+                    lane = other;
+                    continue;
+                }
+                // The two lanes share no item, so appending keeps every item's order
+                lane.events.addAll(other.events);
+                lane.items.addAll(other.items);
+                for (String moved : other.items) {
+                    laneByItem.put(moved, lane);
+                }
+                lanes.remove(other);
+            }
+            if (lane == null) {
+                lane = new Lane();
+                lanes.add(lane);
+            }
+            lane.events.add(event);
+            lane.items.addAll(items);
+            for (String item : items) {
+                laneByItem.put(item, lane);
+            }
+        }
+        if (lanes.isEmpty()) {
+            return 0;
+        }
+
+        List<Callable<Integer>> tasks = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes) {
+            tasks.add(() -> runLane(lane.events));
+        }
+        int processed = 0;
+        try {
+            for (Future<Integer> result : workers.invokeAll(tasks)) {
+                processed += result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            log.error("Outbox lane failed", ex.getCause());
+        }
+        return processed;
+    }
+
+    private int runLane(List<OutboxEventEntity> events) {
+        int processed = 0;
+        for (OutboxEventEntity event : events) {
+            if (outboxEventRepository.claim(event.getId(), LocalDateTime.now()) == 0) {
+                // Taken by another round or instance; the rest of the lane waits for the next round
+                break;
+            }
+            processed++;
+            if (!process(event)) {
+                break;
+            }
+        }
+        return processed;
+    }
+
+    private boolean process(OutboxEventEntity event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                handle(event);
+                outboxEventRepository.markDone(event.getId(), LocalDateTime.now());
+            });
+            return true;
+        } catch (RuntimeException ex) {
+            int attempts = event.getAttempts() + 1;
+            String error = ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName();
+            if (error.length() > MAX_ERROR_LENGTH) {
+                error = error.substring(0, MAX_ERROR_LENGTH);
+            }
+            if (ex instanceof ResponseStatusException rejected && rejected.getStatusCode().is4xxClientError()) {
+                // Rejected input (unknown order or item, bad quantity) fails the same way on every retry
+                log.error("Giving up on outbox event {} ({} {}), rejected: {}", event.getId(),
+                        event.getEventType(), event.getAggregateId(), error, ex);
+                outboxEventRepository.markAttemptFailed(event.getId(), OutboxEventEntity.Status.FAILED,
+                        attempts, null, error);
+            } else if (attempts >= maxAttempts) {
+                log.error("Giving up on outbox event {} ({} {}) after {} attempts", event.getId(),
+                        event.getEventType(), event.getAggregateId(), attempts, ex);
+                outboxEventRepository.markAttemptFailed(event.getId(), OutboxEventEntity.Status.FAILED,
+                        attempts, null, error);
+            } else {
+                long delay = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(attempts, 16));
+                log.warn("Outbox event {} ({} {}) failed, retry {} in {}s: {}", event.getId(),
+                        event.getEventType(), event.getAggregateId(), attempts, delay, error);
+                outboxEventRepository.markAttemptFailed(event.getId(), OutboxEventEntity.Status.PENDING,
+                        attempts, LocalDateTime.now().plusSeconds(delay), error);
+            }
+            return false;
+        }
+    }
+
+    private void handle(OutboxEventEntity event) {
+        switch (event.getEventType()) {
+            case ORDER_PLACED -> orderSideEffects.apply(fromJson(event.getPayload()));
+            default -> throw new IllegalStateException("Unsupported outbox event type: " + event.getEventType());
+        }
+    }
+
+    private String toJson(OrderPlacedEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Could not serialize outbox event for order " + event.getOrderId(), ex);
+        }
+    }
+
+    private OrderPlacedEvent fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, OrderPlacedEvent.class);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unreadable outbox payload", ex);
+        }
+    }
+
+    private static List<String> itemIds(String joined) {
+        return joined == null || joined.isEmpty() ? List.of() : Arrays.asList(joined.split(","));
+    }
+
+    private static class Lane {
+        final List<OutboxEventEntity> events = new ArrayList<>();
+        final Set<String> items = new HashSet<>();
+    }
+}
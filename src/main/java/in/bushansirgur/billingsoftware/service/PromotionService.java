@@ -0,0 +1,22 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+public interface PromotionService {
+
+    /**
+     * Creates an active promotion for the item with database id {@code itemDbId}, or business id
+     * {@code itemId} when that finds nothing. The catalog change and the barcode index refresh are
+     * recorded in the same transaction. Fails with 400 when neither id matches an item.
+     */
+    PromotionEntity create(Long itemDbId, String itemId, BigDecimal promoPrice, Timestamp startAt, Timestamp endAt);
+
+    /**
+     * Deletes a promotion and records the tombstone in the same transaction. Fails with 404 when it
+     * does not exist.
+     */
+    void delete(Long id);
+}
@@ -0,0 +1,361 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.io.OrderStatus;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesReconciliation;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import in.bushansirgur.billingsoftware.util.Money;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Running sales totals for the last few days, keyed by day, hour, cashier and payment method.
+ * Orders and refunds are added once their transaction commits, so the dashboard and intraday
+ * figures never have to scan {@code tbl_orders}. Amounts are kept in cents to avoid drift. The
+ * newest few orders are kept as well, with their lines, for the dashboard's recent orders list.
+ * <p>
+ * The totals live in this instance only and see only the orders this instance commits. The POS
+ * backend runs as a single instance per store; with more than one node the figures would each
+ * cover part of the sales, and {@link #reconcile} reports the gap.
+ */
+@Component
+@Slf4j
+public class SalesAggregator implements InitializingBean {
+
+    private static final int RECENT_ORDERS = 5;
+
+    private final OrderEntityRepository orderEntityRepository;
+    private final int retentionDays;
+
+    private volatile State state = new State(new ConcurrentHashMap<>(), new RecentOrders(List.of()), null);
+    private volatile LocalDate windowStart;
+
+    public SalesAggregator(OrderEntityRepository orderEntityRepository,
+                           @org.springframework.beans.factory.annotation.Value("${dashboard.sales.retention-days:7}") int retentionDays) {
+        this.orderEntityRepository = orderEntityRepository;
+        this.retentionDays = Math.max(1, retentionDays);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+    }
+
+    /**
+     * Reloads the window from the database, replacing the current totals. Orders committed while
+     * the database is read are kept aside and replayed onto the new totals unless the read already
+     * saw them, so no update is lost or counted twice.
+     */
+    public synchronized void rebuild() {
+        LocalDate start = LocalDate.now().minusDays(retentionDays - 1L);
+        Replay replay = new Replay();
+        state = new State(state.buckets, state.recent, replay);
+
+        Map<Key, Bucket> fresh = new ConcurrentHashMap<>();
+        RecentOrders recent = new RecentOrders(loadRecentOrders());
+        Set<Long> loaded = new HashSet<>();
+        for (Object[] row : orderEntityRepository.findSalesFactsSince(start.atStartOfDay())) {
+            loaded.add((Long) row[0]);
+            add(fresh, (LocalDateTime) row[1], (String) row[2], (PaymentMethod) row[3],
+                    (Double) row[4], (Double) row[5], (Double) row[6], 1);
+        }
+
+        int replayed = 0;
+        synchronized (replay) {
+            for (Fact fact : replay.facts) {
+                // An order the read saw is already counted; a deletion the read saw is already gone
+                if (!fact.createdAt().toLocalDate().isBefore(start)
+                        && (fact.sign() > 0) != loaded.contains(fact.orderId())) {
+                    add(fresh, fact.createdAt(), fact.cashier(), fact.method(), fact.grandTotal(),
+                            fact.splitCash(), fact.splitCard(), fact.sign());
+                    replayed++;
+                }
+                // Adding and removing by order id is idempotent, so the recent orders take every update
+                recent.apply(fact.order(), fact.sign());
+            }
+            replay.closed = true;
+            this.windowStart = start;
+            this.state = new State(fresh, recent, null);
+        }
+        log.info("Sales aggregator loaded {} orders since {}, replayed {} concurrent updates",
+                loaded.size(), start, replayed);
+    }
+
+    /**
+     * Counts a saved order or refund record once the surrounding transaction commits.
+     */
+    public void recordAfterCommit(OrderEntity order) {
+        afterCommit(() -> apply(order, 1));
+    }
+
+    /**
+     * Takes a deleted order back out of the totals once the surrounding transaction commits.
+     */
+    public void removeAfterCommit(OrderEntity order) {
+        afterCommit(() -> apply(order, -1));
+    }
+
+    /**
+     * The newest orders and refunds, newest first, each passed through {@code mapper}.
+     */
+    public <T> List<T> recentOrders(Function<OrderEntity, T> mapper) {
+        return state.recent.map(mapper);
+    }
+
+    /**
+     * True when totals for {@code date} are held in memory.
+     */
+    public boolean covers(LocalDate date) {
+        return windowStart != null && !date.isBefore(windowStart);
+    }
+
+    public SalesTotals totalsForDay(LocalDate date) {
+        return totalsBy(date, key -> Boolean.TRUE).getOrDefault(Boolean.TRUE, new SalesTotals());
+    }
+
+    public Map<Integer, SalesTotals> totalsByHour(LocalDate date) {
+        return totalsBy(date, Key::getHour);
+    }
+
+    public Map<String, SalesTotals> totalsByCashier(LocalDate date) {
+        return totalsBy(date, key -> key.getCashier() != null ? key.getCashier() : "");
+    }
+
+    public Map<PaymentMethod, SalesTotals> totalsByPaymentMethod(LocalDate date) {
+        return totalsBy(date, Key::getPaymentMethod);
+    }
+
+    /**
+     * Compares the in-memory totals for {@code date} with a count/sum over {@code tbl_orders}.
+     * Orders committed between the two reads can show up as a transient mismatch.
+     */
+    public SalesReconciliation reconcile(LocalDate date) {
+        SalesTotals aggregated = totalsForDay(date);
+        LocalDateTime from = date.atStartOfDay();
+        LocalDateTime to = date.atTime(LocalTime.MAX);
+        Long dbCount = orderEntityRepository.countOrdersBetween(from, to);
+        Double dbTotal = orderEntityRepository.sumSalesBetween(from, to);
+        long databaseOrderCount = dbCount != null ? dbCount : 0L;
+        double databaseTotal = dbTotal != null ? dbTotal : 0.0;
+        boolean matches = aggregated.getOrderCount() == databaseOrderCount
+                && toCents(aggregated.getTotal()) == toCents(databaseTotal);
+        if (!matches) {
+            log.warn("Sales aggregator out of sync for {}: memory {} / {}, database {} / {}", date,
+                    aggregated.getOrderCount(), aggregated.getTotal(), databaseOrderCount, databaseTotal);
+        }
+        return SalesReconciliation.builder()
+                .date(date)
+                .aggregatedOrderCount(aggregated.getOrderCount())
+                .aggregatedTotal(aggregated.getTotal())
+                .databaseOrderCount(databaseOrderCount)
+                .databaseTotal(databaseTotal)
+                .matches(matches)
+                .build();
+    }
+
+    /**
+     * Drops days that fell out of the retention window.
+     */
+    @Scheduled(cron = "${dashboard.sales.evict.cron:0 5 0 * * *}")
+    public void evictExpiredDays() {
+        LocalDate start = LocalDate.now().minusDays(retentionDays - 1L);
+        state.buckets.keySet().removeIf(key -> key.getDay().isBefore(start));
+        windowStart = start;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private List<OrderEntity> loadRecentOrders() {
+        List<Long> ids = orderEntityRepository.findRecentOrders(PageRequest.of(0, RECENT_ORDERS)).stream()
+                .map(OrderEntity::getId)
+                .toList();
+        return ids.isEmpty() ? List.of() : orderEntityRepository.findWithItemsByIdIn(ids);
+    }
+
+    private void apply(OrderEntity order, int sign) {
+        if (order.getCreatedAt() == null) {
+            return;
+        }
+        // Orders older than the window still go through the recent orders
+        boolean counted = covers(order.getCreatedAt().toLocalDate());
+        Fact fact = new Fact(order, order.getId(), order.getCreatedAt(), order.getCashierUsername(), order.getPaymentMethod(),
+                order.getGrandTotal(),
+                order.getPaymentDetails() != null ? order.getPaymentDetails().getCashAmount() : null,
+                order.getPaymentDetails() != null ? order.getPaymentDetails().getCardAmount() : null,
+                sign);
+        while (true) {
+            State current = state;
+            if (current.replay == null) {
+                // Committed before any rebuild that has not yet read the database, so that read sees it
+                if (counted) {
+                    add(current.buckets, fact.createdAt(), fact.cashier(), fact.method(), fact.grandTotal(),
+                            fact.splitCash(), fact.splitCard(), sign);
+                }
+                current.recent.apply(order, sign);
+                return;
+            }
+            synchronized (current.replay) {
+                if (!current.replay.closed) {
+                    if (counted) {
+                        add(current.buckets, fact.createdAt(), fact.cashier(), fact.method(), fact.grandTotal(),
+                                fact.splitCash(), fact.splitCard(), sign);
+                    }
+                    current.recent.apply(order, sign);
+                    current.replay.facts.add(fact);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void add(Map<Key, Bucket> target, LocalDateTime createdAt, String cashier, PaymentMethod method,
+                            Double grandTotal, Double splitCash, Double splitCard, int sign) {
+        long total = toCents(grandTotal);
+        long cash = 0;
+        long card = 0;
+        if (method == PaymentMethod.CASH) {
+            cash = total;
+        } else if (method == PaymentMethod.CARD) {
+            card = total;
+        } else if (method == PaymentMethod.SPLIT) {
+            cash = toCents(splitCash);
+            card = toCents(splitCard);
+        }
+        Bucket bucket = target.computeIfAbsent(
+                new Key(createdAt.toLocalDate(), createdAt.getHour(), cashier, method), k -> new Bucket());
+        bucket.orderCount.add(sign);
+        bucket.totalCents.add(sign * total);
+        bucket.cashCents.add(sign * cash);
+        bucket.cardCents.add(sign * card);
+    }
+
+    private <K> Map<K, SalesTotals> totalsBy(LocalDate date, Function<Key, K> grouping) {
+        Map<K, long[]> sums = new TreeMap<>();
+        state.buckets.forEach((key, bucket) -> {
+            if (!key.getDay().equals(date) || grouping.apply(key) == null) {
+                return;
+            }
+            long[] sum = sums.computeIfAbsent(grouping.apply(key), k -> new long[4]);
+            sum[0] += bucket.orderCount.sum();
+            sum[1] += bucket.totalCents.sum();
+            sum[2] += bucket.cashCents.sum();
+            sum[3] += bucket.cardCents.sum();
+        });
+        Map<K, SalesTotals> result = new TreeMap<>();
+        sums.forEach((k, sum) -> result.put(k, SalesTotals.builder()
+                .orderCount(sum[0])
+                .total(sum[1] / 100.0)
+                .cashAmount(sum[2] / 100.0)
+                .cardAmount(sum[3] / 100.0)
+                .build()));
+        return result;
+    }
+
+    private static long toCents(Double amount) {
+        return amount != null ? Money.toCents(amount) : 0L;
+    }
+
+    /**
+     * The live totals and recent orders, and while a rebuild runs the updates it has to replay.
+     */
+    private record State(Map<Key, Bucket> buckets, RecentOrders recent, Replay replay) {
+    }
+
+    /**
+     * The newest {@link #RECENT_ORDERS} orders by creation time. Entries are detached entities with
+     * their lines loaded; a refund marks its original as refunded here as it does in the database.
+     * A deleted order is dropped without pulling an older one back in, so the list is one short
+     * until the next order.
+     */
+    private static class RecentOrders {
+        private static final Comparator<OrderEntity> NEWEST_FIRST =
+                Comparator.comparing(OrderEntity::getCreatedAt).reversed();
+
+        private final List<OrderEntity> orders;
+
+        RecentOrders(List<OrderEntity> orders) {
+            this.orders = new ArrayList<>(orders);
+            this.orders.sort(NEWEST_FIRST);
+        }
+
+        synchronized void apply(OrderEntity order, int sign) {
+            orders.removeIf(o -> Objects.equals(o.getOrderId(), order.getOrderId()));
+            if (sign < 0) {
+                return;
+            }
+            if (order.getOriginalOrderId() != null) {
+                orders.stream()
+                        .filter(o -> order.getOriginalOrderId().equals(o.getOrderId()))
+                        .forEach(o -> o.setStatus(OrderStatus.REFUNDED));
+            }
+            orders.add(order);
+            orders.sort(NEWEST_FIRST);
+            if (orders.size() > RECENT_ORDERS) {
+                orders.subList(RECENT_ORDERS, orders.size()).clear();
+            }
+        }
+
+        // Maps under the lock, so a reader never sees an entry while a refund changes its status
+        synchronized <T> List<T> map(Function<OrderEntity, T> mapper) {
+            return orders.stream().map(mapper).toList();
+        }
+    }
+
+    private static class Replay {
+        final List<Fact> facts = new ArrayList<>();
+        boolean closed;
+    }
+
+    private record Fact(OrderEntity order, Long orderId, LocalDateTime createdAt, String cashier, PaymentMethod method,
+                        Double grandTotal, Double splitCash, Double splitCard, int sign) {
+    }
+
+    @Value
+    private static class Key {
+        LocalDate day;
+        int hour;
+        String cashier;
+        PaymentMethod paymentMethod;
+    }
+
+    private static class Bucket {
+        final LongAdder orderCount = new LongAdder();
+        final LongAdder totalCents = new LongAdder();
+        final LongAdder cashCents = new LongAdder();
+        final LongAdder cardCents = new LongAdder();
+    }
+}
@@ -0,0 +1,43 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface SalesRollupService {
+
+    /**
+     * Adds a saved order or refund record to {@code tbl_sales_rollup} in the caller's transaction.
+     */
+    void recordOrder(OrderEntity order);
+
+    /**
+     * Same as {@link #recordOrder(OrderEntity)} for many orders, merged into one batch of upserts.
+     */
+    void recordOrders(List<OrderEntity> orders);
+
+    /**
+     * Takes an order back out of the rollup, e.g. before it is deleted.
+     */
+    void removeOrder(OrderEntity order);
+
+    /**
+     * Sales in {@code [from, to)} per cashier and payment method. Whole hours are read from the rollup,
+     * the partial hours at either end and hours before the rollup was complete from {@code tbl_orders}.
+     * Orders without a cashier use a {@code null} key.
+     */
+    Map<String, Map<PaymentMethod, SalesTotals>> summarize(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Rebuilds the rollup rows of the given days from {@code tbl_orders}, one transaction per day, and
+     * extends the rollup's coverage back to {@code from} when the days reach it. Only closed days (before
+     * today) are accepted; days whose orders were already archived would be emptied.
+     * Returns the number of orders processed.
+     */
+    int backfill(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,198 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.InventoryAlertEntity;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryBatchRepository;
+import in.bushansirgur.billingsoftware.util.OrderIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stock alerts driven by threshold crossings. The last known band of every item (normal, low,
+ * out of stock, overstock) is kept in memory; a stock change only touches the alert table when it
+ * moves an item into another band. The previous band's alert is then resolved and the new band's
+ * alert raised, batched per call in the caller's transaction. Items without an active alert are
+ * in the normal band, so the state is rebuilt from the active alerts at startup.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class StockAlerts implements InitializingBean {
+
+    private static final Set<InventoryAlertEntity.AlertType> STOCK_ALERT_TYPES = EnumSet.of(
+            InventoryAlertEntity.AlertType.LOW_STOCK,
+            InventoryAlertEntity.AlertType.OUT_OF_STOCK,
+            InventoryAlertEntity.AlertType.OVERSTOCK);
+
+    private final InventoryAlertRepository alertRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final OrderIdGenerator orderIdGenerator;
+
+    // Items outside the normal band; absent means NORMAL
+    private final Map<String, Band> bands = new ConcurrentHashMap<>();
+
+    public StockAlerts(InventoryAlertRepository alertRepository,
+                       InventoryBatchRepository inventoryBatchRepository,
+                       OrderIdGenerator orderIdGenerator) {
+        this.alertRepository = alertRepository;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.orderIdGenerator = orderIdGenerator;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    /**
+     * Rebuilds the bands from the active stock alerts. Alerts are only raised and resolved here and
+     * thresholds are only read from the stock levels passed in, so outside startup this is needed
+     * only when the alert table is changed behind the application's back (tests clearing it).
+     */
+    void reload() {
+        Map<String, Band> fresh = new ConcurrentHashMap<>();
+        for (InventoryAlertEntity alert : alertRepository.findByIsResolvedFalseAndAlertTypeInOrderByCreatedAtAsc(STOCK_ALERT_TYPES)) {
+            fresh.put(alert.getItemId(), Band.of(alert.getAlertType()));
+        }
+        bands.clear();
+        bands.putAll(fresh);
+        log.info("Stock alert bands loaded for {} items", fresh.size());
+    }
+
+    /**
+     * The number of active alerts. Every item outside the normal band has exactly one, and no other
+     * alerts are raised, so this is the size of the band map. Band changes are counted from when the
+     * alerts are written, not when their transaction commits.
+     */
+    public long activeAlerts() {
+        return bands.size();
+    }
+
+    /**
+     * Compares the given levels with the last known bands and persists alerts and resolutions for
+     * the items that crossed a threshold. Runs no SQL when no item changed band. The band change is
+     * taken back if the caller's transaction rolls back.
+     */
+    public void createAlerts(List<InventoryBatchRepository.StockLevel> levels) {
+        List<Transition> transitions = new ArrayList<>();
+        for (InventoryBatchRepository.StockLevel level : levels) {
+            Band to = Band.of(level);
+            Band from = bands.getOrDefault(level.getItemId(), Band.NORMAL);
+            if (from != to && move(level.getItemId(), from, to)) {
+                transitions.add(new Transition(level, from, to));
+            }
+        }
+        if (transitions.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        transitions.forEach(t -> move(t.level().getItemId(), t.to(), t.from()));
+                    }
+                }
+            });
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<String> resolvedItemIds = transitions.stream()
+                .filter(t -> t.from() != Band.NORMAL)
+                .map(t -> t.level().getItemId())
+                .toList();
+        if (!resolvedItemIds.isEmpty()) {
+            alertRepository.resolveActiveAlerts(resolvedItemIds, STOCK_ALERT_TYPES, now, "SYSTEM");
+        }
+        List<InventoryAlertEntity> newAlerts = transitions.stream()
+                .filter(t -> t.to() != Band.NORMAL)
+                .map(t -> buildAlert(t.level(), t.to(), now))
+                .toList();
+        inventoryBatchRepository.insertAlerts(newAlerts);
+    }
+
+    private boolean move(String itemId, Band from, Band to) {
+        if (from == Band.NORMAL) {
+            return bands.putIfAbsent(itemId, to) == null;
+        }
+        if (to == Band.NORMAL) {
+            return bands.remove(itemId, from);
+        }
+        return bands.replace(itemId, from, to);
+    }
+
+    private InventoryAlertEntity buildAlert(InventoryBatchRepository.StockLevel level, Band band, LocalDateTime now) {
+        int stock = level.getStockQuantity();
+        InventoryAlertEntity.AlertType alertType = band.alertType;
+        String message;
+        Integer thresholdQuantity;
+        if (alertType == InventoryAlertEntity.AlertType.LOW_STOCK) {
+            message = "Low stock alert: " + level.getName() + " has " + stock + " units remaining";
+            thresholdQuantity = level.getReorderPoint();
+        } else if (alertType == InventoryAlertEntity.AlertType.OUT_OF_STOCK) {
+            message = "Out of stock: " + level.getName() + " is completely out of stock";
+            thresholdQuantity = 0;
+        } else {
+            message = "Overstock alert: " + level.getName() + " has " + stock + " units (max: " + level.getMaxStockLevel() + ")";
+            thresholdQuantity = level.getMaxStockLevel();
+        }
+        return InventoryAlertEntity.builder()
+            .alertId(orderIdGenerator.nextId("ALT"))
+            .itemId(level.getItemId())
+            .alertType(alertType)
+            .alertMessage(message)
+            .currentQuantity(stock)
+            .thresholdQuantity(thresholdQuantity)
+            .isResolved(false)
+            .createdAt(now)
+            .build();
+    }
+
+    private enum Band {
+        NORMAL(null),
+        LOW(InventoryAlertEntity.AlertType.LOW_STOCK),
+        OUT(InventoryAlertEntity.AlertType.OUT_OF_STOCK),
+        OVER(InventoryAlertEntity.AlertType.OVERSTOCK);
+
+        private final InventoryAlertEntity.AlertType alertType;
+
+        Band(InventoryAlertEntity.AlertType alertType) {
+            this.alertType = alertType;
+        }
+
+        static Band of(InventoryBatchRepository.StockLevel level) {
+            int stock = level.getStockQuantity();
+            if (stock <= 0) {
+                return OUT;
+            }
+            if (stock <= level.getReorderPoint()) {
+                return LOW;
+            }
+            return stock > level.getMaxStockLevel() ? OVER : NORMAL;
+        }
+
+        static Band of(InventoryAlertEntity.AlertType alertType) {
+            return switch (alertType) {
+                case LOW_STOCK -> LOW;
+                case OUT_OF_STOCK -> OUT;
+                case OVERSTOCK -> OVER;
+                default -> NORMAL;
+            };
+        }
+    }
+
+    private record Transition(InventoryBatchRepository.StockLevel level, Band from, Band to) {
+    }
+}
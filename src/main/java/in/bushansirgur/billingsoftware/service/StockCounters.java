@@ -0,0 +1,291 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.repository.InventoryBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional write-behind stock engine ({@code inventory.write-behind.enabled}). On-hand quantities
+ * of items that have moved since startup are kept in memory and changed with a CAS, so concurrent
+ * registers selling the same item no longer queue on its {@code tbl_items} row lock.
+ * <p>
+ * Ledger rows are still inserted in the caller's transaction, flagged {@code stock_pending}; they
+ * are the durable record of the movement. Once that transaction commits the row joins a striped
+ * pending queue, and the flusher adds the summed deltas to {@code tbl_items} and clears the flags
+ * in one transaction every {@code flush-interval-ms} and on shutdown. Rows still flagged at startup
+ * (a crash before their flush) are applied then, whether or not the engine is enabled. One
+ * application instance per database is assumed.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class StockCounters implements InitializingBean, DisposableBean {
+
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final StockAlerts stockAlerts;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingDelta>[] stripes;
+    private final Object loadLock = new Object();
+
+    @SuppressWarnings("unchecked")
+    public StockCounters(InventoryBatchRepository inventoryBatchRepository,
+                         StockAlerts stockAlerts,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${inventory.write-behind.enabled:false}") boolean enabled,
+                         @Value("${inventory.write-behind.stripes:16}") int stripes) {
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.stockAlerts = stockAlerts;
+        this.transactionTemplate = transactionTemplate;
+        this.enabled = enabled;
+        this.stripes = new ConcurrentLinkedQueue[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        recoverPendingStock();
+    }
+
+    @Override
+    public void destroy() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Final stock flush failed, pending ledger rows are applied on next startup: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Stock levels with the in-memory quantity, loading counters for items not seen yet.
+     * Unknown items are left out of the result.
+     */
+    public List<InventoryBatchRepository.StockLevel> getLevels(Collection<String> itemIds) {
+        List<InventoryBatchRepository.StockLevel> levels = inventoryBatchRepository.findStockLevels(itemIds);
+        for (InventoryBatchRepository.StockLevel level : levels) {
+            level.setStockQuantity(counter(level.getItemId(), level.getStockQuantity()).get());
+        }
+        return levels;
+    }
+
+    /**
+     * The in-memory quantity of an item, or {@code storedQuantity} when it has no counter yet.
+     */
+    public int currentStock(String itemId, int storedQuantity) {
+        AtomicInteger counter = counters.get(itemId);
+        return counter != null ? counter.get() : storedQuantity;
+    }
+
+    /**
+     * Changes the counter of an item loaded by {@link #getLevels} and returns the new quantity.
+     * Inside a transaction the change is undone if the transaction rolls back.
+     */
+    public int add(String itemId, int delta) {
+        AtomicInteger counter = counters.get(itemId);
+        if (counter == null) {
+            throw new IllegalStateException("No stock counter loaded for item " + itemId);
+        }
+        int newQuantity = counter.addAndGet(delta);
+        undoOnRollback(counter, delta);
+        return newQuantity;
+    }
+
+    /**
+     * Sets the counter of an item loaded by {@link #getLevels} to a counted quantity and returns the
+     * change. Read and write are one atomic step, so a sale on the counter in between is not lost.
+     * Undone like {@link #add} if the transaction rolls back.
+     */
+    public int set(String itemId, int quantity) {
+        AtomicInteger counter = counters.get(itemId);
+        if (counter == null) {
+            throw new IllegalStateException("No stock counter loaded for item " + itemId);
+        }
+        int delta = quantity - counter.getAndSet(quantity);
+        undoOnRollback(counter, delta);
+        return delta;
+    }
+
+    private void undoOnRollback(AtomicInteger counter, int delta) {
+        if (delta != 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        counter.addAndGet(-delta);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Queues saved {@code stock_pending} ledger rows for the next flush once the caller's transaction commits.
+     */
+    public void schedule(List<InventoryTransactionEntity> transactions) {
+        List<PendingDelta> deltas = transactions.stream()
+                .map(tx -> new PendingDelta(tx.getId(), tx.getItemId(), tx.getQuantity(),
+                        tx.getTransactionType() == InventoryTransactionEntity.TransactionType.PURCHASE))
+                .toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deltas.forEach(StockCounters.this::enqueue);
+                }
+            });
+        } else {
+            deltas.forEach(this::enqueue);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.write-behind.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Stock flush failed, retrying on the next round: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Writes everything queued so far: one relative update per item plus the ledger flags, in one
+     * transaction. On failure the deltas go back to the queue. Returns the number of ledger rows written.
+     */
+    public synchronized int flush() {
+        List<PendingDelta> batch = new ArrayList<>();
+        for (ConcurrentLinkedQueue<PendingDelta> stripe : stripes) {
+            PendingDelta delta;
+            while ((delta = stripe.poll()) != null) {
+                batch.add(delta);
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<Long> transactionIds = new ArrayList<>(batch.size());
+        for (PendingDelta delta : batch) {
+            transactionIds.add(delta.transactionId());
+        }
+        Integer written;
+        try {
+            // Deltas come from the rows this flush cleared, never from rows another flush already applied
+            written = transactionTemplate.execute(status ->
+                    apply(inventoryBatchRepository.claimPendingStock(transactionIds), true));
+        } catch (RuntimeException ex) {
+            batch.forEach(this::enqueue);
+            throw ex;
+        }
+        return written != null ? written : 0;
+    }
+
+    /**
+     * Drops the counters of items whose {@code tbl_items} row was written around the engine (created,
+     * imported or deleted) once the caller's transaction commits; they are reloaded on next use.
+     */
+    public void evictAfterCommit(Collection<String> itemIds) {
+        if (!enabled || itemIds.isEmpty()) {
+            return;
+        }
+        List<String> evicted = List.copyOf(itemIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(evicted);
+                }
+            });
+        } else {
+            evict(evicted);
+        }
+    }
+
+    /**
+     * Adds ledger rows left flagged by a crash to {@code tbl_items}. Runs at startup, before any new
+     * movement can be flagged.
+     */
+    public int recoverPendingStock() {
+        Integer recovered = transactionTemplate.execute(status ->
+                apply(inventoryBatchRepository.claimAllPendingStock(), false));
+        if (recovered != null && recovered > 0) {
+            log.warn("Applied {} stock ledger rows that were not flushed before the last shutdown", recovered);
+        }
+        return recovered != null ? recovered : 0;
+    }
+
+    private int apply(List<InventoryBatchRepository.PendingStock> claimed, boolean alerts) {
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        Set<String> restocked = new TreeSet<>();
+        for (InventoryBatchRepository.PendingStock row : claimed) {
+            deltas.merge(row.getItemId(), row.getQuantity(), Integer::sum);
+            if (row.isRestock()) {
+                restocked.add(row.getItemId());
+            }
+        }
+        inventoryBatchRepository.addStockDeltas(deltas, restocked);
+        if (alerts) {
+            stockAlerts.createAlerts(inventoryBatchRepository.findStockLevels(deltas.keySet()));
+        }
+        return claimed.size();
+    }
+
+    private void evict(List<String> itemIds) {
+        synchronized (loadLock) {
+            itemIds.forEach(counters::remove);
+        }
+    }
+
+    private AtomicInteger counter(String itemId, int storedQuantity) {
+        AtomicInteger counter = counters.get(itemId);
+        if (counter != null) {
+            return counter;
+        }
+        // Only unflushed movements of loaded items differ from the table, so a first load can trust it
+        synchronized (loadLock) {
+            return counters.computeIfAbsent(itemId, id -> new AtomicInteger(storedQuantity));
+        }
+    }
+
+    private void enqueue(PendingDelta delta) {
+        stripes[Math.floorMod(delta.itemId().hashCode(), stripes.length)].add(delta);
+    }
+
+    private record PendingDelta(Long transactionId, String itemId, int quantity, boolean restock) {
+    }
+}
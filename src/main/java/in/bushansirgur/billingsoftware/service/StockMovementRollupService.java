@@ -0,0 +1,35 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.io.ItemMovementHistoryResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface StockMovementRollupService {
+
+    /**
+     * Queues written ledger rows for {@code tbl_item_daily_movement} once the caller's transaction
+     * commits; the rollup flusher writes them in its own transaction.
+     */
+    void recordTransactions(List<InventoryTransactionEntity> transactions);
+
+    /**
+     * Writes the queued rows now and recloses their days. Returns the number of ledger rows written.
+     */
+    int flush();
+
+    /**
+     * Movement history of an item between two dates (inclusive). Ranges up to
+     * {@code inventory.movement-history.raw-max-days} are read from the ledger row by row, longer
+     * ones from the daily rollup after flushing it.
+     */
+    ItemMovementHistoryResponse getItemHistory(String itemId, LocalDate from, LocalDate to);
+
+    /**
+     * Rebuilds the rollup rows of the given days from the ledger in one streaming pass and one
+     * transaction. Only closed days are accepted: {@code dateTo} must be before today. Returns the
+     * number of ledger rows read.
+     */
+    int backfill(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,22 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.StockSnapshotEntity;
+import in.bushansirgur.billingsoftware.io.StockAtResponse;
+
+import java.time.LocalDate;
+
+public interface StockSnapshotService {
+
+    /**
+     * Stores the current stock of every item that changed since the previous snapshot, or of all
+     * items when a full snapshot is due, together with the highest ledger row id that stock
+     * includes. Ledger rows written while it runs are either in the snapshot or above that id.
+     */
+    StockSnapshotEntity takeSnapshot();
+
+    /**
+     * Stock and valuation at the end of {@code date}, from the snapshot closest in time plus the
+     * later ledger rows dated before it, or minus the included rows dated after it.
+     */
+    StockAtResponse getStockAt(LocalDate date);
+}
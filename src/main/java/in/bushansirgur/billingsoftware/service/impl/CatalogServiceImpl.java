@@ -0,0 +1,117 @@
+package in.bushansirgur.billingsoftware.service.impl;
+
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.CatalogVersionEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.io.CatalogChangesResponse;
+import in.bushansirgur.billingsoftware.io.CategoryResponse;
+import in.bushansirgur.billingsoftware.io.ItemResponse;
+import in.bushansirgur.billingsoftware.repository.CatalogChangeRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import in.bushansirgur.billingsoftware.service.CatalogService;
+import in.bushansirgur.billingsoftware.service.CategoryService;
+import in.bushansirgur.billingsoftware.service.ItemService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class CatalogServiceImpl implements CatalogService {
+
+    private final CatalogChangeRepository catalogChangeRepository;
+    private final ItemService itemService;
+    private final CategoryService categoryService;
+    private final PromotionRepository promotionRepository;
+    private final int pageSize;
+
+    public CatalogServiceImpl(CatalogChangeRepository catalogChangeRepository,
+                              ItemService itemService,
+                              CategoryService categoryService,
+                              PromotionRepository promotionRepository,
+                              @Value("${catalog.changes.page-size:1000}") int pageSize) {
+        this.catalogChangeRepository = catalogChangeRepository;
+        this.itemService = itemService;
+        this.categoryService = categoryService;
+        this.promotionRepository = promotionRepository;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    @Override
+    public CatalogChangesResponse getChanges(long since, Integer limit) {
+        if (since < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "since must not be negative");
+        }
+        int size = limit != null ? Math.max(1, Math.min(limit, pageSize)) : pageSize;
+        // Read before the changes: every version up to it is already visible to the query below
+        CatalogVersionEntity current = catalogChangeRepository.findVersion();
+        if (since > current.getVersion()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Version " + since + " is unknown; reload the catalog from version 0");
+        }
+        if (since > 0 && since < current.getPurgedThrough()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Version " + since + " is too old; reload the catalog from version 0");
+        }
+
+        // A full load has nothing to delete
+        List<CatalogChangeEntity> changes = catalogChangeRepository.findSince(since, since > 0, size);
+        boolean hasMore = changes.size() == size;
+        long version = hasMore ? changes.get(changes.size() - 1).getVersion()
+                : Math.max(current.getVersion(), changes.isEmpty() ? since : changes.get(changes.size() - 1).getVersion());
+
+        Set<String> itemIds = new HashSet<>();
+        Set<String> categoryIds = new HashSet<>();
+        Set<Long> promotionIds = new HashSet<>();
+        List<String> deletedItemIds = new ArrayList<>();
+        List<String> deletedCategoryIds = new ArrayList<>();
+        List<Long> deletedPromotionIds = new ArrayList<>();
+        for (CatalogChangeEntity change : changes) {
+            switch (change.getEntityType()) {
+                case ITEM -> (change.isDeleted() ? deletedItemIds : itemIds).add(change.getEntityId());
+                case CATEGORY -> (change.isDeleted() ? deletedCategoryIds : categoryIds).add(change.getEntityId());
+                case PROMOTION -> (change.isDeleted() ? deletedPromotionIds : promotionIds).add(Long.valueOf(change.getEntityId()));
+            }
+        }
+
+        // Entities removed without a tombstone are reported as deleted
+        List<ItemResponse> items = itemIds.isEmpty() ? List.of() : itemService.findItemsByItemIds(itemIds);
+        items.forEach(item -> itemIds.remove(item.getItemId()));
+        deletedItemIds.addAll(itemIds);
+
+        List<CategoryResponse> categories = categoryIds.isEmpty() ? List.of() : categoryService.findByCategoryIds(categoryIds);
+        categories.forEach(category -> categoryIds.remove(category.getCategoryId()));
+        deletedCategoryIds.addAll(categoryIds);
+
+        List<CatalogChangesResponse.Promotion> promotions = new ArrayList<>();
+        if (!promotionIds.isEmpty()) {
+            for (PromotionEntity promotion : promotionRepository.findWithItemByIdIn(promotionIds)) {
+                promotionIds.remove(promotion.getId());
+                promotions.add(CatalogChangesResponse.Promotion.builder()
+                        .id(promotion.getId())
+                        .itemId(promotion.getItem().getItemId())
+                        .promoPrice(promotion.getPromoPrice())
+                        .startAt(promotion.getStartAt())
+                        .endAt(promotion.getEndAt())
+                        .active(promotion.getActive())
+                        .build());
+            }
+        }
+        deletedPromotionIds.addAll(promotionIds);
+
+        return CatalogChangesResponse.builder()
+                .since(since)
+                .version(version)
+                .hasMore(hasMore)
+                .categories(categories)
+                .deletedCategoryIds(deletedCategoryIds)
+                .items(items)
+                .deletedItemIds(deletedItemIds)
+                .promotions(promotions)
+                .deletedPromotionIds(deletedPromotionIds)
+                .build();
+    }
+}
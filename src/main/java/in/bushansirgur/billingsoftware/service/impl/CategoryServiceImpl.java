@@ -1,18 +1,22 @@
 package in.bushansirgur.billingsoftware.service.impl;
 
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
 import in.bushansirgur.billingsoftware.entity.CategoryEntity;
 import in.bushansirgur.billingsoftware.io.CategoryRequest;
 import in.bushansirgur.billingsoftware.io.CategoryResponse;
 import in.bushansirgur.billingsoftware.repository.CategoryRepository;
 import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.service.CatalogChangeLog;
 import in.bushansirgur.billingsoftware.service.CategoryService;
 import in.bushansirgur.billingsoftware.service.FileUploadService;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -24,7 +28,10 @@ public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final ItemRepository itemRepository;
     private final FileUploadService fileUploadService;
+    private final CatalogChangeLog catalogChangeLog;
 
+    @Override
+    @Transactional
     public CategoryResponse add(CategoryRequest request, MultipartFile file) throws IOException {
         String imgUrl = null;
         if (file != null && !file.isEmpty()) {
@@ -36,6 +43,7 @@ public class CategoryServiceImpl implements CategoryService {
         CategoryEntity newCategory = convertToEntity(request);
         newCategory.setImgUrl(imgUrl);
         newCategory = categoryRepository.save(newCategory);
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.CATEGORY, newCategory.getCategoryId());
         return convertToResponse(newCategory);
     }
 
@@ -48,6 +56,7 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
+    @Transactional
     public void delete(String categoryId) {
         CategoryEntity existingCategory = categoryRepository.findByCategoryId(categoryId)
                 .orElseThrow(() -> new RuntimeException("Category not found: "+categoryId));
@@ -57,6 +66,15 @@ public class CategoryServiceImpl implements CategoryService {
             fileUploadService.deleteFile(existingCategory.getImgUrl());
         }
         categoryRepository.delete(existingCategory);
+        catalogChangeLog.recordDeleted(CatalogChangeEntity.EntityType.CATEGORY, categoryId);
+    }
+
+    @Override
+    public List<CategoryResponse> findByCategoryIds(Collection<String> categoryIds) {
+        return categoryRepository.findByCategoryIdIn(categoryIds)
+                .stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
     }
 
     private CategoryResponse convertToResponse(CategoryEntity newCategory) {
@@ -1,5 +1,6 @@
 package in.bushansirgur.billingsoftware.service.impl;
 
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
 import in.bushansirgur.billingsoftware.entity.CategoryEntity;
 import in.bushansirgur.billingsoftware.entity.ItemEntity;
 import in.bushansirgur.billingsoftware.io.ExcelImportRequest;
@@ -7,6 +8,11 @@ import in.bushansirgur.billingsoftware.io.ExcelImportResponse;
 import in.bushansirgur.billingsoftware.repository.CategoryRepository;
 import in.bushansirgur.billingsoftware.repository.ItemRepository;
 import in.bushansirgur.billingsoftware.service.ExcelImportService;
+import in.bushansirgur.billingsoftware.service.BarcodeIndex;
+import in.bushansirgur.billingsoftware.service.CatalogChangeLog;
+import in.bushansirgur.billingsoftware.service.InventoryService;
+import in.bushansirgur.billingsoftware.service.InventorySummaryState;
+import in.bushansirgur.billingsoftware.service.StockCounters;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
@@ -28,10 +34,16 @@ public class ExcelImportServiceImpl implements ExcelImportService {
 
     private final CategoryRepository categoryRepository;
     private final ItemRepository itemRepository;
+    private final InventorySummaryState inventorySummaryState;
+    private final BarcodeIndex barcodeIndex;
+    private final CatalogChangeLog catalogChangeLog;
+    private final StockCounters stockCounters;
+    private final InventoryService inventoryService;
 
     @Override
     @Transactional
     public ExcelImportResponse importProductsFromExcel(MultipartFile file) throws IOException {
+        barcodeIndex.rebuildAfterCommit();
         List<String> errors = new ArrayList<>();
         List<String> warnings = new ArrayList<>();
         int successfulImports = 0;
@@ -131,7 +143,9 @@ public class ExcelImportServiceImpl implements ExcelImportService {
                             .bgColor("#2c2c2c")
                             .imgUrl("https://shop-software-pirinpixel.s3.eu-central-1.amazonaws.com/supermarket.png")
                             .build();
-                    return categoryRepository.save(newCategory);
+                    newCategory = categoryRepository.save(newCategory);
+                    catalogChangeLog.record(CatalogChangeEntity.EntityType.CATEGORY, newCategory.getCategoryId());
+                    return newCategory;
                 });
 
         // Check if item with same barcode already exists
@@ -156,6 +170,10 @@ public class ExcelImportServiceImpl implements ExcelImportService {
                 .build();
 
         itemRepository.save(item);
+        inventoryService.recordOpeningStock(item.getItemId(), item.getStockQuantity(), "IMPORT");
+        stockCounters.evictAfterCommit(List.of(item.getItemId()));
+        inventorySummaryState.recordItemAfterCommit(item);
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, item.getItemId());
     }
 
     private String getCellValueAsString(Cell cell) {
@@ -8,6 +8,7 @@ import in.bushansirgur.billingsoftware.repository.FiscalDeviceRepository;
 import in.bushansirgur.billingsoftware.repository.CashDrawerSessionRepository;
 import in.bushansirgur.billingsoftware.repository.FiscalReceiptRepository;
 import in.bushansirgur.billingsoftware.service.FiscalDeviceService;
+import in.bushansirgur.billingsoftware.util.OrderIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -26,6 +27,7 @@ public class FiscalDeviceServiceImpl implements FiscalDeviceService {
     private final FiscalDeviceRepository fiscalDeviceRepository;
     private final CashDrawerSessionRepository cashDrawerSessionRepository;
     private final FiscalReceiptRepository fiscalReceiptRepository;
+    private final OrderIdGenerator orderIdGenerator;
     
     @Override
     public List<FiscalDeviceEntity> getAllDevices() {
@@ -212,7 +214,7 @@ public class FiscalDeviceServiceImpl implements FiscalDeviceService {
        
         return "FU-" + device.getSerialNumber() + "-" + 
                LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + "-" +
-               String.format("%06d", (int)(Math.random() * 999999));
+               orderIdGenerator.nextId();
     }
     
     private String generateQRCode(String fiscalNumber) {
@@ -4,6 +4,8 @@ import in.bushansirgur.billingsoftware.entity.FiscalReportEntity;
 import in.bushansirgur.billingsoftware.entity.CashDrawerSessionEntity;
 import in.bushansirgur.billingsoftware.io.FiscalReportRequest;
 import in.bushansirgur.billingsoftware.io.FiscalReportResponse;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
 import in.bushansirgur.billingsoftware.repository.FiscalReceiptRepository;
 import in.bushansirgur.billingsoftware.repository.FiscalReportRepository;
 import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
@@ -11,6 +13,9 @@ import in.bushansirgur.billingsoftware.repository.CashDrawerSessionRepository;
 import in.bushansirgur.billingsoftware.repository.UserRepository;
 import in.bushansirgur.billingsoftware.config.MainFiscalDeviceProperties;
 import in.bushansirgur.billingsoftware.service.FiscalReportService;
+import in.bushansirgur.billingsoftware.service.SalesRollupService;
+import in.bushansirgur.billingsoftware.util.Money;
+import in.bushansirgur.billingsoftware.util.OrderIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -22,6 +27,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,12 +35,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class FiscalReportServiceImpl implements FiscalReportService {
     
+    // Z-reports show VAT as 20% of sales
+    private static final long REPORT_VAT_BASIS_POINTS = 2000;
+
     private final FiscalReportRepository fiscalReportRepository;
     private final FiscalReceiptRepository fiscalReceiptRepository;
     private final OrderEntityRepository orderEntityRepository;
     private final CashDrawerSessionRepository cashDrawerSessionRepository;
     private final UserRepository userRepository;
     private final MainFiscalDeviceProperties mainFiscalDeviceProperties;
+    private final OrderIdGenerator orderIdGenerator;
+    private final SalesRollupService salesRollupService;
     
     @Override
     public FiscalReportResponse generateDailyReport(FiscalReportRequest request) {
@@ -63,10 +74,10 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 .reportType(FiscalReportEntity.ReportType.DAILY)
                 .reportDate(reportDate)
                 .totalReceipts(totalReceipts != null ? totalReceipts.intValue() : 0)
-                .totalSales(totalSales != null ? BigDecimal.valueOf(totalSales) : BigDecimal.ZERO)
-                .totalVAT(totalVAT != null ? BigDecimal.valueOf(totalVAT) : BigDecimal.ZERO)
-                .totalNetSales(totalSales != null && totalVAT != null ? 
-                        BigDecimal.valueOf(totalSales - totalVAT) : BigDecimal.ZERO)
+                .totalSales(Money.of(totalSales).toBigDecimal())
+                .totalVAT(Money.of(totalVAT).toBigDecimal())
+                .totalNetSales(totalSales != null && totalVAT != null ?
+                        Money.of(totalSales).minus(Money.of(totalVAT)).toBigDecimal() : BigDecimal.ZERO)
                 .cashierName(request.getCashierName())
                 .deviceSerialNumber(request.getDeviceSerialNumber())
                 .notes(request.getNotes())
@@ -84,7 +95,7 @@ public class FiscalReportServiceImpl implements FiscalReportService {
         
         // Изчисляване на реални данни за смяната (Z-отчет) – само за текущия касиер и в рамките на активната му сесия
         Long totalReceipts = 0L;
-        Double totalSales = 0.0;
+        Money totalSales = Money.ZERO;
 
         LocalDateTime sessionFrom = reportDate.atStartOfDay();
         LocalDateTime sessionTo = reportDate.atTime(LocalTime.MAX);
@@ -210,13 +221,13 @@ public class FiscalReportServiceImpl implements FiscalReportService {
             if (request.getCashierName() != null && !request.getCashierName().isBlank()) keys.add(request.getCashierName());
 
             long totalCnt = 0L;
-            double totalSum = 0.0;
+            Money totalSum = Money.ZERO;
             for (String k : keys) {
                 long c = orderEntityRepository.countByCashierBetween(k, sessionFrom, sessionTo);
                 Double s = orderEntityRepository.sumSalesByCashierBetween(k, sessionFrom, sessionTo);
                 log.info("Shift report key='{}' -> cnt={}, sum={}", k, c, s);
                 totalCnt += c;
-                if (s != null) totalSum += s;
+                totalSum = totalSum.plus(Money.of(s));
             }
             totalReceipts = totalCnt;
             totalSales = totalSum;
@@ -267,13 +278,13 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 if (request.getCashierName() != null && !request.getCashierName().isBlank()) keys.add(request.getCashierName());
                 
                 long totalCnt = 0L;
-                double totalSum = 0.0;
+                Money totalSum = Money.ZERO;
                 for (String k : keys) {
                     long c = orderEntityRepository.countByCashierBetween(k, sessionFrom, sessionTo);
                     Double s = orderEntityRepository.sumSalesByCashierBetween(k, sessionFrom, sessionTo);
                     log.info("Shift report fallback key='{}' -> cnt={}, sum={}", k, c, s);
                     totalCnt += c;
-                    if (s != null) totalSum += s;
+                    totalSum = totalSum.plus(Money.of(s));
                 }
                 totalReceipts = totalCnt;
                 totalSales = totalSum;
@@ -282,13 +293,13 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 log.warn("Shift report fallback -> Could not determine cashier, returning zeros");
                 // Не правим fallback към всички поръчки - оставяме нули
                 totalReceipts = 0L;
-                totalSales = 0.0;
+                totalSales = Money.ZERO;
             }
         }
         
         // Изчисляване на ДДС (20% от продажбите)
-        Double totalVAT = totalSales != null ? totalSales * 0.20 : 0.0;
-        Double totalNetSales = totalSales != null ? totalSales - totalVAT : 0.0;
+        Money totalVAT = totalSales.percent(REPORT_VAT_BASIS_POINTS);
+        Money totalNetSales = totalSales.minus(totalVAT);
         
         // Получаване на cash drawer данни за касиера
         BigDecimal cashDrawerStartAmount = BigDecimal.ZERO;
@@ -363,9 +374,9 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 .reportType(FiscalReportEntity.ReportType.SHIFT)
                 .reportDate(reportDate)
                 .totalReceipts(totalReceipts != null ? totalReceipts.intValue() : 0)
-                .totalSales(totalSales != null ? BigDecimal.valueOf(totalSales) : BigDecimal.ZERO)
-                .totalVAT(totalVAT != null ? BigDecimal.valueOf(totalVAT) : BigDecimal.ZERO)
-                .totalNetSales(totalNetSales != null ? BigDecimal.valueOf(totalNetSales) : BigDecimal.ZERO)
+                .totalSales(totalSales.toBigDecimal())
+                .totalVAT(totalVAT.toBigDecimal())
+                .totalNetSales(totalNetSales.toBigDecimal())
                 .cashierName(cashierNameForReport)
                 .deviceSerialNumber(deviceSerialForReport)
                 .notes(request.getNotes())
@@ -389,7 +400,7 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 double cashOnly = safeSum(aggUsername, cashierName, sessionFrom, sessionTo, in.bushansirgur.billingsoftware.io.PaymentMethod.CASH);
                 double splitCash = safeSplitCash(aggUsername, cashierName, sessionFrom, sessionTo);
                 BigDecimal calc = (cashDrawerStartAmount != null ? cashDrawerStartAmount : BigDecimal.ZERO)
-                        .add(BigDecimal.valueOf(cashOnly + splitCash));
+                        .add(Money.of(cashOnly).plus(Money.of(splitCash)).toBigDecimal());
                 cashDrawerEndAmount = calc;
             } catch (Exception ignore) {}
         }
@@ -518,19 +529,22 @@ public class FiscalReportServiceImpl implements FiscalReportService {
         }
         
         // Изчисляване на реални данни за целия магазин за периода (от началото на деня или след последния отчет)
-        Long totalReceipts = orderEntityRepository.countOrdersBetween(reportStartTime, endOfDay);
-        Double totalSales = orderEntityRepository.sumSalesBetween(reportStartTime, endOfDay);
+        Map<String, Map<PaymentMethod, SalesTotals>> sales =
+                salesRollupService.summarize(reportStartTime, reportDate.plusDays(1).atStartOfDay());
+        SalesTotals storeTotals = sumTotals(sales);
+        Long totalReceipts = storeTotals.getOrderCount();
+        Double totalSales = storeTotals.getTotal();
         
         // Изчисляване на ДДС (20% от продажбите)
-        Double totalVAT = totalSales != null ? totalSales * 0.20 : 0.0;
-        Double totalNetSales = totalSales != null ? totalSales - totalVAT : 0.0;
+        Money salesAmount = Money.of(totalSales);
+        Money totalVAT = salesAmount.percent(REPORT_VAT_BASIS_POINTS);
+        Money totalNetSales = salesAmount.minus(totalVAT);
         
         // Получаване на данни по касиери за периода
-        List<Object[]> cashierData = orderEntityRepository.summarizeByCashier(reportStartTime, endOfDay);
-        String cashierBreakdownJson = buildCashierBreakdownJson(cashierData, reportStartTime, endOfDay);
+        String cashierBreakdownJson = buildCashierBreakdownJson(sales);
         
         // Генериране на обща разбивка по плащания за целия магазин
-        String paymentBreakdownJson = buildStorePaymentBreakdownJson(reportStartTime, endOfDay);
+        String paymentBreakdownJson = buildStorePaymentBreakdownJson(sales);
         
         // Създаване на общ дневен отчет за магазина
         FiscalReportEntity report = FiscalReportEntity.builder()
@@ -538,9 +552,9 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 .reportType(FiscalReportEntity.ReportType.STORE_DAILY)
                 .reportDate(reportDate)
                 .totalReceipts(totalReceipts != null ? totalReceipts.intValue() : 0)
-                .totalSales(totalSales != null ? BigDecimal.valueOf(totalSales) : BigDecimal.ZERO)
-                .totalVAT(totalVAT != null ? BigDecimal.valueOf(totalVAT) : BigDecimal.ZERO)
-                .totalNetSales(totalNetSales != null ? BigDecimal.valueOf(totalNetSales) : BigDecimal.ZERO)
+                .totalSales(salesAmount.toBigDecimal())
+                .totalVAT(totalVAT.toBigDecimal())
+                .totalNetSales(totalNetSales.toBigDecimal())
                 .cashierName(null) // Общ отчет за магазина - няма конкретен касиер
                 .deviceSerialNumber(mainFiscalDeviceProperties.getSerial()) // Използва главното фискално устройство
                 .cashDrawerStartAmount(null) // Няма контрол на касата за общ отчет
@@ -589,20 +603,23 @@ public class FiscalReportServiceImpl implements FiscalReportService {
         LocalDateTime startOfMonthDateTime = startOfMonth.atStartOfDay();
         LocalDateTime endOfMonthDateTime = endOfMonth.atTime(LocalTime.MAX);
         
-        // Използваме orderEntityRepository за консистентност с дневния отчет
-        Long totalReceipts = orderEntityRepository.countOrdersBetween(startOfMonthDateTime, endOfMonthDateTime);
-        Double totalSales = orderEntityRepository.sumSalesBetween(startOfMonthDateTime, endOfMonthDateTime);
+        // Сумираме часовите агрегати (tbl_sales_rollup) за консистентност с дневния отчет
+        Map<String, Map<PaymentMethod, SalesTotals>> sales =
+                salesRollupService.summarize(startOfMonthDateTime, endOfMonth.plusDays(1).atStartOfDay());
+        SalesTotals monthTotals = sumTotals(sales);
+        Long totalReceipts = monthTotals.getOrderCount();
+        Double totalSales = monthTotals.getTotal();
         
         // Изчисляване на ДДС (20% от продажбите)
-        Double totalVAT = totalSales != null ? totalSales * 0.20 : 0.0;
-        Double totalNetSales = totalSales != null ? totalSales - totalVAT : 0.0;
+        Money salesAmount = Money.of(totalSales);
+        Money totalVAT = salesAmount.percent(REPORT_VAT_BASIS_POINTS);
+        Money totalNetSales = salesAmount.minus(totalVAT);
         
         // Получаване на данни по касиери за целия месец
-        List<Object[]> cashierData = orderEntityRepository.summarizeByCashier(startOfMonthDateTime, endOfMonthDateTime);
-        String cashierBreakdownJson = buildCashierBreakdownJson(cashierData, startOfMonthDateTime, endOfMonthDateTime);
+        String cashierBreakdownJson = buildCashierBreakdownJson(sales);
         
         // Генериране на обща разбивка по плащания за целия магазин за месеца
-        String paymentBreakdownJson = buildStorePaymentBreakdownJson(startOfMonthDateTime, endOfMonthDateTime);
+        String paymentBreakdownJson = buildStorePaymentBreakdownJson(sales);
         
         // За месечен отчет използваме главното фискално устройство или "Всички устройства"
         String deviceSerial = request.getDeviceSerialNumber();
@@ -625,9 +642,9 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 .reportType(FiscalReportEntity.ReportType.MONTHLY)
                 .reportDate(reportDate)
                 .totalReceipts(totalReceipts != null ? totalReceipts.intValue() : 0)
-                .totalSales(totalSales != null ? BigDecimal.valueOf(totalSales) : BigDecimal.ZERO)
-                .totalVAT(totalVAT != null ? BigDecimal.valueOf(totalVAT) : BigDecimal.ZERO)
-                .totalNetSales(totalNetSales != null ? BigDecimal.valueOf(totalNetSales) : BigDecimal.ZERO)
+                .totalSales(salesAmount.toBigDecimal())
+                .totalVAT(totalVAT.toBigDecimal())
+                .totalNetSales(totalNetSales.toBigDecimal())
                 .cashierName("Всички касиери") // Месечният отчет е за целия магазин
                 .deviceSerialNumber(deviceSerial)
                 .notes(request.getNotes())
@@ -669,10 +686,10 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 .reportType(FiscalReportEntity.ReportType.YEARLY)
                 .reportDate(reportDate)
                 .totalReceipts(totalReceipts != null ? totalReceipts.intValue() : 0)
-                .totalSales(totalSales != null ? BigDecimal.valueOf(totalSales) : BigDecimal.ZERO)
-                .totalVAT(totalVAT != null ? BigDecimal.valueOf(totalVAT) : BigDecimal.ZERO)
-                .totalNetSales(totalSales != null && totalVAT != null ? 
-                        BigDecimal.valueOf(totalSales - totalVAT) : BigDecimal.ZERO)
+                .totalSales(Money.of(totalSales).toBigDecimal())
+                .totalVAT(Money.of(totalVAT).toBigDecimal())
+                .totalNetSales(totalSales != null && totalVAT != null ?
+                        Money.of(totalSales).minus(Money.of(totalVAT)).toBigDecimal() : BigDecimal.ZERO)
                 .cashierName(request.getCashierName())
                 .deviceSerialNumber(request.getDeviceSerialNumber())
                 .notes(request.getNotes())
@@ -801,24 +818,23 @@ public class FiscalReportServiceImpl implements FiscalReportService {
         };
         
         return typePrefix + "-" + date.format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd")) + 
-               "-" + String.format("%06d", (int)(Math.random() * 999999));
+               "-" + orderIdGenerator.nextId();
     }
     
-    private String buildCashierBreakdownJson(List<Object[]> cashierData, LocalDateTime from, LocalDateTime to) {
-        if (cashierData == null || cashierData.isEmpty()) {
+    private String buildCashierBreakdownJson(Map<String, Map<PaymentMethod, SalesTotals>> sales) {
+        if (sales == null || sales.isEmpty()) {
             return "[]";
         }
         
-        var CASH = in.bushansirgur.billingsoftware.io.PaymentMethod.CASH;
-        var CARD = in.bushansirgur.billingsoftware.io.PaymentMethod.CARD;
-        var SPLIT = in.bushansirgur.billingsoftware.io.PaymentMethod.SPLIT;
+        List<Map.Entry<String, Map<PaymentMethod, SalesTotals>>> cashierData = sales.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(java.util.Comparator.nullsLast(java.util.Comparator.naturalOrder())))
+                .collect(Collectors.toList());
         
         StringBuilder json = new StringBuilder("[");
         for (int i = 0; i < cashierData.size(); i++) {
-            Object[] row = cashierData.get(i);
-            String cashierEmail = (String) row[0];
-            Long count = (Long) row[1];
-            Double total = (Double) row[2];
+            String cashierEmail = cashierData.get(i).getKey();
+            Map<PaymentMethod, SalesTotals> byMethod = cashierData.get(i).getValue();
+            SalesTotals total = sumTotals(Map.of("", byMethod));
             
             // Try to convert email to display name
             String displayName = cashierEmail;
@@ -833,28 +849,12 @@ public class FiscalReportServiceImpl implements FiscalReportService {
                 }
             }
             
-            // Get payment breakdown for this cashier
-            long cashCnt = orderEntityRepository.countByCashierBetweenAndMethod(cashierEmail, CASH, from, to);
-            Double cashSum = orderEntityRepository.sumGrandByCashierBetweenAndMethod(cashierEmail, CASH, from, to);
-            long cardCnt = orderEntityRepository.countByCashierBetweenAndMethod(cashierEmail, CARD, from, to);
-            Double cardSum = orderEntityRepository.sumGrandByCashierBetweenAndMethod(cashierEmail, CARD, from, to);
-            long splitCnt = orderEntityRepository.countByCashierBetweenAndMethod(cashierEmail, SPLIT, from, to);
-            Double splitSum = orderEntityRepository.sumGrandByCashierBetweenAndMethod(cashierEmail, SPLIT, from, to);
-            Double splitCash = orderEntityRepository.sumSplitCashByCashierBetween(cashierEmail, from, to);
-            Double splitCard = orderEntityRepository.sumSplitCardByCashierBetween(cashierEmail, from, to);
-            
             if (i > 0) json.append(",");
             json.append("{")
                 .append("\"cashier\":\"").append(displayName != null ? escapeJson(displayName) : "Неизвестен").append("\",")
-                .append("\"ordersCount\":").append(count != null ? count : 0).append(",")
-                .append("\"totalAmount\":").append(total != null ? total : 0.0).append(",")
-                .append("\"payments\":{")
-                    .append("\"CASH\":{\"count\":").append(cashCnt).append(",\"total\":").append(cashSum != null ? cashSum : 0.0).append("},")
-                    .append("\"CARD\":{\"count\":").append(cardCnt).append(",\"total\":").append(cardSum != null ? cardSum : 0.0).append("},")
-                    .append("\"SPLIT\":{\"count\":").append(splitCnt).append(",\"total\":").append(splitSum != null ? splitSum : 0.0)
-                        .append(",\"cash\":").append(splitCash != null ? splitCash : 0.0)
-                        .append(",\"card\":").append(splitCard != null ? splitCard : 0.0).append("}")
-                .append("}")
+                .append("\"ordersCount\":").append(total.getOrderCount()).append(",")
+                .append("\"totalAmount\":").append(total.getTotal()).append(",")
+                .append("\"payments\":").append(paymentBreakdownJson(byMethod))
                 .append("}");
         }
         json.append("]");
@@ -862,33 +862,48 @@ public class FiscalReportServiceImpl implements FiscalReportService {
         return json.toString();
     }
     
-    private String buildStorePaymentBreakdownJson(LocalDateTime from, LocalDateTime to) {
-        try {
-            var CASH = in.bushansirgur.billingsoftware.io.PaymentMethod.CASH;
-            var CARD = in.bushansirgur.billingsoftware.io.PaymentMethod.CARD;
-            var SPLIT = in.bushansirgur.billingsoftware.io.PaymentMethod.SPLIT;
-            
-            long cashCnt = orderEntityRepository.countByPaymentMethodBetween(CASH, from, to);
-            Double cashSum = orderEntityRepository.sumByPaymentMethodBetween(CASH, from, to);
-            long cardCnt = orderEntityRepository.countByPaymentMethodBetween(CARD, from, to);
-            Double cardSum = orderEntityRepository.sumByPaymentMethodBetween(CARD, from, to);
-            long splitCnt = orderEntityRepository.countByPaymentMethodBetween(SPLIT, from, to);
-            Double splitSum = orderEntityRepository.sumByPaymentMethodBetween(SPLIT, from, to);
-            Double splitCash = orderEntityRepository.sumSplitCashBetween(from, to);
-            Double splitCard = orderEntityRepository.sumSplitCardBetween(from, to);
-            
-            String json = "{" +
-                    "\"CASH\":{\"count\":"+cashCnt+",\"total\":"+(cashSum != null ? cashSum : 0.0)+"}," +
-                    "\"CARD\":{\"count\":"+cardCnt+",\"total\":"+(cardSum != null ? cardSum : 0.0)+"}," +
-                    "\"SPLIT\":{\"count\":"+splitCnt+",\"total\":"+(splitSum != null ? splitSum : 0.0)+
-                    ",\"cash\":"+(splitCash != null ? splitCash : 0.0)+
-                    ",\"card\":"+(splitCard != null ? splitCard : 0.0)+"}" +
-                    "}";
-            return json;
-        } catch (Exception e) {
-            log.warn("Failed to build store payment breakdown json: {}", e.getMessage());
-            return null;
+    private String buildStorePaymentBreakdownJson(Map<String, Map<PaymentMethod, SalesTotals>> sales) {
+        Map<PaymentMethod, SalesTotals> byMethod = new java.util.EnumMap<>(PaymentMethod.class);
+        sales.values().forEach(cashierSales -> cashierSales.forEach((method, totals) -> {
+            if (method != null) {
+                byMethod.merge(method, totals, (a, b) -> sumTotals(Map.of("a", Map.of(method, a), "b", Map.of(method, b))));
+            }
+        }));
+        return paymentBreakdownJson(byMethod);
+    }
+    
+    private String paymentBreakdownJson(Map<PaymentMethod, SalesTotals> byMethod) {
+        SalesTotals cash = byMethod.getOrDefault(PaymentMethod.CASH, new SalesTotals());
+        SalesTotals card = byMethod.getOrDefault(PaymentMethod.CARD, new SalesTotals());
+        SalesTotals split = byMethod.getOrDefault(PaymentMethod.SPLIT, new SalesTotals());
+        return "{" +
+                "\"CASH\":{\"count\":"+cash.getOrderCount()+",\"total\":"+cash.getTotal()+"}," +
+                "\"CARD\":{\"count\":"+card.getOrderCount()+",\"total\":"+card.getTotal()+"}," +
+                "\"SPLIT\":{\"count\":"+split.getOrderCount()+",\"total\":"+split.getTotal()+
+                ",\"cash\":"+split.getCashAmount()+
+                ",\"card\":"+split.getCardAmount()+"}" +
+                "}";
+    }
+    
+    private SalesTotals sumTotals(Map<String, Map<PaymentMethod, SalesTotals>> sales) {
+        long count = 0;
+        long totalCents = 0;
+        long cashCents = 0;
+        long cardCents = 0;
+        for (Map<PaymentMethod, SalesTotals> byMethod : sales.values()) {
+            for (SalesTotals totals : byMethod.values()) {
+                count += totals.getOrderCount();
+                totalCents += Math.round(totals.getTotal() * 100);
+                cashCents += Math.round(totals.getCashAmount() * 100);
+                cardCents += Math.round(totals.getCardAmount() * 100);
+            }
         }
+        return SalesTotals.builder()
+                .orderCount(count)
+                .total(totalCents / 100.0)
+                .cashAmount(cashCents / 100.0)
+                .cardAmount(cardCents / 100.0)
+                .build();
     }
     
     private String escapeJson(String str) {
@@ -0,0 +1,401 @@
+package in.bushansirgur.billingsoftware.service.impl;
+
+import in.bushansirgur.billingsoftware.entity.InventoryAdjustmentEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryDocumentEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentRequest;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentResponse;
+import in.bushansirgur.billingsoftware.repository.InventoryBatchRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryDocumentRepository;
+import in.bushansirgur.billingsoftware.service.InventoryDocumentService;
+import in.bushansirgur.billingsoftware.service.InventorySummaryState;
+import in.bushansirgur.billingsoftware.service.StockAlerts;
+import in.bushansirgur.billingsoftware.service.StockCounters;
+import in.bushansirgur.billingsoftware.service.StockMovementRollupService;
+import in.bushansirgur.billingsoftware.util.AverageCost;
+import in.bushansirgur.billingsoftware.util.OrderIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Service
+@Slf4j
+public class InventoryDocumentServiceImpl implements InventoryDocumentService {
+
+    private final InventoryDocumentRepository documentRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final StockCounters stockCounters;
+    private final StockAlerts stockAlerts;
+    private final InventorySummaryState inventorySummaryState;
+    private final StockMovementRollupService stockMovementRollupService;
+    private final OrderIdGenerator orderIdGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public InventoryDocumentServiceImpl(InventoryDocumentRepository documentRepository,
+                                        InventoryBatchRepository inventoryBatchRepository,
+                                        StockCounters stockCounters,
+                                        StockAlerts stockAlerts,
+                                        InventorySummaryState inventorySummaryState,
+                                        StockMovementRollupService stockMovementRollupService,
+                                        OrderIdGenerator orderIdGenerator,
+                                        TransactionTemplate transactionTemplate,
+                                        @Value("${inventory.documents.chunk-size:500}") int chunkSize) {
+        this.documentRepository = documentRepository;
+        this.inventoryBatchRepository = inventoryBatchRepository;
+        this.stockCounters = stockCounters;
+        this.stockAlerts = stockAlerts;
+        this.inventorySummaryState = inventorySummaryState;
+        this.stockMovementRollupService = stockMovementRollupService;
+        this.orderIdGenerator = orderIdGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    @Override
+    public InventoryDocumentResponse apply(InventoryDocumentRequest document) {
+        SortedMap<String, Integer> quantities = validate(document);
+        String documentId = document.getDocumentId() != null && !document.getDocumentId().isBlank()
+                ? document.getDocumentId()
+                : orderIdGenerator.nextId("DOC");
+        Map<String, BigDecimal> unitPrices = unitPrices(document);
+        List<String> itemIds = new ArrayList<>(quantities.keySet());
+
+        InventoryDocumentEntity progress = null;
+        try {
+            do {
+                boolean first = progress == null;
+                progress = transactionTemplate.execute(status ->
+                        applyNextChunk(document, documentId, itemIds, quantities, unitPrices, first));
+                log.debug("Inventory document {}: {}/{} items applied", documentId, progress.getProcessedItems(), itemIds.size());
+            } while (progress.getStatus() == InventoryDocumentResponse.Status.RUNNING);
+        } catch (RuntimeException ex) {
+            if (progress == null && ex instanceof ResponseStatusException rejected
+                    && rejected.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+                throw rejected;
+            }
+            int processed = transactionTemplate.execute(status -> markFailed(documentId, ex));
+            log.error("Inventory document {} failed after {} of {} items: {}", documentId, processed, itemIds.size(), ex.getMessage());
+            HttpStatusCode code = ex instanceof ResponseStatusException rejected
+                    ? rejected.getStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR;
+            throw new ResponseStatusException(code, "Inventory document " + documentId + " failed after "
+                    + processed + " of " + itemIds.size() + " items; submit it again to continue", ex);
+        }
+        log.info("Inventory document {} ({}) {}: {} items, {} changed, {} unknown", documentId, document.getType(),
+                progress.getStatus(), itemIds.size(), progress.getChangedItems(), unknownItemIds(progress).size());
+        return toResponse(progress);
+    }
+
+    @Override
+    public InventoryDocumentResponse getProgress(String documentId) {
+        return documentRepository.findByDocumentId(documentId)
+                .map(this::toResponse)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Document not found: " + documentId));
+    }
+
+    /**
+     * Applies the next chunk of items after the document's {@code lastItemId} and records it on the
+     * document row, in one transaction. The first call of a submission creates the row; a
+     * resubmission of a failed or interrupted document picks up where it stopped.
+     */
+    private InventoryDocumentEntity applyNextChunk(InventoryDocumentRequest document,
+                                                   String documentId,
+                                                   List<String> itemIds,
+                                                   Map<String, Integer> quantities,
+                                                   Map<String, BigDecimal> unitPrices,
+                                                   boolean first) {
+        InventoryDocumentEntity progress = documentRepository.findByDocumentIdForUpdate(documentId).orElse(null);
+        if (progress == null) {
+            try {
+                // The unique document id rejects a concurrent first submission
+                progress = documentRepository.saveAndFlush(InventoryDocumentEntity.builder()
+                        .documentId(documentId)
+                        .type(document.getType())
+                        .status(InventoryDocumentResponse.Status.RUNNING)
+                        .totalItems(itemIds.size())
+                        .startedAt(LocalDateTime.now())
+                        .build());
+            } catch (DataIntegrityViolationException ex) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Document already submitted: " + documentId);
+            }
+        } else if (first) {
+            if (progress.getType() != document.getType() || progress.getTotalItems() != itemIds.size()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Document " + documentId + " was submitted with other lines");
+            }
+            if (progress.getStatus() == InventoryDocumentResponse.Status.COMPLETED) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Document already submitted: " + documentId);
+            }
+            progress.setStatus(InventoryDocumentResponse.Status.RUNNING);
+            progress.setError(null);
+            progress.setFinishedAt(null);
+        }
+        if (progress.getStatus() != InventoryDocumentResponse.Status.RUNNING) {
+            // Finished by a concurrent resubmission
+            return progress;
+        }
+
+        int from = 0;
+        if (progress.getLastItemId() != null) {
+            int index = Collections.binarySearch(itemIds, progress.getLastItemId());
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        List<String> chunk = itemIds.subList(from, Math.min(itemIds.size(), from + chunkSize));
+        if (!chunk.isEmpty()) {
+            ChunkResult result = applyChunk(document, documentId, chunk, quantities, unitPrices);
+            List<String> unknown = new ArrayList<>(unknownItemIds(progress));
+            unknown.addAll(result.unknownItemIds());
+            progress.setProcessedItems(progress.getProcessedItems() + chunk.size());
+            progress.setChangedItems(progress.getChangedItems() + result.changed());
+            progress.setUnknownItemIds(unknown.isEmpty() ? null : String.join(",", unknown));
+            progress.setLastItemId(chunk.get(chunk.size() - 1));
+        }
+        if (from + chunk.size() >= itemIds.size()) {
+            progress.setStatus(InventoryDocumentResponse.Status.COMPLETED);
+            progress.setFinishedAt(LocalDateTime.now());
+        }
+        return documentRepository.save(progress);
+    }
+
+    /**
+     * Marks the document failed and returns how many items it got through. A first chunk that failed
+     * took the new document row with it, so there is nothing to mark.
+     */
+    private int markFailed(String documentId, RuntimeException ex) {
+        return documentRepository.findByDocumentIdForUpdate(documentId)
+                .map(progress -> {
+                    String error = ex.getMessage();
+                    progress.setStatus(InventoryDocumentResponse.Status.FAILED);
+                    progress.setError(error != null && error.length() > 1000 ? error.substring(0, 1000) : error);
+                    progress.setFinishedAt(LocalDateTime.now());
+                    return documentRepository.save(progress).getProcessedItems();
+                })
+                .orElse(0);
+    }
+
+    private InventoryDocumentResponse toResponse(InventoryDocumentEntity progress) {
+        return InventoryDocumentResponse.builder()
+                .documentId(progress.getDocumentId())
+                .type(progress.getType())
+                .status(progress.getStatus())
+                .totalItems(progress.getTotalItems())
+                .processedItems(progress.getProcessedItems())
+                .changedItems(progress.getChangedItems())
+                .unknownItemIds(unknownItemIds(progress))
+                .startedAt(progress.getStartedAt())
+                .finishedAt(progress.getFinishedAt())
+                .error(progress.getError())
+                .build();
+    }
+
+    private static List<String> unknownItemIds(InventoryDocumentEntity progress) {
+        return progress.getUnknownItemIds() == null ? List.of() : List.of(progress.getUnknownItemIds().split(","));
+    }
+
+    /**
+     * Locks (or, with write-behind counters, loads) the chunk's items in id order, turns the lines into
+     * stock deltas and writes them with the ledger rows and adjustments as batches.
+     */
+    private ChunkResult applyChunk(InventoryDocumentRequest document,
+                                   String documentId,
+                                   List<String> itemIds,
+                                   Map<String, Integer> quantities,
+                                   Map<String, BigDecimal> unitPrices) {
+        boolean writeBehind = stockCounters.isEnabled();
+        boolean costedDelivery = document.getType() == InventoryDocumentRequest.DocumentType.DELIVERY && !unitPrices.isEmpty();
+        if (writeBehind && costedDelivery) {
+            // Average costs are read and written on the item rows, so costed deliveries lock them even here
+            inventoryBatchRepository.lockStockLevels(itemIds);
+        }
+        List<InventoryBatchRepository.StockLevel> levels = writeBehind
+                ? stockCounters.getLevels(itemIds)
+                : inventoryBatchRepository.lockStockLevels(itemIds);
+        Set<String> found = levels.stream()
+                .map(InventoryBatchRepository.StockLevel::getItemId)
+                .collect(Collectors.toSet());
+        List<String> unknown = itemIds.stream()
+                .filter(itemId -> !found.contains(itemId))
+                .toList();
+
+        InventoryDocumentRequest.DocumentType type = document.getType();
+        InventoryAdjustmentEntity.AdjustmentType adjustmentType = adjustmentType(document);
+        InventoryTransactionEntity.TransactionType transactionType = transactionType(type, adjustmentType);
+        String referenceNumber = document.getReferenceNumber() != null ? document.getReferenceNumber() : documentId;
+        String referenceType = type == InventoryDocumentRequest.DocumentType.COUNT ? "STOCK_COUNT" : type.name();
+        String createdBy = document.getCreatedBy() != null ? document.getCreatedBy() : "SYSTEM";
+        LocalDateTime now = LocalDateTime.now();
+
+        List<InventoryBatchRepository.StockLevel> changed = new ArrayList<>();
+        List<InventoryTransactionEntity> transactions = new ArrayList<>();
+        List<InventoryAdjustmentEntity> adjustments = new ArrayList<>();
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        SortedMap<String, BigDecimal> averageCosts = new TreeMap<>();
+        for (InventoryBatchRepository.StockLevel level : levels) {
+            int quantity = quantities.get(level.getItemId());
+            int delta;
+            int newQuantity;
+            if (writeBehind && type == InventoryDocumentRequest.DocumentType.COUNT) {
+                // Sales on the counters take no row lock; swapping the counter is what orders the count with them
+                delta = stockCounters.set(level.getItemId(), quantity);
+                newQuantity = quantity;
+            } else {
+                delta = switch (type) {
+                    case DELIVERY -> quantity;
+                    case WRITE_OFF -> -quantity;
+                    case COUNT -> quantity - level.getStockQuantity();
+                };
+                newQuantity = writeBehind && delta != 0
+                        ? stockCounters.add(level.getItemId(), delta)
+                        : level.getStockQuantity() + delta;
+            }
+            if (delta == 0) {
+                continue;
+            }
+            BigDecimal unitPrice = unitPrices.get(level.getItemId());
+            BigDecimal averageCost = level.getAverageCost();
+            if (type == InventoryDocumentRequest.DocumentType.DELIVERY && unitPrice != null) {
+                averageCost = AverageCost.afterReceipt(newQuantity - delta, level.getAverageCost(), delta, unitPrice);
+                averageCosts.put(level.getItemId(), averageCost);
+            }
+            transactions.add(InventoryTransactionEntity.builder()
+                    .transactionId(orderIdGenerator.nextId("TXN"))
+                    .itemId(level.getItemId())
+                    .transactionType(transactionType)
+                    .quantity(delta)
+                    .previousQuantity(newQuantity - delta)
+                    .newQuantity(newQuantity)
+                    .unitPrice(unitPrice)
+                    .totalValue(unitPrice != null ? unitPrice.multiply(BigDecimal.valueOf(delta)) : null)
+                    .unitCost(averageCosts.containsKey(level.getItemId()) ? unitPrice : level.getAverageCost())
+                    .referenceNumber(referenceNumber)
+                    .referenceType(referenceType)
+                    .notes(document.getNotes())
+                    .createdBy(createdBy)
+                    .createdAt(now)
+                    .stockPending(writeBehind ? Boolean.TRUE : null)
+                    .build());
+            if (adjustmentType != null) {
+                adjustments.add(InventoryAdjustmentEntity.builder()
+                        .adjustmentId(orderIdGenerator.nextId("ADJ"))
+                        .itemId(level.getItemId())
+                        .adjustmentType(adjustmentType)
+                        .quantity(delta)
+                        .reason(document.getReason())
+                        .notes(document.getNotes())
+                        .createdBy(createdBy)
+                        .createdAt(now)
+                        .build());
+            }
+            deltas.put(level.getItemId(), delta);
+            level.setStockQuantity(newQuantity);
+            changed.add(level);
+        }
+
+        inventoryBatchRepository.insertAdjustments(adjustments);
+        inventoryBatchRepository.insertTransactions(transactions);
+        inventorySummaryState.recordStockAfterCommit(transactions, averageCosts);
+        stockMovementRollupService.recordTransactions(transactions);
+        inventoryBatchRepository.updateAverageCosts(averageCosts);
+        if (writeBehind) {
+            stockCounters.schedule(transactions);
+        } else {
+            inventoryBatchRepository.addStockDeltas(deltas,
+                    type == InventoryDocumentRequest.DocumentType.DELIVERY ? deltas.keySet() : Set.of());
+            stockAlerts.createAlerts(changed);
+        }
+        return new ChunkResult(changed.size(), unknown);
+    }
+
+    private SortedMap<String, Integer> validate(InventoryDocumentRequest document) {
+        if (document.getType() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Document type is required");
+        }
+        if (document.getLines() == null || document.getLines().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Document has no lines");
+        }
+        adjustmentType(document);
+        SortedMap<String, Integer> quantities = new TreeMap<>();
+        for (InventoryDocumentRequest.Line line : document.getLines()) {
+            if (line.getItemId() == null || line.getItemId().isBlank() || line.getQuantity() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every line needs an itemId and a quantity");
+            }
+            boolean count = document.getType() == InventoryDocumentRequest.DocumentType.COUNT;
+            if (line.getQuantity() < 0 || (!count && line.getQuantity() == 0)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Invalid quantity " + line.getQuantity() + " for item " + line.getItemId());
+            }
+            try {
+                quantities.merge(line.getItemId(), line.getQuantity(), Math::addExact);
+            } catch (ArithmeticException ex) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Total quantity for item " + line.getItemId() + " is out of range");
+            }
+        }
+        return quantities;
+    }
+
+    private Map<String, BigDecimal> unitPrices(InventoryDocumentRequest document) {
+        Map<String, BigDecimal> unitPrices = new HashMap<>();
+        for (InventoryDocumentRequest.Line line : document.getLines()) {
+            if (line.getUnitPrice() != null) {
+                unitPrices.put(line.getItemId(), line.getUnitPrice());
+            }
+        }
+        return unitPrices;
+    }
+
+    // Counts are recorded as count corrections, write-offs with their reason; deliveries need no adjustment
+    private InventoryAdjustmentEntity.AdjustmentType adjustmentType(InventoryDocumentRequest document) {
+        return switch (document.getType()) {
+            case DELIVERY -> null;
+            case COUNT -> InventoryAdjustmentEntity.AdjustmentType.COUNT_CORRECTION;
+            case WRITE_OFF -> {
+                if (document.getAdjustmentType() == null) {
+                    yield InventoryAdjustmentEntity.AdjustmentType.OTHER;
+                }
+                try {
+                    yield InventoryAdjustmentEntity.AdjustmentType.valueOf(document.getAdjustmentType());
+                } catch (IllegalArgumentException ex) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "Unknown adjustment type: " + document.getAdjustmentType());
+                }
+            }
+        };
+    }
+
+    private InventoryTransactionEntity.TransactionType transactionType(InventoryDocumentRequest.DocumentType type,
+                                                                      InventoryAdjustmentEntity.AdjustmentType adjustmentType) {
+        if (type == InventoryDocumentRequest.DocumentType.DELIVERY) {
+            return InventoryTransactionEntity.TransactionType.PURCHASE;
+        }
+        if (type == InventoryDocumentRequest.DocumentType.COUNT) {
+            return InventoryTransactionEntity.TransactionType.ADJUSTMENT;
+        }
+        return switch (adjustmentType) {
+            case DAMAGE -> InventoryTransactionEntity.TransactionType.DAMAGED;
+            case EXPIRY -> InventoryTransactionEntity.TransactionType.EXPIRED;
+            case LOSS, THEFT -> InventoryTransactionEntity.TransactionType.LOST;
+            default -> InventoryTransactionEntity.TransactionType.ADJUSTMENT;
+        };
+    }
+
+    private record ChunkResult(int changed, List<String> unknownItemIds) {
+    }
+}
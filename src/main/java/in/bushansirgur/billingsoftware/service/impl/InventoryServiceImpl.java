@@ -1,23 +1,43 @@
 package in.bushansirgur.billingsoftware.service.impl;
 
 import in.bushansirgur.billingsoftware.entity.*;
+import in.bushansirgur.billingsoftware.io.CursorPage;
 import in.bushansirgur.billingsoftware.io.InventoryRequest;
 import in.bushansirgur.billingsoftware.io.InventoryResponse;
 import in.bushansirgur.billingsoftware.io.InventorySummaryResponse;
+import in.bushansirgur.billingsoftware.io.SaleMovement;
 import in.bushansirgur.billingsoftware.repository.*;
 import in.bushansirgur.billingsoftware.service.InventoryService;
+import in.bushansirgur.billingsoftware.service.InventorySummaryState;
+import in.bushansirgur.billingsoftware.service.StockAlerts;
+import in.bushansirgur.billingsoftware.service.StockCounters;
+import in.bushansirgur.billingsoftware.service.StockMovementRollupService;
+import in.bushansirgur.billingsoftware.util.AverageCost;
+import in.bushansirgur.billingsoftware.util.KeysetCursor;
+import in.bushansirgur.billingsoftware.util.OrderIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,10 +45,20 @@ import java.util.stream.Collectors;
 @Slf4j
 public class InventoryServiceImpl implements InventoryService {
     
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int RECENT_TRANSACTIONS = 10;
+    private static final int EXPORT_CHUNK_SIZE = 1000;
+    
     private final ItemRepository itemRepository;
     private final InventoryTransactionRepository transactionRepository;
     private final InventoryAdjustmentRepository adjustmentRepository;
     private final InventoryAlertRepository alertRepository;
+    private final InventoryBatchRepository inventoryBatchRepository;
+    private final OrderIdGenerator orderIdGenerator;
+    private final StockAlerts stockAlerts;
+    private final StockCounters stockCounters;
+    private final InventorySummaryState inventorySummaryState;
+    private final StockMovementRollupService stockMovementRollupService;
     
     @Override
     @Transactional
@@ -36,6 +66,10 @@ public class InventoryServiceImpl implements InventoryService {
         ItemEntity item = getItemById(request.getItemId());
         Integer previousQuantity = item.getStockQuantity();
         Integer newQuantity = request.getNewQuantity();
+        if (stockCounters.isEnabled()) {
+            return recordThroughCounters(item, InventoryTransactionEntity.TransactionType.ADJUSTMENT,
+                newQuantity - currentStock(item), request, request.getReferenceNumber(), request.getReferenceType());
+        }
         
         // Create transaction record
         InventoryTransactionEntity transaction = createTransaction(
@@ -45,19 +79,22 @@ public class InventoryServiceImpl implements InventoryService {
             previousQuantity,
             newQuantity,
             request.getUnitPrice(),
+            averageCost(item),
             request.getNotes(),
             request.getCreatedBy(),
             request.getReferenceNumber(),
-            request.getReferenceType()
+            request.getReferenceType(),
+            false
         );
         
         // Update item stock
         item.setStockQuantity(newQuantity);
         item.setLastStockCheck(Timestamp.valueOf(LocalDateTime.now()));
         itemRepository.save(item);
+        inventorySummaryState.recordStockAfterCommit(List.of(transaction));
         
-        // Check for alerts
-        checkAndCreateAlerts(item.getItemId());
+        // Alerts only when the item crossed a threshold
+        stockAlerts.createAlerts(List.of(stockLevel(item)));
         
         return buildInventoryResponse(item, transaction, previousQuantity, newQuantity);
     }
@@ -66,8 +103,14 @@ public class InventoryServiceImpl implements InventoryService {
     @Transactional
     public InventoryResponse addStock(InventoryRequest request) {
         ItemEntity item = getItemById(request.getItemId());
+        if (stockCounters.isEnabled()) {
+            return recordThroughCounters(item, InventoryTransactionEntity.TransactionType.PURCHASE,
+                request.getQuantity(), request, request.getReferenceNumber(), request.getReferenceType());
+        }
         Integer previousQuantity = item.getStockQuantity();
         Integer newQuantity = previousQuantity + request.getQuantity();
+        BigDecimal averageBefore = averageCost(item);
+        BigDecimal averageAfter = AverageCost.afterReceipt(previousQuantity, averageBefore, request.getQuantity(), request.getUnitPrice());
         
         // Create transaction record
         InventoryTransactionEntity transaction = createTransaction(
@@ -77,19 +120,23 @@ public class InventoryServiceImpl implements InventoryService {
             previousQuantity,
             newQuantity,
             request.getUnitPrice(),
+            request.getUnitPrice() != null ? request.getUnitPrice() : averageBefore,
             request.getNotes(),
             request.getCreatedBy(),
             request.getReferenceNumber(),
-            request.getReferenceType()
+            request.getReferenceType(),
+            false
         );
         
         // Update item stock
         item.setStockQuantity(newQuantity);
+        item.setAverageCost(averageAfter);
         item.setLastRestockDate(Timestamp.valueOf(LocalDateTime.now()));
         itemRepository.save(item);
+        inventorySummaryState.recordStockAfterCommit(List.of(transaction), averageCosts(item.getItemId(), averageAfter));
         
-        // Check for alerts
-        checkAndCreateAlerts(item.getItemId());
+        // Alerts only when the item crossed a threshold
+        stockAlerts.createAlerts(List.of(stockLevel(item)));
         
         return buildInventoryResponse(item, transaction, previousQuantity, newQuantity);
     }
@@ -102,6 +149,10 @@ public class InventoryServiceImpl implements InventoryService {
         if (request.getQuantity() == null || request.getQuantity() <= 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than 0");
         }
+        if (stockCounters.isEnabled()) {
+            return recordThroughCounters(item, InventoryTransactionEntity.TransactionType.SALE,
+                -request.getQuantity(), request, request.getReferenceNumber(), request.getReferenceType());
+        }
         // Allow sale below recorded stock (delivery not entered yet, shelf has goods).
         Integer newQuantity = previousQuantity - request.getQuantity();
         
@@ -113,19 +164,22 @@ public class InventoryServiceImpl implements InventoryService {
             previousQuantity,
             newQuantity,
             request.getUnitPrice(),
+            averageCost(item),
             request.getNotes(),
             request.getCreatedBy(),
             request.getReferenceNumber(),
-            request.getReferenceType()
+            request.getReferenceType(),
+            false
         );
         
         // Update item stock
         item.setStockQuantity(newQuantity);
         item.setLastStockCheck(Timestamp.valueOf(LocalDateTime.now()));
         itemRepository.save(item);
+        inventorySummaryState.recordStockAfterCommit(List.of(transaction));
         
-        // Check for alerts
-        checkAndCreateAlerts(item.getItemId());
+        // Alerts only when the item crossed a threshold
+        stockAlerts.createAlerts(List.of(stockLevel(item)));
         
         return buildInventoryResponse(item, transaction, previousQuantity, newQuantity);
     }
@@ -146,6 +200,10 @@ public class InventoryServiceImpl implements InventoryService {
             .build();
         
         adjustmentRepository.save(adjustment);
+        if (stockCounters.isEnabled()) {
+            return recordThroughCounters(item, InventoryTransactionEntity.TransactionType.ADJUSTMENT,
+                request.getQuantity(), request, adjustment.getAdjustmentId(), "ADJUSTMENT");
+        }
         
         // Update stock based on adjustment type
         Integer previousQuantity = item.getStockQuantity();
@@ -159,19 +217,22 @@ public class InventoryServiceImpl implements InventoryService {
             previousQuantity,
             newQuantity,
             request.getUnitPrice(),
+            averageCost(item),
             request.getNotes(),
             request.getCreatedBy(),
             adjustment.getAdjustmentId(),
-            "ADJUSTMENT"
+            "ADJUSTMENT",
+            false
         );
         
         // Update item stock
         item.setStockQuantity(newQuantity);
         item.setLastStockCheck(Timestamp.valueOf(LocalDateTime.now()));
         itemRepository.save(item);
+        inventorySummaryState.recordStockAfterCommit(List.of(transaction));
         
-        // Check for alerts
-        checkAndCreateAlerts(item.getItemId());
+        // Alerts only when the item crossed a threshold
+        stockAlerts.createAlerts(List.of(stockLevel(item)));
         
         return buildInventoryResponse(item, transaction, previousQuantity, newQuantity);
     }
@@ -179,7 +240,7 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     public InventoryResponse getItemStock(String itemId) {
         ItemEntity item = getItemById(itemId);
-        return buildInventoryResponse(item, null, item.getStockQuantity(), item.getStockQuantity());
+        return buildInventoryResponse(item, null, currentStock(item), currentStock(item));
     }
     
     @Override
@@ -203,66 +264,111 @@ public class InventoryServiceImpl implements InventoryService {
             .collect(Collectors.toList());
     }
     
+    @Override
+    public Page<InventoryResponse> getLowStockItems(Pageable pageable) {
+        return itemRepository.findLowStockItems(pageable).map(this::buildStockResponse);
+    }
+    
+    @Override
+    public Page<InventoryResponse> getOutOfStockItems(Pageable pageable) {
+        return itemRepository.findOutOfStockItems(pageable).map(this::buildStockResponse);
+    }
+    
+    @Override
+    public Page<InventoryResponse> getOverstockItems(Pageable pageable) {
+        return itemRepository.findOverstockItems(pageable).map(this::buildStockResponse);
+    }
+    
     @Override
     public InventorySummaryResponse getInventorySummary() {
-        Long totalItems = itemRepository.count();
-        Long lowStockItems = itemRepository.countLowStockItems();
-        Long outOfStockItems = itemRepository.countOutOfStockItems();
-        Long activeAlerts = alertRepository.countActiveAlerts();
-        
-        Double totalValue = itemRepository.getTotalInventoryValue();
-        BigDecimal totalInventoryValue = totalValue != null ? BigDecimal.valueOf(totalValue) : BigDecimal.ZERO;
+        // Counters and alert bands are maintained on every stock change and the item lists are served
+        // page by page; the recent movements are one short index range read off the ledger's newest end
+        InventorySummaryState.Totals totals = inventorySummaryState.totals();
         
         return InventorySummaryResponse.builder()
-            .totalItems(totalItems)
-            .lowStockItems(lowStockItems)
-            .outOfStockItems(outOfStockItems)
-            .overstockItems((long) itemRepository.findOverstockItems().size())
-            .totalInventoryValue(totalInventoryValue)
-            .totalCostValue(totalInventoryValue) // Simplified for now
-            .activeAlerts(activeAlerts)
-            .itemsLowStock(getLowStockItems())
-            .itemsOutOfStock(getOutOfStockItems())
-            .itemsOverstock(getOverstockItems())
+            .totalItems(totals.getTotalItems())
+            .lowStockItems(totals.getLowStockItems())
+            .outOfStockItems(totals.getOutOfStockItems())
+            .overstockItems(totals.getOverstockItems())
+            .totalInventoryValue(BigDecimal.valueOf(totals.getInventoryValueCents(), 2))
+            .totalCostValue(BigDecimal.valueOf(totals.getCostValueCents(), 2))
+            .activeAlerts(stockAlerts.activeAlerts())
             .recentTransactions(getRecentTransactions())
             .build();
     }
     
     @Override
-    public List<InventoryResponse> getItemTransactionHistory(String itemId) {
-        return transactionRepository.findByItemIdOrderByCreatedAtDesc(itemId).stream()
-            .map(this::buildInventoryResponseFromTransaction)
-            .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<InventoryResponse> getItemTransactionHistory(String itemId, String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = clampPageSize(size);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        return toCursorPage(position == null
+            ? transactionRepository.findItemHistory(itemId, page)
+            : transactionRepository.findItemHistoryAfter(itemId, position.getCreatedAt(), position.getId(), page), pageSize);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<InventoryResponse> getRecentTransactions(String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = clampPageSize(size);
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        return toCursorPage(position == null
+            ? transactionRepository.findLatestMovements(page)
+            : transactionRepository.findLatestMovementsAfter(position.getCreatedAt(), position.getId(), page), pageSize);
     }
     
     @Override
     public List<InventoryResponse> getRecentTransactions() {
-        return transactionRepository.findAllByOrderByCreatedAtDesc(PageRequest.of(0, 10)).stream()
-            .map(this::buildInventoryResponseFromTransaction)
-            .collect(Collectors.toList());
+        return getRecentTransactions(null, RECENT_TRANSACTIONS).getContent();
     }
     
     @Override
-    public void checkAndCreateAlerts(String itemId) {
-        ItemEntity item = getItemById(itemId);
-        
-        // Check for low stock
-        if (item.getStockQuantity() <= item.getReorderPoint() && item.getStockQuantity() > 0) {
-            createAlert(item, InventoryAlertEntity.AlertType.LOW_STOCK, 
-                "Low stock alert: " + item.getName() + " has " + item.getStockQuantity() + " units remaining");
-        }
-        
-        // Check for out of stock
-        if (item.getStockQuantity() <= 0) {
-            createAlert(item, InventoryAlertEntity.AlertType.OUT_OF_STOCK, 
-                "Out of stock: " + item.getName() + " is completely out of stock");
-        }
-        
-        // Check for overstock
-        if (item.getStockQuantity() > item.getMaxStockLevel()) {
-            createAlert(item, InventoryAlertEntity.AlertType.OVERSTOCK, 
-                "Overstock alert: " + item.getName() + " has " + item.getStockQuantity() + " units (max: " + item.getMaxStockLevel() + ")");
+    public void exportMovements(LocalDateTime from, LocalDateTime to, Writer writer) throws IOException {
+        writer.write("createdAt,transactionId,itemId,itemName,barcode,transactionType,quantity,previousQuantity,newQuantity,unitPrice,referenceNumber,referenceType,createdBy\n");
+        LocalDateTime cursorCreatedAt = null;
+        Long cursorId = null;
+        List<InventoryTransactionEntity> chunk;
+        do {
+            chunk = cursorCreatedAt == null
+                ? transactionRepository.findMovementsBetween(from, to, PageRequest.of(0, EXPORT_CHUNK_SIZE))
+                : transactionRepository.findMovementsBetweenAfter(to, cursorCreatedAt, cursorId,
+                    PageRequest.of(0, EXPORT_CHUNK_SIZE));
+            Map<String, ItemEntity> items = findItems(chunk);
+            for (InventoryTransactionEntity tx : chunk) {
+                ItemEntity item = items.get(tx.getItemId());
+                writer.write(String.valueOf(tx.getCreatedAt()) + ',' + csv(tx.getTransactionId()) + ',' + csv(tx.getItemId()) + ','
+                    + csv(item != null ? item.getName() : null) + ',' + csv(item != null ? item.getBarcode() : null) + ','
+                    + tx.getTransactionType() + ',' + tx.getQuantity() + ',' + tx.getPreviousQuantity() + ',' + tx.getNewQuantity() + ','
+                    + (tx.getUnitPrice() != null ? tx.getUnitPrice() : "") + ',' + csv(tx.getReferenceNumber()) + ','
+                    + csv(tx.getReferenceType()) + ',' + csv(tx.getCreatedBy()) + '\n');
+            }
+            if (!chunk.isEmpty()) {
+                InventoryTransactionEntity last = chunk.get(chunk.size() - 1);
+                cursorCreatedAt = last.getCreatedAt();
+                cursorId = last.getId();
+            }
+            writer.flush();
+        } while (chunk.size() == EXPORT_CHUNK_SIZE);
+    }
+    
+    /**
+     * Ledger row for the stock an item was created with, so that the ledger accounts for every unit
+     * in {@code tbl_items}. The item row already holds the stock; nothing else is updated.
+     */
+    @Override
+    public void recordOpeningStock(String itemId, int quantity, String referenceType) {
+        if (quantity == 0) {
+            return;
         }
+        createTransaction(itemId, InventoryTransactionEntity.TransactionType.ADJUSTMENT, quantity, 0, quantity,
+            null, null, "Opening stock", "SYSTEM", itemId, referenceType, false);
+    }
+    
+    @Override
+    public void checkAndCreateAlerts(String itemId) {
+        stockAlerts.createAlerts(List.of(stockLevel(getItemById(itemId))));
     }
     
     @Override
@@ -302,7 +408,181 @@ public class InventoryServiceImpl implements InventoryService {
         addStock(request);
     }
     
+    @Override
+    @Transactional
+    public void processSaleTransactions(Map<String, Integer> quantitiesByItemId, String orderId) {
+        applyStockDeltas(List.of(new StockMovement(orderId, LocalDateTime.now(), toDeltas(quantitiesByItemId, -1))),
+            InventoryTransactionEntity.TransactionType.SALE, "SALE", "Automatic sale transaction");
+    }
+    
+    @Override
+    @Transactional
+    public void processSaleTransactions(List<SaleMovement> sales) {
+        List<StockMovement> movements = new ArrayList<>(sales.size());
+        for (SaleMovement sale : sales) {
+            movements.add(new StockMovement(sale.getOrderId(),
+                sale.getSoldAt() != null ? sale.getSoldAt() : LocalDateTime.now(),
+                toDeltas(sale.getQuantitiesByItemId(), -1)));
+        }
+        applyStockDeltas(movements, InventoryTransactionEntity.TransactionType.SALE, "SALE", "Automatic sale transaction");
+    }
+    
+    @Override
+    @Transactional
+    public void processReturnTransactions(Map<String, Integer> quantitiesByItemId, String refundReference) {
+        applyStockDeltas(List.of(new StockMovement(refundReference, LocalDateTime.now(), toDeltas(quantitiesByItemId, 1))),
+            InventoryTransactionEntity.TransactionType.RETURN, "REFUND", "Automatic refund restock");
+    }
+    
     // Helper methods
+    
+    private static SortedMap<String, Integer> toDeltas(Map<String, Integer> quantitiesByItemId, int sign) {
+        SortedMap<String, Integer> deltas = new TreeMap<>();
+        quantitiesByItemId.forEach((itemId, quantity) -> {
+            if (itemId == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Item id is required");
+            }
+            if (quantity == null || quantity <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than 0");
+            }
+            deltas.merge(itemId, sign * quantity, Integer::sum);
+        });
+        return deltas;
+    }
+    
+    /**
+     * Applies signed stock deltas for many items at once: locks the rows of all movements in item id
+     * order, writes all ledger rows and stock updates as JDBC batches and evaluates alerts in memory.
+     * Each movement gets its own ledger rows with its own reference and time.
+     * With write-behind counters only the ledger rows are written; stock and alerts follow on flush.
+     */
+    private void applyStockDeltas(List<StockMovement> movements,
+                                  InventoryTransactionEntity.TransactionType type,
+                                  String referenceType,
+                                  String notes) {
+        Set<String> itemIds = new TreeSet<>();
+        movements.forEach(movement -> itemIds.addAll(movement.deltas().keySet()));
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        boolean writeBehind = stockCounters.isEnabled();
+        List<InventoryBatchRepository.StockLevel> levels = writeBehind
+            ? stockCounters.getLevels(itemIds)
+            : inventoryBatchRepository.lockStockLevels(itemIds);
+        if (levels.size() != itemIds.size()) {
+            Set<String> found = levels.stream()
+                .map(InventoryBatchRepository.StockLevel::getItemId)
+                .collect(Collectors.toSet());
+            String missing = itemIds.stream()
+                .filter(id -> !found.contains(id))
+                .collect(Collectors.joining(", "));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found: " + missing);
+        }
+        Map<String, InventoryBatchRepository.StockLevel> levelsByItemId = levels.stream()
+            .collect(Collectors.toMap(InventoryBatchRepository.StockLevel::getItemId, Function.identity()));
+        
+        List<InventoryTransactionEntity> transactions = new ArrayList<>(levels.size());
+        for (StockMovement movement : movements) {
+            for (Map.Entry<String, Integer> entry : movement.deltas().entrySet()) {
+                InventoryBatchRepository.StockLevel level = levelsByItemId.get(entry.getKey());
+                int delta = entry.getValue();
+                int newQuantity = writeBehind
+                    ? stockCounters.add(level.getItemId(), delta)
+                    : level.getStockQuantity() + delta;
+                int previousQuantity = newQuantity - delta;
+                transactions.add(InventoryTransactionEntity.builder()
+                    .transactionId(orderIdGenerator.nextId("TXN"))
+                    .itemId(level.getItemId())
+                    .transactionType(type)
+                    .quantity(delta)
+                    .previousQuantity(previousQuantity)
+                    .newQuantity(newQuantity)
+                    .referenceNumber(movement.referenceNumber())
+                    .referenceType(referenceType)
+                    .notes(notes)
+                    .createdBy("SYSTEM")
+                    .unitCost(level.getAverageCost())
+                    .createdAt(movement.createdAt())
+                    .stockPending(writeBehind ? Boolean.TRUE : null)
+                    .build());
+                level.setStockQuantity(newQuantity);
+            }
+        }
+        
+        if (writeBehind) {
+            inventoryBatchRepository.insertTransactions(transactions);
+            inventorySummaryState.recordStockAfterCommit(transactions);
+            stockMovementRollupService.recordTransactions(transactions);
+            stockCounters.schedule(transactions);
+            return;
+        }
+        inventoryBatchRepository.applyStockDeltas(transactions);
+        inventoryBatchRepository.insertTransactions(transactions);
+        inventorySummaryState.recordStockAfterCommit(transactions);
+        stockMovementRollupService.recordTransactions(transactions);
+        
+        stockAlerts.createAlerts(levels);
+    }
+    
+    /**
+     * Single-item stock operation on the write-behind counters: the item row is left untouched
+     * (a JPA save would overwrite deltas the flusher adds concurrently) and only a flagged ledger row is written.
+     */
+    private InventoryResponse recordThroughCounters(ItemEntity item,
+                                                    InventoryTransactionEntity.TransactionType type,
+                                                    int delta,
+                                                    InventoryRequest request,
+                                                    String referenceNumber,
+                                                    String referenceType) {
+        boolean costedReceipt = type == InventoryTransactionEntity.TransactionType.PURCHASE && request.getUnitPrice() != null;
+        BigDecimal averageBefore = averageCost(item);
+        if (costedReceipt) {
+            // Serializes costed receipts of the item; sales on the counters never take this row lock
+            averageBefore = inventoryBatchRepository.lockStockLevels(List.of(item.getItemId())).get(0).getAverageCost();
+        }
+        stockCounters.getLevels(List.of(item.getItemId()));
+        int newQuantity = stockCounters.add(item.getItemId(), delta);
+        BigDecimal averageAfter = averageBefore;
+        if (costedReceipt) {
+            averageAfter = AverageCost.afterReceipt(newQuantity - delta, averageBefore, delta, request.getUnitPrice());
+            inventoryBatchRepository.updateAverageCosts(new TreeMap<>(Map.of(item.getItemId(), averageAfter)));
+        }
+        InventoryTransactionEntity transaction = createTransaction(
+            item.getItemId(),
+            type,
+            delta,
+            newQuantity - delta,
+            newQuantity,
+            request.getUnitPrice(),
+            costedReceipt ? request.getUnitPrice() : averageBefore,
+            request.getNotes(),
+            request.getCreatedBy(),
+            referenceNumber,
+            referenceType,
+            true
+        );
+        inventorySummaryState.recordStockAfterCommit(List.of(transaction), averageCosts(item.getItemId(), averageAfter));
+        stockCounters.schedule(List.of(transaction));
+        return buildInventoryResponse(item, transaction, newQuantity - delta, newQuantity);
+    }
+    
+    private InventoryResponse buildStockResponse(ItemEntity item) {
+        return buildInventoryResponse(item, null, item.getStockQuantity(), item.getStockQuantity());
+    }
+    
+    private static Map<String, BigDecimal> averageCosts(String itemId, BigDecimal averageCost) {
+        return averageCost != null ? Map.of(itemId, averageCost) : Map.of();
+    }
+    
+    private BigDecimal averageCost(ItemEntity item) {
+        return AverageCost.orCostPrice(item.getAverageCost(), item.getCostPrice());
+    }
+    
+    private int currentStock(ItemEntity item) {
+        int stored = item.getStockQuantity() != null ? item.getStockQuantity() : 0;
+        return stockCounters.isEnabled() ? stockCounters.currentStock(item.getItemId(), stored) : stored;
+    }
+    
     private ItemEntity getItemById(String itemId) {
         return itemRepository.findByItemId(itemId)
             .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found: " + itemId));
@@ -314,12 +594,15 @@ public class InventoryServiceImpl implements InventoryService {
                                                        Integer previousQuantity,
                                                        Integer newQuantity,
                                                        BigDecimal unitPrice,
+                                                       BigDecimal unitCost,
                                                        String notes,
                                                        String createdBy,
                                                        String referenceNumber,
-                                                       String referenceType) {
+                                                       String referenceType,
+                                                       boolean stockPending) {
         
         InventoryTransactionEntity transaction = InventoryTransactionEntity.builder()
+            .transactionId(orderIdGenerator.nextId("TXN"))
             .itemId(itemId)
             .transactionType(type)
             .quantity(quantity)
@@ -327,36 +610,28 @@ public class InventoryServiceImpl implements InventoryService {
             .newQuantity(newQuantity)
             .unitPrice(unitPrice)
             .totalValue(unitPrice != null ? unitPrice.multiply(BigDecimal.valueOf(quantity)) : null)
+            .unitCost(unitCost)
             .referenceNumber(referenceNumber)
             .referenceType(referenceType)
             .notes(notes)
             .createdBy(createdBy)
+            .stockPending(stockPending ? Boolean.TRUE : null)
+            .createdAt(LocalDateTime.now())
             .build();
         
-        return transactionRepository.save(transaction);
+        inventoryBatchRepository.insertTransactions(List.of(transaction));
+        stockMovementRollupService.recordTransactions(List.of(transaction));
+        return transaction;
     }
     
-    private void createAlert(ItemEntity item, InventoryAlertEntity.AlertType alertType, String message) {
-        // Check if alert already exists
-        List<InventoryAlertEntity> existingAlerts = alertRepository.findActiveAlertsByItemId(item.getItemId());
-        boolean alertExists = existingAlerts.stream()
-            .anyMatch(alert -> alert.getAlertType() == alertType);
-        
-        if (!alertExists) {
-            InventoryAlertEntity alert = InventoryAlertEntity.builder()
-                .itemId(item.getItemId())
-                .alertType(alertType)
-                .alertMessage(message)
-                .currentQuantity(item.getStockQuantity())
-                .thresholdQuantity(alertType == InventoryAlertEntity.AlertType.LOW_STOCK ? 
-                    item.getReorderPoint() : 
-                    alertType == InventoryAlertEntity.AlertType.OVERSTOCK ? 
-                    item.getMaxStockLevel() : 0)
-                .isResolved(false)
-                .build();
-            
-            alertRepository.save(alert);
-        }
+    private InventoryBatchRepository.StockLevel stockLevel(ItemEntity item) {
+        return new InventoryBatchRepository.StockLevel(
+            item.getItemId(),
+            item.getName(),
+            currentStock(item),
+            item.getReorderPoint() != null ? item.getReorderPoint() : 0,
+            item.getMaxStockLevel() != null ? item.getMaxStockLevel() : 0,
+            averageCost(item));
     }
     
     private InventoryResponse buildInventoryResponse(ItemEntity item, 
@@ -364,20 +639,22 @@ public class InventoryServiceImpl implements InventoryService {
                                                    Integer previousQuantity,
                                                    Integer newQuantity) {
         
-        String stockStatus = determineStockStatus(item);
-        Boolean needsReorder = item.getStockQuantity() <= item.getReorderPoint();
+        int stock = currentStock(item);
+        String stockStatus = determineStockStatus(item, stock);
+        Boolean needsReorder = stock <= item.getReorderPoint();
         Integer reorderQuantity = needsReorder ? 
-            item.getMaxStockLevel() - item.getStockQuantity() : 0;
+            item.getMaxStockLevel() - stock : 0;
         
         return InventoryResponse.builder()
             .itemId(item.getItemId())
             .itemName(item.getName())
             .barcode(item.getBarcode())
-            .currentStock(item.getStockQuantity())
+            .currentStock(stock)
             .previousStock(previousQuantity)
             .newStock(newQuantity)
             .unitPrice(transaction != null ? transaction.getUnitPrice() : null)
             .totalValue(transaction != null ? transaction.getTotalValue() : null)
+            .unitCost(transaction != null ? transaction.getUnitCost() : null)
             .transactionType(transaction != null ? transaction.getTransactionType().name() : null)
             .transactionId(transaction != null ? transaction.getTransactionId() : null)
             .referenceNumber(transaction != null ? transaction.getReferenceNumber() : null)
@@ -392,6 +669,7 @@ public class InventoryServiceImpl implements InventoryService {
             .supplierName(item.getSupplierName())
             .supplierCode(item.getSupplierCode())
             .costPrice(item.getCostPrice())
+            .averageCost(averageCost(item))
             .lastRestockDate(item.getLastRestockDate() != null ? 
                 item.getLastRestockDate().toLocalDateTime() : null)
             .lastStockCheck(item.getLastStockCheck() != null ? 
@@ -402,10 +680,70 @@ public class InventoryServiceImpl implements InventoryService {
             .build();
     }
     
-    private InventoryResponse buildInventoryResponseFromTransaction(InventoryTransactionEntity transaction) {
-        ItemEntity item = getItemById(transaction.getItemId());
-        return buildInventoryResponse(item, transaction, 
-            transaction.getPreviousQuantity(), transaction.getNewQuantity());
+    /**
+     * Maps one page of ledger rows (fetched with one extra row to detect more) and loads the
+     * referenced items with a single IN query instead of one lookup per row.
+     */
+    private CursorPage<InventoryResponse> toCursorPage(List<InventoryTransactionEntity> rows, int pageSize) {
+        boolean hasMore = rows.size() > pageSize;
+        List<InventoryTransactionEntity> page = hasMore ? rows.subList(0, pageSize) : rows;
+        Map<String, ItemEntity> items = findItems(page);
+        InventoryTransactionEntity last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CursorPage.<InventoryResponse>builder()
+            .content(page.stream()
+                .map(tx -> buildInventoryResponseFromTransaction(tx, items.get(tx.getItemId())))
+                .collect(Collectors.toList()))
+            .hasMore(hasMore)
+            .nextCursor(hasMore ? KeysetCursor.encode(last.getCreatedAt(), last.getId()) : null)
+            .build();
+    }
+    
+    private Map<String, ItemEntity> findItems(List<InventoryTransactionEntity> transactions) {
+        Set<String> itemIds = transactions.stream()
+            .map(InventoryTransactionEntity::getItemId)
+            .collect(Collectors.toSet());
+        if (itemIds.isEmpty()) {
+            return Map.of();
+        }
+        return itemRepository.findByItemIdIn(itemIds).stream()
+            .collect(Collectors.toMap(ItemEntity::getItemId, item -> item, (a, b) -> a));
+    }
+    
+    private InventoryResponse buildInventoryResponseFromTransaction(InventoryTransactionEntity transaction, ItemEntity item) {
+        if (item != null) {
+            return buildInventoryResponse(item, transaction,
+                transaction.getPreviousQuantity(), transaction.getNewQuantity());
+        }
+        // The item was deleted since; the ledger row is still history
+        return InventoryResponse.builder()
+            .itemId(transaction.getItemId())
+            .previousStock(transaction.getPreviousQuantity())
+            .newStock(transaction.getNewQuantity())
+            .unitPrice(transaction.getUnitPrice())
+            .totalValue(transaction.getTotalValue())
+            .unitCost(transaction.getUnitCost())
+            .transactionType(transaction.getTransactionType().name())
+            .transactionId(transaction.getTransactionId())
+            .referenceNumber(transaction.getReferenceNumber())
+            .referenceType(transaction.getReferenceType())
+            .notes(transaction.getNotes())
+            .createdBy(transaction.getCreatedBy())
+            .createdAt(transaction.getCreatedAt())
+            .build();
+    }
+    
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+    
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
     }
     
     private InventoryResponse buildInventoryResponseFromAlert(InventoryAlertEntity alert) {
@@ -413,15 +751,18 @@ public class InventoryServiceImpl implements InventoryService {
         return buildInventoryResponse(item, null, item.getStockQuantity(), item.getStockQuantity());
     }
     
-    private String determineStockStatus(ItemEntity item) {
-        if (item.getStockQuantity() <= 0) {
+    private String determineStockStatus(ItemEntity item, int stock) {
+        if (stock <= 0) {
             return "OUT_OF_STOCK";
-        } else if (item.getStockQuantity() <= item.getReorderPoint()) {
+        } else if (stock <= item.getReorderPoint()) {
             return "LOW_STOCK";
-        } else if (item.getStockQuantity() > item.getMaxStockLevel()) {
+        } else if (stock > item.getMaxStockLevel()) {
             return "OVERSTOCK";
         } else {
             return "NORMAL";
         }
     }
+    
+    private record StockMovement(String referenceNumber, LocalDateTime createdAt, SortedMap<String, Integer> deltas) {
+    }
 }
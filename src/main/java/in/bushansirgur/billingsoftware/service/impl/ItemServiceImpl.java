@@ -1,20 +1,29 @@
 package in.bushansirgur.billingsoftware.service.impl;
 
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
 import in.bushansirgur.billingsoftware.entity.CategoryEntity;
 import in.bushansirgur.billingsoftware.entity.ItemEntity;
 import in.bushansirgur.billingsoftware.io.ItemRequest;
 import in.bushansirgur.billingsoftware.io.ItemResponse;
 import in.bushansirgur.billingsoftware.repository.CategoryRepository;
 import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.service.BarcodeIndex;
+import in.bushansirgur.billingsoftware.service.CatalogChangeLog;
 import in.bushansirgur.billingsoftware.service.FileUploadService;
+import in.bushansirgur.billingsoftware.service.InventoryService;
+import in.bushansirgur.billingsoftware.service.InventorySummaryState;
 import in.bushansirgur.billingsoftware.service.ItemService;
+import in.bushansirgur.billingsoftware.service.PricingService;
+import in.bushansirgur.billingsoftware.service.StockCounters;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -27,8 +36,15 @@ public class ItemServiceImpl implements ItemService {
     private final CategoryRepository categoryRepository;
     private final ItemRepository itemRepository;
     private final FileUploadService fileUploadService;
+    private final InventorySummaryState inventorySummaryState;
+    private final BarcodeIndex barcodeIndex;
+    private final PricingService pricingService;
+    private final CatalogChangeLog catalogChangeLog;
+    private final StockCounters stockCounters;
+    private final InventoryService inventoryService;
 
     @Override
+    @Transactional
     public ItemResponse add(ItemRequest request, MultipartFile file) throws IOException {
         // Check if barcode already exists
         if (request.getBarcode() != null && !request.getBarcode().trim().isEmpty()) {
@@ -51,6 +67,11 @@ public class ItemServiceImpl implements ItemService {
         newItem.setCategory(existingCategory);
         newItem.setImgUrl(imgUrl);
         newItem = itemRepository.save(newItem);
+        inventoryService.recordOpeningStock(newItem.getItemId(), newItem.getStockQuantity(), "ITEM");
+        stockCounters.evictAfterCommit(List.of(newItem.getItemId()));
+        inventorySummaryState.recordItemAfterCommit(newItem);
+        barcodeIndex.refreshAfterCommit(newItem.getItemId());
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, newItem.getItemId());
         return convertToResponse(newItem);
     }
 
@@ -69,6 +90,7 @@ public class ItemServiceImpl implements ItemService {
             itemId = java.util.UUID.randomUUID().toString();
             newItem.setItemId(itemId);
             itemRepository.save(newItem); // Save the generated itemId
+            catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, itemId);
         }
         
         return ItemResponse.builder()
@@ -146,25 +168,10 @@ public class ItemServiceImpl implements ItemService {
 
     @Override
     public List<ItemResponse> fetchItems() {
-        System.out.println("=== ItemServiceImpl.fetchItems called ===");
-        List<ItemEntity> allItems = itemRepository.findAll();
-        System.out.println("Total items in database: " + allItems.size());
-        
-        return allItems.stream()
-                .map(itemEntity -> {
-                    System.out.println("Processing item: " + itemEntity.getName() + 
-                                     " (ID: " + itemEntity.getId() + 
-                                     ", itemId: " + itemEntity.getItemId() + ")");
-                    
-                    // Ensure itemId exists for all items
-                    if (itemEntity.getItemId() == null || itemEntity.getItemId().trim().isEmpty()) {
-                        String newItemId = java.util.UUID.randomUUID().toString();
-                        System.out.println("Generating new itemId for " + itemEntity.getName() + ": " + newItemId);
-                        itemEntity.setItemId(newItemId);
-                        itemRepository.save(itemEntity);
-                    }
-                    return convertToResponse(itemEntity);
-                })
+        // convertToResponse still assigns an itemId to legacy items
+        return itemRepository.findAll()
+                .stream()
+                .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
@@ -172,7 +179,9 @@ public class ItemServiceImpl implements ItemService {
     public ItemResponse findItemByBarcode(String barcode) {
         ItemEntity item = itemRepository.findByBarcode(barcode)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found with barcode: " + barcode));
-        return convertToResponse(item);
+        ItemResponse response = convertToResponse(item);
+        response.setEffectivePrice(pricingService.getEffectivePrice(item.getId()));
+        return response;
     }
 
     @Override
@@ -184,6 +193,15 @@ public class ItemServiceImpl implements ItemService {
     }
 
     @Override
+    public List<ItemResponse> findItemsByItemIds(Collection<String> itemIds) {
+        return itemRepository.findWithCategoryByItemIdIn(itemIds)
+                .stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
     public ItemResponse update(String itemId, ItemRequest request, MultipartFile file) throws IOException {
         ItemEntity existingItem = itemRepository.findByItemId(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found: " + itemId));
@@ -218,6 +236,9 @@ public class ItemServiceImpl implements ItemService {
         // Keep existing image if no new image is provided
 
         ItemEntity updatedItem = itemRepository.save(existingItem);
+        inventorySummaryState.recordItemAfterCommit(updatedItem);
+        barcodeIndex.refreshAfterCommit(updatedItem.getItemId());
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, updatedItem.getItemId());
         return convertToResponse(updatedItem);
     }
 
@@ -252,6 +273,7 @@ public class ItemServiceImpl implements ItemService {
     }
 
     @Override
+    @Transactional
     public void deleteItem(String itemId) {
         ItemEntity existingItem = itemRepository.findByItemId(itemId)
                 .orElseThrow(() -> new RuntimeException("Item not found: "+itemId));
@@ -261,9 +283,14 @@ public class ItemServiceImpl implements ItemService {
             fileUploadService.deleteFile(existingItem.getImgUrl());
         }
         itemRepository.delete(existingItem);
+        stockCounters.evictAfterCommit(List.of(itemId));
+        inventorySummaryState.removeItemAfterCommit(itemId);
+        barcodeIndex.refreshAfterCommit(itemId);
+        catalogChangeLog.recordDeleted(CatalogChangeEntity.EntityType.ITEM, itemId);
     }
     
     @Override
+    @Transactional
     public void generateMissingItemIds() {
         List<ItemEntity> itemsWithoutId = itemRepository.findAll()
                 .stream()
@@ -273,6 +300,9 @@ public class ItemServiceImpl implements ItemService {
         for (ItemEntity item : itemsWithoutId) {
             item.setItemId(java.util.UUID.randomUUID().toString());
             itemRepository.save(item);
+            inventorySummaryState.recordItemAfterCommit(item);
+            barcodeIndex.refreshAfterCommit(item.getItemId());
+            catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, item.getItemId());
         }
     }
     
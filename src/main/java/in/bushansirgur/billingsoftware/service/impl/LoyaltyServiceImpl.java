@@ -8,6 +8,7 @@ import in.bushansirgur.billingsoftware.repository.CustomerRepository;
 import in.bushansirgur.billingsoftware.repository.PromotionRuleRepository;
 import in.bushansirgur.billingsoftware.repository.LoyaltyTransactionRepository;
 import in.bushansirgur.billingsoftware.service.LoyaltyService;
+import in.bushansirgur.billingsoftware.util.Money;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -16,7 +17,6 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -261,82 +261,96 @@ public class LoyaltyServiceImpl implements LoyaltyService {
                     .collect(Collectors.toList());
         }
 
-        // Calculate discounts
+        // Calculate discounts in cents; rule values are converted once, not per cart line
         List<DiscountCalculationResponse.AppliedDiscount> appliedDiscounts = new ArrayList<>();
-        BigDecimal totalDiscount = BigDecimal.ZERO;
+        long totalDiscountCents = 0;
         List<String> applicablePromotions = new ArrayList<>();
+        long[] ruleValues = new long[activeRules.size()];
+        for (int r = 0; r < ruleValues.length; r++) {
+            ruleValues[r] = ruleValue(activeRules.get(r));
+        }
 
         for (DiscountCalculationRequest.CartItem cartItem : request.getCartItems()) {
-            for (PromotionRuleEntity rule : activeRules) {
-                DiscountCalculationResponse.AppliedDiscount discount = calculateItemDiscount(cartItem, rule, customer);
-                if (discount != null && discount.getDiscountAmount().compareTo(BigDecimal.ZERO) > 0) {
-                    appliedDiscounts.add(discount);
-                    totalDiscount = totalDiscount.add(discount.getDiscountAmount());
+            long priceCents = Money.of(cartItem.getPrice()).getCents();
+            for (int r = 0; r < ruleValues.length; r++) {
+                PromotionRuleEntity rule = activeRules.get(r);
+                long discountCents = calculateItemDiscount(cartItem, priceCents, rule, ruleValues[r]);
+                if (discountCents > 0) {
+                    appliedDiscounts.add(appliedDiscount(cartItem, priceCents, rule, discountCents));
+                    totalDiscountCents = Math.addExact(totalDiscountCents, discountCents);
                     applicablePromotions.add(rule.getName());
                 }
             }
         }
 
-        BigDecimal finalAmount = request.getSubtotal().subtract(totalDiscount);
+        Money totalDiscount = Money.ofCents(totalDiscountCents);
+        Money finalAmount = Money.of(request.getSubtotal()).minus(totalDiscount);
 
         return DiscountCalculationResponse.builder()
                 .customerId(customer != null ? customer.getCustomerId() : null)
                 .customerName(customer != null ? customer.getFirstName() + " " + customer.getLastName() : null)
                 .customerLoyaltyPoints(customer != null ? customer.getLoyaltyPoints() : 0)
                 .originalSubtotal(request.getSubtotal())
-                .totalDiscount(totalDiscount)
-                .finalAmount(finalAmount)
+                .totalDiscount(totalDiscount.toBigDecimal())
+                .finalAmount(finalAmount.toBigDecimal())
                 .appliedDiscounts(appliedDiscounts)
                 .applicablePromotions(applicablePromotions)
                 .build();
     }
 
-    private DiscountCalculationResponse.AppliedDiscount calculateItemDiscount(
-            DiscountCalculationRequest.CartItem cartItem, 
-            PromotionRuleEntity rule, 
-            CustomerEntity customer) {
-        
+    /**
+     * A rule's value as used by the cart loop: basis points for percentages, cents for fixed amounts.
+     */
+    private static long ruleValue(PromotionRuleEntity rule) {
+        if (rule.getDiscountType() == PromotionRuleEntity.DiscountType.PERCENTAGE) {
+            // Rule values are fractions (0.15 = 15%)
+            return Money.basisPoints(rule.getDiscountValue());
+        }
+        if (rule.getDiscountType() == PromotionRuleEntity.DiscountType.FIXED_AMOUNT) {
+            return Money.of(rule.getDiscountValue()).getCents();
+        }
+        return 0;
+    }
+
+    private long calculateItemDiscount(DiscountCalculationRequest.CartItem cartItem,
+                                       long priceCents,
+                                       PromotionRuleEntity rule,
+                                       long ruleValue) {
         // Check if rule applies to this item
         if (!isRuleApplicableToItem(cartItem, rule)) {
-            return null;
+            return 0;
         }
 
-        BigDecimal originalPrice = cartItem.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-        BigDecimal discountAmount = BigDecimal.ZERO;
-
         switch (rule.getRuleType()) {
             case PRODUCT:
-                discountAmount = calculateProductDiscount(cartItem, rule);
-                break;
+                return calculateProductDiscount(cartItem, priceCents, rule, ruleValue);
             case CATEGORY:
-                discountAmount = calculateCategoryDiscount(cartItem, rule);
-                break;
+                return calculateCategoryDiscount(cartItem, priceCents, rule, ruleValue);
             case QUANTITY:
-                discountAmount = calculateQuantityDiscount(cartItem, rule);
-                break;
-            case AMOUNT:
+                return calculateQuantityDiscount(cartItem, priceCents, rule);
+            default:
                 // Amount-based discounts are calculated at cart level, not item level
-                return null;
-        }
-
-        if (discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal finalPrice = originalPrice.subtract(discountAmount);
-            
-            return DiscountCalculationResponse.AppliedDiscount.builder()
-                    .ruleId(rule.getRuleId())
-                    .ruleName(rule.getName())
-                    .ruleType(rule.getRuleType().toString())
-                    .itemId(cartItem.getItemId())
-                    .itemName(cartItem.getItemName())
-                    .quantity(cartItem.getQuantity())
-                    .originalPrice(originalPrice)
-                    .discountAmount(discountAmount)
-                    .finalPrice(finalPrice)
-                    .description(generateDiscountDescription(rule))
-                    .build();
+                return 0;
         }
+    }
 
-        return null;
+    private DiscountCalculationResponse.AppliedDiscount appliedDiscount(DiscountCalculationRequest.CartItem cartItem,
+                                                                        long priceCents,
+                                                                        PromotionRuleEntity rule,
+                                                                        long discountCents) {
+        long originalCents = Math.multiplyExact(priceCents, (long) cartItem.getQuantity());
+        return DiscountCalculationResponse.AppliedDiscount.builder()
+                .ruleId(rule.getRuleId())
+                .ruleName(rule.getName())
+                .ruleType(rule.getRuleType().toString())
+                .itemId(cartItem.getItemId())
+                .itemName(cartItem.getItemName())
+                .quantity(cartItem.getQuantity())
+                .originalPrice(BigDecimal.valueOf(originalCents, 2))
+                .discountAmount(BigDecimal.valueOf(discountCents, 2))
+                .finalPrice(BigDecimal.valueOf(originalCents - discountCents, 2))
+                .description(generateDiscountDescription(rule))
+                .build();
     }
 
     private boolean isRuleApplicableToItem(DiscountCalculationRequest.CartItem cartItem, PromotionRuleEntity rule) {
@@ -353,35 +367,36 @@ public class LoyaltyServiceImpl implements LoyaltyService {
         }
     }
 
-    private BigDecimal calculateProductDiscount(DiscountCalculationRequest.CartItem cartItem, PromotionRuleEntity rule) {
-        BigDecimal itemTotal = cartItem.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-        
+    private long calculateProductDiscount(DiscountCalculationRequest.CartItem cartItem, long priceCents,
+                                          PromotionRuleEntity rule, long ruleValue) {
+        long itemTotal = Math.multiplyExact(priceCents, (long) cartItem.getQuantity());
+
         switch (rule.getDiscountType()) {
             case PERCENTAGE:
-                return itemTotal.multiply(rule.getDiscountValue()).setScale(2, RoundingMode.HALF_UP);
+                return Money.percentOfCents(itemTotal, ruleValue);
             case FIXED_AMOUNT:
-                return rule.getDiscountValue().min(itemTotal);
+                return Math.min(ruleValue, itemTotal);
             default:
-                return BigDecimal.ZERO;
+                return 0;
         }
     }
 
-    private BigDecimal calculateCategoryDiscount(DiscountCalculationRequest.CartItem cartItem, PromotionRuleEntity rule) {
-        return calculateProductDiscount(cartItem, rule);
+    private long calculateCategoryDiscount(DiscountCalculationRequest.CartItem cartItem, long priceCents,
+                                           PromotionRuleEntity rule, long ruleValue) {
+        return calculateProductDiscount(cartItem, priceCents, rule, ruleValue);
     }
 
-    private BigDecimal calculateQuantityDiscount(DiscountCalculationRequest.CartItem cartItem, PromotionRuleEntity rule) {
+    private long calculateQuantityDiscount(DiscountCalculationRequest.CartItem cartItem, long priceCents,
+                                           PromotionRuleEntity rule) {
         if (rule.getDiscountType() == PromotionRuleEntity.DiscountType.BUY_X_GET_Y) {
             int buyQuantity = rule.getBuyQuantity();
             int getQuantity = rule.getGetQuantity();
             int itemQuantity = cartItem.getQuantity();
             
             int freeItems = (itemQuantity / buyQuantity) * getQuantity;
-            BigDecimal freeAmount = cartItem.getPrice().multiply(BigDecimal.valueOf(freeItems));
-            
-            return freeAmount;
+            return Math.multiplyExact(priceCents, (long) freeItems);
         }
-        return BigDecimal.ZERO;
+        return 0;
     }
 
     private String generateDiscountDescription(PromotionRuleEntity rule) {
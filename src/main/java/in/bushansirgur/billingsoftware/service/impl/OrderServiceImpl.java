@@ -2,41 +2,307 @@ package in.bushansirgur.billingsoftware.service.impl;
 
 import in.bushansirgur.billingsoftware.entity.OrderEntity;
 import in.bushansirgur.billingsoftware.entity.OrderItemEntity;
+import in.bushansirgur.billingsoftware.entity.RefundLineEntity;
 import in.bushansirgur.billingsoftware.io.*;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.OrderBatchRepository;
 import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import in.bushansirgur.billingsoftware.repository.RefundLineRepository;
+import in.bushansirgur.billingsoftware.repository.UserRepository;
 import in.bushansirgur.billingsoftware.service.CashDrawerSessionService;
 import in.bushansirgur.billingsoftware.service.InventoryService;
 import in.bushansirgur.billingsoftware.service.OrderService;
+import in.bushansirgur.billingsoftware.service.OrderSideEffects;
+import in.bushansirgur.billingsoftware.service.OutboxDispatcher;
 import in.bushansirgur.billingsoftware.service.PosPaymentService;
+import in.bushansirgur.billingsoftware.service.SalesAggregator;
+import in.bushansirgur.billingsoftware.service.SalesRollupService;
 import in.bushansirgur.billingsoftware.io.PosPaymentIO;
+import in.bushansirgur.billingsoftware.util.KeysetCursor;
+import in.bushansirgur.billingsoftware.util.Money;
+import in.bushansirgur.billingsoftware.util.OrderIdGenerator;
+import in.bushansirgur.billingsoftware.util.OrderIdempotencyCache;
+import in.bushansirgur.billingsoftware.util.OrderSearchTerms;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class OrderServiceImpl implements OrderService {
-    
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+
     private final OrderEntityRepository orderEntityRepository; 
     private final InventoryService inventoryService;
     private final PosPaymentService posPaymentService;
     private final CashDrawerSessionService cashDrawerSessionService;
+    private final OrderIdGenerator orderIdGenerator;
+    private final SalesAggregator salesAggregator;
+    private final SalesRollupService salesRollupService;
+    private final OrderIdempotencyCache orderIdempotencyCache;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderBatchRepository orderBatchRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final OutboxDispatcher outboxDispatcher;
+    private final OrderSideEffects orderSideEffects;
+    private final RefundLineRepository refundLineRepository;
+
+    @Value("${orders.batch.max-size:1000}")
+    private int maxBatchSize;
 
     @Override
-    @Transactional
     public OrderResponse createOrder(OrderRequest request) {
+        return createOrder(request, null);
+    }
+
+    @Override
+    public OrderResponse createOrder(OrderRequest request, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return transactionTemplate.execute(status -> placeOrder(request, null));
+        }
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
+        OrderResponse previous = findIdempotentResponse(key);
+        if (previous != null) {
+            return previous;
+        }
+        OrderResponse created;
+        try {
+            created = transactionTemplate.execute(status -> placeOrder(request, key));
+        } catch (DataIntegrityViolationException ex) {
+            // A concurrent retry with the same key committed first
+            previous = findIdempotentResponse(key);
+            if (previous == null) {
+                throw ex;
+            }
+            return previous;
+        }
+        orderIdempotencyCache.put(key, created);
+        return created;
+    }
+
+    @Override
+    public OrderBatchResponse createOrders(OrderBatchRequest request) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required to sync orders");
+        }
+        List<OrderBatchRequest.OfflineOrder> orders = request.getOrders() != null ? request.getOrders() : List.of();
+        if (orders.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No orders to sync");
+        }
+        if (orders.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " orders can be synced per request");
+        }
+        try {
+            boolean admin = auth.getAuthorities().stream()
+                    .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+            return transactionTemplate.execute(status -> ingestOrders(orders, auth.getName(), admin));
+        } catch (DataIntegrityViolationException ex) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Some orders of this batch were stored concurrently, send the batch again");
+        }
+    }
+
+    /**
+     * Stores the valid orders of a register sync. Each order keeps its own sale time, which also dates
+     * its ledger and rollup rows. Orders are booked to the syncing user; only an admin may sync orders
+     * of another cashier.
+     */
+    private OrderBatchResponse ingestOrders(List<OrderBatchRequest.OfflineOrder> orders, String syncingUser, boolean admin) {
+        // One lookup each for keys already stored, known items and known cashiers
+        Set<String> keys = new HashSet<>();
+        Set<String> itemIds = new HashSet<>();
+        Set<String> cashiers = new HashSet<>();
+        for (OrderBatchRequest.OfflineOrder offline : orders) {
+            if (offline == null) continue;
+            if (offline.getIdempotencyKey() != null && !offline.getIdempotencyKey().isBlank()) {
+                keys.add(offline.getIdempotencyKey().trim());
+            }
+            if (offline.getCashierUsername() != null && !offline.getCashierUsername().isBlank()) {
+                cashiers.add(offline.getCashierUsername());
+            }
+            if (offline.getOrder() != null && offline.getOrder().getCartItems() != null) {
+                offline.getOrder().getCartItems().stream()
+                        .filter(line -> line != null && line.getItemId() != null)
+                        .forEach(line -> itemIds.add(line.getItemId()));
+            }
+        }
+        Map<String, String> orderIdsByKey = new HashMap<>();
+        if (!keys.isEmpty()) {
+            orderEntityRepository.findOrderIdsByIdempotencyKeys(keys)
+                    .forEach(row -> orderIdsByKey.put((String) row[0], (String) row[1]));
+        }
+        Set<String> knownItems = itemIds.isEmpty() ? Set.of() : new HashSet<>(itemRepository.findExistingItemIds(itemIds));
+        Set<String> knownCashiers = cashiers.isEmpty() ? Set.of() : new HashSet<>(userRepository.findExistingEmails(cashiers));
+
+        LocalDateTime latestAllowed = LocalDateTime.now().plusMinutes(5);
+        List<OrderBatchResponse.Result> results = new ArrayList<>(orders.size());
+        List<OrderEntity> accepted = new ArrayList<>();
+        List<SaleMovement> sales = new ArrayList<>();
+        int duplicates = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            OrderBatchRequest.OfflineOrder offline = orders.get(i);
+            String key = offline != null && offline.getIdempotencyKey() != null && !offline.getIdempotencyKey().isBlank()
+                    ? offline.getIdempotencyKey().trim() : null;
+            OrderBatchResponse.Result.ResultBuilder result = OrderBatchResponse.Result.builder().index(i).idempotencyKey(key);
+
+            if (key != null && orderIdsByKey.containsKey(key)) {
+                results.add(result.status(OrderBatchResponse.Status.DUPLICATE).orderId(orderIdsByKey.get(key)).build());
+                duplicates++;
+                continue;
+            }
+            String error = validateOfflineOrder(offline, key, knownItems, knownCashiers, syncingUser, admin, latestAllowed);
+            if (error != null) {
+                results.add(result.status(OrderBatchResponse.Status.REJECTED).message(error).build());
+                continue;
+            }
+
+            OrderEntity order = convertToOrderEntity(offline.getOrder());
+            order.setCreatedAt(offline.getCreatedAt() != null ? offline.getCreatedAt() : LocalDateTime.now());
+            order.setCashierUsername(offline.getCashierUsername() != null && !offline.getCashierUsername().isBlank()
+                    ? offline.getCashierUsername() : syncingUser);
+            order.setStatus(OrderStatus.COMPLETED);
+            order.setIdempotencyKey(key);
+            order.setCustomerNameSearch(OrderSearchTerms.normalizeName(order.getCustomerName()));
+            order.setPhoneDigits(OrderSearchTerms.digitsOnly(order.getPhoneNumber()));
+            order.setPaymentDetails(buildPaymentDetails(order.getPaymentMethod(), offline.getOrder()));
+            order.setItems(offline.getOrder().getCartItems().stream()
+                    .map(this::convertToOrderItemEntity)
+                    .collect(Collectors.toList()));
+            Map<String, Integer> quantitiesByItemId = new TreeMap<>();
+            offline.getOrder().getCartItems()
+                    .forEach(line -> quantitiesByItemId.merge(line.getItemId(), line.getQuantity(), Integer::sum));
+            sales.add(SaleMovement.builder()
+                    .orderId(order.getOrderId())
+                    .soldAt(order.getCreatedAt())
+                    .quantitiesByItemId(quantitiesByItemId)
+                    .build());
+            accepted.add(order);
+            if (key != null) {
+                orderIdsByKey.put(key, order.getOrderId());
+            }
+            results.add(result.status(OrderBatchResponse.Status.CREATED).orderId(order.getOrderId()).build());
+        }
+
+        orderBatchRepository.insertOrders(accepted);
+        if (!sales.isEmpty()) {
+            inventoryService.processSaleTransactions(sales);
+        }
+        salesRollupService.recordOrders(accepted);
+        accepted.forEach(salesAggregator::recordAfterCommit);
+
+        return OrderBatchResponse.builder()
+                .created(accepted.size())
+                .duplicates(duplicates)
+                .rejected(orders.size() - accepted.size() - duplicates)
+                .results(results)
+                .build();
+    }
+
+    private String validateOfflineOrder(OrderBatchRequest.OfflineOrder offline, String key, Set<String> knownItems,
+                                        Set<String> knownCashiers, String syncingUser, boolean admin,
+                                        LocalDateTime latestAllowed) {
+        if (offline == null || offline.getOrder() == null) {
+            return "Order is required";
+        }
+        OrderRequest order = offline.getOrder();
+        if (key != null && key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return "Idempotency key must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters";
+        }
+        if (offline.getCreatedAt() != null && offline.getCreatedAt().isAfter(latestAllowed)) {
+            return "Sale time is in the future";
+        }
+        String cashier = offline.getCashierUsername();
+        if (cashier != null && !cashier.isBlank() && !cashier.equals(syncingUser)) {
+            if (!admin) {
+                return "Only an admin can sync orders of another cashier";
+            }
+            if (!knownCashiers.contains(cashier)) {
+                return "Unknown cashier: " + cashier;
+            }
+        }
+        if (order.getGrandTotal() == null) {
+            return "Grand total is required";
+        }
+        try {
+            PaymentMethod.valueOf(order.getPaymentMethod());
+        } catch (IllegalArgumentException | NullPointerException ex) {
+            return "Unknown payment method: " + order.getPaymentMethod();
+        }
+        if (order.getCartItems() == null || order.getCartItems().isEmpty()) {
+            return "Cart is empty";
+        }
+        for (OrderRequest.OrderItemRequest line : order.getCartItems()) {
+            if (line == null || line.getItemId() == null) {
+                return "Item id is required";
+            }
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                return "Quantity must be greater than 0 for item " + line.getItemId();
+            }
+            if (!knownItems.contains(line.getItemId())) {
+                return "Unknown item: " + line.getItemId();
+            }
+        }
+        return null;
+    }
+
+    private OrderResponse findIdempotentResponse(String key) {
+        OrderResponse previous = orderIdempotencyCache.get(key);
+        if (previous == null) {
+            previous = orderEntityRepository.findWithItemsByIdempotencyKey(key)
+                    .map(this::convertToResponse)
+                    .orElse(null);
+            if (previous == null) {
+                return null;
+            }
+            orderIdempotencyCache.put(key, previous);
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && previous.getCashierUsername() != null && !previous.getCashierUsername().equals(auth.getName())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Idempotency-Key was already used by another cashier");
+        }
+        return previous;
+    }
+
+    private OrderResponse placeOrder(OrderRequest request, String idempotencyKey) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated() || "anonymousUser".equals(auth.getName())) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Authentication required to create an order");
@@ -53,131 +319,314 @@ public class OrderServiceImpl implements OrderService {
             throw ex;
         }
 
-        OrderEntity newOrder = convertToOrderEntity(request);
-
-        PaymentDetails paymentDetails = new PaymentDetails();
-        paymentDetails.setStatus(newOrder.getPaymentMethod() == PaymentMethod.CASH ?
-                PaymentDetails.PaymentStatus.COMPLETED : PaymentDetails.PaymentStatus.PENDING);
-        if (newOrder.getPaymentMethod() == PaymentMethod.SPLIT) {
-            paymentDetails.setCashAmount(request.getCashAmount());
-            paymentDetails.setCardAmount(request.getCardAmount());
+        // The same checks the stock update makes, so an order the outbox worker would reject is never committed
+        Map<String, Integer> quantitiesByItemId = new TreeMap<>();
+        for (OrderRequest.OrderItemRequest line : request.getCartItems()) {
+            if (line == null || line.getItemId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Item id is required");
+            }
+            if (line.getQuantity() == null || line.getQuantity() <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than 0");
+            }
+            quantitiesByItemId.merge(line.getItemId(), line.getQuantity(), Integer::sum);
+        }
+        if (outboxDispatcher.isEnabled()) {
+            // Stock is touched after commit, so unknown items have to be caught here
+            requireItemsExist(quantitiesByItemId.keySet());
         }
-        newOrder.setPaymentDetails(paymentDetails);
+
+        OrderEntity newOrder = convertToOrderEntity(request);
+        newOrder.setPaymentDetails(buildPaymentDetails(newOrder.getPaymentMethod(), request));
         
         List<OrderItemEntity> orderItems = request.getCartItems().stream()
                 .map(this::convertToOrderItemEntity)
                 .collect(Collectors.toList());
         newOrder.setItems(orderItems);
         newOrder.setCashierUsername(cashierUsername);
+        newOrder.setIdempotencyKey(idempotencyKey);
         
-        newOrder = orderEntityRepository.save(newOrder);
+        // Flush right away so a duplicate idempotency key fails before any stock is touched
+        newOrder = orderEntityRepository.saveAndFlush(newOrder);
 
-        for (OrderRequest.OrderItemRequest itemReq : request.getCartItems()) {
-            inventoryService.processSaleTransaction(itemReq.getItemId(), itemReq.getQuantity(), newOrder.getOrderId());
+        OrderPlacedEvent event = OrderPlacedEvent.builder()
+                .orderId(newOrder.getOrderId())
+                .quantitiesByItemId(quantitiesByItemId)
+                .customerId(request.getCustomerId())
+                .loyaltyPoints(request.getLoyaltyPoints())
+                .build();
+        if (outboxDispatcher.isEnabled()) {
+            outboxDispatcher.enqueue(event);
+        } else {
+            orderSideEffects.apply(event, newOrder);
         }
+        salesAggregator.recordAfterCommit(newOrder);
 
         return convertToResponse(newOrder);
     }
 
-    @Override
-    @Transactional
-    public OrderResponse refundOrder(in.bushansirgur.billingsoftware.io.OrderRefundRequest request) {
-        OrderEntity original = orderEntityRepository.findByOrderId(request.getOrderId())
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+    private void requireItemsExist(Set<String> itemIds) {
+        List<String> found = itemRepository.findExistingItemIds(itemIds);
+        if (found.size() != itemIds.size()) {
+            String missing = itemIds.stream()
+                    .filter(id -> !found.contains(id))
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Item not found: " + missing);
+        }
+    }
 
-        // Restock items (partial or full)
-        if (request.getItems() != null && !request.getItems().isEmpty()) {
-            for (in.bushansirgur.billingsoftware.io.OrderRefundRequest.RefundItem ri : request.getItems()) {
-                try {
-                    inventoryService.processPurchaseTransaction(ri.getItemId(), ri.getQuantity(), "REF-" + original.getOrderId());
-                } catch (Exception ex) {
-                    System.err.println("Restock failed for item " + ri.getItemId() + ": " + ex.getMessage());
-                }
+    @Override
+    public OrderResponse refundOrder(OrderRefundRequest request) {
+        OrderEntity refund = transactionTemplate.execute(status -> recordRefund(request));
+        PaymentDetails payment = refund.getPaymentDetails();
+        if (payment != null && payment.getStatus() == PaymentDetails.PaymentStatus.PENDING) {
+            // After commit, so the original order is not locked while the terminal answers
+            settleCardRefund(refund.getOrderId(), request.getReason()).ifPresent(settled -> {
+                payment.setStatus(settled.getStatus());
+                payment.setPosRefundTransactionId(settled.getPosRefundTransactionId());
+            });
+            if (payment.getStatus() == PaymentDetails.PaymentStatus.FAILED) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Card refund declined by provider; refund "
+                        + refund.getOrderId() + " is recorded and has to be paid out another way");
             }
-        } else {
-            // Full refund: restock all
-            original.getItems().forEach(oi -> {
-                try {
-                    inventoryService.processPurchaseTransaction(oi.getItemId(), oi.getQuantity(), "REF-" + original.getOrderId());
-                } catch (Exception ex) {
-                    System.err.println("Restock failed for item " + oi.getItemId() + ": " + ex.getMessage());
+        }
+        return convertToResponse(refund);
+    }
+
+    /**
+     * Retries card refunds left PENDING because the terminal could not be reached. The refund order
+     * id goes along as the provider reference, so a refund that did go through is not paid twice.
+     */
+    @Scheduled(fixedDelayString = "${orders.refunds.reconcile-interval-ms:60000}")
+    public void reconcileCardRefunds() {
+        List<String> pending = orderEntityRepository.findRefundIdsByPaymentStatus(PaymentDetails.PaymentStatus.PENDING,
+                LocalDateTime.now().minusMinutes(1), PageRequest.of(0, 100));
+        for (String refundOrderId : pending) {
+            settleCardRefund(refundOrderId, null).ifPresent(settled -> {
+                if (settled.getStatus() == PaymentDetails.PaymentStatus.FAILED) {
+                    log.warn("Card refund {} was declined on reconciliation", refundOrderId);
                 }
             });
         }
+    }
 
-        // POS refund for card payments (mock/provider controlled in service)
-        if ("CARD".equalsIgnoreCase(request.getRefundMethod())) {
-            try {
-                String originalTxnId = original.getPaymentDetails() != null ? original.getPaymentDetails().getPosTransactionId() : null;
-                Double amount = request.getRefundAmount() != null ? request.getRefundAmount() : original.getGrandTotal();
-                if (originalTxnId != null && amount != null && amount > 0) {
-                    PosPaymentIO.RefundResponse rr = posPaymentService.refund(PosPaymentIO.RefundRequest.builder()
-                            .originalTransactionId(originalTxnId)
-                            .amount(java.math.BigDecimal.valueOf(amount))
-                            .currency("EUR")
-                            .reason(request.getReason())
-                            .build());
-                    if (!"APPROVED".equalsIgnoreCase(rr.getStatus())) {
-                        throw new RuntimeException("Card refund declined by provider");
-                    }
-                    // store refund txn id on original order
-                    if (original.getPaymentDetails() != null) {
-                        original.getPaymentDetails().setPosRefundTransactionId(rr.getRefundTransactionId());
-                        orderEntityRepository.save(original);
-                    }
-                }
-            } catch (Exception ex) {
-                throw new RuntimeException("POS refund failed: " + ex.getMessage(), ex);
+    /**
+     * Sends a PENDING card refund to the terminal and records the answer. Empty when the terminal
+     * could not be reached; the refund stays PENDING for {@link #reconcileCardRefunds()}.
+     */
+    private Optional<PaymentDetails> settleCardRefund(String refundOrderId, String reason) {
+        OrderEntity refund = orderEntityRepository.findByOrderId(refundOrderId).orElseThrow();
+        OrderEntity original = orderEntityRepository.findByOrderId(refund.getOriginalOrderId()).orElseThrow();
+        PosPaymentIO.RefundResponse rr;
+        try {
+            rr = posPaymentService.refund(PosPaymentIO.RefundRequest.builder()
+                    .originalTransactionId(original.getPaymentDetails().getPosTransactionId())
+                    .amount(Money.of(refund.getGrandTotal()).abs().toBigDecimal())
+                    .currency("EUR")
+                    .reason(reason)
+                    .reference(refundOrderId)
+                    .build());
+        } catch (RuntimeException ex) {
+            log.warn("Card refund {} left pending: {}", refundOrderId, ex.getMessage());
+            return Optional.empty();
+        }
+        boolean approved = "APPROVED".equalsIgnoreCase(rr.getStatus());
+        return Optional.ofNullable(transactionTemplate.execute(status -> {
+            OrderEntity locked = orderEntityRepository.findByOrderIdForUpdate(refundOrderId).orElseThrow();
+            PaymentDetails payment = locked.getPaymentDetails();
+            if (payment.getStatus() == PaymentDetails.PaymentStatus.PENDING) {
+                // Otherwise already settled by a concurrent reconciliation run
+                payment.setStatus(approved ? PaymentDetails.PaymentStatus.COMPLETED : PaymentDetails.PaymentStatus.FAILED);
+                payment.setPosRefundTransactionId(rr.getRefundTransactionId());
+                orderEntityRepository.save(locked);
             }
+            return payment;
+        }));
+    }
+
+    private OrderEntity recordRefund(OrderRefundRequest request) {
+        OrderEntity original = orderEntityRepository.findByOrderIdForUpdate(request.getOrderId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found"));
+        if (original.getOriginalOrderId() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A refund cannot be refunded");
         }
 
-        // Mark original as refunded to reflect in UI
-        original.setStatus(in.bushansirgur.billingsoftware.io.OrderStatus.REFUNDED);
-        orderEntityRepository.save(original);
+        Map<Long, Integer> refundedByLine = new HashMap<>();
+        for (Object[] row : refundLineRepository.sumRefundedQuantities(original.getOrderId())) {
+            refundedByLine.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        boolean itemized = request.getItems() != null && !request.getItems().isEmpty();
+        List<RefundLineEntity> refundLines = itemized
+                ? allocateRefundLines(original, request.getItems(), refundedByLine)
+                : remainingRefundLines(original, refundedByLine);
+        if (refundLines.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order is already fully refunded");
+        }
 
-        // Create refund items list (mirror quantities negative for readability)
-        java.util.List<OrderItemEntity> refundItems;
-        if (request.getItems() != null && !request.getItems().isEmpty()) {
-            java.util.Map<String, Integer> itemIdToQty = request.getItems().stream()
-                    .collect(java.util.stream.Collectors.toMap(in.bushansirgur.billingsoftware.io.OrderRefundRequest.RefundItem::getItemId, in.bushansirgur.billingsoftware.io.OrderRefundRequest.RefundItem::getQuantity));
-            refundItems = original.getItems().stream()
-                    .filter(oi -> itemIdToQty.containsKey(oi.getItemId()))
-                    .map(oi -> OrderItemEntity.builder()
-                            .itemId(oi.getItemId())
-                            .name(oi.getName())
-                            .barcode(oi.getBarcode())
-                            .price(oi.getPrice())
-                            .quantity(-Math.abs(itemIdToQty.get(oi.getItemId())))
-                            .build())
-                    .collect(java.util.stream.Collectors.toList());
+        Money grandTotal = Money.of(original.getGrandTotal());
+        // Earlier refunds are stored with negative totals
+        Object[] refunded = orderEntityRepository.sumRefundTotals(original.getOrderId()).get(0);
+        Money refundedSubtotal = Money.ofCents(Money.toCents(((Number) refunded[0]).doubleValue())).abs();
+        Money refundedTax = Money.ofCents(Money.toCents(((Number) refunded[1]).doubleValue())).abs();
+        Money refundable = grandTotal.minus(Money.ofCents(Money.toCents(((Number) refunded[2]).doubleValue())).abs());
+        Money refundAmount;
+        if (request.getRefundAmount() != null) {
+            refundAmount = Money.of(request.getRefundAmount());
+        } else if (!itemized && refundedByLine.isEmpty()) {
+            refundAmount = refundable;
         } else {
-            refundItems = original.getItems().stream()
-                    .map(oi -> OrderItemEntity.builder()
-                            .itemId(oi.getItemId())
-                            .name(oi.getName())
-                            .barcode(oi.getBarcode())
-                            .price(oi.getPrice())
-                            .quantity(-Math.abs(oi.getQuantity()))
-                            .build())
-                    .collect(java.util.stream.Collectors.toList());
-        }
-
-        // Create a refund order record (mirror) for audit
+            refundAmount = refundLines.stream().map(RefundLineEntity::getAmount).reduce(Money.ZERO, Money::plus)
+                    .min(refundable);
+        }
+        if (refundAmount.isNegative() || refundAmount.compareTo(refundable) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Refund amount must be between 0 and " + refundable);
+        }
+
+        Map<String, Integer> restock = new TreeMap<>();
+        refundLines.forEach(line -> restock.merge(line.getItemId(), line.getQuantity(), Integer::sum));
+        inventoryService.processReturnTransactions(restock, "REF-" + original.getOrderId());
+
+        Map<Long, OrderItemEntity> linesById = original.getItems().stream()
+                .collect(Collectors.toMap(OrderItemEntity::getId, line -> line));
+        List<OrderItemEntity> refundItems = refundLines.stream()
+                .map(refundLine -> {
+                    OrderItemEntity line = linesById.get(refundLine.getOrderLineId());
+                    return OrderItemEntity.builder()
+                            .itemId(line.getItemId())
+                            .name(line.getName())
+                            .barcode(line.getBarcode())
+                            .price(line.getPrice())
+                            .quantity(-refundLine.getQuantity())
+                            .build();
+                })
+                .collect(Collectors.toList());
+
+        Money subtotal = Money.of(original.getSubtotal()).abs();
+        Money tax = Money.of(original.getTax()).abs();
+        Money refundSubtotal;
+        Money refundTax;
+        if (refundAmount.equals(refundable)) {
+            // The refund that completes the order takes what is left, so all refunds add up to the order
+            refundSubtotal = subtotal.minus(refundedSubtotal);
+            refundTax = tax.minus(refundedTax);
+        } else {
+            // Tax (and any cart-level adjustment) in proportion to the refunded share; the subtotal is the rest
+            long refundCents = refundAmount.getCents();
+            long grandCents = grandTotal.isZero() ? 1 : grandTotal.getCents();
+            refundTax = tax.ratio(refundCents, grandCents);
+            Money adjustment = grandTotal.minus(subtotal).minus(tax).ratio(refundCents, grandCents);
+            refundSubtotal = refundAmount.minus(refundTax).minus(adjustment);
+        }
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        // Card refunds are recorded PENDING and sent to the terminal once this transaction commits
+        String originalTxnId = original.getPaymentDetails() != null ? original.getPaymentDetails().getPosTransactionId() : null;
+        boolean cardRefund = "CARD".equalsIgnoreCase(request.getRefundMethod()) && originalTxnId != null
+                && refundAmount.isPositive();
         OrderEntity refund = OrderEntity.builder()
+                .orderId(orderIdGenerator.nextId("ORD"))
                 .customerName(original.getCustomerName())
                 .phoneNumber(original.getPhoneNumber())
-                .subtotal(-Math.abs(original.getSubtotal()))
-                .tax(-Math.abs(original.getTax()))
-                .grandTotal(-Math.abs(request.getRefundAmount() != null ? request.getRefundAmount() : original.getGrandTotal()))
+                .subtotal(refundSubtotal.negate().toDouble())
+                .tax(refundTax.negate().toDouble())
+                .grandTotal(refundAmount.abs().negate().toDouble())
                 .paymentMethod(original.getPaymentMethod())
-                .status(in.bushansirgur.billingsoftware.io.OrderStatus.REFUNDED)
+                .status(OrderStatus.REFUNDED)
                 .originalOrderId(original.getOrderId())
-                .cashierUsername(org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication() != null ? org.springframework.security.core.context.SecurityContextHolder.getContext().getAuthentication().getName() : original.getCashierUsername())
+                .cashierUsername(auth != null ? auth.getName() : original.getCashierUsername())
+                .paymentDetails(cardRefund ? PaymentDetails.builder().status(PaymentDetails.PaymentStatus.PENDING).build() : null)
                 .build();
-
         refund.setItems(refundItems);
         refund = orderEntityRepository.save(refund);
-        return convertToResponse(refund);
+        String refundOrderId = refund.getOrderId();
+        refundLines.forEach(line -> line.setRefundOrderId(refundOrderId));
+        refundLineRepository.saveAll(refundLines);
+
+        // Mark original as refunded to reflect in UI
+        original.setStatus(OrderStatus.REFUNDED);
+        orderEntityRepository.save(original);
+
+        salesRollupService.recordOrder(refund);
+        salesAggregator.recordAfterCommit(refund);
+        return refund;
+    }
+
+    /**
+     * Spreads each requested item quantity over the order lines of that item, never past what
+     * is still refundable on a line.
+     */
+    private List<RefundLineEntity> allocateRefundLines(OrderEntity original, List<OrderRefundRequest.RefundItem> items,
+                                                       Map<Long, Integer> refundedByLine) {
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        for (OrderRefundRequest.RefundItem item : items) {
+            if (item == null || item.getItemId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Item id is required");
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Quantity must be greater than 0 for item " + item.getItemId());
+            }
+            requested.merge(item.getItemId(), item.getQuantity(), Integer::sum);
+        }
+
+        List<RefundLineEntity> refundLines = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : requested.entrySet()) {
+            int left = entry.getValue();
+            for (OrderItemEntity line : original.getItems()) {
+                if (left == 0) {
+                    break;
+                }
+                if (!entry.getKey().equals(line.getItemId())) {
+                    continue;
+                }
+                int take = Math.min(left, refundableQuantity(line, refundedByLine));
+                if (take > 0) {
+                    refundLines.add(refundLine(original, line, take));
+                    left -= take;
+                }
+            }
+            if (left > 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot refund " + entry.getValue()
+                        + " of item " + entry.getKey() + ": only " + (entry.getValue() - left) + " left to refund");
+            }
+        }
+        return refundLines;
+    }
+
+    private List<RefundLineEntity> remainingRefundLines(OrderEntity original, Map<Long, Integer> refundedByLine) {
+        List<RefundLineEntity> refundLines = new ArrayList<>();
+        for (OrderItemEntity line : original.getItems()) {
+            int refundable = refundableQuantity(line, refundedByLine);
+            if (refundable > 0) {
+                refundLines.add(refundLine(original, line, refundable));
+            }
+        }
+        return refundLines;
+    }
+
+    private static int refundableQuantity(OrderItemEntity line, Map<Long, Integer> refundedByLine) {
+        int sold = line.getQuantity() != null ? line.getQuantity() : 0;
+        return sold - refundedByLine.getOrDefault(line.getId(), 0);
+    }
+
+    private static RefundLineEntity refundLine(OrderEntity original, OrderItemEntity line, int quantity) {
+        return RefundLineEntity.builder()
+                .originalOrderId(original.getOrderId())
+                .orderLineId(line.getId())
+                .itemId(line.getItemId())
+                .quantity(quantity)
+                .amount(Money.of(line.getPrice()).times(quantity))
+                .build();
+    }
+
+    private PaymentDetails buildPaymentDetails(PaymentMethod paymentMethod, OrderRequest request) {
+        PaymentDetails paymentDetails = new PaymentDetails();
+        paymentDetails.setStatus(paymentMethod == PaymentMethod.CASH ?
+                PaymentDetails.PaymentStatus.COMPLETED : PaymentDetails.PaymentStatus.PENDING);
+        if (paymentMethod == PaymentMethod.SPLIT) {
+            paymentDetails.setCashAmount(request.getCashAmount());
+            paymentDetails.setCardAmount(request.getCardAmount());
+        }
+        return paymentDetails;
     }
 
     private OrderItemEntity convertToOrderItemEntity(OrderRequest.OrderItemRequest orderItemRequest) {
@@ -224,6 +673,7 @@ public class OrderServiceImpl implements OrderService {
 
     private OrderEntity convertToOrderEntity(OrderRequest request) {
         return OrderEntity.builder()
+                .orderId(orderIdGenerator.nextId("ORD"))
                 .customerName(request.getCustomerName())
                 .phoneNumber(request.getPhoneNumber())
                 .subtotal(request.getSubtotal())
@@ -234,21 +684,36 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional
     public void deleteOrder(String orderId) {
         OrderEntity existingOrder = orderEntityRepository.findByOrderId(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
+        salesRollupService.removeOrder(existingOrder);
         orderEntityRepository.delete(existingOrder);
+        salesAggregator.removeAfterCommit(existingOrder);
     }
 
     @Override
-    public List<OrderResponse> getLatestOrders() {
-        return orderEntityRepository.findAllByOrderByCreatedAtDesc()
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getLatestOrders(String cursor, int size) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = clampPageSize(size);
+        List<OrderEntity> rows = position == null
+                ? orderEntityRepository.findLatestOrders(PageRequest.of(0, pageSize + 1))
+                : orderEntityRepository.findLatestOrdersAfter(position.getCreatedAt(), position.getId(),
+                        PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderEntity> page = hasMore ? rows.subList(0, pageSize) : rows;
+        OrderEntity last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CursorPage.<OrderResponse>builder()
+                .content(page.stream().map(this::convertToResponse).collect(Collectors.toList()))
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? KeysetCursor.encode(last.getCreatedAt(), last.getId()) : null)
+                .build();
     }
 
     @Override
+    @Transactional
     public OrderResponse verifyPayment(PaymentVerificationRequest request) {
         OrderEntity existingOrder = orderEntityRepository.findByOrderId(request.getOrderId())
                 .orElseThrow(() -> new RuntimeException("Order not found"));
@@ -272,23 +737,27 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Double sumSalesByDate(LocalDate date) {
-        return orderEntityRepository.sumSalesByDate(date);
+        if (salesAggregator.covers(date)) {
+            return salesAggregator.totalsForDay(date).getTotal();
+        }
+        return orderEntityRepository.sumSalesBetween(date.atStartOfDay(), date.atTime(LocalTime.MAX));
     }
 
     @Override
     public Long countByOrderDate(LocalDate date) {
-        return orderEntityRepository.countByOrderDate(date);
+        if (salesAggregator.covers(date)) {
+            return salesAggregator.totalsForDay(date).getOrderCount();
+        }
+        return orderEntityRepository.countOrdersBetween(date.atStartOfDay(), date.atTime(LocalTime.MAX));
     }
 
     @Override
     public List<OrderResponse> findRecentOrders() {
-        return orderEntityRepository.findRecentOrders(PageRequest.of(0, 5))
-                .stream()
-                .map(orderEntity -> convertToResponse(orderEntity))
-                .collect(Collectors.toList());
+        return salesAggregator.recentOrders(this::convertToResponse);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<OrderResponse> getOrders(Pageable pageable) {
         Page<OrderEntity> page = orderEntityRepository.findAll(pageable);
         List<OrderResponse> content = page.getContent().stream()
@@ -297,20 +766,72 @@ public class OrderServiceImpl implements OrderService {
         return new PageImpl<>(content, pageable, page.getTotalElements());
     }
 
-    public Page<OrderResponse> getOrders(Pageable pageable, String q, LocalDate fromDate, LocalDate toDate) {
-        boolean noFilters = (q == null || q.isBlank()) && fromDate == null && toDate == null;
-        Page<OrderEntity> page = noFilters
-                ? orderEntityRepository.findAll(pageable)
-                : orderEntityRepository.searchOrders(
-                        (q == null || q.isBlank()) ? null : q,
-                        fromDate == null ? null : fromDate.atStartOfDay(),
-                        toDate == null ? null : toDate.atTime(23,59,59),
-                        pageable
-                );
-        List<OrderResponse> content = page.getContent().stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
-        return new PageImpl<>(content, pageable, page.getTotalElements());
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<OrderResponse> getOrders(Pageable pageable, String q, LocalDate fromDate, LocalDate toDate, boolean withTotal) {
+        OrderSearchTerms terms = OrderSearchTerms.of(q);
+        String orderIdPrefix = terms != null ? terms.getOrderIdPrefix() : null;
+        String namePattern = terms != null ? terms.getNamePattern() : null;
+        String phonePrefix = terms != null ? terms.getPhonePrefix() : null;
+        LocalDateTime from = fromDate == null ? null : fromDate.atStartOfDay();
+        LocalDateTime to = toDate == null ? null : toDate.atTime(23,59,59);
+        boolean noFilters = terms == null && fromDate == null && toDate == null;
+        if (withTotal) {
+            Page<OrderEntity> page = noFilters
+                    ? orderEntityRepository.findAll(pageable)
+                    : orderEntityRepository.searchOrders(orderIdPrefix, namePattern, phonePrefix, from, to, pageable);
+            return page.map(this::convertToResponse);
+        }
+        Slice<OrderEntity> slice = noFilters
+                ? orderEntityRepository.findOrderSlice(pageable)
+                : orderEntityRepository.searchOrderSlice(orderIdPrefix, namePattern, phonePrefix, from, to, pageable);
+        return slice.map(this::convertToResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<OrderSummary> getOrderSummaries(OrderSearchRequest search, String cursor, int size, boolean withTotal) {
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        int pageSize = clampPageSize(size);
+        OrderSearchTerms terms = OrderSearchTerms.of(search.getQ());
+        String orderIdPrefix = terms != null ? terms.getOrderIdPrefix() : null;
+        String namePattern = terms != null ? terms.getNamePattern() : null;
+        String phonePrefix = terms != null ? terms.getPhonePrefix() : null;
+        LocalDateTime from = search.getDateFrom() == null ? null : search.getDateFrom().atStartOfDay();
+        LocalDateTime to = search.getDateTo() == null ? null : search.getDateTo().atTime(23,59,59);
+        String originalOrderId = (search.getOriginalOrderId() == null || search.getOriginalOrderId().isBlank())
+                ? null : search.getOriginalOrderId();
+
+        List<OrderSummary> rows = position == null
+                ? orderEntityRepository.searchOrderSummaries(orderIdPrefix, namePattern, phonePrefix, from, to,
+                        search.getStatus(), originalOrderId, PageRequest.of(0, pageSize + 1))
+                : orderEntityRepository.searchOrderSummariesAfter(orderIdPrefix, namePattern, phonePrefix, from, to,
+                        search.getStatus(), originalOrderId, position.getCreatedAt(), position.getId(),
+                        PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummary> page = hasMore ? rows.subList(0, pageSize) : rows;
+        OrderSummary last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return CursorPage.<OrderSummary>builder()
+                .content(page)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? KeysetCursor.encode(last.getCreatedAt(), last.getId()) : null)
+                .totalElements(withTotal
+                        ? orderEntityRepository.countOrderSummaries(orderIdPrefix, namePattern, phonePrefix,
+                                from, to, search.getStatus(), originalOrderId)
+                        : null)
+                .build();
+    }
+
+    private int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OrderResponse getOrder(String orderId) {
+        OrderEntity order = orderEntityRepository.findWithItemsByOrderId(orderId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found: " + orderId));
+        return convertToResponse(order);
     }
 
     private boolean verifyRazorpaySignature(String razorpayOrderId, String razorpayPaymentId, String razorpaySignature) {
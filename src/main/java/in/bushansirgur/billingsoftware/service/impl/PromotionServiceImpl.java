@@ -0,0 +1,66 @@
+package in.bushansirgur.billingsoftware.service.impl;
+
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import in.bushansirgur.billingsoftware.service.BarcodeIndex;
+import in.bushansirgur.billingsoftware.service.CatalogChangeLog;
+import in.bushansirgur.billingsoftware.service.PromotionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+@Service
+@RequiredArgsConstructor
+public class PromotionServiceImpl implements PromotionService {
+
+    private final PromotionRepository promotionRepository;
+    private final ItemRepository itemRepository;
+    private final BarcodeIndex barcodeIndex;
+    private final CatalogChangeLog catalogChangeLog;
+
+    @Override
+    @Transactional
+    public PromotionEntity create(Long itemDbId, String itemId, BigDecimal promoPrice, Timestamp startAt, Timestamp endAt) {
+        ItemEntity item = null;
+        if (itemDbId != null) {
+            item = itemRepository.findById(itemDbId).orElse(null);
+        }
+        if (item == null && itemId != null) {
+            // Fallback: try business itemId (UUID/string)
+            item = itemRepository.findByItemId(itemId).orElse(null);
+        }
+        if (item == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid item reference (itemDbId/itemId)");
+        }
+
+        PromotionEntity promotion = promotionRepository.save(PromotionEntity.builder()
+                .item(item)
+                .promoPrice(promoPrice)
+                .startAt(startAt)
+                .endAt(endAt)
+                .active(true)
+                .build());
+        barcodeIndex.refreshAfterCommit(item.getItemId());
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.PROMOTION, String.valueOf(promotion.getId()));
+        return promotion;
+    }
+
+    @Override
+    @Transactional
+    public void delete(Long id) {
+        PromotionEntity promotion = promotionRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Promotion not found"));
+        String itemId = promotion.getItem().getItemId();
+        promotionRepository.delete(promotion);
+        barcodeIndex.refreshAfterCommit(itemId);
+        catalogChangeLog.recordDeleted(CatalogChangeEntity.EntityType.PROMOTION, String.valueOf(id));
+    }
+}
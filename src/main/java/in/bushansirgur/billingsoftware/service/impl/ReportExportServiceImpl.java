@@ -3,7 +3,11 @@ package in.bushansirgur.billingsoftware.service.impl;
 import in.bushansirgur.billingsoftware.entity.OrderEntity;
 import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
 import in.bushansirgur.billingsoftware.repository.UserRepository;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
 import in.bushansirgur.billingsoftware.service.ReportExportService;
+import in.bushansirgur.billingsoftware.service.SalesRollupService;
+import in.bushansirgur.billingsoftware.util.Money;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 // import org.springframework.scheduling.annotation.Scheduled; // Commented out - scheduled task is disabled
@@ -17,6 +21,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +31,7 @@ public class ReportExportServiceImpl implements ReportExportService {
     private final OrderEntityRepository orderRepository;
     private final UserRepository userRepository;
     private final S3Client s3Client;
+    private final SalesRollupService salesRollupService;
 
     @Value("${reports.s3.bucket}")
     private String reportsBucket;
@@ -90,13 +96,13 @@ public class ReportExportServiceImpl implements ReportExportService {
 
     @Override
     public java.util.List<in.bushansirgur.billingsoftware.io.CashierSummaryResponse> getCashierSummaries(LocalDate from, LocalDate to) {
-        LocalDateTime fromDt = from.atStartOfDay();
-        LocalDateTime toDt = to.atTime(23,59,59);
-        List<Object[]> rows = orderRepository.summarizeByCashier(fromDt, toDt);
-        return rows.stream().map(r -> {
-            String cashierEmail = (String) r[0];
-            Long count = ((Number) r[1]).longValue();
-            Double total = ((Number) r[2]).doubleValue();
+        Map<String, Map<PaymentMethod, SalesTotals>> sales =
+                salesRollupService.summarize(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        return sales.entrySet().stream().map(entry -> {
+            String cashierEmail = entry.getKey();
+            Long count = entry.getValue().values().stream().mapToLong(SalesTotals::getOrderCount).sum();
+            Double total = entry.getValue().values().stream()
+                    .mapToLong(totals -> Money.toCents(totals.getTotal())).sum() / 100.0;
             
             // Try to convert email to display name (same logic as in FiscalReportServiceImpl)
             String displayName = cashierEmail;
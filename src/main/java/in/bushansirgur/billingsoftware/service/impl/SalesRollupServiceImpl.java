@@ -0,0 +1,306 @@
+package in.bushansirgur.billingsoftware.service.impl;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.entity.OrderItemEntity;
+import in.bushansirgur.billingsoftware.entity.SalesRollupEntity;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import in.bushansirgur.billingsoftware.repository.SalesRollupRepository;
+import in.bushansirgur.billingsoftware.service.SalesRollupService;
+import in.bushansirgur.billingsoftware.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@Service
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupServiceImpl implements SalesRollupService, InitializingBean {
+
+    private static final BigDecimal DEFAULT_VAT_RATE = new BigDecimal("0.2000");
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final OrderEntityRepository orderEntityRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * On first start the rollup only holds orders from the next whole hour on; earlier hours are
+     * read from {@code tbl_orders} until a backfill covers them.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        LocalDateTime nextHour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        try {
+            if (salesRollupRepository.createState(nextHour)) {
+                log.info("Sales rollup covers orders from {}; earlier hours are summarized from tbl_orders", nextHour);
+            }
+        } catch (DataIntegrityViolationException ex) {
+            // Another instance recorded it first
+            log.debug("Sales rollup state already created: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void recordOrder(OrderEntity order) {
+        salesRollupRepository.upsert(toDeltas(List.of(order), 1));
+    }
+
+    @Override
+    public void recordOrders(List<OrderEntity> orders) {
+        salesRollupRepository.upsert(toDeltas(orders, 1));
+    }
+
+    @Override
+    public void removeOrder(OrderEntity order) {
+        salesRollupRepository.upsert(toDeltas(List.of(order), -1));
+    }
+
+    @Override
+    public Map<String, Map<PaymentMethod, SalesTotals>> summarize(LocalDateTime from, LocalDateTime to) {
+        Map<String, Map<PaymentMethod, long[]>> sums = new HashMap<>();
+        LocalDateTime firstHour = from.truncatedTo(ChronoUnit.HOURS);
+        if (firstHour.isBefore(from)) {
+            firstHour = firstHour.plusHours(1);
+        }
+        // Hours before the rollup was complete are summed from the orders themselves
+        LocalDateTime coveredFrom = salesRollupRepository.findCoveredFrom();
+        if (coveredFrom == null) {
+            coveredFrom = LocalDateTime.MAX;
+        }
+        if (firstHour.isBefore(coveredFrom)) {
+            firstHour = coveredFrom;
+        }
+        LocalDateTime lastHour = to.truncatedTo(ChronoUnit.HOURS);
+
+        if (firstHour.isBefore(lastHour)) {
+            addRawOrders(sums, from, firstHour);
+            for (SalesRollupEntity row : salesRollupRepository.summarizeByCashierAndMethod(firstHour, lastHour)) {
+                String cashier = row.getCashierUsername().isEmpty() ? null : row.getCashierUsername();
+                PaymentMethod method = row.getPaymentMethod().isEmpty() ? null : PaymentMethod.valueOf(row.getPaymentMethod());
+                add(sums, cashier, method, row.getOrderCount(), toCents(row.getGrossAmount()),
+                        toCents(row.getCashAmount()), toCents(row.getCardAmount()));
+            }
+            addRawOrders(sums, lastHour, to);
+        } else {
+            addRawOrders(sums, from, to);
+        }
+
+        Map<String, Map<PaymentMethod, SalesTotals>> result = new HashMap<>();
+        sums.forEach((cashier, byMethod) -> {
+            Map<PaymentMethod, SalesTotals> totals = new HashMap<>();
+            byMethod.forEach((method, sum) -> totals.put(method, SalesTotals.builder()
+                    .orderCount(sum[0])
+                    .total(sum[1] / 100.0)
+                    .cashAmount(sum[2] / 100.0)
+                    .cardAmount(sum[3] / 100.0)
+                    .build()));
+            result.put(cashier, totals);
+        });
+        return result;
+    }
+
+    @Override
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "dateFrom must not be after dateTo");
+        }
+        if (!to.isBefore(LocalDate.now())) {
+            // Orders of an open day keep arriving while it is rebuilt and would be counted twice or lost
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only closed days can be backfilled; dateTo must be before today");
+        }
+        int processed = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate current = day;
+            Integer orders = transactionTemplate.execute(status -> {
+                salesRollupRepository.deleteDays(current, current);
+                List<OrderEntity> dayOrders = orderEntityRepository.findAllByCreatedAtBetweenOrderByCreatedAtAsc(
+                        current.atStartOfDay(), current.plusDays(1).atStartOfDay().minusNanos(1));
+                salesRollupRepository.upsert(toDeltas(dayOrders, 1));
+                return dayOrders.size();
+            });
+            processed += orders != null ? orders : 0;
+        }
+        salesRollupRepository.extendCoverage(from.atStartOfDay(), to.plusDays(1).atStartOfDay());
+        log.info("Sales rollup rebuilt for {} to {} from {} orders", from, to, processed);
+        return processed;
+    }
+
+    private void addRawOrders(Map<String, Map<PaymentMethod, long[]>> sums, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (Object[] row : orderEntityRepository.summarizeByCashierAndMethod(from, to)) {
+            PaymentMethod method = (PaymentMethod) row[1];
+            long gross = toCents(((Number) row[3]).doubleValue());
+            long[] split = cashAndCard(method, gross, toCents(((Number) row[4]).doubleValue()),
+                    toCents(((Number) row[5]).doubleValue()));
+            add(sums, (String) row[0], method, ((Number) row[2]).longValue(), gross, split[0], split[1]);
+        }
+    }
+
+    private static void add(Map<String, Map<PaymentMethod, long[]>> sums, String cashier, PaymentMethod method,
+                            long count, long gross, long cash, long card) {
+        long[] sum = sums.computeIfAbsent(cashier, k -> new HashMap<>()).computeIfAbsent(method, k -> new long[4]);
+        sum[0] += count;
+        sum[1] += gross;
+        sum[2] += cash;
+        sum[3] += card;
+    }
+
+    /**
+     * Splits each order over the VAT groups of its lines, weighted by line value, and merges the
+     * pieces per rollup key. The result is sorted by key so row locks are always taken in the same order.
+     */
+    private List<SalesRollupEntity> toDeltas(List<OrderEntity> orders, int sign) {
+        Set<String> itemIds = orders.stream()
+                .flatMap(order -> order.getItems().stream())
+                .map(OrderItemEntity::getItemId)
+                .filter(itemId -> itemId != null)
+                .collect(Collectors.toSet());
+        Map<String, BigDecimal> vatRates = salesRollupRepository.findVatRates(itemIds);
+
+        // Amounts are summed as cents and turned into BigDecimal once per rollup row
+        Map<String, Sums> merged = new TreeMap<>();
+        Map<BigDecimal, Long> basisPoints = new HashMap<>();
+        for (OrderEntity order : orders) {
+            if (order.getCreatedAt() == null) {
+                continue;
+            }
+            Map<BigDecimal, Long> weights = new TreeMap<>();
+            for (OrderItemEntity line : order.getItems()) {
+                BigDecimal rate = vatRates.getOrDefault(line.getItemId(), DEFAULT_VAT_RATE);
+                long weight = Math.abs(Math.multiplyExact(toCents(line.getPrice()),
+                        (long) (line.getQuantity() != null ? line.getQuantity() : 0)));
+                weights.merge((rate != null ? rate : DEFAULT_VAT_RATE).setScale(4, RoundingMode.HALF_UP), weight, Long::sum);
+            }
+            long totalWeight = 0;
+            for (long weight : weights.values()) {
+                totalWeight += weight;
+            }
+            if (totalWeight == 0) {
+                weights = Map.of(DEFAULT_VAT_RATE, 1L);
+                totalWeight = 1;
+            }
+            BigDecimal primaryRate = weights.entrySet().stream()
+                    .max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+
+            long gross = sign * toCents(order.getGrandTotal());
+            long[] split = cashAndCard(order.getPaymentMethod(), gross,
+                    sign * toCents(order.getPaymentDetails() != null ? order.getPaymentDetails().getCashAmount() : null),
+                    sign * toCents(order.getPaymentDetails() != null ? order.getPaymentDetails().getCardAmount() : null));
+
+            String cashier = order.getCashierUsername() != null ? order.getCashierUsername() : "";
+            String method = order.getPaymentMethod() != null ? order.getPaymentMethod().name() : "";
+            long grossLeft = gross;
+            long cashLeft = split[0];
+            long cardLeft = split[1];
+            int remaining = weights.size();
+            for (Map.Entry<BigDecimal, Long> group : weights.entrySet()) {
+                remaining--;
+                long weight = group.getValue();
+                long groupGross = remaining == 0 ? grossLeft : share(gross, weight, totalWeight);
+                long groupCash = remaining == 0 ? cashLeft : share(split[0], weight, totalWeight);
+                long groupCard = remaining == 0 ? cardLeft : share(split[1], weight, totalWeight);
+                grossLeft -= groupGross;
+                cashLeft -= groupCash;
+                cardLeft -= groupCard;
+
+                BigDecimal rate = group.getKey();
+                long vat = Money.vatFromGrossCents(groupGross, basisPoints.computeIfAbsent(rate, Money::basisPoints));
+                String key = order.getCreatedAt().toLocalDate() + "|" + String.format("%02d", order.getCreatedAt().getHour())
+                        + "|" + cashier + "|" + method + "|" + rate.toPlainString();
+                Sums sums = merged.computeIfAbsent(key, k -> new Sums(SalesRollupEntity.builder()
+                        .salesDate(order.getCreatedAt().toLocalDate())
+                        .salesHour(order.getCreatedAt().getHour())
+                        .cashierUsername(cashier)
+                        .paymentMethod(method)
+                        .vatRate(rate)
+                        .build()));
+                if (rate.equals(primaryRate)) {
+                    sums.orderCount += sign;
+                }
+                sums.gross += groupGross;
+                sums.vat += vat;
+                sums.cash += groupCash;
+                sums.card += groupCard;
+            }
+        }
+        List<SalesRollupEntity> deltas = new ArrayList<>(merged.size());
+        for (Sums sums : merged.values()) {
+            SalesRollupEntity delta = sums.row;
+            delta.setOrderCount(sums.orderCount);
+            delta.setGrossAmount(BigDecimal.valueOf(sums.gross, 2));
+            delta.setVatAmount(BigDecimal.valueOf(sums.vat, 2));
+            delta.setNetAmount(BigDecimal.valueOf(sums.gross - sums.vat, 2));
+            delta.setCashAmount(BigDecimal.valueOf(sums.cash, 2));
+            delta.setCardAmount(BigDecimal.valueOf(sums.card, 2));
+            deltas.add(delta);
+        }
+        return deltas;
+    }
+
+    private static long share(long amount, long weight, long totalWeight) {
+        return Money.divideHalfUp(Math.multiplyExact(amount, weight), totalWeight);
+    }
+
+    /**
+     * Running totals in cents for one rollup row.
+     */
+    private static final class Sums {
+        final SalesRollupEntity row;
+        long orderCount;
+        long gross;
+        long vat;
+        long cash;
+        long card;
+
+        Sums(SalesRollupEntity row) {
+            this.row = row;
+        }
+    }
+
+    /**
+     * Cash and card share of an amount: the whole amount for CASH/CARD, the recorded split for SPLIT.
+     */
+    private static long[] cashAndCard(PaymentMethod method, long gross, long splitCash, long splitCard) {
+        if (method == PaymentMethod.CASH) {
+            return new long[]{gross, 0};
+        }
+        if (method == PaymentMethod.CARD) {
+            return new long[]{0, gross};
+        }
+        if (method == PaymentMethod.SPLIT) {
+            return new long[]{splitCash, splitCard};
+        }
+        return new long[]{0, 0};
+    }
+
+    private static long toCents(Double amount) {
+        return amount != null ? Money.toCents(amount) : 0L;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return Money.of(amount).getCents();
+    }
+}
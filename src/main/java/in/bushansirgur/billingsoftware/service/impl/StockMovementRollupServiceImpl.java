@@ -0,0 +1,261 @@
+package in.bushansirgur.billingsoftware.service.impl;
+
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemDailyMovementEntity;
+import in.bushansirgur.billingsoftware.io.ItemMovementHistoryResponse;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemDailyMovementRepository;
+import in.bushansirgur.billingsoftware.service.StockMovementRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Ledger rows join an in-memory queue once their transaction commits, and the flusher adds them to
+ * {@code tbl_item_daily_movement} in its own transaction every {@code flush-interval-ms} and on
+ * shutdown, so a sale never waits on a rollup row. Quantities are plain sums and add up in any order;
+ * the closing stock of a day is derived from the item's committed stock less the movements of the
+ * days after it, never from the order the rows arrive in. Rows still queued when the process dies
+ * are missing from their day until it is backfilled.
+ */
+@Service
+@Slf4j
+public class StockMovementRollupServiceImpl implements StockMovementRollupService, DisposableBean {
+
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final ItemDailyMovementRepository itemDailyMovementRepository;
+    private final InventoryTransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rawMaxDays;
+    private final ConcurrentLinkedQueue<InventoryTransactionEntity> queue = new ConcurrentLinkedQueue<>();
+
+    public StockMovementRollupServiceImpl(ItemDailyMovementRepository itemDailyMovementRepository,
+                                          InventoryTransactionRepository transactionRepository,
+                                          TransactionTemplate transactionTemplate,
+                                          @Value("${inventory.movement-history.raw-max-days:2}") int rawMaxDays) {
+        this.itemDailyMovementRepository = itemDailyMovementRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.rawMaxDays = rawMaxDays;
+    }
+
+    @Override
+    public void recordTransactions(List<InventoryTransactionEntity> transactions) {
+        List<InventoryTransactionEntity> rows = transactions.stream()
+                .filter(transaction -> transaction.getCreatedAt() != null)
+                .map(transaction -> InventoryTransactionEntity.builder()
+                        .itemId(transaction.getItemId())
+                        .transactionType(transaction.getTransactionType())
+                        .quantity(transaction.getQuantity())
+                        .createdAt(transaction.getCreatedAt())
+                        .build())
+                .toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queue.addAll(rows);
+                }
+            });
+        } else {
+            queue.addAll(rows);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.movement-history.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Item daily movement flush failed, retrying on the next round: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            log.warn("Final item daily movement flush failed, {} ledger rows need a backfill: {}", queue.size(), ex.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized int flush() {
+        List<InventoryTransactionEntity> batch = new ArrayList<>();
+        InventoryTransactionEntity row;
+        while ((row = queue.poll()) != null) {
+            batch.add(row);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        // Sorted by item and day so the flusher and a backfill lock rollup rows in the same order
+        Map<String, ItemDailyMovementEntity> deltas = new TreeMap<>();
+        SortedMap<String, LocalDate> firstDays = new TreeMap<>();
+        for (InventoryTransactionEntity transaction : batch) {
+            LocalDate day = transaction.getCreatedAt().toLocalDate();
+            add(deltas.computeIfAbsent(transaction.getItemId() + "|" + day,
+                    key -> emptyDay(transaction.getItemId(), day)), transaction);
+            firstDays.merge(transaction.getItemId(), day, (a, b) -> a.isBefore(b) ? a : b);
+        }
+        // Also recloses yesterday: a previous flush may have closed it on stock that already held
+        // movements of today it had not been handed yet
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        firstDays.replaceAll((itemId, day) -> day.isBefore(yesterday) ? day : yesterday);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                itemDailyMovementRepository.upsert(new ArrayList<>(deltas.values()));
+                closeDays(firstDays);
+            });
+        } catch (RuntimeException ex) {
+            queue.addAll(batch);
+            throw ex;
+        }
+        return batch.size();
+    }
+
+    @Override
+    public ItemMovementHistoryResponse getItemHistory(String itemId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "dateTo is before dateFrom");
+        }
+        List<ItemMovementHistoryResponse.Point> points = new ArrayList<>();
+        ItemMovementHistoryResponse.Granularity granularity;
+        if (ChronoUnit.DAYS.between(from, to) < rawMaxDays) {
+            granularity = ItemMovementHistoryResponse.Granularity.MOVEMENT;
+            for (InventoryTransactionEntity transaction : transactionRepository.findItemMovementsBetween(
+                    itemId, from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+                ItemDailyMovementEntity movement = emptyDay(itemId, transaction.getCreatedAt().toLocalDate());
+                add(movement, transaction);
+                movement.setClosingStock(transaction.getNewQuantity() != null ? transaction.getNewQuantity() : 0);
+                points.add(toPoint(movement, transaction));
+            }
+        } else {
+            granularity = ItemMovementHistoryResponse.Granularity.DAY;
+            // Rows this instance has committed are part of the answer
+            flush();
+            for (ItemDailyMovementEntity day : itemDailyMovementRepository.findDays(itemId, from, to)) {
+                points.add(toPoint(day, null));
+            }
+        }
+        return ItemMovementHistoryResponse.builder()
+                .itemId(itemId)
+                .dateFrom(from)
+                .dateTo(to)
+                .granularity(granularity)
+                .points(points)
+                .build();
+    }
+
+    @Override
+    public int backfill(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "dateFrom must not be after dateTo");
+        }
+        if (!to.isBefore(LocalDate.now())) {
+            // Movements of an open day keep arriving while it is rebuilt and would be counted twice or lost
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only closed days can be backfilled; dateTo must be before today");
+        }
+        // Queued rows of those days would otherwise be added on top of the rebuilt rows
+        flush();
+        Integer read = transactionTemplate.execute(status -> {
+            itemDailyMovementRepository.deleteDays(from, to);
+            // Rows arrive ordered by item, so only one item's days are held in memory
+            TreeMap<LocalDate, ItemDailyMovementEntity> itemDays = new TreeMap<>();
+            SortedMap<String, LocalDate> rebuilt = new TreeMap<>();
+            List<ItemDailyMovementEntity> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+            int[] rows = new int[1];
+            itemDailyMovementRepository.streamLedger(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), transaction -> {
+                if (!itemDays.isEmpty() && !itemDays.firstEntry().getValue().getItemId().equals(transaction.getItemId())) {
+                    batch.addAll(itemDays.values());
+                    itemDays.clear();
+                    if (batch.size() >= BACKFILL_BATCH_SIZE) {
+                        itemDailyMovementRepository.upsert(batch);
+                        batch.clear();
+                    }
+                }
+                LocalDate day = transaction.getCreatedAt().toLocalDate();
+                add(itemDays.computeIfAbsent(day, d -> emptyDay(transaction.getItemId(), d)), transaction);
+                rebuilt.putIfAbsent(transaction.getItemId(), from);
+                rows[0]++;
+            });
+            batch.addAll(itemDays.values());
+            itemDailyMovementRepository.upsert(batch);
+            closeDays(rebuilt);
+            return rows[0];
+        });
+        int processed = read != null ? read : 0;
+        log.info("Item daily movement rebuilt for {} to {} from {} ledger rows", from, to, processed);
+        return processed;
+    }
+
+    /**
+     * Sets the closing stock of each item's days from the given day on, and of the day before it,
+     * walking back from the item's committed stock by the net movement of every later day.
+     */
+    private void closeDays(SortedMap<String, LocalDate> firstDays) {
+        Map<String, Integer> stock = itemDailyMovementRepository.currentStock(firstDays.keySet());
+        List<ItemDailyMovementEntity> closed = new ArrayList<>();
+        firstDays.forEach((itemId, from) -> {
+            // Deleted items have no stock left
+            int closing = stock.getOrDefault(itemId, 0);
+            for (ItemDailyMovementEntity day : itemDailyMovementRepository.findDaysSinceBefore(itemId, from)) {
+                day.setClosingStock(closing);
+                closing -= day.getQuantityIn() - day.getQuantityOut() + day.getAdjustments();
+                closed.add(day);
+            }
+        });
+        itemDailyMovementRepository.updateClosingStock(closed);
+    }
+
+    private static ItemDailyMovementEntity emptyDay(String itemId, LocalDate day) {
+        return ItemDailyMovementEntity.builder()
+                .itemId(itemId)
+                .movementDate(day)
+                .build();
+    }
+
+    private static void add(ItemDailyMovementEntity day, InventoryTransactionEntity transaction) {
+        int quantity = transaction.getQuantity() != null ? transaction.getQuantity() : 0;
+        switch (transaction.getTransactionType()) {
+            case PURCHASE, RETURN, TRANSFER_IN -> day.setQuantityIn(day.getQuantityIn() + quantity);
+            case SALE, TRANSFER_OUT -> day.setQuantityOut(day.getQuantityOut() - quantity);
+            default -> day.setAdjustments(day.getAdjustments() + quantity);
+        }
+        day.setMovementCount(day.getMovementCount() + 1);
+        if (day.getLastMovementAt() == null || transaction.getCreatedAt().isAfter(day.getLastMovementAt())) {
+            day.setLastMovementAt(transaction.getCreatedAt());
+        }
+    }
+
+    private static ItemMovementHistoryResponse.Point toPoint(ItemDailyMovementEntity movement,
+                                                             InventoryTransactionEntity transaction) {
+        return ItemMovementHistoryResponse.Point.builder()
+                .periodStart(transaction != null ? transaction.getCreatedAt() : movement.getMovementDate().atStartOfDay())
+                .transactionType(transaction != null ? transaction.getTransactionType().name() : null)
+                .quantityIn(movement.getQuantityIn())
+                .quantityOut(movement.getQuantityOut())
+                .adjustments(movement.getAdjustments())
+                .movementCount(movement.getMovementCount())
+                .closingStock(movement.getClosingStock())
+                .build();
+    }
+}
@@ -0,0 +1,163 @@
+package in.bushansirgur.billingsoftware.service.impl;
+
+import in.bushansirgur.billingsoftware.entity.StockSnapshotEntity;
+import in.bushansirgur.billingsoftware.io.StockAtItem;
+import in.bushansirgur.billingsoftware.io.StockAtResponse;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.LedgerWriteLock;
+import in.bushansirgur.billingsoftware.repository.StockSnapshotItemRepository;
+import in.bushansirgur.billingsoftware.repository.StockSnapshotRepository;
+import in.bushansirgur.billingsoftware.service.StockSnapshotService;
+import in.bushansirgur.billingsoftware.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class StockSnapshotServiceImpl implements StockSnapshotService {
+
+    private final StockSnapshotRepository snapshotRepository;
+    private final StockSnapshotItemRepository snapshotItemRepository;
+    private final ItemRepository itemRepository;
+    private final LedgerWriteLock ledgerWriteLock;
+    private final TransactionTemplate snapshotTransaction;
+
+    // A full snapshot bounds how many delta runs a lookup has to merge
+    @Value("${inventory.snapshot.full-every-days:7}")
+    private int fullEveryDays;
+
+    public StockSnapshotServiceImpl(StockSnapshotRepository snapshotRepository,
+                                    StockSnapshotItemRepository snapshotItemRepository,
+                                    ItemRepository itemRepository,
+                                    LedgerWriteLock ledgerWriteLock,
+                                    PlatformTransactionManager transactionManager) {
+        this.snapshotRepository = snapshotRepository;
+        this.snapshotItemRepository = snapshotItemRepository;
+        this.itemRepository = itemRepository;
+        this.ledgerWriteLock = ledgerWriteLock;
+        // Stock and the pending ledger rows come from the same database snapshot
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Stores current stock once no transaction is still writing ledger rows. Rows written from then
+     * on are stamped with this snapshot's id or a later one, whatever their id or date, so lookups
+     * know which rows the stored stock includes. Stock pending on the write-behind counters is read
+     * from its ledger rows, so nothing has to be flushed first.
+     */
+    @Override
+    public StockSnapshotEntity takeSnapshot() {
+        return ledgerWriteLock.exclusive(snapshotTransaction, status -> {
+            Map<String, Integer> current = snapshotItemRepository.currentStock();
+            LocalDateTime takenAt = LocalDateTime.now();
+            Optional<StockSnapshotEntity> previous = snapshotRepository.findFirstByOrderByIdDesc();
+            Optional<StockSnapshotEntity> lastFull = previous.flatMap(p ->
+                    snapshotRepository.findFirstByFullSnapshotTrueAndIdLessThanEqualOrderByIdDesc(p.getId()));
+            boolean full = lastFull.isEmpty()
+                    || !lastFull.get().getTakenAt().isAfter(takenAt.minusDays(fullEveryDays));
+
+            Map<String, Integer> rows = current;
+            if (!full) {
+                Map<String, Integer> before = snapshotItemRepository.loadStock(lastFull.get().getId(), previous.get().getId());
+                rows = new HashMap<>();
+                for (Map.Entry<String, Integer> entry : current.entrySet()) {
+                    if (!Objects.equals(before.get(entry.getKey()), entry.getValue())) {
+                        rows.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                // Deleted items drop to zero so they do not carry their last stock forward
+                for (Map.Entry<String, Integer> entry : before.entrySet()) {
+                    if (!current.containsKey(entry.getKey()) && entry.getValue() != 0) {
+                        rows.put(entry.getKey(), 0);
+                    }
+                }
+            }
+
+            StockSnapshotEntity snapshot = snapshotRepository.save(StockSnapshotEntity.builder()
+                    .takenAt(takenAt)
+                    .ledgerStamped(true)
+                    .fullSnapshot(full)
+                    .itemCount(rows.size())
+                    .build());
+            snapshotItemRepository.insert(snapshot.getId(), rows);
+            log.info("Stock snapshot {} taken ({}, {} items)", snapshot.getId(),
+                    full ? "full" : "changes only", rows.size());
+            return snapshot;
+        });
+    }
+
+    @Scheduled(cron = "${inventory.snapshot.cron:0 0 0 * * *}")
+    public void scheduledSnapshot() {
+        try {
+            takeSnapshot();
+        } catch (RuntimeException ex) {
+            log.error("Stock snapshot failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockAtResponse getStockAt(LocalDate date) {
+        LocalDateTime at = date.plusDays(1).atStartOfDay();
+        Optional<StockSnapshotEntity> before = snapshotRepository.findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(at);
+        Optional<StockSnapshotEntity> after = snapshotRepository.findFirstByTakenAtGreaterThanOrderByTakenAtAsc(at);
+        boolean forward = before.isPresent() && (after.isEmpty()
+                || !Duration.between(before.get().getTakenAt(), at).minus(Duration.between(at, after.get().getTakenAt())).isPositive());
+        StockSnapshotEntity base = (forward ? before : after).orElseThrow(() ->
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "No stock snapshot has been taken yet"));
+        StockSnapshotEntity full = snapshotRepository.findFirstByFullSnapshotTrueAndIdLessThanEqualOrderByIdDesc(base.getId())
+                .orElseThrow(() -> new IllegalStateException("No full stock snapshot before snapshot " + base.getId()));
+
+        Map<String, Integer> stock = snapshotItemRepository.loadStock(full.getId(), base.getId());
+        Map<String, Integer> movements;
+        if (Boolean.TRUE.equals(base.getLedgerStamped())) {
+            movements = forward
+                    ? snapshotItemRepository.sumMovementsAfter(base.getId(), at)
+                    : snapshotItemRepository.sumMovementsThrough(base.getId(), at);
+        } else {
+            movements = forward
+                    ? snapshotItemRepository.sumMovements(base.getTakenAt(), at)
+                    : snapshotItemRepository.sumMovements(at, base.getTakenAt());
+        }
+        int sign = forward ? 1 : -1;
+        movements.forEach((itemId, quantity) -> stock.merge(itemId, sign * quantity, Integer::sum));
+
+        List<StockAtItem> items = itemRepository.findStockAtItems();
+        long totalQuantity = 0;
+        Money totalValue = Money.ZERO;
+        for (StockAtItem item : items) {
+            int quantity = stock.getOrDefault(item.getItemId(), 0);
+            Money value = quantity > 0 ? Money.of(item.getAverageCost()).times(quantity) : Money.ZERO;
+            item.setStockQuantity(quantity);
+            item.setStockValue(value.toBigDecimal());
+            totalQuantity += quantity;
+            totalValue = totalValue.plus(value);
+        }
+        return StockAtResponse.builder()
+                .date(date)
+                .snapshotTakenAt(base.getTakenAt())
+                .ledgerItemsApplied(movements.size())
+                .totalQuantity(totalQuantity)
+                .totalValue(totalValue.toBigDecimal())
+                .items(items)
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package in.bushansirgur.billingsoftware.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Moving weighted-average unit cost. A costed receipt blends its unit cost into the average by
+ * quantity; every other movement (sales, returns, write-offs, count corrections) moves stock at the
+ * current average and leaves it unchanged, so each ledger entry costs O(1) to apply. Unit costs
+ * carry four decimals so repeated blending does not drift by whole cents.
+ */
+public final class AverageCost {
+
+    public static final int SCALE = 4;
+
+    private AverageCost() {
+    }
+
+    /**
+     * The average after receiving {@code received} units at {@code unitCost} on top of
+     * {@code stockBefore} units at {@code averageBefore}. Negative stock (sold before the delivery was
+     * entered) carries no value, so the receipt then sets the average on its own.
+     */
+    public static BigDecimal afterReceipt(int stockBefore, BigDecimal averageBefore, int received, BigDecimal unitCost) {
+        if (unitCost == null || received <= 0) {
+            return averageBefore;
+        }
+        if (averageBefore == null || stockBefore <= 0) {
+            return unitCost.setScale(SCALE, RoundingMode.HALF_UP);
+        }
+        BigDecimal total = averageBefore.multiply(BigDecimal.valueOf(stockBefore))
+                .add(unitCost.multiply(BigDecimal.valueOf(received)));
+        return total.divide(BigDecimal.valueOf((long) stockBefore + received), SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * The stored average, or the item's cost price before its first costed receipt.
+     */
+    public static BigDecimal orCostPrice(BigDecimal averageCost, BigDecimal costPrice) {
+        return averageCost != null ? averageCost : costPrice;
+    }
+
+    /**
+     * Book value of {@code quantity} units in cents; stock at or below zero is worth nothing.
+     */
+    public static long valueCents(int quantity, BigDecimal unitCost) {
+        if (quantity <= 0 || unitCost == null) {
+            return 0;
+        }
+        return unitCost.multiply(BigDecimal.valueOf(quantity)).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+}
@@ -0,0 +1,38 @@
+package in.bushansirgur.billingsoftware.util;
+
+/**
+ * Numeric retail barcodes (EAN-8, UPC-A, EAN-13 and GTIN-14) as {@code long} keys. The digit count is
+ * kept in the low four bits, so codes that only differ in leading zeros get different keys.
+ */
+public final class BarcodeKeys {
+
+    public static final long NONE = -1L;
+
+    private static final int MIN_DIGITS = 8;
+    private static final int MAX_DIGITS = 14;
+
+    private BarcodeKeys() {
+    }
+
+    /**
+     * The key of a barcode, or {@link #NONE} when it is not 8 to 14 digits. Does not allocate.
+     */
+    public static long of(CharSequence barcode) {
+        if (barcode == null) {
+            return NONE;
+        }
+        int length = barcode.length();
+        if (length < MIN_DIGITS || length > MAX_DIGITS) {
+            return NONE;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return NONE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value << 4 | length;
+    }
+}
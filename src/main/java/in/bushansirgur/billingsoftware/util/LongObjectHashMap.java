@@ -0,0 +1,153 @@
+package in.bushansirgur.billingsoftware.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive {@code long} keys to objects, with linear probing. Lookups
+ * neither box the key nor allocate.
+ * <p>
+ * One thread at a time may write while any number of threads read without locking. A new entry's
+ * value is published before its key, and a removed key leaves a tombstone rather than shifting later
+ * entries back, so a concurrent lookup never misses an entry that stayed or returns one that was
+ * never there. Tombstones are dropped when the table is rehashed into a new array, which is published
+ * through a volatile field. Writers have to synchronize among themselves.
+ */
+public final class LongObjectHashMap<V> {
+
+    // Reserved markers for free slots and removed entries; cannot be used as keys
+    private static final long FREE = Long.MIN_VALUE;
+    private static final long REMOVED = Long.MIN_VALUE + 1;
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    private volatile Table table;
+    private int size;
+    // Live entries plus tombstones
+    private int used;
+
+    public LongObjectHashMap(int expectedSize) {
+        this.table = new Table(tableSize(expectedSize));
+    }
+
+    /**
+     * The number of entries as last written; only exact on the writing thread.
+     */
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table current = table;
+        for (int slot = slot(key, current.mask); ; slot = (slot + 1) & current.mask) {
+            long found = (long) KEYS.getAcquire(current.keys, slot);
+            if (found == key) {
+                return (V) VALUES.getAcquire(current.values, slot);
+            }
+            if (found == FREE) {
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (key == FREE || key == REMOVED) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+        Table current = table;
+        int slot = slot(key, current.mask);
+        while (current.keys[slot] != FREE) {
+            if (current.keys[slot] == key) {
+                V previous = (V) current.values[slot];
+                VALUES.setRelease(current.values, slot, value);
+                return previous;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+        if ((used + 1) * 2 > current.keys.length) {
+            // Room for half as many again, so removals and inserts do not rehash on every call
+            current = rehash(tableSize(size + size / 2 + 1));
+            slot = slot(key, current.mask);
+            while (current.keys[slot] != FREE) {
+                slot = (slot + 1) & current.mask;
+            }
+        }
+        // Value first: a reader that sees the key also sees its value
+        VALUES.setRelease(current.values, slot, value);
+        KEYS.setRelease(current.keys, slot, key);
+        size++;
+        used++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == FREE || key == REMOVED) {
+            return null;
+        }
+        Table current = table;
+        int slot = slot(key, current.mask);
+        while (current.keys[slot] != key) {
+            if (current.keys[slot] == FREE) {
+                return null;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+        V previous = (V) current.values[slot];
+        // The slot is not reused before a rehash, so a reader that matched the key gets its value or null
+        KEYS.setRelease(current.keys, slot, REMOVED);
+        VALUES.setRelease(current.values, slot, null);
+        size--;
+        return previous;
+    }
+
+    private Table rehash(int capacity) {
+        Table old = table;
+        Table fresh = new Table(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            long key = old.keys[i];
+            if (key != FREE && key != REMOVED) {
+                int slot = slot(key, fresh.mask);
+                while (fresh.keys[slot] != FREE) {
+                    slot = (slot + 1) & fresh.mask;
+                }
+                fresh.keys[slot] = key;
+                fresh.values[slot] = old.values[i];
+            }
+        }
+        table = fresh;
+        used = size;
+        return fresh;
+    }
+
+    // Power of two with a load factor of at most one half
+    private static int tableSize(int expectedSize) {
+        int capacity = 16;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Object[] values;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(keys, FREE);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package in.bushansirgur.billingsoftware.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money as a whole number of cents. Sums, differences and quantity multiples are
+ * exact; only the percentage, VAT and ratio helpers round, half away from zero like
+ * {@link RoundingMode#HALF_UP}. Rates are basis points (1/100 of a percent, 20% = 2000).
+ * The static {@code *Cents} methods and {@link #toCents(double)} do the same math on raw longs
+ * without allocating, for loops over many amounts; BigDecimal conversions allocate as usual.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long BASIS_POINTS = 10_000L;
+
+    // Below this a double is exact to well under a cent once scaled by 100
+    private static final double MAX_FAST_AMOUNT = 1e13;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return amount == null ? ZERO : ofCents(amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+
+    public static Money of(Double amount) {
+        return amount == null ? ZERO : ofCents(toCents(amount));
+    }
+
+    /**
+     * Rounds a double to cents as its shortest decimal form would round, so 1.005 becomes 101 cents
+     * rather than the 100 that {@code Math.round(1.005 * 100)} gives.
+     */
+    public static long toCents(double amount) {
+        double abs = Math.abs(amount);
+        if (!(abs < MAX_FAST_AMOUNT)) {
+            return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        }
+        double scaled = abs * 100;
+        long whole = (long) scaled;
+        // The double nearest to a half cent prints as that half cent, even when it is stored just below it
+        long cents = (whole * 2 + 1) / 200.0 == abs ? whole + 1 : Math.round(scaled);
+        return amount < 0 ? -cents : cents;
+    }
+
+    /**
+     * A rate given as a fraction ({@code 0.20}) in basis points ({@code 2000}).
+     */
+    public static long basisPoints(BigDecimal fraction) {
+        return fraction == null ? 0L : fraction.movePointRight(4).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static long percentOfCents(long cents, long basisPoints) {
+        return divideHalfUp(Math.multiplyExact(cents, basisPoints), BASIS_POINTS);
+    }
+
+    public static long vatFromGrossCents(long grossCents, long rateBasisPoints) {
+        return divideHalfUp(Math.multiplyExact(grossCents, rateBasisPoints), BASIS_POINTS + rateBasisPoints);
+    }
+
+    public static long divideHalfUp(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long quotient = numerator / denominator;
+        long remainder = Math.abs(numerator % denominator);
+        if (remainder >= Math.abs(denominator) - remainder) {
+            quotient += (numerator < 0) == (denominator < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public Money abs() {
+        return cents < 0 ? negate() : this;
+    }
+
+    public Money min(Money other) {
+        return cents <= other.cents ? this : other;
+    }
+
+    public Money max(Money other) {
+        return cents >= other.cents ? this : other;
+    }
+
+    /**
+     * {@code basisPoints / 10000} of this amount, e.g. a 15% discount is {@code percent(1500)}.
+     */
+    public Money percent(long basisPoints) {
+        return ofCents(percentOfCents(cents, basisPoints));
+    }
+
+    /**
+     * The VAT contained in this gross (VAT-inclusive) amount.
+     */
+    public Money vatFromGross(long rateBasisPoints) {
+        return ofCents(vatFromGrossCents(cents, rateBasisPoints));
+    }
+
+    /**
+     * This gross amount without its VAT; {@code netFromGross(r).plus(vatFromGross(r))} is always this amount.
+     */
+    public Money netFromGross(long rateBasisPoints) {
+        return ofCents(cents - vatFromGrossCents(cents, rateBasisPoints));
+    }
+
+    /**
+     * {@code numerator / denominator} of this amount, e.g. the share of a partially refunded order.
+     */
+    public Money ratio(long numerator, long denominator) {
+        return ofCents(divideHalfUp(Math.multiplyExact(cents, numerator), denominator));
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public double toDouble() {
+        return cents / 100.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,13 @@
+package in.bushansirgur.billingsoftware.util;
+
+/**
+ * Source of unique, time-ordered numeric ids for orders, fiscal receipts and reports.
+ */
+public interface OrderIdGenerator {
+
+    long nextId();
+
+    default String nextId(String prefix) {
+        return prefix + nextId();
+    }
+}
@@ -0,0 +1,36 @@
+package in.bushansirgur.billingsoftware.util;
+
+import in.bushansirgur.billingsoftware.io.OrderResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Most recently used idempotency keys and the responses they produced, so register retries
+ * are answered without a database round trip. Bounded LRU; older keys fall back to the
+ * unique {@code idempotency_key} column on {@code tbl_orders}.
+ */
+@Component
+public class OrderIdempotencyCache {
+
+    private final Map<String, OrderResponse> responses;
+
+    public OrderIdempotencyCache(@Value("${orders.idempotency.cache-size:10000}") int capacity) {
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OrderResponse> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized OrderResponse get(String idempotencyKey) {
+        return responses.get(idempotencyKey);
+    }
+
+    public synchronized void put(String idempotencyKey, OrderResponse response) {
+        responses.put(idempotencyKey, response);
+    }
+}
@@ -0,0 +1,60 @@
+package in.bushansirgur.billingsoftware.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Turns the free-text order search box into index-friendly predicates:
+ * an order id prefix, a substring of the normalized customer name (trigram index on PostgreSQL)
+ * and a digits-only phone prefix. The same normalization fills the search columns on
+ * {@code OrderEntity}, so stored and queried values always agree.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderSearchTerms {
+
+    // Shorter digit runs would match most phone numbers and are more likely part of an order id
+    private static final int MIN_PHONE_DIGITS = 3;
+
+    private final String orderIdPrefix;
+    private final String namePattern;
+    private final String phonePrefix;
+
+    /**
+     * Returns {@code null} when there is nothing to search for.
+     */
+    public static OrderSearchTerms of(String q) {
+        String term = q == null ? "" : stripWildcards(q.trim());
+        if (term.isEmpty()) {
+            return null;
+        }
+        String digits = digitsOnly(term);
+        String orderIdPrefix = digits.length() == term.length()
+                ? "ORD" + term + "%"
+                : term.toUpperCase(Locale.ROOT) + "%";
+        return new OrderSearchTerms(
+                orderIdPrefix,
+                "%" + normalizeName(term) + "%",
+                digits.length() >= MIN_PHONE_DIGITS ? digits + "%" : null);
+    }
+
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return null;
+        }
+        return name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public static String digitsOnly(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        return phone.replaceAll("\\D", "");
+    }
+
+    private static String stripWildcards(String value) {
+        return value.replace("%", "").replace("_", "").replace("\\", "");
+    }
+}
@@ -0,0 +1,192 @@
+package in.bushansirgur.billingsoftware.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style id: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and a
+ * 12 bit per-millisecond sequence. Ids are strictly increasing per node without any locking or
+ * database round trip. When the sequence of a millisecond is exhausted, or the wall clock steps
+ * back (NTP correction, restart on a skewed clock), the generator keeps counting on its own
+ * logical clock instead of waiting or reusing an id.
+ * <p>
+ * The logical clock survives restarts through a lease: a timestamp above every id issued so far is
+ * persisted before ids reach it. Only a dedicated lease thread writes it, on its own connection: it
+ * renews ahead of the clock, and a caller that reaches the lease anyway waits for that thread instead
+ * of writing from inside its own transaction. A restarted node continues above its lease, and refuses
+ * to start when the wall clock is more than {@code orders.id.max-clock-behind-ms} behind it.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class SnowflakeOrderIdGenerator implements OrderIdGenerator, DisposableBean {
+
+    // 2024-01-01T00:00:00Z
+    static final long EPOCH = 1704067200000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    static final long LEASE_MILLIS = 10_000;
+
+    private final long nodeId;
+    private final Clock clock;
+    private final ClockLease lease;
+
+    // (timestamp - EPOCH) << SEQUENCE_BITS | sequence of the last issued id
+    private final AtomicLong lastState = new AtomicLong();
+
+    // Ids are only issued with timestamps below this persisted value; written by the lease thread only
+    private volatile long leaseUntil;
+
+    private final ScheduledExecutorService leaseThread;
+    // Renewal that callers waiting for the lease join, if one is queued or running
+    private CompletableFuture<Void> renewal;
+
+    @Autowired
+    public SnowflakeOrderIdGenerator(@Value("${orders.id.node-id:0}") long nodeId,
+                                     ClockLease lease,
+                                     @Value("${orders.id.max-clock-behind-ms:60000}") long maxClockBehindMillis) {
+        this(nodeId, Clock.systemUTC(), lease, maxClockBehindMillis);
+    }
+
+    public SnowflakeOrderIdGenerator(long nodeId, Clock clock) {
+        this(nodeId, clock, ClockLease.NONE, Long.MAX_VALUE);
+    }
+
+    public SnowflakeOrderIdGenerator(long nodeId, Clock clock, ClockLease lease, long maxClockBehindMillis) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order id node must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.lease = lease;
+        long persisted = lease.load(nodeId);
+        long now = clock.millis() - EPOCH;
+        if (persisted - now > maxClockBehindMillis) {
+            throw new IllegalStateException("Wall clock is " + (persisted - now) + " ms behind the order id lease of node "
+                    + nodeId + "; refusing to start");
+        }
+        // Continue above every id issued before the restart
+        this.lastState.set(persisted << SEQUENCE_BITS);
+        this.leaseUntil = persisted;
+        if (lease == ClockLease.NONE) {
+            this.leaseUntil = Long.MAX_VALUE;
+            this.leaseThread = null;
+            return;
+        }
+        extendLease(Math.max(now, persisted));
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("order-id-lease-");
+        threadFactory.setDaemon(true);
+        this.leaseThread = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        this.leaseThread.scheduleWithFixedDelay(this::scheduledRenewal, LEASE_MILLIS / 4, LEASE_MILLIS / 4, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long previous = lastState.get();
+            long now = clock.millis() - EPOCH;
+            // A carry out of the sequence bits moves the logical clock forward by one millisecond
+            long next = now > (previous >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : previous + 1;
+            if (lastState.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                while (timestamp >= leaseUntil) {
+                    awaitRenewal();
+                }
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (leaseThread != null) {
+            leaseThread.shutdownNow();
+        }
+    }
+
+    private void awaitRenewal() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            if (renewal == null) {
+                renewal = CompletableFuture.runAsync(this::requestedRenewal, leaseThread);
+            }
+            pending = renewal;
+        }
+        try {
+            pending.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+
+    private void requestedRenewal() {
+        // Cleared first, so ids issued while this write runs start another round if they need one
+        synchronized (this) {
+            renewal = null;
+        }
+        renewLease();
+    }
+
+    private void scheduledRenewal() {
+        try {
+            renewLease();
+        } catch (RuntimeException ex) {
+            // Not rethrown, or the executor would stop scheduling; callers reaching the lease retry it
+            log.error("Order id lease renewal failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Keeps the lease half a window ahead of the clock and of every id issued, so ids rarely wait.
+     */
+    private void renewLease() {
+        long logical = Math.max(clock.millis() - EPOCH, lastState.get() >>> SEQUENCE_BITS);
+        extendLease(logical + LEASE_MILLIS / 2);
+    }
+
+    private void extendLease(long timestamp) {
+        if (timestamp >= leaseUntil) {
+            long until = timestamp + LEASE_MILLIS;
+            lease.extend(nodeId, until);
+            leaseUntil = until;
+        }
+    }
+
+    /**
+     * Durable storage of a node's lease, in milliseconds since {@link #EPOCH}.
+     */
+    public interface ClockLease {
+
+        ClockLease NONE = new ClockLease() {
+            @Override
+            public long load(long nodeId) {
+                return 0;
+            }
+
+            @Override
+            public void extend(long nodeId, long leaseUntil) {
+            }
+        };
+
+        long load(long nodeId);
+
+        void extend(long nodeId, long leaseUntil);
+    }
+}
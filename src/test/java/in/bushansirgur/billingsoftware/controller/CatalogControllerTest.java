@@ -0,0 +1,114 @@
+package in.bushansirgur.billingsoftware.controller;
+
+import in.bushansirgur.billingsoftware.service.CatalogService;
+import in.bushansirgur.billingsoftware.service.CatalogSnapshots;
+import in.bushansirgur.billingsoftware.service.impl.AppUserDetailsService;
+import in.bushansirgur.billingsoftware.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(CatalogController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@ActiveProfiles("test")
+class CatalogControllerTest {
+
+    private static final String DOCUMENT = "{\"version\":7}";
+    private static final String ETAG = "\"7-abc\"";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CatalogService catalogService;
+
+    @MockBean
+    private CatalogSnapshots catalogSnapshots;
+
+    @MockBean
+    private AppUserDetailsService appUserDetailsService;
+
+    @MockBean
+    private JwtUtil jwtUtil;
+
+    private byte[] gzipped;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(DOCUMENT.getBytes(StandardCharsets.UTF_8));
+        }
+        gzipped = bytes.toByteArray();
+        when(catalogSnapshots.current()).thenReturn(new CatalogSnapshots.Snapshot(7, ETAG, gzipped,
+                DOCUMENT.getBytes(StandardCharsets.UTF_8), 1));
+    }
+
+    @Test
+    @DisplayName("Should serve the gzipped snapshot with a strong ETag")
+    void shouldServeGzippedSnapshot() throws Exception {
+        mockMvc.perform(get("/catalog/snapshot").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().bytes(gzipped));
+    }
+
+    @Test
+    @DisplayName("Should answer 304 when the register already has the snapshot")
+    void shouldReturnNotModified() throws Exception {
+        mockMvc.perform(get("/catalog/snapshot")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Should decompress the snapshot for clients without gzip")
+    void shouldServeIdentity() throws Exception {
+        mockMvc.perform(get("/catalog/snapshot"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"7-abc-identity\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().json(DOCUMENT));
+
+        mockMvc.perform(get("/catalog/snapshot").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should honour q-values in Accept-Encoding")
+    void shouldHonourQValues() throws Exception {
+        mockMvc.perform(get("/catalog/snapshot").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().json(DOCUMENT));
+
+        assertTrue(CatalogController.acceptsGzip("identity;q=0.5, gzip;q=0.8"));
+        assertTrue(CatalogController.acceptsGzip("br, *"));
+        assertTrue(CatalogController.acceptsGzip("GZIP"));
+        assertFalse(CatalogController.acceptsGzip("*;q=0"));
+        assertFalse(CatalogController.acceptsGzip("gzip;q=0.000, *"));
+        assertFalse(CatalogController.acceptsGzip("deflate, br"));
+        assertFalse(CatalogController.acceptsGzip(null));
+    }
+}
@@ -0,0 +1,182 @@
+package in.bushansirgur.billingsoftware.controller;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CashDrawerSessionEntity;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.UserEntity;
+import in.bushansirgur.billingsoftware.repository.CashDrawerSessionRepository;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.UserRepository;
+import in.bushansirgur.billingsoftware.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checkout latency with 50 registers posting orders over HTTP at the same time, once on the
+ * Tomcat platform-thread pool and once on virtual threads.
+ * Run with {@code mvn test -Dtest=CheckoutLoadBenchmarkTest -Dbenchmark=true}; numbers are
+ * against in-memory H2, so compare the two modes rather than the absolute values.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Tag("benchmark")
+@Slf4j
+class CheckoutLoadBenchmarkTest {
+
+    private static final int REGISTERS = 50;
+    private static final int WARMUP_ORDERS = 20;
+    private static final int ORDERS_PER_REGISTER = 200;
+    private static final int ITEMS = 20;
+
+    @Test
+    @DisplayName("Benchmark p50/p99 checkout latency for 50 registers, platform vs virtual threads")
+    void benchmarkCheckoutLatency() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        for (Result result : List.of(platform, virtual)) {
+            log.info("{}: p50 {} ms, p99 {} ms, max {} ms, {} orders/s", result.mode,
+                    String.format("%.2f", result.percentile(50)), String.format("%.2f", result.percentile(99)),
+                    String.format("%.2f", result.percentile(100)), Math.round(result.throughput));
+        }
+        // Virtual threads must not make the tail worse than the platform pool
+        assertTrue(virtual.percentile(99) <= platform.percentile(99) * 2,
+                "virtual p99 " + virtual.percentile(99) + " ms vs platform " + platform.percentile(99) + " ms");
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BillingsoftwareApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "orders.outbox.enabled=true",
+                        "logging.level.in.bushansirgur.billingsoftware=WARN")
+                .run()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + context.getEnvironment().getProperty("server.servlet.context-path", "");
+            List<String> tokens = seed(context);
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+            ExecutorService registers = Executors.newFixedThreadPool(REGISTERS);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int r = 0; r < REGISTERS; r++) {
+                String token = tokens.get(r);
+                futures.add(registers.submit(() -> {
+                    for (int i = 0; i < WARMUP_ORDERS; i++) {
+                        checkout(client, baseUrl, token);
+                    }
+                    start.await();
+                    long[] latencies = new long[ORDERS_PER_REGISTER];
+                    for (int i = 0; i < ORDERS_PER_REGISTER; i++) {
+                        long began = System.nanoTime();
+                        checkout(client, baseUrl, token);
+                        latencies[i] = System.nanoTime() - began;
+                    }
+                    return latencies;
+                }));
+            }
+            Thread.sleep(2000);
+            long began = System.nanoTime();
+            start.countDown();
+            long[] all = new long[REGISTERS * ORDERS_PER_REGISTER];
+            int offset = 0;
+            for (Future<long[]> future : futures) {
+                long[] latencies = future.get();
+                System.arraycopy(latencies, 0, all, offset, latencies.length);
+                offset += latencies.length;
+            }
+            double seconds = (System.nanoTime() - began) / 1_000_000_000.0;
+            registers.shutdown();
+            Arrays.sort(all);
+            return new Result(virtualThreads ? "virtual" : "platform", all, all.length / seconds);
+        }
+    }
+
+    private static void checkout(HttpClient client, String baseUrl, String token) throws Exception {
+        int item = ThreadLocalRandom.current().nextInt(ITEMS);
+        String body = "{\"customerName\":\"Walk-in\",\"subtotal\":2.5,\"tax\":0.5,\"grandTotal\":3.0,"
+                + "\"paymentMethod\":\"CASH\",\"cartItems\":[{\"itemId\":\"bench-item-" + item + "\","
+                + "\"name\":\"Item " + item + "\",\"price\":1.5,\"quantity\":2}]}";
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/orders"))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, response.statusCode() / 100, response.body());
+    }
+
+    private static List<String> seed(ConfigurableApplicationContext context) {
+        CategoryEntity category = context.getBean(CategoryRepository.class).save(CategoryEntity.builder()
+                .categoryId("bench-category")
+                .name("Benchmark")
+                .build());
+        ItemRepository itemRepository = context.getBean(ItemRepository.class);
+        for (int i = 0; i < ITEMS; i++) {
+            itemRepository.save(ItemEntity.builder()
+                    .itemId("bench-item-" + i)
+                    .name("Item " + i)
+                    .category(category)
+                    .stockQuantity(1_000_000)
+                    .build());
+        }
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        CashDrawerSessionRepository sessionRepository = context.getBean(CashDrawerSessionRepository.class);
+        JwtUtil jwtUtil = context.getBean(JwtUtil.class);
+        List<String> tokens = new ArrayList<>();
+        for (int r = 0; r < REGISTERS; r++) {
+            String email = "register-" + r + "@shop.bg";
+            userRepository.save(UserEntity.builder()
+                    .userId("bench-user-" + r)
+                    .email(email)
+                    .password("unused")
+                    .role("ROLE_USER")
+                    .name("Register " + r)
+                    .build());
+            sessionRepository.save(CashDrawerSessionEntity.builder()
+                    .sessionDate(LocalDate.now())
+                    .cashierUsername(email)
+                    .startAmount(BigDecimal.ZERO)
+                    .sessionStartTime(LocalDateTime.now())
+                    .status(CashDrawerSessionEntity.SessionStatus.ACTIVE)
+                    .build());
+            tokens.add(jwtUtil.generateToken(new User(email, "unused", List.of(new SimpleGrantedAuthority("ROLE_USER")))));
+        }
+        return tokens;
+    }
+
+    private record Result(String mode, long[] sortedNanos, double throughput) {
+        double percentile(int p) {
+            int index = Math.min(sortedNanos.length - 1, (int) Math.ceil(p / 100.0 * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
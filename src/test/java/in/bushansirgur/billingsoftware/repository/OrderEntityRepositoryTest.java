@@ -0,0 +1,164 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.entity.OrderItemEntity;
+import in.bushansirgur.billingsoftware.io.OrderStatus;
+import in.bushansirgur.billingsoftware.io.OrderSummary;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.util.OrderSearchTerms;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class OrderEntityRepositoryTest {
+
+    @Autowired
+    private OrderEntityRepository orderEntityRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        orderEntityRepository.deleteAll();
+        saveOrder("ORD-1", "Ivan Petrov", "0888123456", "cashier1", PaymentMethod.CASH, 12.5, 2);
+        saveOrder("ORD-2", "Maria Ivanova", "0877654321", "cashier2", PaymentMethod.CARD, 30.0, 3);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void saveOrder(String orderId, String customer, String phone, String cashier,
+                           PaymentMethod method, double total, int lines) {
+        OrderEntity order = OrderEntity.builder()
+                .orderId(orderId)
+                .customerName(customer)
+                .phoneNumber(phone)
+                .cashierUsername(cashier)
+                .paymentMethod(method)
+                .grandTotal(total)
+                .build();
+        for (int i = 0; i < lines; i++) {
+            order.getItems().add(OrderItemEntity.builder()
+                    .itemId("item-" + i)
+                    .name("Item " + i)
+                    .price(1.0)
+                    .quantity(1)
+                    .build());
+        }
+        orderEntityRepository.save(order);
+    }
+
+    @Test
+    @DisplayName("Should page orders as a slice without counting them")
+    void shouldReturnOrderSliceWithoutTotal() {
+        Slice<OrderEntity> first = orderEntityRepository.findOrderSlice(PageRequest.of(0, 1));
+        assertEquals(1, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        assertFalse(first instanceof Page);
+
+        Slice<OrderEntity> last = orderEntityRepository.findOrderSlice(PageRequest.of(1, 1));
+        assertEquals(1, last.getNumberOfElements());
+        assertFalse(last.hasNext());
+
+        OrderSearchTerms terms = OrderSearchTerms.of("Maria");
+        Slice<OrderEntity> found = orderEntityRepository.searchOrderSlice(terms.getOrderIdPrefix(),
+                terms.getNamePattern(), terms.getPhonePrefix(), null, null, PageRequest.of(0, 20));
+        assertEquals(List.of("ORD-2"), found.map(OrderEntity::getOrderId).getContent());
+        assertFalse(found.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should return header-only summaries filtered by query")
+    void shouldReturnOrderSummaries() {
+        OrderSearchTerms terms = OrderSearchTerms.of("Maria");
+        List<OrderSummary> rows = orderEntityRepository.searchOrderSummaries(terms.getOrderIdPrefix(),
+                terms.getNamePattern(), terms.getPhonePrefix(), null, null, null, null,
+                PageRequest.of(0, 20));
+
+        assertEquals(1, rows.size());
+        OrderSummary summary = rows.get(0);
+        assertEquals("ORD-2", summary.getOrderId());
+        assertEquals("cashier2", summary.getCashierUsername());
+        assertEquals(PaymentMethod.CARD, summary.getPaymentMethod());
+        assertEquals(30.0, summary.getGrandTotal());
+        assertEquals(OrderStatus.COMPLETED, summary.getOrderStatus());
+        assertNotNull(summary.getCreatedAt());
+        assertEquals(1, orderEntityRepository.countOrderSummaries(terms.getOrderIdPrefix(),
+                terms.getNamePattern(), terms.getPhonePrefix(), null, null, null, null));
+    }
+
+    @Test
+    @DisplayName("Should continue after the keyset position without repeating rows")
+    void shouldPageByKeyset() {
+        List<OrderSummary> first = orderEntityRepository.searchOrderSummaries(null, null, null, null, null, null, null,
+                PageRequest.of(0, 1));
+        OrderSummary last = first.get(0);
+        List<OrderSummary> second = orderEntityRepository.searchOrderSummariesAfter(null, null, null, null, null, null, null,
+                last.getCreatedAt(), last.getId(), PageRequest.of(0, 1));
+        List<OrderSummary> third = orderEntityRepository.searchOrderSummariesAfter(null, null, null, null, null, null, null,
+                second.get(0).getCreatedAt(), second.get(0).getId(), PageRequest.of(0, 1));
+
+        assertEquals(1, second.size());
+        assertNotEquals(last.getOrderId(), second.get(0).getOrderId());
+        assertTrue(third.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should break createdAt ties by id when continuing after a cursor")
+    void shouldPageThroughEqualTimestamps() {
+        entityManager.createQuery("UPDATE OrderEntity o SET o.createdAt = :at")
+                .setParameter("at", java.time.LocalDateTime.of(2026, 1, 5, 10, 0))
+                .executeUpdate();
+        entityManager.clear();
+
+        List<OrderEntity> first = orderEntityRepository.findLatestOrders(PageRequest.of(0, 1));
+        List<OrderEntity> second = orderEntityRepository.findLatestOrdersAfter(first.get(0).getCreatedAt(),
+                first.get(0).getId(), PageRequest.of(0, 1));
+
+        assertEquals(1, second.size());
+        assertTrue(second.get(0).getId() < first.get(0).getId());
+        assertTrue(orderEntityRepository.findLatestOrdersAfter(second.get(0).getCreatedAt(),
+                second.get(0).getId(), PageRequest.of(0, 1)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should match phone numbers by digits-only prefix and order ids by prefix")
+    void shouldSearchByPhonePrefixAndOrderId() {
+        OrderSearchTerms phone = OrderSearchTerms.of("0888 12");
+        List<OrderSummary> byPhone = orderEntityRepository.searchOrderSummaries(phone.getOrderIdPrefix(),
+                phone.getNamePattern(), phone.getPhonePrefix(), null, null, null, null,
+                PageRequest.of(0, 20));
+        OrderSearchTerms orderId = OrderSearchTerms.of("ord-2");
+        List<OrderSummary> byOrderId = orderEntityRepository.searchOrderSummaries(orderId.getOrderIdPrefix(),
+                orderId.getNamePattern(), orderId.getPhonePrefix(), null, null, null, null,
+                PageRequest.of(0, 20));
+
+        assertEquals(List.of("ORD-1"), byPhone.stream().map(OrderSummary::getOrderId).toList());
+        assertEquals(List.of("ORD-2"), byOrderId.stream().map(OrderSummary::getOrderId).toList());
+    }
+
+    @Test
+    @DisplayName("Should load line items together with the order for the detail view")
+    void shouldFetchItemsForOrderDetail() {
+        OrderEntity order = orderEntityRepository.findWithItemsByOrderId("ORD-2").orElseThrow();
+        entityManager.detach(order);
+
+        assertTrue(Hibernate.isInitialized(order.getItems()));
+        List<OrderItemEntity> items = order.getItems();
+        assertEquals(3, items.size());
+    }
+}
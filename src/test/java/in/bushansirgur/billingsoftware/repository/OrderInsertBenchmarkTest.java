@@ -0,0 +1,95 @@
+package in.bushansirgur.billingsoftware.repository;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.entity.OrderItemEntity;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of persisting 50-line orders through JPA.
+ * Run with {@code mvn test -Dtest=OrderInsertBenchmarkTest -Dbenchmark=true}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Tag("benchmark")
+@Slf4j
+class OrderInsertBenchmarkTest {
+
+    private static final int WARMUP_ORDERS = 50;
+    private static final int ORDERS = 500;
+    private static final int LINES_PER_ORDER = 50;
+
+    @Autowired
+    private OrderEntityRepository orderEntityRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    @DisplayName("Benchmark inserts per second for 50-line orders")
+    void benchmarkFiftyLineOrderInserts() {
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        insertOrders(WARMUP_ORDERS);
+        statistics.clear();
+
+        long started = System.nanoTime();
+        insertOrders(ORDERS);
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        long rows = (long) ORDERS * (LINES_PER_ORDER + 1);
+        double statementsPerOrder = (double) statistics.getPrepareStatementCount() / ORDERS;
+        log.info("{} orders x {} lines: {} orders/s, {} rows/s, {} JDBC statements per order",
+                ORDERS, LINES_PER_ORDER, Math.round(ORDERS / seconds), Math.round(rows / seconds),
+                String.format("%.1f", statementsPerOrder));
+        assertEquals(WARMUP_ORDERS + ORDERS, orderEntityRepository.count());
+        // Lines go out in JDBC batches, so an order costs a handful of statements rather than one per row
+        assertTrue(statementsPerOrder < LINES_PER_ORDER / 5.0,
+                "Expected batched line inserts, got " + statementsPerOrder + " statements per order");
+    }
+
+    private void insertOrders(int count) {
+        for (int o = 0; o < count; o++) {
+            List<OrderItemEntity> items = new ArrayList<>(LINES_PER_ORDER);
+            for (int l = 0; l < LINES_PER_ORDER; l++) {
+                items.add(OrderItemEntity.builder()
+                        .itemId("item-" + l)
+                        .name("Item " + l)
+                        .barcode("38000000" + String.format("%05d", l))
+                        .price(1.99)
+                        .quantity(1)
+                        .build());
+            }
+            OrderEntity order = OrderEntity.builder()
+                    .orderId("ORD-BENCH-" + System.nanoTime())
+                    .grandTotal(99.5)
+                    .subtotal(82.92)
+                    .tax(16.58)
+                    .paymentMethod(PaymentMethod.CASH)
+                    .items(items)
+                    .build();
+            orderEntityRepository.save(order);
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+}
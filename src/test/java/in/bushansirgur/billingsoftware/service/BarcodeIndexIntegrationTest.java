@@ -0,0 +1,222 @@
+package in.bushansirgur.billingsoftware.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.io.ItemRequest;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class BarcodeIndexIntegrationTest {
+
+    private static final String BARCODE = "4006381333931";
+
+    @Autowired
+    private BarcodeIndex barcodeIndex;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private CatalogChangeLog catalogChangeLog;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventorySummaryState inventorySummaryState;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private StockAlerts stockAlerts;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("scan-category")
+                .name("Scan Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("scan-item")
+                .name("Sparkling Water")
+                .price(new BigDecimal("1.20"))
+                .barcode(BARCODE)
+                .category(category)
+                .stockQuantity(12)
+                .reorderPoint(10)
+                .maxStockLevel(100)
+                .build());
+        inventorySummaryState.rebuild();
+        barcodeIndex.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+        inventorySummaryState.rebuild();
+        barcodeIndex.rebuild();
+    }
+
+    private void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tbl_item_daily_movement");
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        promotionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        stockAlerts.reload();
+    }
+
+    private JsonNode scan(String barcode) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!barcodeIndex.write(barcode, out)) {
+            assertEquals(0, out.size());
+            return null;
+        }
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Should answer scans from the index with live stock")
+    void shouldServeLiveStock() throws IOException {
+        JsonNode item = scan(BARCODE);
+        assertEquals("scan-item", item.get("itemId").asText());
+        assertEquals("Scan Category", item.get("categoryName").asText());
+        assertEquals(12, item.get("stockQuantity").asInt());
+        assertEquals("NORMAL", item.get("stockStatus").asText());
+        assertEquals(0, new BigDecimal("1.20").compareTo(item.get("effectivePrice").decimalValue()));
+
+        inventoryService.processSaleTransactions(Map.of("scan-item", 5), "ORD-SCAN-1");
+
+        item = scan(BARCODE);
+        assertEquals(7, item.get("stockQuantity").asInt());
+        assertEquals("LOW_STOCK", item.get("stockStatus").asText());
+        assertTrue(item.get("needsReorder").asBoolean());
+        assertEquals(93, item.get("reorderQuantity").asInt());
+    }
+
+    @Test
+    @DisplayName("Should apply the cheapest running promotion to scans")
+    void shouldApplyPromotion() throws IOException {
+        ItemEntity entity = itemRepository.findByItemId("scan-item").orElseThrow();
+        long now = System.currentTimeMillis();
+        promotionRepository.save(PromotionEntity.builder()
+                .item(entity)
+                .promoPrice(new BigDecimal("0.99"))
+                .startAt(new Timestamp(now - 60_000))
+                .endAt(new Timestamp(now + 3_600_000))
+                .active(true)
+                .build());
+        promotionRepository.save(PromotionEntity.builder()
+                .item(entity)
+                .promoPrice(new BigDecimal("0.50"))
+                .startAt(new Timestamp(now + 1_800_000))
+                .endAt(new Timestamp(now + 3_600_000))
+                .active(true)
+                .build());
+        barcodeIndex.refreshAfterCommit("scan-item");
+
+        JsonNode item = scan(BARCODE);
+        assertEquals(0, new BigDecimal("0.99").compareTo(item.get("effectivePrice").decimalValue()));
+        assertEquals(0, new BigDecimal("1.20").compareTo(item.get("price").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("Should move an item to its new barcode when it is edited")
+    void shouldFollowBarcodeChange() throws IOException {
+        itemService.update("scan-item", ItemRequest.builder()
+                .name("Sparkling Water 1L")
+                .price(new BigDecimal("1.40"))
+                .barcode("5000112637922")
+                .vatRate(new BigDecimal("0.20"))
+                .build(), null);
+
+        assertNull(scan(BARCODE));
+        JsonNode item = scan("5000112637922");
+        assertEquals("Sparkling Water 1L", item.get("name").asText());
+        assertEquals(0, new BigDecimal("1.40").compareTo(item.get("effectivePrice").decimalValue()));
+
+        itemService.deleteItem("scan-item");
+        assertNull(scan("5000112637922"));
+    }
+
+    @Test
+    @DisplayName("Should catch up with changes other instances logged")
+    void shouldCatchUpFromChangeLog() throws IOException {
+        ItemEntity entity = itemRepository.findByItemId("scan-item").orElseThrow();
+        long now = System.currentTimeMillis();
+        PromotionEntity promotion = promotionRepository.save(PromotionEntity.builder()
+                .item(entity)
+                .promoPrice(new BigDecimal("0.99"))
+                .startAt(new Timestamp(now - 60_000))
+                .endAt(new Timestamp(now + 3_600_000))
+                .active(true)
+                .build());
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.PROMOTION, String.valueOf(promotion.getId()));
+        barcodeIndex.catchUp();
+        assertEquals(0, new BigDecimal("0.99").compareTo(scan(BARCODE).get("effectivePrice").decimalValue()));
+
+        jdbcTemplate.update("UPDATE tbl_items SET name = 'Still Water' WHERE item_id = 'scan-item'");
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, "scan-item");
+        promotionRepository.deleteById(promotion.getId());
+        catalogChangeLog.recordDeleted(CatalogChangeEntity.EntityType.PROMOTION, String.valueOf(promotion.getId()));
+        barcodeIndex.catchUp();
+
+        JsonNode item = scan(BARCODE);
+        assertEquals("Still Water", item.get("name").asText());
+        assertEquals(0, new BigDecimal("1.20").compareTo(item.get("effectivePrice").decimalValue()));
+    }
+
+    @Test
+    @DisplayName("Should leave non-numeric barcodes to the database lookup")
+    void shouldSkipNonNumericBarcodes() throws IOException {
+        assertNull(scan("ABC-12345"));
+        assertNull(scan("12345"));
+    }
+}
@@ -0,0 +1,204 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.io.CatalogChangesResponse;
+import in.bushansirgur.billingsoftware.io.ItemRequest;
+import in.bushansirgur.billingsoftware.io.ItemResponse;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class CatalogServiceIntegrationTest {
+
+    @Autowired
+    private CatalogService catalogService;
+
+    @Autowired
+    private CatalogChangeLog catalogChangeLog;
+
+    @Autowired
+    private ItemService itemService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private PromotionService promotionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        categoryRepository.save(CategoryEntity.builder()
+                .categoryId("catalog-category")
+                .name("Catalog Category")
+                .build());
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.CATEGORY, "catalog-category");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        promotionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM tbl_catalog_changes");
+        jdbcTemplate.update("UPDATE tbl_catalog_version SET purged_through = 0");
+    }
+
+    private ItemResponse addItem(String name, String barcode) throws IOException {
+        return itemService.add(ItemRequest.builder()
+                .name(name)
+                .price(new BigDecimal("2.50"))
+                .barcode(barcode)
+                .categoryId("catalog-category")
+                .build(), null);
+    }
+
+    @Test
+    @DisplayName("Should load the whole catalog from version 0 and only deltas afterwards")
+    void shouldReturnDeltas() throws IOException {
+        ItemResponse tea = addItem("Tea", "4006381333931");
+        CatalogChangesResponse full = catalogService.getChanges(0, null);
+        assertFalse(full.isHasMore());
+        assertEquals(List.of("catalog-category"), full.getCategories().stream().map(c -> c.getCategoryId()).toList());
+        assertEquals(List.of(tea.getItemId()), full.getItems().stream().map(ItemResponse::getItemId).toList());
+
+        CatalogChangesResponse none = catalogService.getChanges(full.getVersion(), null);
+        assertEquals(full.getVersion(), none.getVersion());
+        assertTrue(none.getItems().isEmpty());
+        assertTrue(none.getCategories().isEmpty());
+
+        ItemResponse coffee = addItem("Coffee", "5000112637922");
+        itemService.deleteItem(tea.getItemId());
+        CatalogChangesResponse delta = catalogService.getChanges(full.getVersion(), null);
+        assertEquals(List.of(coffee.getItemId()), delta.getItems().stream().map(ItemResponse::getItemId).toList());
+        assertEquals(List.of(tea.getItemId()), delta.getDeletedItemIds());
+        assertTrue(delta.getCategories().isEmpty());
+        assertTrue(delta.getVersion() > full.getVersion());
+
+        // Tombstones are left out of a full load
+        assertTrue(catalogService.getChanges(0, null).getDeletedItemIds().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should page through changes in version order")
+    void shouldPage() throws IOException {
+        addItem("Tea", "4006381333931");
+        addItem("Coffee", "5000112637922");
+
+        CatalogChangesResponse first = catalogService.getChanges(0, 2);
+        assertTrue(first.isHasMore());
+        assertEquals(1, first.getCategories().size());
+        assertEquals(List.of("Tea"), first.getItems().stream().map(ItemResponse::getName).toList());
+
+        CatalogChangesResponse second = catalogService.getChanges(first.getVersion(), 2);
+        assertFalse(second.isHasMore());
+        assertEquals(List.of("Coffee"), second.getItems().stream().map(ItemResponse::getName).toList());
+    }
+
+    @Test
+    @DisplayName("Should version a transaction's changes at commit and drop them on rollback")
+    void shouldWriteAtCommit() {
+        long before = catalogService.getChanges(0, null).getVersion();
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, "gone-item");
+            catalogChangeLog.recordDeleted(CatalogChangeEntity.EntityType.PROMOTION, "42");
+            catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, "gone-item");
+            assertEquals(before, catalogService.getChanges(0, null).getVersion());
+        });
+
+        CatalogChangesResponse delta = catalogService.getChanges(before, null);
+        assertEquals(before + 2, delta.getVersion());
+        // No longer in the database, so reported as deleted
+        assertEquals(List.of("gone-item"), delta.getDeletedItemIds());
+        assertEquals(List.of(42L), delta.getDeletedPromotionIds());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, "rolled-back");
+            status.setRollbackOnly();
+        });
+        assertEquals(before + 2, catalogService.getChanges(0, null).getVersion());
+    }
+
+    @Test
+    @DisplayName("Should version promotions in the transaction that writes them")
+    void shouldVersionPromotions() throws IOException {
+        ItemResponse tea = addItem("Tea", "4006381333931");
+        long before = catalogService.getChanges(0, null).getVersion();
+        long now = System.currentTimeMillis();
+
+        PromotionEntity promotion = promotionService.create(null, tea.getItemId(), new BigDecimal("1.99"),
+                new Timestamp(now - 60_000), new Timestamp(now + 3_600_000));
+        CatalogChangesResponse created = catalogService.getChanges(before, null);
+        assertEquals(List.of(promotion.getId()), created.getPromotions().stream()
+                .map(CatalogChangesResponse.Promotion::getId).toList());
+
+        promotionService.delete(promotion.getId());
+        assertEquals(List.of(promotion.getId()), catalogService.getChanges(created.getVersion(), null).getDeletedPromotionIds());
+
+        ResponseStatusException missing = assertThrows(ResponseStatusException.class, () -> promotionService.delete(promotion.getId()));
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        ResponseStatusException invalid = assertThrows(ResponseStatusException.class, () -> promotionService.create(
+                null, "no-such-item", BigDecimal.ONE, new Timestamp(now), new Timestamp(now + 60_000)));
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should send clients behind purged tombstones back to a full load")
+    void shouldRejectPurgedVersions() throws IOException {
+        long start = catalogService.getChanges(0, null).getVersion();
+        ItemResponse tea = addItem("Tea", "4006381333931");
+        itemService.deleteItem(tea.getItemId());
+        addItem("Coffee", "5000112637922");
+        jdbcTemplate.update("UPDATE tbl_catalog_changes SET changed_at = DATEADD('DAY', -60, changed_at) WHERE deleted = TRUE");
+
+        assertEquals(1, catalogChangeLog.purgeTombstones());
+
+        ResponseStatusException tooOld = assertThrows(ResponseStatusException.class, () -> catalogService.getChanges(start, null));
+        assertEquals(HttpStatus.GONE, tooOld.getStatusCode());
+        CatalogChangesResponse full = catalogService.getChanges(0, null);
+        assertEquals(List.of("Coffee"), full.getItems().stream().map(ItemResponse::getName).toList());
+
+        ResponseStatusException ahead = assertThrows(ResponseStatusException.class,
+                () -> catalogService.getChanges(full.getVersion() + 1, null));
+        assertEquals(HttpStatus.GONE, ahead.getStatusCode());
+    }
+}
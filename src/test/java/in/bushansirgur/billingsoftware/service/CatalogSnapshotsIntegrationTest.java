@@ -0,0 +1,133 @@
+package in.bushansirgur.billingsoftware.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CatalogChangeEntity;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.PromotionEntity;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.PromotionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class CatalogSnapshotsIntegrationTest {
+
+    @Autowired
+    private CatalogSnapshots catalogSnapshots;
+
+    @Autowired
+    private CatalogChangeLog catalogChangeLog;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private PromotionRepository promotionRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity drinks = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("snapshot-drinks")
+                .name("Drinks")
+                .bgColor("#00aaff")
+                .build());
+        ItemEntity water = itemRepository.save(ItemEntity.builder()
+                .itemId("snapshot-water")
+                .name("Water")
+                .price(new BigDecimal("0.80"))
+                .vatRate(new BigDecimal("0.20"))
+                .barcode("4006381333931")
+                .category(drinks)
+                .stockQuantity(40)
+                .supplierName("Springs Ltd")
+                .build());
+        long now = System.currentTimeMillis();
+        promotionRepository.save(PromotionEntity.builder()
+                .item(water)
+                .promoPrice(new BigDecimal("0.60"))
+                .startAt(new Timestamp(now - 60_000))
+                .endAt(new Timestamp(now + 3_600_000))
+                .active(true)
+                .build());
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, "snapshot-water");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        promotionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    private JsonNode decode(CatalogSnapshots.Snapshot snapshot) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot.gzipped()))) {
+            return objectMapper.readTree(in);
+        }
+    }
+
+    @Test
+    @DisplayName("Should encode the POS fields of the catalog in columns")
+    void shouldEncodeColumns() throws IOException {
+        CatalogSnapshots.Snapshot snapshot = catalogSnapshots.current();
+        JsonNode catalog = decode(snapshot);
+
+        assertEquals(snapshot.version(), catalog.get("version").asLong());
+        assertEquals("Drinks", catalog.at("/categories/name/0").asText());
+        JsonNode items = catalog.get("items");
+        assertEquals("snapshot-water", items.at("/itemId/0").asText());
+        assertEquals("4006381333931", items.at("/barcode/0").asText());
+        assertEquals(0, new BigDecimal("0.80").compareTo(items.at("/price/0").decimalValue()));
+        assertEquals(0, items.at("/category/0").asInt());
+        assertNull(items.get("stockQuantity"));
+        assertNull(items.get("supplierName"));
+        assertEquals(0, catalog.at("/promotions/item/0").asInt());
+        assertEquals(0, new BigDecimal("0.60").compareTo(catalog.at("/promotions/promoPrice/0").decimalValue()));
+        assertEquals(catalog, objectMapper.readTree(snapshot.identity()));
+    }
+
+    @Test
+    @DisplayName("Should reuse the snapshot until the catalog version moves")
+    void shouldRebuildOnCatalogChange() throws IOException {
+        CatalogSnapshots.Snapshot first = catalogSnapshots.current();
+        assertSame(first, catalogSnapshots.current());
+
+        ItemEntity water = itemRepository.findByItemId("snapshot-water").orElseThrow();
+        water.setPrice(new BigDecimal("0.90"));
+        itemRepository.save(water);
+        catalogChangeLog.record(CatalogChangeEntity.EntityType.ITEM, "snapshot-water");
+
+        CatalogSnapshots.Snapshot second = catalogSnapshots.current();
+        assertEquals(first.version() + 1, second.version());
+        assertNotEquals(first.etag(), second.etag());
+        assertEquals(0, new BigDecimal("0.90").compareTo(decode(second).at("/items/price/0").decimalValue()));
+    }
+}
@@ -39,6 +39,9 @@ class CategoryServiceTest {
     @Mock
     private FileUploadService fileUploadService;
 
+    @Mock
+    private CatalogChangeLog catalogChangeLog;
+
     @Mock
     private MultipartFile multipartFile;
 
@@ -0,0 +1,226 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryAdjustmentEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentRequest;
+import in.bushansirgur.billingsoftware.io.InventoryDocumentResponse;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAdjustmentRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryDocumentRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class, properties = "inventory.documents.chunk-size=2")
+@ActiveProfiles("test")
+class InventoryDocumentServiceIntegrationTest {
+
+    @Autowired
+    private InventoryDocumentService inventoryDocumentService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAdjustmentRepository adjustmentRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private InventoryDocumentRepository documentRepository;
+
+    @Autowired
+    private StockAlerts stockAlerts;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("doc-category")
+                .name("Document Category")
+                .build());
+        for (String itemId : List.of("doc-a", "doc-b", "doc-c")) {
+            itemRepository.save(ItemEntity.builder()
+                    .itemId(itemId)
+                    .name("Item " + itemId)
+                    .category(category)
+                    .stockQuantity(20)
+                    .reorderPoint(5)
+                    .build());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        documentRepository.deleteAll();
+        adjustmentRepository.deleteAll();
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        stockAlerts.reload();
+    }
+
+    @Test
+    @DisplayName("Should apply a count sheet in chunks and record only the differences")
+    void shouldApplyCountSheet() {
+        InventoryDocumentResponse result = inventoryDocumentService.apply(InventoryDocumentRequest.builder()
+                .documentId("COUNT-1")
+                .type(InventoryDocumentRequest.DocumentType.COUNT)
+                .createdBy("auditor")
+                .lines(List.of(line("doc-a", 17), line("doc-b", 20), line("doc-c", 3), line("missing", 4)))
+                .build());
+
+        assertEquals(InventoryDocumentResponse.Status.COMPLETED, result.getStatus());
+        assertEquals(4, result.getTotalItems());
+        assertEquals(4, result.getProcessedItems());
+        assertEquals(2, result.getChangedItems());
+        assertEquals(List.of("missing"), result.getUnknownItemIds());
+        InventoryDocumentResponse progress = inventoryDocumentService.getProgress("COUNT-1");
+        assertEquals(InventoryDocumentResponse.Status.COMPLETED, progress.getStatus());
+        assertEquals(4, progress.getProcessedItems());
+        assertEquals(List.of("missing"), progress.getUnknownItemIds());
+
+        assertEquals(17, stock("doc-a"));
+        assertEquals(20, stock("doc-b"));
+        assertEquals(3, stock("doc-c"));
+        assertEquals(2, transactionRepository.count());
+        InventoryAdjustmentEntity adjustment = adjustmentRepository.findByItemIdOrderByCreatedAtDesc("doc-c").get(0);
+        assertEquals(InventoryAdjustmentEntity.AdjustmentType.COUNT_CORRECTION, adjustment.getAdjustmentType());
+        assertEquals(-17, adjustment.getQuantity());
+        assertEquals(1, alertRepository.findActiveAlertsByItemId("doc-c").size());
+    }
+
+    @Test
+    @DisplayName("Should add up delivery lines and record them as purchases")
+    void shouldApplyDelivery() {
+        inventoryDocumentService.apply(InventoryDocumentRequest.builder()
+                .type(InventoryDocumentRequest.DocumentType.DELIVERY)
+                .referenceNumber("DN-100")
+                .lines(List.of(
+                        InventoryDocumentRequest.Line.builder().itemId("doc-a").quantity(10).unitPrice(new BigDecimal("1.20")).build(),
+                        line("doc-a", 5),
+                        line("doc-b", 1)))
+                .build());
+
+        assertEquals(35, stock("doc-a"));
+        assertEquals(21, stock("doc-b"));
+        InventoryTransactionEntity purchase = transactionRepository.findByItemIdOrderByCreatedAtDesc("doc-a").get(0);
+        assertEquals(InventoryTransactionEntity.TransactionType.PURCHASE, purchase.getTransactionType());
+        assertEquals(15, purchase.getQuantity());
+        assertEquals("DN-100", purchase.getReferenceNumber());
+        assertEquals(0, new BigDecimal("18.00").compareTo(purchase.getTotalValue()));
+        assertNotNull(itemRepository.findByItemId("doc-a").orElseThrow().getLastRestockDate());
+        assertTrue(adjustmentRepository.findAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should record write-offs under their reason")
+    void shouldApplyWriteOff() {
+        inventoryDocumentService.apply(InventoryDocumentRequest.builder()
+                .type(InventoryDocumentRequest.DocumentType.WRITE_OFF)
+                .adjustmentType("DAMAGE")
+                .reason("Broken in storage")
+                .lines(List.of(line("doc-b", 2)))
+                .build());
+
+        assertEquals(18, stock("doc-b"));
+        InventoryTransactionEntity ledger = transactionRepository.findByItemIdOrderByCreatedAtDesc("doc-b").get(0);
+        assertEquals(InventoryTransactionEntity.TransactionType.DAMAGED, ledger.getTransactionType());
+        assertEquals(-2, ledger.getQuantity());
+        assertEquals("Broken in storage", adjustmentRepository.findByItemIdOrderByCreatedAtDesc("doc-b").get(0).getReason());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid lines, overflowing totals and resubmitted document ids")
+    void shouldRejectInvalidDocuments() {
+        assertThrows(ResponseStatusException.class, () -> inventoryDocumentService.apply(InventoryDocumentRequest.builder()
+                .type(InventoryDocumentRequest.DocumentType.WRITE_OFF)
+                .lines(List.of(line("doc-a", 0)))
+                .build()));
+        ResponseStatusException overflow = assertThrows(ResponseStatusException.class, () -> inventoryDocumentService.apply(
+                InventoryDocumentRequest.builder()
+                        .type(InventoryDocumentRequest.DocumentType.DELIVERY)
+                        .lines(List.of(line("doc-a", Integer.MAX_VALUE), line("doc-a", 1)))
+                        .build()));
+        assertEquals(HttpStatus.BAD_REQUEST, overflow.getStatusCode());
+
+        InventoryDocumentRequest delivery = InventoryDocumentRequest.builder()
+                .documentId("DELIVERY-1")
+                .type(InventoryDocumentRequest.DocumentType.DELIVERY)
+                .lines(List.of(line("doc-a", 1)))
+                .build();
+        inventoryDocumentService.apply(delivery);
+        assertThrows(ResponseStatusException.class, () -> inventoryDocumentService.apply(delivery));
+        assertEquals(21, stock("doc-a"));
+    }
+
+    @Test
+    @DisplayName("Should fail with a server error and continue after the last committed chunk when resubmitted")
+    void shouldResumeFailedDocument() {
+        InventoryDocumentRequest.InventoryDocumentRequestBuilder delivery = InventoryDocumentRequest.builder()
+                .documentId("DELIVERY-2")
+                .type(InventoryDocumentRequest.DocumentType.DELIVERY);
+
+        // The second chunk overflows the stock column
+        ResponseStatusException failed = assertThrows(ResponseStatusException.class, () -> inventoryDocumentService.apply(
+                delivery.lines(List.of(line("doc-a", 1), line("doc-b", 1), line("doc-c", Integer.MAX_VALUE))).build()));
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        InventoryDocumentResponse progress = inventoryDocumentService.getProgress("DELIVERY-2");
+        assertEquals(InventoryDocumentResponse.Status.FAILED, progress.getStatus());
+        assertEquals(2, progress.getProcessedItems());
+        assertNotNull(progress.getError());
+
+        InventoryDocumentResponse resumed = inventoryDocumentService.apply(
+                delivery.lines(List.of(line("doc-a", 1), line("doc-b", 1), line("doc-c", 4))).build());
+
+        assertEquals(InventoryDocumentResponse.Status.COMPLETED, resumed.getStatus());
+        assertEquals(3, resumed.getProcessedItems());
+        assertEquals(3, resumed.getChangedItems());
+        assertNull(resumed.getError());
+        assertEquals(21, stock("doc-a"));
+        assertEquals(21, stock("doc-b"));
+        assertEquals(24, stock("doc-c"));
+        assertEquals(3, transactionRepository.count());
+
+        ResponseStatusException again = assertThrows(ResponseStatusException.class, () -> inventoryDocumentService.apply(
+                delivery.lines(List.of(line("doc-a", 1), line("doc-b", 1), line("doc-c", 4))).build()));
+        assertEquals(HttpStatus.CONFLICT, again.getStatusCode());
+    }
+
+    private InventoryDocumentRequest.Line line(String itemId, int quantity) {
+        return InventoryDocumentRequest.Line.builder().itemId(itemId).quantity(quantity).build();
+    }
+
+    private int stock(String itemId) {
+        return itemRepository.findByItemId(itemId).orElseThrow().getStockQuantity();
+    }
+}
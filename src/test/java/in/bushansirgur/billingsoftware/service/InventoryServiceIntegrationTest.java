@@ -0,0 +1,301 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryAlertEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.io.CursorPage;
+import in.bushansirgur.billingsoftware.io.InventoryRequest;
+import in.bushansirgur.billingsoftware.io.InventoryResponse;
+import in.bushansirgur.billingsoftware.io.InventorySummaryResponse;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class InventoryServiceIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private StockAlerts stockAlerts;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private InventorySummaryState inventorySummaryState;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("inv-test-category")
+                .name("Inventory Test Category")
+                .build());
+
+        itemRepository.save(ItemEntity.builder()
+                .itemId("item-a")
+                .name("Milk")
+                .barcode("3800000000011")
+                .category(category)
+                .stockQuantity(50)
+                .reorderPoint(10)
+                .costPrice(new BigDecimal("1.50"))
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("item-b")
+                .name("Bread")
+                .barcode("3800000000028")
+                .category(category)
+                .stockQuantity(12)
+                .reorderPoint(10)
+                .build());
+        inventorySummaryState.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        stockAlerts.reload();
+        inventorySummaryState.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should decrement stock and write one ledger row per item for a whole cart")
+    void shouldDecrementStockForWholeCart() {
+        inventoryService.processSaleTransactions(Map.of("item-b", 3, "item-a", 5), "ORD-TEST-1");
+
+        assertEquals(45, itemRepository.findByItemId("item-a").orElseThrow().getStockQuantity());
+        assertEquals(9, itemRepository.findByItemId("item-b").orElseThrow().getStockQuantity());
+
+        List<InventoryTransactionEntity> ledger = transactionRepository.findAll();
+        assertEquals(2, ledger.size());
+        InventoryTransactionEntity milk = transactionRepository.findByItemIdOrderByCreatedAtDesc("item-a").get(0);
+        assertEquals(InventoryTransactionEntity.TransactionType.SALE, milk.getTransactionType());
+        assertEquals(-5, milk.getQuantity());
+        assertEquals(50, milk.getPreviousQuantity());
+        assertEquals(45, milk.getNewQuantity());
+        assertEquals("ORD-TEST-1", milk.getReferenceNumber());
+    }
+
+    @Test
+    @DisplayName("Should raise a low stock alert only once when the item stays low")
+    void shouldRaiseLowStockAlertOnce() {
+        inventoryService.processSaleTransactions(Map.of("item-b", 3), "ORD-TEST-2");
+        inventoryService.processSaleTransactions(Map.of("item-b", 1), "ORD-TEST-3");
+
+        List<InventoryAlertEntity> alerts = alertRepository.findActiveAlertsByItemId("item-b");
+        assertEquals(1, alerts.size());
+        assertEquals(InventoryAlertEntity.AlertType.LOW_STOCK, alerts.get(0).getAlertType());
+        assertTrue(alertRepository.findActiveAlertsByItemId("item-a").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should resolve the previous alert when the item moves to another band")
+    void shouldResolveAlertOnBandChange() {
+        inventoryService.processSaleTransactions(Map.of("item-b", 3), "ORD-TEST-5");
+        inventoryService.processSaleTransactions(Map.of("item-b", 9), "ORD-TEST-6");
+
+        List<InventoryAlertEntity> active = alertRepository.findActiveAlertsByItemId("item-b");
+        assertEquals(1, active.size());
+        assertEquals(InventoryAlertEntity.AlertType.OUT_OF_STOCK, active.get(0).getAlertType());
+        InventoryAlertEntity low = alertRepository.findByItemIdOrderByCreatedAtDesc("item-b").stream()
+                .filter(alert -> alert.getAlertType() == InventoryAlertEntity.AlertType.LOW_STOCK)
+                .findFirst().orElseThrow();
+        assertTrue(low.getIsResolved());
+        assertEquals("SYSTEM", low.getResolvedBy());
+
+        inventoryService.processReturnTransactions(Map.of("item-b", 20), "REF-TEST-6");
+
+        assertTrue(alertRepository.findActiveAlertsByItemId("item-b").isEmpty());
+        assertEquals(2, alertRepository.findByItemIdOrderByCreatedAtDesc("item-b").size());
+    }
+
+    @Test
+    @DisplayName("Should reject the cart without touching stock when an item is unknown")
+    void shouldRejectCartWithUnknownItem() {
+        assertThrows(ResponseStatusException.class, () ->
+                inventoryService.processSaleTransactions(Map.of("item-a", 1, "missing", 1), "ORD-TEST-4"));
+
+        assertEquals(50, itemRepository.findByItemId("item-a").orElseThrow().getStockQuantity());
+        assertTrue(transactionRepository.findAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep the summary counters and valuation in step with sales")
+    void shouldMaintainSummaryCounters() {
+        InventorySummaryResponse before = inventoryService.getInventorySummary();
+        assertEquals(2, before.getTotalItems());
+        assertEquals(0, before.getLowStockItems());
+        assertEquals(0, before.getOutOfStockItems());
+        assertEquals(0, before.getActiveAlerts());
+        assertEquals(new BigDecimal("75.00"), before.getTotalInventoryValue());
+
+        inventoryService.processSaleTransactions(Map.of("item-a", 5, "item-b", 12), "ORD-TEST-7");
+
+        InventorySummaryResponse after = inventoryService.getInventorySummary();
+        assertEquals(1, after.getLowStockItems());
+        assertEquals(1, after.getOutOfStockItems());
+        assertEquals(1, after.getActiveAlerts());
+        assertEquals(new BigDecimal("67.50"), after.getTotalInventoryValue());
+
+        Page<InventoryResponse> outOfStock = inventoryService.getOutOfStockItems(PageRequest.of(0, 20));
+        assertEquals(1, outOfStock.getTotalElements());
+        assertEquals("item-b", outOfStock.getContent().get(0).getItemId());
+    }
+
+    @Test
+    @DisplayName("Should add up summary stock changes that commit in reverse order")
+    void shouldApplySummaryChangesAsDeltas() {
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(first -> {
+            inventorySummaryState.recordStockAfterCommit(List.of(ledgerRow(-5)));
+            // The later change commits first
+            requiresNew.executeWithoutResult(second -> inventorySummaryState.recordStockAfterCommit(List.of(ledgerRow(-3))));
+            assertEquals(47, inventorySummaryState.stockOf("item-a", -1));
+        });
+
+        assertEquals(42, inventorySummaryState.stockOf("item-a", -1));
+    }
+
+    @Test
+    @DisplayName("Should count stock still pending on the write-behind counters when rebuilding the summary")
+    void shouldRebuildWithPendingStock() {
+        jdbcTemplate.update("INSERT INTO tbl_inventory_transactions (id, transaction_id, item_id, transaction_type, quantity, " +
+                "previous_quantity, new_quantity, created_at, stock_pending) VALUES (-1, 'TXN-PENDING', 'item-a', 'SALE', -7, 50, 43, " +
+                "CURRENT_TIMESTAMP, TRUE)");
+
+        inventorySummaryState.rebuild();
+
+        assertEquals(43, inventorySummaryState.stockOf("item-a", -1));
+        assertEquals(12, inventorySummaryState.stockOf("item-b", -1));
+    }
+
+    private InventoryTransactionEntity ledgerRow(int quantity) {
+        return InventoryTransactionEntity.builder()
+                .itemId("item-a")
+                .transactionType(InventoryTransactionEntity.TransactionType.SALE)
+                .quantity(quantity)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should blend costed receipts into the average cost and cost sales at it")
+    void shouldMaintainAverageCost() {
+        inventoryService.addStock(InventoryRequest.builder()
+                .itemId("item-a")
+                .quantity(50)
+                .unitPrice(new BigDecimal("2.50"))
+                .build());
+
+        assertEquals(new BigDecimal("2.0000"), itemRepository.findByItemId("item-a").orElseThrow().getAverageCost());
+
+        inventoryService.processSaleTransactions(Map.of("item-a", 10), "ORD-TEST-8");
+
+        InventoryTransactionEntity sale = transactionRepository.findByItemIdOrderByCreatedAtDesc("item-a").stream()
+                .filter(tx -> tx.getTransactionType() == InventoryTransactionEntity.TransactionType.SALE)
+                .findFirst().orElseThrow();
+        assertEquals(new BigDecimal("2.0000"), sale.getUnitCost());
+
+        InventorySummaryResponse summary = inventoryService.getInventorySummary();
+        assertEquals(new BigDecimal("135.00"), summary.getTotalInventoryValue());
+        assertEquals(new BigDecimal("180.00"), summary.getTotalCostValue());
+    }
+
+    @Test
+    @DisplayName("Should page item history by cursor and enrich rows with their item")
+    void shouldPageItemHistoryByCursor() {
+        for (int i = 1; i <= 5; i++) {
+            inventoryService.processSaleTransactions(Map.of("item-a", 1, "item-b", 1), "ORD-HIST-" + i);
+        }
+
+        CursorPage<InventoryResponse> first = inventoryService.getItemTransactionHistory("item-a", null, 3);
+        assertEquals(3, first.getContent().size());
+        assertTrue(first.isHasMore());
+        assertEquals("ORD-HIST-5", first.getContent().get(0).getReferenceNumber());
+        assertEquals("Milk", first.getContent().get(0).getItemName());
+
+        CursorPage<InventoryResponse> second = inventoryService.getItemTransactionHistory("item-a", first.getNextCursor(), 3);
+        assertEquals(2, second.getContent().size());
+        assertFalse(second.isHasMore());
+        assertNull(second.getNextCursor());
+        assertEquals("ORD-HIST-1", second.getContent().get(1).getReferenceNumber());
+        assertTrue(second.getContent().stream().allMatch(row -> "item-a".equals(row.getItemId())));
+    }
+
+    @Test
+    @DisplayName("Should export the movements between two dates as CSV")
+    void shouldExportMovementsAsCsv() throws Exception {
+        inventoryService.processSaleTransactions(Map.of("item-a", 2), "ORD-EXP-1");
+        inventoryService.processReturnTransactions(Map.of("item-a", 1), "REF-EXP-1");
+
+        StringWriter out = new StringWriter();
+        LocalDateTime today = LocalDate.now().atStartOfDay();
+        inventoryService.exportMovements(today, today.plusDays(1), out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("createdAt,transactionId,itemId,itemName"));
+        assertTrue(lines[1].contains(",item-a,Milk,3800000000011,SALE,-2,50,48,"));
+        assertTrue(lines[2].contains(",RETURN,1,48,49,"));
+
+        StringWriter empty = new StringWriter();
+        inventoryService.exportMovements(today.minusDays(2), today.minusDays(1), empty);
+        assertEquals(1, empty.toString().split("\n").length);
+    }
+}
@@ -0,0 +1,368 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CashDrawerSessionEntity;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.io.OrderBatchRequest;
+import in.bushansirgur.billingsoftware.io.OrderBatchResponse;
+import in.bushansirgur.billingsoftware.io.OrderRefundRequest;
+import in.bushansirgur.billingsoftware.io.OrderRequest;
+import in.bushansirgur.billingsoftware.io.OrderResponse;
+import in.bushansirgur.billingsoftware.io.OrderStatus;
+import in.bushansirgur.billingsoftware.io.PaymentDetails;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.repository.CashDrawerSessionRepository;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import in.bushansirgur.billingsoftware.repository.RefundLineRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class OrderServiceIntegrationTest {
+
+    private static final String CASHIER = "cashier@shop.bg";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderEntityRepository orderEntityRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CashDrawerSessionRepository cashDrawerSessionRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private RefundLineRepository refundLineRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("order-test-category")
+                .name("Order Test Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("order-item")
+                .name("Coffee")
+                .category(category)
+                .stockQuantity(20)
+                .build());
+        openSession(CASHIER);
+        authenticate(CASHIER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tbl_sales_rollup");
+        refundLineRepository.deleteAll();
+        orderEntityRepository.deleteAll();
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cashDrawerSessionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should return the original order when the same Idempotency-Key is retried")
+    void shouldReturnOriginalOrderForRepeatedKey() {
+        OrderResponse first = orderService.createOrder(request(), "register-7-0001");
+        OrderResponse retry = orderService.createOrder(request(), "register-7-0001");
+
+        assertEquals(first.getOrderId(), retry.getOrderId());
+        assertEquals(1, orderEntityRepository.count());
+        assertEquals(18, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+        assertEquals(1, transactionRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should find the original order in the database when the key is not cached")
+    void shouldFallBackToDatabase() {
+        OrderEntity stored = orderEntityRepository.save(OrderEntity.builder()
+                .orderId("ORD-STORED")
+                .grandTotal(6.0)
+                .paymentMethod(PaymentMethod.CASH)
+                .cashierUsername(CASHIER)
+                .idempotencyKey("register-7-0002")
+                .build());
+
+        OrderResponse retry = orderService.createOrder(request(), "register-7-0002");
+
+        assertEquals(stored.getOrderId(), retry.getOrderId());
+        assertEquals(1, orderEntityRepository.count());
+        assertEquals(20, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should reject a key that another cashier already used")
+    void shouldRejectKeyOfAnotherCashier() {
+        orderService.createOrder(request(), "shared-key");
+        openSession("other@shop.bg");
+        authenticate("other@shop.bg");
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> orderService.createOrder(request(), "shared-key"));
+        assertEquals(409, ex.getStatusCode().value());
+        assertEquals(1, orderEntityRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should create separate orders when no key is sent")
+    void shouldCreateOrdersWithoutKey() {
+        orderService.createOrder(request(), null);
+        orderService.createOrder(request(), " ");
+
+        assertEquals(2, orderEntityRepository.count());
+        assertEquals(16, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should ingest an offline batch, keeping sale times and skipping keys already stored")
+    void shouldIngestOfflineBatch() {
+        orderService.createOrder(request(), "register-7-0010");
+        LocalDateTime soldAt = LocalDateTime.now().minusHours(3).withNano(0);
+        OrderRequest emptyCart = request();
+        emptyCart.setCartItems(List.of());
+
+        OrderBatchResponse response = orderService.createOrders(new OrderBatchRequest(List.of(
+                offline("register-7-0010", soldAt, request()),
+                offline("register-7-0011", soldAt, request()),
+                offline("register-7-0011", soldAt, request()),
+                offline("register-7-0012", soldAt, emptyCart),
+                offline("register-7-0013", soldAt.plusMinutes(1), request()))));
+
+        assertEquals(2, response.getCreated());
+        assertEquals(2, response.getDuplicates());
+        assertEquals(1, response.getRejected());
+        assertEquals(OrderBatchResponse.Status.DUPLICATE, response.getResults().get(0).getStatus());
+        assertEquals(response.getResults().get(1).getOrderId(), response.getResults().get(2).getOrderId());
+        assertEquals(OrderBatchResponse.Status.REJECTED, response.getResults().get(3).getStatus());
+        assertEquals(3, orderEntityRepository.count());
+        assertEquals(14, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+        assertEquals(3, transactionRepository.count());
+        OrderEntity synced = orderEntityRepository.findWithItemsByIdempotencyKey("register-7-0011").orElseThrow();
+        assertEquals(soldAt, synced.getCreatedAt());
+        assertEquals(1, synced.getItems().size());
+        // The ledger row of a synced order is dated when it was sold and points at the order
+        InventoryTransactionEntity ledger = transactionRepository.findAll().stream()
+                .filter(tx -> synced.getOrderId().equals(tx.getReferenceNumber()))
+                .findFirst().orElseThrow();
+        assertEquals(soldAt, ledger.getCreatedAt());
+        assertEquals(-2, ledger.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should report every order as a duplicate when the same batch is sent again")
+    void shouldTreatReplayedBatchAsDuplicates() {
+        OrderBatchRequest batch = new OrderBatchRequest(List.of(
+                offline("register-8-0001", LocalDateTime.now().minusMinutes(30), request()),
+                offline("register-8-0002", LocalDateTime.now().minusMinutes(20), request())));
+
+        orderService.createOrders(batch);
+        OrderBatchResponse replay = orderService.createOrders(batch);
+
+        assertEquals(0, replay.getCreated());
+        assertEquals(2, replay.getDuplicates());
+        assertEquals(2, orderEntityRepository.count());
+        assertEquals(16, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should reject offline orders of other or unknown cashiers and unknown items")
+    void shouldRejectUnknownCashierAndItem() {
+        OrderRequest unknownItem = request();
+        unknownItem.getCartItems().get(0).setItemId("missing-item");
+        OrderBatchRequest.OfflineOrder otherCashier = offline("register-9-0001", LocalDateTime.now(), request());
+        otherCashier.setCashierUsername("ghost@shop.bg");
+
+        OrderBatchResponse response = orderService.createOrders(new OrderBatchRequest(List.of(
+                otherCashier, offline("register-9-0002", LocalDateTime.now(), unknownItem))));
+
+        assertEquals(2, response.getRejected());
+        assertEquals("Only an admin can sync orders of another cashier", response.getResults().get(0).getMessage());
+        assertEquals("Unknown item: missing-item", response.getResults().get(1).getMessage());
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "admin@shop.bg", null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))));
+        OrderBatchResponse asAdmin = orderService.createOrders(new OrderBatchRequest(List.of(otherCashier)));
+        assertEquals("Unknown cashier: ghost@shop.bg", asAdmin.getResults().get(0).getMessage());
+        assertEquals(0, orderEntityRepository.count());
+        assertEquals(20, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should refund part of an order, restock it and refuse to refund more than was sold")
+    void shouldValidatePartialRefundsAgainstLedger() {
+        OrderResponse sale = orderService.createOrder(request(), null);
+
+        OrderResponse refund = orderService.refundOrder(refundRequest(sale.getOrderId(), 1));
+
+        assertEquals(-3.0, refund.getGrandTotal(), 0.0001);
+        assertEquals(-1, refund.getItems().get(0).getQuantity());
+        assertEquals(19, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+        assertEquals(1, refundLineRepository.findByOriginalOrderIdOrderByIdAsc(sale.getOrderId()).size());
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> orderService.refundOrder(refundRequest(sale.getOrderId(), 2)));
+        assertEquals(400, ex.getStatusCode().value());
+        assertEquals(19, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+        assertEquals(2, orderEntityRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should refund only what is left when a full refund follows a partial one")
+    void shouldRefundRemainderAfterPartialRefund() {
+        OrderResponse sale = orderService.createOrder(request(), null);
+        orderService.refundOrder(refundRequest(sale.getOrderId(), 1));
+
+        OrderResponse rest = orderService.refundOrder(OrderRefundRequest.builder()
+                .orderId(sale.getOrderId())
+                .refundMethod("CASH")
+                .build());
+
+        assertEquals(-1, rest.getItems().get(0).getQuantity());
+        assertEquals(-3.0, rest.getGrandTotal(), 0.0001);
+        assertEquals(20, itemRepository.findByItemId("order-item").orElseThrow().getStockQuantity());
+        assertEquals(OrderStatus.REFUNDED, orderEntityRepository.findByOrderId(sale.getOrderId()).orElseThrow().getStatus());
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> orderService.refundOrder(OrderRefundRequest.builder().orderId(sale.getOrderId()).build()));
+        assertEquals(409, ex.getStatusCode().value());
+    }
+
+    @Test
+    @DisplayName("Should cap a refund at what earlier refunds left of the order total")
+    void shouldCapRefundAtRemainingTotal() {
+        OrderResponse sale = orderService.createOrder(request(), null);
+        OrderRefundRequest first = refundRequest(sale.getOrderId(), 1);
+        first.setRefundAmount(5.0);
+        OrderResponse partial = orderService.refundOrder(first);
+        assertEquals(-0.83, partial.getTax(), 0.0001);
+        assertEquals(-4.17, partial.getSubtotal(), 0.0001);
+
+        OrderRefundRequest second = refundRequest(sale.getOrderId(), 1);
+        second.setRefundAmount(2.0);
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> orderService.refundOrder(second));
+        assertEquals(400, ex.getStatusCode().value());
+
+        OrderResponse rest = orderService.refundOrder(refundRequest(sale.getOrderId(), 1));
+        assertEquals(-1.0, rest.getGrandTotal(), 0.0001);
+        // The last refund takes the remainder, so the refunds add up to the sale
+        assertEquals(-0.17, rest.getTax(), 0.0001);
+        assertEquals(-0.83, rest.getSubtotal(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("Should send a card refund to the terminal after recording it")
+    void shouldSettleCardRefundAfterCommit() {
+        OrderResponse sale = orderService.createOrder(request(), null);
+        OrderEntity original = orderEntityRepository.findByOrderId(sale.getOrderId()).orElseThrow();
+        original.getPaymentDetails().setPosTransactionId("TXN-1");
+        orderEntityRepository.save(original);
+
+        OrderRefundRequest request = refundRequest(sale.getOrderId(), 1);
+        request.setRefundMethod("CARD");
+        OrderResponse refund = orderService.refundOrder(request);
+
+        assertEquals(PaymentDetails.PaymentStatus.COMPLETED, refund.getPaymentDetails().getStatus());
+        PaymentDetails stored = orderEntityRepository.findByOrderId(refund.getOrderId()).orElseThrow().getPaymentDetails();
+        assertEquals(PaymentDetails.PaymentStatus.COMPLETED, stored.getStatus());
+        assertNotNull(stored.getPosRefundTransactionId());
+    }
+
+    private OrderRefundRequest refundRequest(String orderId, int quantity) {
+        return OrderRefundRequest.builder()
+                .orderId(orderId)
+                .refundMethod("CASH")
+                .items(List.of(OrderRefundRequest.RefundItem.builder()
+                        .itemId("order-item")
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
+
+    private OrderBatchRequest.OfflineOrder offline(String key, LocalDateTime createdAt, OrderRequest order) {
+        return OrderBatchRequest.OfflineOrder.builder()
+                .idempotencyKey(key)
+                .createdAt(createdAt)
+                .cashierUsername(CASHIER)
+                .order(order)
+                .build();
+    }
+
+    private OrderRequest request() {
+        return OrderRequest.builder()
+                .customerName("Walk-in")
+                .subtotal(5.0)
+                .tax(1.0)
+                .grandTotal(6.0)
+                .paymentMethod("CASH")
+                .cartItems(new ArrayList<>(List.of(OrderRequest.OrderItemRequest.builder()
+                        .itemId("order-item")
+                        .name("Coffee")
+                        .price(3.0)
+                        .quantity(2)
+                        .build())))
+                .build();
+    }
+
+    private void openSession(String cashier) {
+        cashDrawerSessionRepository.save(CashDrawerSessionEntity.builder()
+                .sessionDate(LocalDate.now())
+                .cashierUsername(cashier)
+                .startAmount(BigDecimal.ZERO)
+                .sessionStartTime(LocalDateTime.now())
+                .status(CashDrawerSessionEntity.SessionStatus.ACTIVE)
+                .build());
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+}
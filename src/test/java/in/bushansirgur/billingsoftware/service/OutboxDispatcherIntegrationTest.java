@@ -0,0 +1,227 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CashDrawerSessionEntity;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.OutboxEventEntity;
+import in.bushansirgur.billingsoftware.io.OrderPlacedEvent;
+import in.bushansirgur.billingsoftware.io.OrderRequest;
+import in.bushansirgur.billingsoftware.io.OrderResponse;
+import in.bushansirgur.billingsoftware.repository.CashDrawerSessionRepository;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import in.bushansirgur.billingsoftware.repository.OutboxEventRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class,
+        properties = {"orders.outbox.enabled=true", "orders.outbox.max-attempts=2"})
+@ActiveProfiles("test")
+class OutboxDispatcherIntegrationTest {
+
+    private static final String CASHIER = "outbox@shop.bg";
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OrderEntityRepository orderEntityRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CashDrawerSessionRepository cashDrawerSessionRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("outbox-category")
+                .name("Outbox Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("outbox-item")
+                .name("Tea")
+                .category(category)
+                .stockQuantity(20)
+                .build());
+        cashDrawerSessionRepository.save(CashDrawerSessionEntity.builder()
+                .sessionDate(LocalDate.now())
+                .cashierUsername(CASHIER)
+                .startAmount(BigDecimal.ZERO)
+                .sessionStartTime(LocalDateTime.now())
+                .status(CashDrawerSessionEntity.SessionStatus.ACTIVE)
+                .build());
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                CASHIER, null, List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        outboxDispatcher.drain(Duration.ofSeconds(5));
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        outboxEventRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM tbl_sales_rollup");
+        orderEntityRepository.deleteAll();
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        cashDrawerSessionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should apply stock changes after checkout, one order after another per item")
+    void shouldApplySideEffectsInOrder() {
+        OrderResponse first = orderService.createOrder(request(2));
+        orderService.createOrder(request(3));
+        orderService.createOrder(request(1));
+
+        assertTrue(outboxDispatcher.drain(Duration.ofSeconds(10)));
+
+        assertEquals(14, itemRepository.findByItemId("outbox-item").orElseThrow().getStockQuantity());
+        List<InventoryTransactionEntity> ledger = transactionRepository.findAll().stream()
+                .sorted(Comparator.comparing(InventoryTransactionEntity::getId))
+                .toList();
+        assertEquals(List.of(18, 15, 14), ledger.stream().map(InventoryTransactionEntity::getNewQuantity).toList());
+        assertEquals(first.getOrderId(), ledger.get(0).getReferenceNumber());
+        assertEquals(3, outboxEventRepository.countByStatus(OutboxEventEntity.Status.DONE));
+        assertEquals(3L, jdbcTemplate.queryForObject("SELECT SUM(order_count) FROM tbl_sales_rollup", Long.class));
+    }
+
+    @Test
+    @DisplayName("Should still reject unknown items at checkout")
+    void shouldRejectUnknownItemsAtCheckout() {
+        OrderRequest request = request(1);
+        request.getCartItems().get(0).setItemId("missing-item");
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> orderService.createOrder(request));
+        assertEquals(404, ex.getStatusCode().value());
+        assertEquals(0, orderEntityRepository.count());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid quantities at checkout")
+    void shouldRejectInvalidQuantitiesAtCheckout() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> orderService.createOrder(request(0)));
+        assertEquals(400, ex.getStatusCode().value());
+        assertEquals(0, orderEntityRepository.count());
+        assertEquals(0, outboxEventRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should give up on a rejected event at once")
+    void shouldFailRejectedEventsAtOnce() {
+        transactionTemplate.executeWithoutResult(status -> outboxDispatcher.enqueue(OrderPlacedEvent.builder()
+                .orderId("ORD-MISSING")
+                .quantitiesByItemId(Map.of("outbox-item", 1))
+                .build()));
+        assertTrue(outboxDispatcher.drain(Duration.ofSeconds(5)));
+
+        OutboxEventEntity rejected = outboxEventRepository.findAll().get(0);
+        assertEquals(OutboxEventEntity.Status.FAILED, rejected.getStatus());
+        assertEquals(1, rejected.getAttempts());
+
+        orderService.createOrder(request(2));
+        assertTrue(outboxDispatcher.drain(Duration.ofSeconds(5)));
+        assertEquals(18, itemRepository.findByItemId("outbox-item").orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    @DisplayName("Should retry a failing event and hold back later events for the same item until it is given up")
+    void shouldHoldBackLaterEventsBehindRetry() {
+        outboxEventRepository.save(OutboxEventEntity.builder()
+                .eventType(OutboxEventEntity.EventType.ORDER_PLACED)
+                .aggregateId("ORD-UNREADABLE")
+                .itemIds("outbox-item")
+                .payload("{")
+                .status(OutboxEventEntity.Status.PENDING)
+                .build());
+        outboxDispatcher.drain(Duration.ofSeconds(5));
+        OutboxEventEntity failing = outboxEventRepository.findAll().get(0);
+        assertEquals(OutboxEventEntity.Status.PENDING, failing.getStatus());
+        assertEquals(1, failing.getAttempts());
+        assertNotNull(failing.getLastError());
+
+        orderService.createOrder(request(2));
+        outboxDispatcher.drain(Duration.ofSeconds(5));
+        assertEquals(20, itemRepository.findByItemId("outbox-item").orElseThrow().getStockQuantity());
+
+        failing.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        outboxEventRepository.save(failing);
+        assertTrue(outboxDispatcher.drain(Duration.ofSeconds(10)));
+
+        assertEquals(OutboxEventEntity.Status.FAILED,
+                outboxEventRepository.findById(failing.getId()).orElseThrow().getStatus());
+        assertEquals(18, itemRepository.findByItemId("outbox-item").orElseThrow().getStockQuantity());
+    }
+
+    private OrderRequest request(int quantity) {
+        return OrderRequest.builder()
+                .customerName("Walk-in")
+                .subtotal(2.0 * quantity)
+                .tax(0.0)
+                .grandTotal(2.0 * quantity)
+                .paymentMethod("CASH")
+                .cartItems(List.of(OrderRequest.OrderItemRequest.builder()
+                        .itemId("outbox-item")
+                        .name("Tea")
+                        .price(2.0)
+                        .quantity(quantity)
+                        .build()))
+                .build();
+    }
+}
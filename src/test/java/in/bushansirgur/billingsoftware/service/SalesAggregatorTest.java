@@ -0,0 +1,162 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.io.OrderStatus;
+import in.bushansirgur.billingsoftware.io.PaymentDetails;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesReconciliation;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesAggregatorTest {
+
+    @Mock
+    private OrderEntityRepository orderEntityRepository;
+
+    private SalesAggregator salesAggregator;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now();
+        List<Object[]> facts = new ArrayList<>();
+        facts.add(new Object[]{1L, today.atTime(9, 15), "anna@shop.bg", PaymentMethod.CASH, 10.10, null, null});
+        facts.add(new Object[]{2L, today.atTime(9, 40), "anna@shop.bg", PaymentMethod.SPLIT, 20.00, 5.00, 15.00});
+        when(orderEntityRepository.findSalesFactsSince(any())).thenReturn(facts);
+
+        salesAggregator = new SalesAggregator(orderEntityRepository, 7);
+        salesAggregator.afterPropertiesSet();
+    }
+
+    @Test
+    @DisplayName("Should rebuild day totals and cash/card split from the database at startup")
+    void shouldRebuildFromDatabase() {
+        SalesTotals totals = salesAggregator.totalsForDay(today);
+
+        assertEquals(2, totals.getOrderCount());
+        assertEquals(30.10, totals.getTotal(), 0.0001);
+        assertEquals(15.10, totals.getCashAmount(), 0.0001);
+        assertEquals(15.00, totals.getCardAmount(), 0.0001);
+        assertTrue(salesAggregator.covers(today));
+        assertFalse(salesAggregator.covers(today.minusDays(7)));
+    }
+
+    @Test
+    @DisplayName("Should add orders and refunds and take deleted orders back out")
+    void shouldApplyOrdersRefundsAndDeletes() {
+        OrderEntity card = order(today.atTime(14, 5), "ivan@shop.bg", PaymentMethod.CARD, 7.25);
+        OrderEntity refund = order(today.atTime(14, 30), "ivan@shop.bg", PaymentMethod.CARD, -7.25);
+
+        salesAggregator.recordAfterCommit(card);
+        salesAggregator.recordAfterCommit(refund);
+        salesAggregator.removeAfterCommit(order(today.atTime(9, 15), "anna@shop.bg", PaymentMethod.CASH, 10.10));
+
+        assertEquals(3, salesAggregator.totalsForDay(today).getOrderCount());
+        assertEquals(20.00, salesAggregator.totalsForDay(today).getTotal(), 0.0001);
+        Map<Integer, SalesTotals> byHour = salesAggregator.totalsByHour(today);
+        assertEquals(2, byHour.get(14).getOrderCount());
+        assertEquals(0.0, byHour.get(14).getTotal(), 0.0001);
+        assertEquals(0.0, salesAggregator.totalsByPaymentMethod(today).get(PaymentMethod.CASH).getTotal(), 0.0001);
+        assertEquals(2, salesAggregator.totalsByCashier(today).get("ivan@shop.bg").getOrderCount());
+    }
+
+    @Test
+    @DisplayName("Should report a mismatch between memory and the database")
+    void shouldReconcileAgainstDatabase() {
+        when(orderEntityRepository.countOrdersBetween(any(), any())).thenReturn(2L, 3L);
+        when(orderEntityRepository.sumSalesBetween(any(), any())).thenReturn(30.10, 45.10);
+
+        SalesReconciliation inSync = salesAggregator.reconcile(today);
+        SalesReconciliation drifted = salesAggregator.reconcile(today);
+
+        assertTrue(inSync.isMatches());
+        assertFalse(drifted.isMatches());
+        assertEquals(3, drifted.getDatabaseOrderCount());
+        assertEquals(2, drifted.getAggregatedOrderCount());
+    }
+
+    @Test
+    @DisplayName("Should replay updates committed during a rebuild unless the rebuild already read them")
+    void shouldReplayUpdatesDuringRebuild() {
+        OrderEntity readByRebuild = order(today.atTime(11, 0), "ivan@shop.bg", PaymentMethod.CASH, 5.00);
+        readByRebuild.setId(11L);
+        OrderEntity committedAfterRead = order(today.atTime(11, 5), "ivan@shop.bg", PaymentMethod.CARD, 2.50);
+        committedAfterRead.setId(12L);
+        OrderEntity deletedAfterRead = order(today.atTime(9, 15), "anna@shop.bg", PaymentMethod.CASH, 10.10);
+        deletedAfterRead.setId(1L);
+        List<Object[]> facts = new ArrayList<>();
+        facts.add(new Object[]{1L, today.atTime(9, 15), "anna@shop.bg", PaymentMethod.CASH, 10.10, null, null});
+        facts.add(new Object[]{11L, today.atTime(11, 0), "ivan@shop.bg", PaymentMethod.CASH, 5.00, null, null});
+        when(orderEntityRepository.findSalesFactsSince(any())).thenAnswer(invocation -> {
+            salesAggregator.recordAfterCommit(readByRebuild);
+            salesAggregator.recordAfterCommit(committedAfterRead);
+            salesAggregator.removeAfterCommit(deletedAfterRead);
+            return facts;
+        });
+
+        salesAggregator.rebuild();
+
+        SalesTotals totals = salesAggregator.totalsForDay(today);
+        assertEquals(2, totals.getOrderCount());
+        assertEquals(7.50, totals.getTotal(), 0.0001);
+        assertEquals(2.50, totals.getCardAmount(), 0.0001);
+    }
+
+    @Test
+    @DisplayName("Should keep the newest orders, mark refunded originals and drop deleted orders")
+    void shouldKeepRecentOrders() {
+        OrderEntity seeded = order(today.minusDays(30).atTime(8, 0), "anna@shop.bg", PaymentMethod.CASH, 4.00);
+        seeded.setId(1L);
+        seeded.setOrderId("ORD-1");
+        when(orderEntityRepository.findRecentOrders(any())).thenReturn(List.of(seeded));
+        when(orderEntityRepository.findWithItemsByIdIn(List.of(1L))).thenReturn(List.of(seeded));
+        salesAggregator.rebuild();
+
+        List<OrderEntity> placed = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            OrderEntity order = order(today.atTime(10, i), "ivan@shop.bg", PaymentMethod.CARD, 1.00);
+            order.setOrderId("ORD-NEW-" + i);
+            placed.add(order);
+            salesAggregator.recordAfterCommit(order);
+        }
+        OrderEntity refund = order(today.atTime(11, 0), "ivan@shop.bg", PaymentMethod.CARD, -1.00);
+        refund.setOrderId("ORD-REFUND");
+        refund.setStatus(OrderStatus.REFUNDED);
+        refund.setOriginalOrderId("ORD-NEW-5");
+        salesAggregator.recordAfterCommit(refund);
+        salesAggregator.removeAfterCommit(placed.get(4));
+
+        // The seeded order and ORD-NEW-0 were pushed out; the deleted order is not replaced
+        assertEquals(List.of("ORD-REFUND", "ORD-NEW-5", "ORD-NEW-3", "ORD-NEW-2"),
+                salesAggregator.recentOrders(OrderEntity::getOrderId));
+        assertEquals(List.of(OrderStatus.REFUNDED, OrderStatus.REFUNDED),
+                salesAggregator.recentOrders(OrderEntity::getStatus).subList(0, 2));
+    }
+
+    private OrderEntity order(LocalDateTime createdAt, String cashier, PaymentMethod method, double grandTotal) {
+        return OrderEntity.builder()
+                .createdAt(createdAt)
+                .cashierUsername(cashier)
+                .paymentMethod(method)
+                .grandTotal(grandTotal)
+                .paymentDetails(new PaymentDetails())
+                .build();
+    }
+}
@@ -0,0 +1,218 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.OrderEntity;
+import in.bushansirgur.billingsoftware.entity.OrderItemEntity;
+import in.bushansirgur.billingsoftware.io.PaymentDetails;
+import in.bushansirgur.billingsoftware.io.PaymentMethod;
+import in.bushansirgur.billingsoftware.io.SalesTotals;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.OrderEntityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class SalesRollupServiceIntegrationTest {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderEntityRepository orderEntityRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("rollup-category")
+                .name("Rollup Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("rollup-wine")
+                .name("Wine")
+                .category(category)
+                .vatRate(new BigDecimal("0.20"))
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("rollup-bread")
+                .name("Bread")
+                .category(category)
+                .vatRate(new BigDecimal("0.09"))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tbl_sales_rollup");
+        coverFrom(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1));
+        orderEntityRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should split an order over VAT groups and count it once")
+    void shouldSplitOrderOverVatGroups() {
+        saveAndRecord("anna@shop.bg", PaymentMethod.SPLIT, 32.70, 10.00, 22.70,
+                line("rollup-wine", 12.00, 2), line("rollup-bread", 8.70, 1));
+
+        Map<String, Object> wine = jdbcTemplate.queryForMap(
+                "SELECT * FROM tbl_sales_rollup WHERE vat_rate = 0.2");
+        Map<String, Object> bread = jdbcTemplate.queryForMap(
+                "SELECT * FROM tbl_sales_rollup WHERE vat_rate = 0.09");
+        assertEquals(0, new BigDecimal("24.00").compareTo((BigDecimal) wine.get("GROSS_AMOUNT")));
+        assertEquals(0, new BigDecimal("4.00").compareTo((BigDecimal) wine.get("VAT_AMOUNT")));
+        assertEquals(0, new BigDecimal("8.70").compareTo((BigDecimal) bread.get("GROSS_AMOUNT")));
+        assertEquals(0, new BigDecimal("0.72").compareTo((BigDecimal) bread.get("VAT_AMOUNT")));
+        assertEquals(1L, ((Number) wine.get("ORDER_COUNT")).longValue() + ((Number) bread.get("ORDER_COUNT")).longValue());
+    }
+
+    @Test
+    @DisplayName("Should summarize orders and refunds per cashier and payment method")
+    void shouldSummarizeOrdersAndRefunds() {
+        coverFrom(LocalDate.now().atStartOfDay());
+        saveAndRecord("anna@shop.bg", PaymentMethod.CASH, 24.00, null, null, line("rollup-wine", 12.00, 2));
+        saveAndRecord("anna@shop.bg", PaymentMethod.CASH, -12.00, null, null, line("rollup-wine", 12.00, -1));
+        saveAndRecord("ivan@shop.bg", PaymentMethod.SPLIT, 8.70, 5.00, 3.70, line("rollup-bread", 8.70, 1));
+
+        LocalDate today = LocalDate.now();
+        Map<String, Map<PaymentMethod, SalesTotals>> sales =
+                salesRollupService.summarize(today.atStartOfDay(), today.plusDays(1).atStartOfDay());
+
+        SalesTotals annaCash = sales.get("anna@shop.bg").get(PaymentMethod.CASH);
+        assertEquals(2, annaCash.getOrderCount());
+        assertEquals(12.00, annaCash.getTotal(), 0.001);
+        assertEquals(12.00, annaCash.getCashAmount(), 0.001);
+        SalesTotals ivanSplit = sales.get("ivan@shop.bg").get(PaymentMethod.SPLIT);
+        assertEquals(5.00, ivanSplit.getCashAmount(), 0.001);
+        assertEquals(3.70, ivanSplit.getCardAmount(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should summarize hours before the rollup was complete from the orders")
+    void shouldFallBackToOrdersBeforeCoverage() {
+        LocalDate today = LocalDate.now();
+        coverFrom(today.atStartOfDay());
+        saveAndRecord("anna@shop.bg", PaymentMethod.CASH, 24.00, null, null, line("rollup-wine", 12.00, 2));
+        // Placed before the rollup existed: in tbl_orders only
+        orderEntityRepository.save(OrderEntity.builder()
+                .cashierUsername("anna@shop.bg")
+                .paymentMethod(PaymentMethod.CASH)
+                .grandTotal(8.70)
+                .paymentDetails(new PaymentDetails())
+                .build());
+
+        LocalDateTime from = today.atStartOfDay();
+        LocalDateTime to = today.plusDays(1).atStartOfDay();
+        assertEquals(1, salesRollupService.summarize(from, to).get("anna@shop.bg").get(PaymentMethod.CASH).getOrderCount());
+
+        coverFrom(LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1));
+        SalesTotals annaCash = salesRollupService.summarize(from, to).get("anna@shop.bg").get(PaymentMethod.CASH);
+        assertEquals(2, annaCash.getOrderCount());
+        assertEquals(32.70, annaCash.getTotal(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Should rebuild the same rollup rows from the orders of closed days and extend coverage")
+    void shouldBackfillFromOrders() {
+        saveAndRecord("anna@shop.bg", PaymentMethod.CARD, 32.70, null, null,
+                line("rollup-wine", 12.00, 2), line("rollup-bread", 8.70, 1));
+        saveAndRecord("ivan@shop.bg", PaymentMethod.CASH, 8.70, null, null, line("rollup-bread", 8.70, 1));
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        jdbcTemplate.update("UPDATE tbl_orders SET created_at = DATEADD('DAY', -1, created_at)");
+        jdbcTemplate.update("UPDATE tbl_sales_rollup SET sales_date = ?", java.sql.Date.valueOf(yesterday));
+        List<Map<String, Object>> recorded = rollupRows();
+        coverFrom(LocalDate.now().atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM tbl_sales_rollup");
+        int processed = salesRollupService.backfill(yesterday, yesterday);
+
+        assertEquals(2, processed);
+        assertEquals(recorded, rollupRows());
+        assertEquals(yesterday.atStartOfDay(), jdbcTemplate.queryForObject(
+                "SELECT covered_from FROM tbl_sales_rollup_state", Timestamp.class).toLocalDateTime());
+    }
+
+    @Test
+    @DisplayName("Should refuse to backfill a day that is still open")
+    void shouldRejectOpenDays() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> salesRollupService.backfill(LocalDate.now().minusDays(1), LocalDate.now()));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    private void coverFrom(LocalDateTime coveredFrom) {
+        jdbcTemplate.update("UPDATE tbl_sales_rollup_state SET covered_from = ?", Timestamp.valueOf(coveredFrom));
+    }
+
+    private List<Map<String, Object>> rollupRows() {
+        return jdbcTemplate.queryForList("SELECT sales_date, sales_hour, cashier_username, payment_method, vat_rate, " +
+                "order_count, gross_amount, net_amount, vat_amount, cash_amount, card_amount FROM tbl_sales_rollup " +
+                "ORDER BY cashier_username, payment_method, vat_rate");
+    }
+
+    private void saveAndRecord(String cashier, PaymentMethod method, double grandTotal, Double splitCash,
+                               Double splitCard, OrderItemEntity... lines) {
+        PaymentDetails paymentDetails = new PaymentDetails();
+        paymentDetails.setCashAmount(splitCash);
+        paymentDetails.setCardAmount(splitCard);
+        transactionTemplate.executeWithoutResult(status -> {
+            OrderEntity order = orderEntityRepository.save(OrderEntity.builder()
+                    .cashierUsername(cashier)
+                    .paymentMethod(method)
+                    .grandTotal(grandTotal)
+                    .paymentDetails(paymentDetails)
+                    .items(new java.util.ArrayList<>(List.of(lines)))
+                    .build());
+            salesRollupService.recordOrder(order);
+        });
+    }
+
+    private OrderItemEntity line(String itemId, double price, int quantity) {
+        return OrderItemEntity.builder()
+                .itemId(itemId)
+                .name(itemId)
+                .price(price)
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -0,0 +1,178 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class, properties = {
+        "inventory.write-behind.enabled=true",
+        "inventory.write-behind.flush-interval-ms=3600000"})
+@ActiveProfiles("test")
+class StockCountersIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockCounters stockCounters;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("counters-category")
+                .name("Counters Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("hot-item")
+                .name("Promo Chocolate")
+                .category(category)
+                .stockQuantity(500)
+                .reorderPoint(10)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        stockCounters.flush();
+        stockCounters.evictAfterCommit(List.of("hot-item"));
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should count sales in memory and write the stock on flush")
+    void shouldCountInMemoryAndFlush() {
+        inventoryService.processSaleTransactions(Map.of("hot-item", 3), "ORD-WB-1");
+        inventoryService.processSaleTransactions(Map.of("hot-item", 2), "ORD-WB-2");
+
+        assertEquals(495, inventoryService.getItemStock("hot-item").getCurrentStock());
+        assertEquals(500, itemRepository.findByItemId("hot-item").orElseThrow().getStockQuantity());
+        InventoryTransactionEntity second = transactionRepository.findAll().stream()
+                .filter(tx -> "ORD-WB-2".equals(tx.getReferenceNumber()))
+                .findFirst().orElseThrow();
+        assertEquals(497, second.getPreviousQuantity());
+        assertEquals(495, second.getNewQuantity());
+        assertTrue(second.getStockPending());
+
+        assertEquals(2, stockCounters.flush());
+
+        assertEquals(495, itemRepository.findByItemId("hot-item").orElseThrow().getStockQuantity());
+        assertTrue(transactionRepository.findAll().stream().noneMatch(tx -> Boolean.TRUE.equals(tx.getStockPending())));
+        assertEquals(0, stockCounters.flush());
+    }
+
+    @Test
+    @DisplayName("Should undo the in-memory count when the sale transaction rolls back")
+    void shouldUndoCountOnRollback() {
+        transactionTemplate.executeWithoutResult(status -> {
+            inventoryService.processSaleTransactions(Map.of("hot-item", 7), "ORD-WB-3");
+            status.setRollbackOnly();
+        });
+
+        assertEquals(500, inventoryService.getItemStock("hot-item").getCurrentStock());
+        assertEquals(0, stockCounters.flush());
+        assertTrue(transactionRepository.findAll().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep every unit when many registers sell the same item at once")
+    void shouldCountConcurrentSales() throws Exception {
+        ExecutorService registers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> sales = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String orderId = "ORD-WB-C" + i;
+                sales.add(registers.submit(() ->
+                        inventoryService.processSaleTransactions(Map.of("hot-item", 2), orderId)));
+            }
+            for (Future<?> sale : sales) {
+                sale.get();
+            }
+        } finally {
+            registers.shutdown();
+        }
+
+        stockCounters.flush();
+
+        assertEquals(100, inventoryService.getItemStock("hot-item").getCurrentStock());
+        assertEquals(100, itemRepository.findByItemId("hot-item").orElseThrow().getStockQuantity());
+        assertEquals(200, transactionRepository.count());
+    }
+
+    @Test
+    @DisplayName("Should apply ledger rows left unflushed by a crash")
+    void shouldRecoverUnflushedLedgerRows() {
+        transactionRepository.save(InventoryTransactionEntity.builder()
+                .transactionId("TXN-WB-CRASH")
+                .itemId("hot-item")
+                .transactionType(InventoryTransactionEntity.TransactionType.SALE)
+                .quantity(-4)
+                .previousQuantity(500)
+                .newQuantity(496)
+                .referenceNumber("ORD-WB-CRASH")
+                .createdAt(LocalDateTime.now())
+                .stockPending(true)
+                .build());
+
+        assertEquals(1, stockCounters.recoverPendingStock());
+
+        assertEquals(496, itemRepository.findByItemId("hot-item").orElseThrow().getStockQuantity());
+        assertEquals(0, stockCounters.recoverPendingStock());
+    }
+
+    @Test
+    @DisplayName("Should not apply a queued ledger row again once it has been applied")
+    void shouldFlushOnlyRowsStillPending() {
+        inventoryService.processSaleTransactions(Map.of("hot-item", 5), "ORD-WB-4");
+
+        assertEquals(1, stockCounters.recoverPendingStock());
+        assertEquals(0, stockCounters.flush());
+
+        assertEquals(495, itemRepository.findByItemId("hot-item").orElseThrow().getStockQuantity());
+    }
+}
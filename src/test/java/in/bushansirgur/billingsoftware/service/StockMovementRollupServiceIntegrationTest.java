@@ -0,0 +1,188 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.io.InventoryRequest;
+import in.bushansirgur.billingsoftware.io.ItemMovementHistoryResponse;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAdjustmentRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class StockMovementRollupServiceIntegrationTest {
+
+    @Autowired
+    private StockMovementRollupService stockMovementRollupService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAdjustmentRepository adjustmentRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private StockAlerts stockAlerts;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("movement-category")
+                .name("Movement Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("movement-item")
+                .name("Coffee")
+                .category(category)
+                .stockQuantity(100)
+                .reorderPoint(10)
+                .maxStockLevel(500)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        stockMovementRollupService.flush();
+        jdbcTemplate.update("DELETE FROM tbl_item_daily_movement");
+        alertRepository.deleteAll();
+        adjustmentRepository.deleteAll();
+        transactionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        stockAlerts.reload();
+    }
+
+    private void moveStock() {
+        inventoryService.addStock(InventoryRequest.builder().itemId("movement-item").quantity(20).build());
+        inventoryService.processSaleTransactions(Map.of("movement-item", 5), "ORD-MOV-1");
+        inventoryService.processSaleTransactions(Map.of("movement-item", 3), "ORD-MOV-2");
+        inventoryService.adjustStock(InventoryRequest.builder()
+                .itemId("movement-item").quantity(-2).adjustmentType("COUNT_CORRECTION").build());
+    }
+
+    @Test
+    @DisplayName("Should roll committed ledger rows up per item and day")
+    void shouldMaintainDailyRollup() {
+        moveStock();
+        assertEquals(4, stockMovementRollupService.flush());
+
+        Map<String, Object> day = jdbcTemplate.queryForMap(
+                "SELECT * FROM tbl_item_daily_movement WHERE item_id = 'movement-item'");
+        assertEquals(20, ((Number) day.get("QUANTITY_IN")).intValue());
+        assertEquals(8, ((Number) day.get("QUANTITY_OUT")).intValue());
+        assertEquals(-2, ((Number) day.get("ADJUSTMENTS")).intValue());
+        assertEquals(4, ((Number) day.get("MOVEMENT_COUNT")).intValue());
+        assertEquals(110, ((Number) day.get("CLOSING_STOCK")).intValue());
+    }
+
+    @Test
+    @DisplayName("Should read short ranges from the ledger and long ranges from the rollup")
+    void shouldPickRawRowsOrRollupByRange() {
+        moveStock();
+        LocalDate today = LocalDate.now();
+
+        ItemMovementHistoryResponse raw = stockMovementRollupService.getItemHistory("movement-item", today, today);
+        assertEquals(ItemMovementHistoryResponse.Granularity.MOVEMENT, raw.getGranularity());
+        assertEquals(4, raw.getPoints().size());
+        assertEquals("PURCHASE", raw.getPoints().get(0).getTransactionType());
+        assertEquals(120, raw.getPoints().get(0).getClosingStock());
+
+        ItemMovementHistoryResponse daily = stockMovementRollupService.getItemHistory("movement-item", today.minusDays(89), today);
+        assertEquals(ItemMovementHistoryResponse.Granularity.DAY, daily.getGranularity());
+        assertEquals(1, daily.getPoints().size());
+        assertEquals(today.atStartOfDay(), daily.getPoints().get(0).getPeriodStart());
+        assertEquals(8, daily.getPoints().get(0).getQuantityOut());
+        assertEquals(110, daily.getPoints().get(0).getClosingStock());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the rollup of past days from the ledger")
+    void shouldBackfillFromLedger() {
+        moveStock();
+        stockMovementRollupService.flush();
+        LocalDate lastWeek = LocalDate.now().minusDays(7);
+        jdbcTemplate.update("UPDATE tbl_inventory_transactions SET created_at = DATEADD('DAY', -7, created_at)");
+        jdbcTemplate.update("DELETE FROM tbl_item_daily_movement");
+
+        assertEquals(4, stockMovementRollupService.backfill(lastWeek, lastWeek));
+
+        Map<String, Object> day = jdbcTemplate.queryForMap(
+                "SELECT * FROM tbl_item_daily_movement WHERE item_id = 'movement-item'");
+        assertEquals(lastWeek, ((Date) day.get("MOVEMENT_DATE")).toLocalDate());
+        assertEquals(20, ((Number) day.get("QUANTITY_IN")).intValue());
+        assertEquals(8, ((Number) day.get("QUANTITY_OUT")).intValue());
+        assertEquals(110, ((Number) day.get("CLOSING_STOCK")).intValue());
+        assertEquals(lastWeek, ((Timestamp) day.get("LAST_MOVEMENT_AT")).toLocalDateTime().toLocalDate());
+    }
+
+    @Test
+    @DisplayName("Should close earlier days from the stock less the movements of the days after them")
+    void shouldRecloseEarlierDays() {
+        moveStock();
+        stockMovementRollupService.flush();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        jdbcTemplate.update("UPDATE tbl_item_daily_movement SET movement_date = ?, closing_stock = 0", Date.valueOf(yesterday));
+
+        inventoryService.processSaleTransactions(Map.of("movement-item", 4), "ORD-MOV-3");
+        stockMovementRollupService.flush();
+
+        assertEquals(110, closingStock(yesterday));
+        assertEquals(106, closingStock(LocalDate.now()));
+    }
+
+    @Test
+    @DisplayName("Should refuse to backfill a day that is still open")
+    void shouldRejectOpenDays() {
+        LocalDate today = LocalDate.now();
+        ResponseStatusException open = assertThrows(ResponseStatusException.class,
+                () -> stockMovementRollupService.backfill(today.minusDays(1), today));
+        assertEquals(HttpStatus.BAD_REQUEST, open.getStatusCode());
+        assertThrows(ResponseStatusException.class,
+                () -> stockMovementRollupService.backfill(today.minusDays(1), today.minusDays(2)));
+    }
+
+    private int closingStock(LocalDate day) {
+        return jdbcTemplate.queryForObject("SELECT closing_stock FROM tbl_item_daily_movement " +
+                "WHERE item_id = 'movement-item' AND movement_date = ?", Integer.class, Date.valueOf(day));
+    }
+}
@@ -0,0 +1,252 @@
+package in.bushansirgur.billingsoftware.service;
+
+import in.bushansirgur.billingsoftware.BillingsoftwareApplication;
+import in.bushansirgur.billingsoftware.entity.CategoryEntity;
+import in.bushansirgur.billingsoftware.entity.InventoryTransactionEntity;
+import in.bushansirgur.billingsoftware.entity.ItemEntity;
+import in.bushansirgur.billingsoftware.entity.StockSnapshotEntity;
+import in.bushansirgur.billingsoftware.io.StockAtItem;
+import in.bushansirgur.billingsoftware.io.StockAtResponse;
+import in.bushansirgur.billingsoftware.repository.CategoryRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryAlertRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryBatchRepository;
+import in.bushansirgur.billingsoftware.repository.InventoryTransactionRepository;
+import in.bushansirgur.billingsoftware.repository.ItemRepository;
+import in.bushansirgur.billingsoftware.repository.StockSnapshotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BillingsoftwareApplication.class)
+@ActiveProfiles("test")
+class StockSnapshotServiceIntegrationTest {
+
+    @Autowired
+    private StockSnapshotService stockSnapshotService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository transactionRepository;
+
+    @Autowired
+    private InventoryAlertRepository alertRepository;
+
+    @Autowired
+    private StockAlerts stockAlerts;
+
+    @Autowired
+    private InventoryBatchRepository inventoryBatchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+        CategoryEntity category = categoryRepository.save(CategoryEntity.builder()
+                .categoryId("snapshot-category")
+                .name("Snapshot Category")
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("snap-a")
+                .name("Coffee")
+                .category(category)
+                .stockQuantity(50)
+                .reorderPoint(5)
+                .costPrice(new BigDecimal("2.00"))
+                .build());
+        itemRepository.save(ItemEntity.builder()
+                .itemId("snap-b")
+                .name("Tea")
+                .category(category)
+                .stockQuantity(10)
+                .reorderPoint(5)
+                .costPrice(new BigDecimal("1.00"))
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    private void cleanUp() {
+        jdbcTemplate.update("DELETE FROM tbl_stock_snapshot_items");
+        snapshotRepository.deleteAll();
+        alertRepository.deleteAll();
+        transactionRepository.deleteAll();
+        itemRepository.deleteAll();
+        categoryRepository.deleteAll();
+        stockAlerts.reload();
+    }
+
+    @Test
+    @DisplayName("Should answer stock at a date from the snapshot plus later ledger rows")
+    void shouldApplyLedgerRowsAfterSnapshot() {
+        StockSnapshotEntity snapshot = stockSnapshotService.takeSnapshot();
+        assertTrue(snapshot.isFullSnapshot());
+        assertEquals(2, snapshot.getItemCount());
+
+        inventoryService.processSaleTransactions(Map.of("snap-a", 5), "ORD-SNAP-1");
+
+        StockAtResponse today = stockSnapshotService.getStockAt(LocalDate.now());
+        assertEquals(45, stock(today, "snap-a"));
+        assertEquals(10, stock(today, "snap-b"));
+        assertEquals(55, today.getTotalQuantity());
+        assertEquals(new BigDecimal("100.00"), today.getTotalValue());
+        assertEquals(1, today.getLedgerItemsApplied());
+
+        // Walks back from the snapshot: the sale came after it
+        StockAtResponse yesterday = stockSnapshotService.getStockAt(LocalDate.now().minusDays(1));
+        assertEquals(50, stock(yesterday, "snap-a"));
+    }
+
+    @Test
+    @DisplayName("Should store only changed items between full snapshots")
+    void shouldStoreOnlyChangedItems() {
+        stockSnapshotService.takeSnapshot();
+        inventoryService.processSaleTransactions(Map.of("snap-b", 4), "ORD-SNAP-2");
+
+        StockSnapshotEntity delta = stockSnapshotService.takeSnapshot();
+
+        assertFalse(delta.isFullSnapshot());
+        assertEquals(1, delta.getItemCount());
+        StockAtResponse today = stockSnapshotService.getStockAt(LocalDate.now());
+        assertEquals(50, stock(today, "snap-a"));
+        assertEquals(6, stock(today, "snap-b"));
+        assertEquals(0, today.getLedgerItemsApplied());
+    }
+
+    @Test
+    @DisplayName("Should apply ledger rows written after the snapshot even when dated or numbered before it")
+    void shouldApplyRowsWrittenAfterSnapshot() {
+        // Reserves an id block, so the next row gets a lower id than one another instance may have committed
+        inventoryService.processSaleTransactions(Map.of("snap-b", 1), "ORD-SNAP-3");
+        StockSnapshotEntity snapshot = stockSnapshotService.takeSnapshot();
+        assertTrue(snapshot.getLedgerStamped());
+
+        InventoryTransactionEntity late = ledgerRow(-2, 50, 48);
+        late.setCreatedAt(snapshot.getTakenAt().minusMinutes(1));
+        inventoryBatchRepository.insertTransactions(List.of(late));
+        jdbcTemplate.update("UPDATE tbl_items SET stock_quantity = 48 WHERE item_id = 'snap-a'");
+
+        StockAtResponse today = stockSnapshotService.getStockAt(LocalDate.now());
+        assertEquals(48, stock(today, "snap-a"));
+        assertEquals(9, stock(today, "snap-b"));
+    }
+
+    @Test
+    @DisplayName("Should wait for a transaction still writing ledger rows before reading stock")
+    void shouldWaitForInFlightLedgerWriter() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> transaction.executeWithoutResult(status -> {
+                inventoryBatchRepository.insertTransactions(List.of(ledgerRow(-2, 50, 48)));
+                jdbcTemplate.update("UPDATE tbl_items SET stock_quantity = 48 WHERE item_id = 'snap-a'");
+                inserted.countDown();
+                await(commit);
+            }));
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+
+            Future<StockSnapshotEntity> snapshot = executor.submit(() -> stockSnapshotService.takeSnapshot());
+            assertThrows(TimeoutException.class, () -> snapshot.get(300, TimeUnit.MILLISECONDS));
+            commit.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+            snapshot.get(10, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+
+        // The uncommitted row is in the stored stock, so neither direction applies it again
+        inventoryService.processSaleTransactions(Map.of("snap-a", 3), "ORD-SNAP-4");
+        assertEquals(45, stock(stockSnapshotService.getStockAt(LocalDate.now()), "snap-a"));
+        assertEquals(50, stock(stockSnapshotService.getStockAt(LocalDate.now().minusDays(1)), "snap-a"));
+    }
+
+    @Test
+    @DisplayName("Should write a ledger row for the stock an imported item starts with")
+    void shouldRecordOpeningStock() {
+        inventoryService.recordOpeningStock("snap-b", 10, "IMPORT");
+        inventoryService.recordOpeningStock("snap-a", 0, "IMPORT");
+
+        List<InventoryTransactionEntity> rows = transactionRepository.findAll();
+        assertEquals(1, rows.size());
+        assertEquals("snap-b", rows.get(0).getItemId());
+        assertEquals(10, rows.get(0).getQuantity());
+        assertEquals(10, rows.get(0).getNewQuantity());
+    }
+
+    @Test
+    @DisplayName("Should report when no snapshot exists yet")
+    void shouldRejectWithoutSnapshot() {
+        assertThrows(ResponseStatusException.class, () -> stockSnapshotService.getStockAt(LocalDate.now()));
+    }
+
+    private InventoryTransactionEntity ledgerRow(int quantity, int previousQuantity, int newQuantity) {
+        return InventoryTransactionEntity.builder()
+                .transactionId("TXN-" + UUID.randomUUID())
+                .itemId("snap-a")
+                .transactionType(InventoryTransactionEntity.TransactionType.SALE)
+                .quantity(quantity)
+                .previousQuantity(previousQuantity)
+                .newQuantity(newQuantity)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int stock(StockAtResponse response, String itemId) {
+        return response.getItems().stream()
+                .filter(item -> itemId.equals(item.getItemId()))
+                .mapToInt(StockAtItem::getStockQuantity)
+                .findFirst().orElseThrow();
+    }
+}
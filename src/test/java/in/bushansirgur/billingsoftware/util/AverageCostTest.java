@@ -0,0 +1,47 @@
+package in.bushansirgur.billingsoftware.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AverageCostTest {
+
+    @Test
+    @DisplayName("Should blend a costed receipt into the average by quantity")
+    void shouldBlendReceipt() {
+        // 10 @ 2.00 + 30 @ 3.00 = 110.00 / 40
+        assertEquals(new BigDecimal("2.7500"), AverageCost.afterReceipt(10, new BigDecimal("2.00"), 30, new BigDecimal("3.00")));
+        // 3 @ 1.00 + 1 @ 2.00 = 5.00 / 4, then 4 @ 1.25 + 2 @ 1.00 = 7.00 / 6
+        BigDecimal average = AverageCost.afterReceipt(3, new BigDecimal("1.00"), 1, new BigDecimal("2.00"));
+        assertEquals(new BigDecimal("1.2500"), average);
+        assertEquals(new BigDecimal("1.1667"), AverageCost.afterReceipt(4, average, 2, new BigDecimal("1.00")));
+    }
+
+    @Test
+    @DisplayName("Should take the receipt cost when there is no valued stock")
+    void shouldStartFromReceipt() {
+        assertEquals(new BigDecimal("4.5000"), AverageCost.afterReceipt(0, new BigDecimal("2.00"), 5, new BigDecimal("4.5")));
+        assertEquals(new BigDecimal("4.5000"), AverageCost.afterReceipt(-3, new BigDecimal("2.00"), 5, new BigDecimal("4.5")));
+        assertEquals(new BigDecimal("4.5000"), AverageCost.afterReceipt(8, null, 5, new BigDecimal("4.5")));
+    }
+
+    @Test
+    @DisplayName("Should keep the average for receipts without a cost")
+    void shouldKeepAverageWithoutCost() {
+        BigDecimal average = new BigDecimal("2.0000");
+        assertSame(average, AverageCost.afterReceipt(10, average, 5, null));
+        assertSame(average, AverageCost.afterReceipt(10, average, -5, new BigDecimal("9.00")));
+    }
+
+    @Test
+    @DisplayName("Should value positive stock in cents")
+    void shouldValueStock() {
+        assertEquals(1950, AverageCost.valueCents(6, new BigDecimal("3.2500")));
+        assertEquals(700, AverageCost.valueCents(6, new BigDecimal("1.1667")));
+        assertEquals(0, AverageCost.valueCents(-2, new BigDecimal("3.00")));
+        assertEquals(0, AverageCost.valueCents(4, null));
+    }
+}
@@ -0,0 +1,97 @@
+package in.bushansirgur.billingsoftware.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongObjectHashMapTest {
+
+    @Test
+    @DisplayName("Should put, replace and remove entries")
+    void shouldPutAndRemove() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+        assertNull(map.put(42L, "a"));
+        assertEquals("a", map.put(42L, "b"));
+        assertEquals("b", map.get(42L));
+        assertNull(map.get(43L));
+        assertEquals(1, map.size());
+
+        assertEquals("b", map.remove(42L));
+        assertNull(map.remove(42L));
+        assertNull(map.get(42L));
+        assertEquals(0, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, "x"));
+    }
+
+    @Test
+    @DisplayName("Should keep every key reachable through resizes and removals")
+    void shouldMatchHashMap() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(0);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            // A small key range forces long probe runs and frequent removals inside them
+            long key = BarcodeKeys.of(String.valueOf(4_000_000_000_000L + random.nextInt(3000)));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+    }
+
+    @Test
+    @DisplayName("Should keep entries visible to readers while another thread writes")
+    void shouldReadWhileWriting() throws InterruptedException {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>(0);
+        for (long key = 0; key < 100; key++) {
+            map.put(key, key);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (long key = 0; key < 100; key++) {
+                    if (!Long.valueOf(key).equals(map.get(key))) {
+                        failure.set("Key " + key + " read as " + map.get(key));
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        // Churn through inserts, removals and rehashes around the stable keys
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            long key = 100 + random.nextInt(5000);
+            if (random.nextBoolean()) {
+                map.put(key, key);
+            } else {
+                map.remove(key);
+            }
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    @Test
+    @DisplayName("Should key numeric retail barcodes only, keeping leading zeros apart")
+    void shouldKeyBarcodes() {
+        assertNotEquals(BarcodeKeys.NONE, BarcodeKeys.of("4006381333931"));
+        assertNotEquals(BarcodeKeys.of("012345678905"), BarcodeKeys.of("0012345678905"));
+        assertEquals(BarcodeKeys.NONE, BarcodeKeys.of("1234567"));
+        assertEquals(BarcodeKeys.NONE, BarcodeKeys.of("123456789012345"));
+        assertEquals(BarcodeKeys.NONE, BarcodeKeys.of("ABC-12345"));
+        assertEquals(BarcodeKeys.NONE, BarcodeKeys.of(null));
+    }
+}
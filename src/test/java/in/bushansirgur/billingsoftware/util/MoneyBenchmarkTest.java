@@ -0,0 +1,88 @@
+package in.bushansirgur.billingsoftware.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cart discount math (line totals, a percentage rule, the cart total) with BigDecimal and with {@link Money}.
+ * Run with {@code mvn test -Dtest=MoneyBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Tag("benchmark")
+@Slf4j
+class MoneyBenchmarkTest {
+
+    private static final int LINES = 50;
+    private static final int WARMUP_ROUNDS = 200_000;
+    private static final int ROUNDS = 1_000_000;
+
+    @Test
+    @DisplayName("Benchmark ns per cart for BigDecimal and Money discount math")
+    void benchmarkDiscountMath() {
+        Random random = new Random(42);
+        BigDecimal[] prices = new BigDecimal[LINES];
+        int[] quantities = new int[LINES];
+        for (int i = 0; i < LINES; i++) {
+            prices[i] = BigDecimal.valueOf(50 + random.nextInt(5000), 2);
+            quantities[i] = 1 + random.nextInt(5);
+        }
+        BigDecimal rate = new BigDecimal("0.15");
+        long[] priceCents = new long[LINES];
+        for (int i = 0; i < LINES; i++) {
+            priceCents[i] = Money.of(prices[i]).getCents();
+        }
+        long rateBasisPoints = Money.basisPoints(rate);
+
+        assertEquals(bigDecimalCart(prices, quantities, rate).movePointRight(2).longValueExact(),
+                moneyCart(priceCents, quantities, rateBasisPoints));
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            sink += bigDecimalCart(prices, quantities, rate).signum() + moneyCart(priceCents, quantities, rateBasisPoints);
+        }
+
+        long started = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += bigDecimalCart(prices, quantities, rate).signum();
+        }
+        double bigDecimalNs = (double) (System.nanoTime() - started) / ROUNDS;
+
+        started = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sink += moneyCart(priceCents, quantities, rateBasisPoints);
+        }
+        double moneyNs = (double) (System.nanoTime() - started) / ROUNDS;
+
+        log.info("{}-line cart: BigDecimal {} ns/op, Money {} ns/op ({}x) [{}]", LINES, Math.round(bigDecimalNs),
+                Math.round(moneyNs), String.format("%.1f", bigDecimalNs / moneyNs), sink & 1);
+        assertTrue(moneyNs < bigDecimalNs, "Money " + moneyNs + " ns/op vs BigDecimal " + bigDecimalNs + " ns/op");
+    }
+
+    private static BigDecimal bigDecimalCart(BigDecimal[] prices, int[] quantities, BigDecimal rate) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < prices.length; i++) {
+            BigDecimal line = prices[i].multiply(BigDecimal.valueOf(quantities[i]));
+            total = total.add(line.subtract(line.multiply(rate).setScale(2, RoundingMode.HALF_UP)));
+        }
+        return total;
+    }
+
+    private static long moneyCart(long[] priceCents, int[] quantities, long rateBasisPoints) {
+        long total = 0;
+        for (int i = 0; i < priceCents.length; i++) {
+            long line = priceCents[i] * quantities[i];
+            total += line - Money.percentOfCents(line, rateBasisPoints);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,78 @@
+package in.bushansirgur.billingsoftware.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    @DisplayName("Should round doubles and decimals to cents half away from zero")
+    void shouldRoundToCentsHalfUp() {
+        assertEquals(101, Money.toCents(1.005));
+        assertEquals(-101, Money.toCents(-1.005));
+        assertEquals(1999, Money.of(19.99).getCents());
+        assertEquals(13, Money.of(new BigDecimal("0.125")).getCents());
+        assertEquals(-13, Money.of(new BigDecimal("-0.125")).getCents());
+        assertEquals(Money.ZERO, Money.of((Double) null));
+        assertEquals(new BigDecimal("12.30"), Money.ofCents(1230).toBigDecimal());
+    }
+
+    @Test
+    @DisplayName("Should round doubles to the same cents as their decimal form")
+    void shouldRoundDoublesLikeTheirDecimalForm() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            // Half cents, whole cents and arbitrary doubles, both signs
+            double magnitude = switch (i % 3) {
+                case 0 -> (random.nextInt(2_000_000) * 2 + 1) / 200.0;
+                case 1 -> random.nextInt(10_000_000) / 100.0;
+                default -> random.nextDouble() * 100_000;
+            };
+            double amount = random.nextBoolean() ? magnitude : -magnitude;
+            long expected = BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            assertEquals(expected, Money.toCents(amount), () -> "for " + amount);
+        }
+        assertEquals(29, Money.toCents(0.29));
+        assertEquals(1, Money.toCents(0.005));
+        assertEquals(0, Money.toCents(-0.0));
+    }
+
+    @Test
+    @DisplayName("Should apply percentages and ratios with half-up rounding")
+    void shouldApplyPercentagesAndRatios() {
+        assertEquals(1500, Money.basisPoints(new BigDecimal("0.15")));
+        assertEquals(Money.ofCents(150), Money.ofCents(999).percent(1500));
+        assertEquals(Money.ofCents(-150), Money.ofCents(-999).percent(1500));
+        assertEquals(Money.ofCents(333), Money.ofCents(1000).ratio(1, 3));
+        assertEquals(Money.ofCents(667), Money.ofCents(1000).ratio(2, 3));
+        assertEquals(3, Money.divideHalfUp(5, 2));
+        assertEquals(2, Money.divideHalfUp(7, 4));
+        assertEquals(-3, Money.divideHalfUp(-5, 2));
+    }
+
+    @Test
+    @DisplayName("Should split a gross amount into net and VAT without losing a cent")
+    void shouldSplitGrossIntoNetAndVat() {
+        Money gross = Money.ofCents(1999);
+
+        Money vat = gross.vatFromGross(2000);
+        Money net = gross.netFromGross(2000);
+
+        assertEquals(Money.ofCents(333), vat);
+        assertEquals(gross, net.plus(vat));
+        assertEquals(Money.ofCents(-333), gross.negate().vatFromGross(2000));
+    }
+
+    @Test
+    @DisplayName("Should fail instead of overflowing")
+    void shouldFailOnOverflow() {
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE / 2).times(3));
+    }
+}
@@ -0,0 +1,183 @@
+package in.bushansirgur.billingsoftware.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeOrderIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    @DisplayName("Should generate unique and per-thread increasing ids under contention")
+    void shouldGenerateUniqueIdsConcurrently() throws Exception {
+        SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(7, Clock.systemUTC());
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    long previous = -1;
+                    boolean increasing = true;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        increasing &= id > previous;
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return increasing;
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    @DisplayName("Should stay monotonic when the wall clock steps back")
+    void shouldStayMonotonicWhenClockStepsBack() {
+        MutableClock clock = new MutableClock(SnowflakeOrderIdGenerator.EPOCH + 10_000);
+        SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(1, clock);
+
+        long beforeStep = generator.nextId();
+        clock.millis -= 5_000;
+        long afterStep = generator.nextId();
+
+        assertTrue(afterStep > beforeStep);
+    }
+
+    @Test
+    @DisplayName("Should roll into the next millisecond when the sequence is exhausted")
+    void shouldRollOverWhenSequenceExhausted() {
+        MutableClock clock = new MutableClock(SnowflakeOrderIdGenerator.EPOCH + 10_000);
+        SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(1, clock);
+
+        long previous = -1;
+        for (int i = 0; i <= SnowflakeOrderIdGenerator.SEQUENCE_MASK + 10; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep node ids apart")
+    void shouldEncodeNodeId() {
+        MutableClock clock = new MutableClock(SnowflakeOrderIdGenerator.EPOCH + 10_000);
+        long first = new SnowflakeOrderIdGenerator(1, clock).nextId();
+        long second = new SnowflakeOrderIdGenerator(2, clock).nextId();
+
+        assertNotEquals(first, second);
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeOrderIdGenerator(1024, clock));
+    }
+
+    @Test
+    @DisplayName("Should continue above the persisted lease after a restart on a clock that stepped back")
+    void shouldContinueAboveLeaseAfterRestart() {
+        MutableClock clock = new MutableClock(SnowflakeOrderIdGenerator.EPOCH + 100_000);
+        InMemoryLease lease = new InMemoryLease();
+        long beforeRestart = 0;
+        SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(3, clock, lease, 60_000);
+        for (int i = 0; i < 10; i++) {
+            beforeRestart = generator.nextId();
+        }
+        assertTrue(lease.leaseUntil > 100_000);
+
+        clock.millis -= 5_000;
+        long afterRestart = new SnowflakeOrderIdGenerator(3, clock, lease, 60_000).nextId();
+        assertTrue(afterRestart > beforeRestart);
+    }
+
+    @Test
+    @DisplayName("Should persist the lease on the lease thread before issuing ids beyond it")
+    void shouldExtendLeaseBeforeIssuing() {
+        MutableClock clock = new MutableClock(SnowflakeOrderIdGenerator.EPOCH + 100_000);
+        InMemoryLease lease = new InMemoryLease();
+        SnowflakeOrderIdGenerator generator = new SnowflakeOrderIdGenerator(3, clock, lease, 60_000);
+
+        clock.millis += SnowflakeOrderIdGenerator.LEASE_MILLIS * 3;
+        long id = generator.nextId();
+        long timestamp = id >>> (SnowflakeOrderIdGenerator.NODE_BITS + SnowflakeOrderIdGenerator.SEQUENCE_BITS);
+        assertTrue(timestamp < lease.leaseUntil);
+        assertTrue(lease.extendedBy.startsWith("order-id-lease-"));
+        generator.destroy();
+    }
+
+    @Test
+    @DisplayName("Should refuse to start when the clock is far behind the lease")
+    void shouldRefuseToStartBehindLease() {
+        InMemoryLease lease = new InMemoryLease();
+        lease.leaseUntil = 500_000;
+        MutableClock clock = new MutableClock(SnowflakeOrderIdGenerator.EPOCH + 100_000);
+
+        assertThrows(IllegalStateException.class, () -> new SnowflakeOrderIdGenerator(3, clock, lease, 60_000));
+    }
+
+    private static class InMemoryLease implements SnowflakeOrderIdGenerator.ClockLease {
+        private volatile long leaseUntil;
+        private volatile String extendedBy;
+
+        @Override
+        public long load(long nodeId) {
+            return leaseUntil;
+        }
+
+        @Override
+        public void extend(long nodeId, long leaseUntil) {
+            this.leaseUntil = Math.max(this.leaseUntil, leaseUntil);
+            this.extendedBy = Thread.currentThread().getName();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+    }
+}